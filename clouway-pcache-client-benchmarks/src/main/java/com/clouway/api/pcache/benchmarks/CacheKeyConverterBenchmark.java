@@ -0,0 +1,48 @@
+package com.clouway.api.pcache.benchmarks;
+
+import com.clouway.api.pcache.extensions.gae.CacheKeyConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheKeyConverterBenchmark is measuring the generation of the keys of the cached methods by their arguments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyConverterBenchmark {
+
+  @Param({"1", "3", "8"})
+  int arguments;
+
+  private final CacheKeyConverter converter = new CacheKeyConverter();
+  private final String key = String.valueOf("com.example.CustomerRepository.findCustomer".hashCode());
+  private Object[] args;
+
+  @Setup
+  public void setUp() {
+    args = new Object[arguments];
+    for (int i = 0; i < arguments; i++) {
+      args[i] = i % 2 == 0 ? (Object) ("argument-" + i) : (Object) (long) i;
+    }
+  }
+
+  @Benchmark
+  public String getHashCodesAsKey() {
+    return converter.getHashCodesAsKey(key, args);
+  }
+}
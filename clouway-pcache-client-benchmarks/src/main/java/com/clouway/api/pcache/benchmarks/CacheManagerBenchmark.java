@@ -0,0 +1,118 @@
+package com.clouway.api.pcache.benchmarks;
+
+import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.NamespaceProvider;
+import com.clouway.api.pcache.extensions.local.LocalCacheManagerFactory;
+import com.clouway.api.pcache.extensions.redis.RedisCacheManagerFactory;
+import com.clouway.api.pcache.testing.InMemoryCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheManagerBenchmark is measuring the throughput of the cache managers. The Redis cache manager is talking to a
+ * {@link LoopbackRedisServer}, so the measured time is spent in the client and in the loopback round trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheManagerBenchmark {
+  private static final int KEYS = 10;
+
+  @Param({"inMemory", "local", "offHeap", "mapped", "redis"})
+  String backend;
+
+  @Param({Payloads.STRING, Payloads.LONG, Payloads.SMALL_GRAPH, Payloads.LARGE_GRAPH})
+  String shape;
+
+  private LoopbackRedisServer server;
+  private File directory;
+  private CacheManager cacheManager;
+  private Object value;
+  private List<String> keys;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    if ("redis".equals(backend)) {
+      server = LoopbackRedisServer.start();
+      cacheManager = RedisCacheManagerFactory.create(server.getAddress());
+    } else if ("offHeap".equals(backend)) {
+      cacheManager = LocalCacheManagerFactory.createOffHeap(new NamespaceProvider() {
+        @Override
+        public String get() {
+          return "default";
+        }
+      }, 64 * 1024 * 1024);
+    } else if ("mapped".equals(backend)) {
+      directory = Files.createTempDirectory("pcache").toFile();
+      cacheManager = LocalCacheManagerFactory.createMapped(new NamespaceProvider() {
+        @Override
+        public String get() {
+          return "default";
+        }
+      }, directory, 256 * 1024 * 1024);
+    } else if ("local".equals(backend)) {
+      cacheManager = LocalCacheManagerFactory.create(KEYS);
+    } else {
+      cacheManager = new InMemoryCacheManager();
+    }
+
+    value = Payloads.of(shape);
+    keys = new ArrayList<String>(KEYS);
+    for (int i = 0; i < KEYS; i++) {
+      keys.add("::key " + i + "::");
+      cacheManager.put("::key " + i + "::", value);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    if (server != null) {
+      server.close();
+    }
+    if (directory != null) {
+      ((Closeable) cacheManager).close();
+      for (File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+  }
+
+  @Benchmark
+  public void put() {
+    cacheManager.put("::key 0::", value);
+  }
+
+  @Benchmark
+  public Object get() {
+    return cacheManager.get("::key 0::");
+  }
+
+  @Benchmark
+  public MatchResult<Object> getAll() {
+    return cacheManager.getAll(keys, Object.class);
+  }
+}
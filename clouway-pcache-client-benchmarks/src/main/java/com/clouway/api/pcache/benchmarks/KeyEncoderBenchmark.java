@@ -0,0 +1,63 @@
+package com.clouway.api.pcache.benchmarks;
+
+import com.clouway.api.pcache.KeyEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KeyEncoderBenchmark is comparing the encoding of the namespaced keys by the {@link KeyEncoder} with the formatting
+ * that was used by the cache managers before it. Run it with the GC profiler to compare the allocated bytes per
+ * operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyEncoderBenchmark {
+
+  @Param({"16", "64", "512"})
+  int keyLength;
+
+  private final String namespace = "tenant-42";
+  private final KeyEncoder encoder = KeyEncoder.create();
+  private final KeyEncoder hashingEncoder = KeyEncoder.create(KeyEncoder.MEMCACHE_MAX_KEY_LENGTH);
+  private String key;
+
+  @Setup
+  public void setUp() {
+    StringBuilder builder = new StringBuilder("customer:");
+    while (builder.length() < keyLength) {
+      builder.append(builder.length() % 10);
+    }
+    key = builder.substring(0, keyLength);
+  }
+
+  @Benchmark
+  public byte[] format() {
+    return String.format("%s:%s", namespace, key).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return encoder.encode(namespace, key);
+  }
+
+  @Benchmark
+  public byte[] encodeWithHashing() {
+    return hashingEncoder.encode(namespace, key);
+  }
+}
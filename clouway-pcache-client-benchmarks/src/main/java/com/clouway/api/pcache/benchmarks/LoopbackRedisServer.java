@@ -0,0 +1,207 @@
+package com.clouway.api.pcache.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * LoopbackRedisServer is an in-process stand-in of Redis which is speaking the RESP protocol over a loopback socket.
+ * <p/>
+ * It is supporting only the commands that are used by the cache managers for reading and writing of values and is
+ * keeping the values in memory without to expire them, so the benchmarks are measuring the client side of the
+ * communication without to depend on a running Redis server.
+ */
+public final class LoopbackRedisServer implements Closeable {
+  private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] PONG = "+PONG\r\n".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] NULL = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * Starts a new server on a free port of the loopback interface.
+   */
+  public static LoopbackRedisServer start() throws IOException {
+    LoopbackRedisServer server = new LoopbackRedisServer(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+    Thread acceptor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        server.accept();
+      }
+    }, "loopback-redis");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    return server;
+  }
+
+  private final ServerSocket serverSocket;
+  private final ConcurrentMap<ByteBuffer, byte[]> values = new ConcurrentHashMap<ByteBuffer, byte[]>();
+
+  private LoopbackRedisServer(ServerSocket serverSocket) {
+    this.serverSocket = serverSocket;
+  }
+
+  /**
+   * Gets the address of the server in the form that is used by the cache manager factories.
+   */
+  public String getAddress() {
+    return "127.0.0.1:" + serverSocket.getLocalPort();
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      final Socket socket;
+      try {
+        socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+      } catch (IOException e) {
+        return;
+      }
+
+      Thread connection = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          serve(socket);
+        }
+      }, "loopback-redis-connection");
+      connection.setDaemon(true);
+      connection.start();
+    }
+  }
+
+  private void serve(Socket socket) {
+    try {
+      InputStream in = new BufferedInputStream(socket.getInputStream());
+      OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+
+      while (true) {
+        byte[][] command = readCommand(in);
+        execute(command, out);
+        // responses of pipelined commands are flushed together
+        if (in.available() == 0) {
+          out.flush();
+        }
+      }
+    } catch (IOException e) {
+      // connection was closed by the client
+    } finally {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // noop
+      }
+    }
+  }
+
+  private void execute(byte[][] command, OutputStream out) throws IOException {
+    String name = new String(command[0], StandardCharsets.US_ASCII).toUpperCase();
+
+    if ("GET".equals(name)) {
+      writeBulk(out, values.get(ByteBuffer.wrap(command[1])));
+    } else if ("SET".equals(name)) {
+      values.put(ByteBuffer.wrap(command[1]), command[2]);
+      out.write(OK);
+    } else if ("PSETEX".equals(name) || "SETEX".equals(name)) {
+      values.put(ByteBuffer.wrap(command[1]), command[3]);
+      out.write(OK);
+    } else if ("MGET".equals(name)) {
+      writeLength(out, '*', command.length - 1);
+      for (int i = 1; i < command.length; i++) {
+        writeBulk(out, values.get(ByteBuffer.wrap(command[i])));
+      }
+    } else if ("DEL".equals(name) || "UNLINK".equals(name) || "EXISTS".equals(name)) {
+      long count = 0;
+      for (int i = 1; i < command.length; i++) {
+        ByteBuffer key = ByteBuffer.wrap(command[i]);
+        if ("EXISTS".equals(name) ? values.containsKey(key) : values.remove(key) != null) {
+          count++;
+        }
+      }
+      writeLength(out, ':', count);
+    } else if ("PING".equals(name)) {
+      out.write(PONG);
+    } else {
+      out.write(OK);
+    }
+  }
+
+  private static byte[][] readCommand(InputStream in) throws IOException {
+    expect(in, '*');
+    byte[][] command = new byte[(int) readLength(in)][];
+    for (int i = 0; i < command.length; i++) {
+      expect(in, '$');
+      byte[] argument = new byte[(int) readLength(in)];
+      int read = 0;
+      while (read < argument.length) {
+        int count = in.read(argument, read, argument.length - read);
+        if (count < 0) {
+          throw new EOFException();
+        }
+        read += count;
+      }
+      in.read();
+      in.read();
+      command[i] = argument;
+    }
+    return command;
+  }
+
+  private static void expect(InputStream in, char type) throws IOException {
+    int b = in.read();
+    if (b < 0) {
+      throw new EOFException();
+    }
+    if (b != type) {
+      throw new IOException("unexpected type: " + (char) b);
+    }
+  }
+
+  private static long readLength(InputStream in) throws IOException {
+    long length = 0;
+    boolean negative = false;
+    int b;
+    while ((b = in.read()) != '\r') {
+      if (b < 0) {
+        throw new EOFException();
+      }
+      if (b == '-') {
+        negative = true;
+      } else {
+        length = length * 10 + (b - '0');
+      }
+    }
+    in.read();
+    return negative ? -length : length;
+  }
+
+  private static void writeBulk(OutputStream out, byte[] value) throws IOException {
+    if (value == null) {
+      out.write(NULL);
+      return;
+    }
+    writeLength(out, '$', value.length);
+    out.write(value);
+    out.write(CRLF);
+  }
+
+  private static void writeLength(OutputStream out, char type, long length) throws IOException {
+    out.write(type);
+    out.write(Long.toString(length).getBytes(StandardCharsets.US_ASCII));
+    out.write(CRLF);
+  }
+}
@@ -0,0 +1,82 @@
+package com.clouway.api.pcache.benchmarks;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payloads is providing the shapes of the values that are used by the benchmarks.
+ */
+public final class Payloads {
+
+  /**
+   * The names of the shapes, to be used as values of the benchmark params.
+   */
+  public static final String STRING = "string";
+  public static final String LONG = "long";
+  public static final String SMALL_GRAPH = "smallGraph";
+  public static final String LARGE_GRAPH = "largeGraph";
+
+  /**
+   * Customer is a small object graph of a few fields and a nested object.
+   */
+  public static class Customer implements Serializable {
+    final long id;
+    final String name;
+    final String email;
+    final Address address;
+
+    Customer(long id, String name, String email, Address address) {
+      this.id = id;
+      this.name = name;
+      this.email = email;
+      this.address = address;
+    }
+  }
+
+  public static class Address implements Serializable {
+    final String city;
+    final String street;
+    final int number;
+
+    Address(String city, String street, int number) {
+      this.city = city;
+      this.street = street;
+      this.number = number;
+    }
+  }
+
+  /**
+   * Creates the payload of the provided shape.
+   *
+   * @param shape the shape of the payload
+   * @return the payload
+   * @throws IllegalArgumentException if shape is unknown
+   */
+  public static Object of(String shape) {
+    if (STRING.equals(shape)) {
+      return "customer-name-0123456789";
+    }
+    if (LONG.equals(shape)) {
+      return 1234567890123L;
+    }
+    if (SMALL_GRAPH.equals(shape)) {
+      return customer(1);
+    }
+    if (LARGE_GRAPH.equals(shape)) {
+      List<Customer> customers = new ArrayList<Customer>(1000);
+      for (int i = 0; i < 1000; i++) {
+        customers.add(customer(i));
+      }
+      return customers;
+    }
+    throw new IllegalArgumentException("unknown shape: " + shape);
+  }
+
+  private static Customer customer(int id) {
+    return new Customer(id, "Customer " + id, "customer" + id + "@example.com", new Address("Sofia", "Street " + id, id % 100));
+  }
+
+  private Payloads() {
+  }
+}
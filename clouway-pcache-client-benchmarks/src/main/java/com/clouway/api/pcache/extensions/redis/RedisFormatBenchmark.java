@@ -0,0 +1,87 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.ValueFormat;
+import com.clouway.api.pcache.ValueFormat.ValueAndFlags;
+import com.clouway.api.pcache.benchmarks.Payloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisFormatBenchmark is measuring the conversion of the values to their binary representation in Redis and back,
+ * by the {@link ValueFormat}, by the legacy {@link CacheItem} and by the {@link ItemSerializer} which is used by the
+ * cache managers.
+ * <p/>
+ * It's in the package of the Redis extension, as the {@link CacheItem} is not public.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisFormatBenchmark {
+
+  @Param({Payloads.STRING, Payloads.LONG, Payloads.SMALL_GRAPH, Payloads.LARGE_GRAPH})
+  String shape;
+
+  private final ItemSerializer serializer = new ItemSerializer(new CodecRegistry(), Compression.disabled());
+
+  private Object value;
+  private ValueAndFlags formatted;
+  private CacheItem item;
+  private byte[] itemBytes;
+  private byte[] serialized;
+
+  @Setup
+  public void setUp() {
+    value = Payloads.of(shape);
+    formatted = ValueFormat.format(value);
+    item = new CacheItem(formatted);
+    itemBytes = item.toByteArray();
+    serialized = serializer.encode(value);
+  }
+
+  @Benchmark
+  public ValueAndFlags format() {
+    return ValueFormat.format(value);
+  }
+
+  @Benchmark
+  public Object parse() {
+    return ValueFormat.parse(formatted.value, formatted.flags);
+  }
+
+  @Benchmark
+  public byte[] cacheItemToByteArray() {
+    return item.toByteArray();
+  }
+
+  @Benchmark
+  public CacheItem cacheItemParseFrom() {
+    return CacheItem.parseFrom(itemBytes);
+  }
+
+  @Benchmark
+  public byte[] serializerEncode() {
+    return serializer.encode(value);
+  }
+
+  @Benchmark
+  public Object serializerDecode() {
+    return serializer.decode(serialized);
+  }
+}
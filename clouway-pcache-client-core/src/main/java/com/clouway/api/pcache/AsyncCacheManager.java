@@ -0,0 +1,88 @@
+package com.clouway.api.pcache;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AsyncCacheManager is the non-blocking variant of the {@link CacheManager}. Operations are started immediately and
+ * their results are delivered through the returned futures, so independent lookups could be performed concurrently.
+ * <p/>
+ * Futures may be completed by the I/O threads of the implementation, so expensive work that depends on them should be
+ * scheduled with the async variants of {@link CompletableFuture}.
+ */
+public interface AsyncCacheManager {
+
+  /**
+   * Puts an Object in the cache with a specified key for a specified period of time(in seconds)
+   *
+   * @param key              the key of the object
+   * @param value            the object
+   * @param cacheTimeSeconds the length of the period in seconds
+   * @return future which is completed when value is stored
+   */
+  CompletableFuture<Void> put(String key, Object value, Integer cacheTimeSeconds);
+
+  /**
+   * Puts an Object in the cache with a specified key for a specified period of time(in mills)
+   *
+   * @param key   the key of the object
+   * @param value the object
+   * @param mills the length of the period in mills
+   * @return future which is completed when value is stored
+   */
+  CompletableFuture<Void> put(String key, Object value, Long mills);
+
+  /**
+   * Puts an Object in the cache.
+   *
+   * @param key   the key on which Object will be mapped
+   * @param value the object that will be cached
+   * @return future which is completed when value is stored
+   */
+  CompletableFuture<Void> put(String key, Object value);
+
+  /**
+   * Gets an object from the cache by it's key
+   *
+   * @param key the key
+   * @return future of the object or of null if it's not in the cache
+   */
+  CompletableFuture<Object> get(String key);
+
+  /**
+   * Gets a list of objects from the cache by their keys
+   *
+   * @param prefix used with the keys for lookup in the cache
+   * @param keys   the keys of desired objects
+   * @param clazz  the class of the result
+   * @return future of the object representing the work done
+   */
+  <V> CompletableFuture<MatchResult<V>> getAll(String prefix, List<String> keys, Class<V> clazz);
+
+  /**
+   * Gets a list of objects from the cache by their keys
+   *
+   * @param keys  the keys of desired objects
+   * @param clazz the class of the result
+   * @return future of the object representing the work done
+   */
+  <V> CompletableFuture<MatchResult<V>> getAll(List<String> keys, Class<V> clazz);
+
+  /**
+   * Removes an object from the cache by it's key
+   *
+   * @param key the key
+   * @return future which is completed when value is removed
+   */
+  CompletableFuture<Void> remove(String key);
+
+  /**
+   * Increment an object value in cache.
+   *
+   * @param o the object that value will be updated
+   * @param l the amount to increment with
+   * @return future of the new incremented value
+   */
+  CompletableFuture<Long> increment(Object o, Long l);
+
+}
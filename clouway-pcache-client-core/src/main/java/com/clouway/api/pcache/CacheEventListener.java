@@ -0,0 +1,58 @@
+package com.clouway.api.pcache;
+
+/**
+ * CacheEventListener is notified about the operations of the cache.
+ * <p/>
+ * Listeners are optional. Cache managers are checking for a registered listener before any of the event arguments is
+ * prepared, so the events are costing nothing when there is no listener. Listeners are called on the thread of the
+ * operation and should return quickly.
+ */
+public interface CacheEventListener {
+
+  /**
+   * Called when a value was found in the cache.
+   *
+   * @param key   the key of the value
+   * @param value the found value
+   */
+  void onHit(String key, Object value);
+
+  /**
+   * Called when a value was not found in the cache.
+   *
+   * @param key the key of the value
+   */
+  void onMiss(String key);
+
+  /**
+   * Called when a value was stored in the cache.
+   *
+   * @param key   the key of the value
+   * @param value the stored value
+   * @param mills the expiration in mills or 0 if value is stored without expiration
+   */
+  void onStore(String key, Object value, long mills);
+
+  /**
+   * Called when a value was removed from the cache.
+   *
+   * @param key the key of the value
+   */
+  void onRemove(String key);
+
+  /**
+   * Called when the entries of a namespace were flushed.
+   *
+   * @param namespace the flushed namespace
+   */
+  void onFlush(String namespace);
+
+  /**
+   * Called when the result of a cached method was computed after a miss.
+   *
+   * @param key          the key of the result
+   * @param method       the name of the computed method
+   * @param computeMills the time in mills which was spent in the computation
+   */
+  void onCompute(String key, String method, long computeMills);
+}
@@ -71,6 +71,35 @@ public interface CacheManager {
      */
    <V> MatchResult<V> getAll(List<String> keys, Class<V> clazz);
 
+    /**
+     * Gets a list of objects from the cache by their keys and loads the missed ones with a single call of the
+     * provider. Loaded objects are put back in the cache with a single bulk write.
+     *
+     * @param prefix used with the keys for lookup in the cache
+     * @param keys the keys of desired objects
+     * @param clazz the class of the result
+     * @param provider the provider of the objects that are missing in the cache
+     * @param mills the expiration time of the loaded objects in milliseconds
+     * @return object representing the work done, with hits in the order of the keys
+     */
+   default <V> MatchResult<V> getAll(String prefix, List<String> keys, Class<V> clazz, MissedHitsProvider<V> provider, Long mills) {
+     return ReadThrough.getAll(this, prefix, keys, clazz, provider, mills);
+   }
+
+    /**
+     * Gets a list of objects from the cache by their keys and loads the missed ones with a single call of the
+     * provider. Loaded objects are put back in the cache with a single bulk write.
+     *
+     * @param keys the keys of desired objects
+     * @param clazz the class of the result
+     * @param provider the provider of the objects that are missing in the cache
+     * @param mills the expiration time of the loaded objects in milliseconds
+     * @return object representing the work done, with hits in the order of the keys
+     */
+   default <V> MatchResult<V> getAll(List<String> keys, Class<V> clazz, MissedHitsProvider<V> provider, Long mills) {
+     return getAll("", keys, clazz, provider, mills);
+   }
+
    /**
     * Removes an object from the cache by it's key
     *
@@ -0,0 +1,51 @@
+package com.clouway.api.pcache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * CacheMetrics is holding the {@link OperationMetrics} of each operation, broken down per namespace.
+ */
+public class CacheMetrics {
+  private static final CacheOperation[] OPERATIONS = CacheOperation.values();
+
+  private final ConcurrentMap<String, OperationMetrics[]> namespaces = new ConcurrentHashMap<String, OperationMetrics[]>();
+
+  /**
+   * Gets the metrics of the operation in the provided namespace.
+   *
+   * @param namespace the namespace or null for the default namespace
+   * @param operation the operation
+   * @return the metrics of the operation
+   */
+  public OperationMetrics of(String namespace, CacheOperation operation) {
+    String key = namespace == null ? "" : namespace;
+
+    OperationMetrics[] metrics = namespaces.get(key);
+    if (metrics == null) {
+      metrics = new OperationMetrics[OPERATIONS.length];
+      for (int i = 0; i < metrics.length; i++) {
+        metrics[i] = new OperationMetrics();
+      }
+      OperationMetrics[] existing = namespaces.putIfAbsent(key, metrics);
+      if (existing != null) {
+        metrics = existing;
+      }
+    }
+    return metrics[operation.ordinal()];
+  }
+
+  /**
+   * Reports the metrics of all namespaces.
+   *
+   * @param reporter the reporter to which metrics are reported
+   */
+  public void report(MetricsReporter reporter) {
+    for (Map.Entry<String, OperationMetrics[]> namespace : namespaces.entrySet()) {
+      for (CacheOperation operation : OPERATIONS) {
+        reporter.report(namespace.getKey(), operation, namespace.getValue()[operation.ordinal()]);
+      }
+    }
+  }
+}
@@ -0,0 +1,8 @@
+package com.clouway.api.pcache;
+
+/**
+ * CacheOperation is the operation of the {@link CacheManager} for which metrics are recorded.
+ */
+public enum CacheOperation {
+  GET, GET_ALL, PUT, SAFE_PUT, LOCK, INCREMENT
+}
@@ -0,0 +1,58 @@
+package com.clouway.api.pcache;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CacheRegion is a group of cached fields which are sharing the same expiration and are invalidated together, like
+ * the fields of a single user.
+ * <p/>
+ * The expiration of the region is renewed by each write, so the fields of a region are expiring together when the
+ * region was not written for the period of the expiration.
+ */
+public interface CacheRegion {
+
+  /**
+   * Puts a field in the region.
+   *
+   * @param field the name of the field
+   * @param value the value of the field
+   */
+  void put(String field, Object value);
+
+  /**
+   * Puts multiple fields in the region.
+   *
+   * @param values the values of the fields, by their names
+   */
+  void putAll(Map<String, Object> values);
+
+  /**
+   * Gets a field of the region.
+   *
+   * @param field the name of the field
+   * @return the value of the field or null if it's missing
+   */
+  Object get(String field);
+
+  /**
+   * Gets multiple fields of the region.
+   *
+   * @param fields the names of the fields
+   * @param clazz  the type of the values
+   * @return the values of the found fields and the names of the missed fields
+   */
+  <V> MatchResult<V> getAll(List<String> fields, Class<V> clazz);
+
+  /**
+   * Removes a field of the region.
+   *
+   * @param field the name of the field
+   */
+  void remove(String field);
+
+  /**
+   * Invalidates all fields of the region.
+   */
+  void invalidate();
+}
@@ -0,0 +1,17 @@
+package com.clouway.api.pcache;
+
+/**
+ * CacheRegions is giving access to the {@link CacheRegion}s of the cache. Regions are in the current namespace of the
+ * cache at the time of each of their operations.
+ */
+public interface CacheRegions {
+
+  /**
+   * Gets the region with the provided name.
+   *
+   * @param name  the name of the region
+   * @param mills the expiration of the region in mills
+   * @return the region
+   */
+  CacheRegion region(String name, long mills);
+}
@@ -27,4 +27,22 @@ public @interface Cached {
 
   String key() default "";
 
+  /**
+   * Enables the probabilistic early recomputation of the result before it expires.
+   *
+   * @see EarlyExpiration
+   */
+  boolean earlyRecompute() default false;
+
+  /**
+   * The factor of the early recomputation. Values greater than 1 are favoring earlier recomputation.
+   */
+  double beta() default 1.0;
+
+  /**
+   * The time in milliseconds for which concurrent callers are waiting for the result of a running invocation of the
+   * method before they are invoking it themselves. It is bounded by the cache time of the method.
+   */
+  long waitMills() default 5000L;
+
 }
@@ -0,0 +1,17 @@
+package com.clouway.api.pcache;
+
+import java.io.Closeable;
+
+/**
+ * CloseableAsyncCacheManager is an {@link AsyncCacheManager} which is holding resources, like connections or
+ * background threads, that have to be released when the cache is no longer used.
+ */
+public interface CloseableAsyncCacheManager extends AsyncCacheManager, Closeable {
+
+  /**
+   * Releases the resources of the cache manager. Operations which were not sent yet are failed and the cache manager
+   * should not be used after it was closed.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,16 @@
+package com.clouway.api.pcache;
+
+import java.io.Closeable;
+
+/**
+ * CloseableCacheManager is a {@link CacheManager} which is holding resources, like files or background threads, that
+ * have to be released when the cache is no longer used.
+ */
+public interface CloseableCacheManager extends CacheManager, Closeable {
+
+  /**
+   * Releases the resources of the cache manager. The cache manager should not be used after it was closed.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,17 @@
+package com.clouway.api.pcache;
+
+import java.io.Closeable;
+
+/**
+ * CloseableLock is a {@link Lock} which is holding resources, like connections or subscriptions, that have to be
+ * released when the lock is no longer used.
+ */
+public interface CloseableLock extends Lock, Closeable {
+
+  /**
+   * Releases the resources of the lock. Threads which are waiting for a lock are woken up and the lock should not be
+   * used after it was closed.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,90 @@
+package com.clouway.api.pcache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * CodecRegistry is holding the {@link ValueCodec}s of the types which are not cached with the JVM serialization.
+ * <p/>
+ * Each codec is registered for a single type with an id which is stored together with the encoded value, so the id of
+ * a type should not be changed once values of the type are cached. Codecs are selected by the exact type of the value,
+ * so values of the subtypes are not encoded by the codec of their parent.
+ * <p/>
+ * Example:
+ * <code>
+ * CodecRegistry codecs = new CodecRegistry().register(1, Customer.class, new CustomerCodec());
+ * CacheManager cacheManager = RedisCacheManagerFactory.create("localhost", namespaceProvider, codecs);
+ * </code>
+ */
+public class CodecRegistry {
+
+  private static class Registration<T> {
+    private final int typeId;
+    private final ValueCodec<T> codec;
+
+    Registration(int typeId, ValueCodec<T> codec) {
+      this.typeId = typeId;
+      this.codec = codec;
+    }
+  }
+
+  private final ConcurrentMap<Class<?>, Registration<?>> byType = new ConcurrentHashMap<Class<?>, Registration<?>>();
+  private final ConcurrentMap<Integer, Registration<?>> byTypeId = new ConcurrentHashMap<Integer, Registration<?>>();
+
+  /**
+   * Registers a codec for the provided type.
+   *
+   * @param typeId the id of the type which is stored with the encoded values
+   * @param type   the type of the values
+   * @param codec  the codec of the values
+   * @return this registry
+   * @throws IllegalArgumentException if id is negative or type or id are already registered
+   */
+  public synchronized <T> CodecRegistry register(int typeId, Class<T> type, ValueCodec<T> codec) {
+    if (typeId < 0) {
+      throw new IllegalArgumentException("The id of the type should not be negative.");
+    }
+    if (byType.containsKey(type) || byTypeId.containsKey(typeId)) {
+      throw new IllegalArgumentException(String.format("A codec of type %s or with id %d is already registered.", type.getName(), typeId));
+    }
+
+    Registration<T> registration = new Registration<T>(typeId, codec);
+    byType.put(type, registration);
+    byTypeId.put(typeId, registration);
+    return this;
+  }
+
+  /**
+   * Encodes the provided value if there is a codec registered for it's type.
+   *
+   * @param value the value to be encoded
+   * @return the encoded value or null if there is no codec for the type of the value
+   */
+  @SuppressWarnings("unchecked")
+  public CodedValue encode(Object value) {
+    if (value == null || byType.isEmpty()) {
+      return null;
+    }
+
+    Registration<Object> registration = (Registration<Object>) byType.get(value.getClass());
+    if (registration == null) {
+      return null;
+    }
+    return new CodedValue(registration.typeId, registration.codec.encode(value));
+  }
+
+  /**
+   * Decodes a value that was encoded using {@link #encode(Object)}.
+   *
+   * @param value the encoded value
+   * @return the decoded value
+   * @throws CacheException if there is no codec registered with the id of the value
+   */
+  public Object decode(CodedValue value) {
+    Registration<?> registration = byTypeId.get(value.getTypeId());
+    if (registration == null) {
+      throw new CacheException(String.format("There is no codec registered with id %d.", value.getTypeId()));
+    }
+    return registration.codec.decode(value.getData());
+  }
+}
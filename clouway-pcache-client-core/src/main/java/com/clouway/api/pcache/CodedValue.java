@@ -0,0 +1,27 @@
+package com.clouway.api.pcache;
+
+import java.io.Serializable;
+
+/**
+ * CodedValue is the binary representation of a value that was encoded by a {@link ValueCodec}, together with the id
+ * of the type under which the codec was registered.
+ */
+public final class CodedValue implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final int typeId;
+  private final byte[] data;
+
+  public CodedValue(int typeId, byte[] data) {
+    this.typeId = typeId;
+    this.data = data;
+  }
+
+  public int getTypeId() {
+    return typeId;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+}
@@ -0,0 +1,161 @@
+package com.clouway.api.pcache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression is configuring the compression of the cached values. Values which binary representation is smaller than
+ * the threshold are stored as they are, so the small values are not paying the price of the compression.
+ * <p/>
+ * Values are compressed with the DEFLATE algorithm and are stored compressed only when the compressed representation
+ * is smaller. Decompressed data is limited in size, so a small corrupted or malicious entry is not able to exhaust the
+ * memory of the reader when it's inflated.
+ */
+public final class Compression {
+
+  /**
+   * The default maximum length of the decompressed data, which is larger than the values that are stored by the
+   * supported caches.
+   */
+  public static final int MAXIMUM_DECOMPRESSED_LENGTH = 64 * 1024 * 1024;
+
+  private static final Compression DISABLED = new Compression(Integer.MAX_VALUE);
+
+  /**
+   * Gets the compression which is never compressing the values.
+   *
+   * @return the disabled compression
+   */
+  public static Compression disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Creates a compression of the values that are equal or larger than the provided threshold.
+   *
+   * @param thresholdBytes the minimal size in bytes of the values that are compressed
+   * @return the newly created compression
+   */
+  public static Compression deflate(int thresholdBytes) {
+    if (thresholdBytes < 0) {
+      throw new IllegalArgumentException("The compression threshold should not be negative.");
+    }
+    return new Compression(thresholdBytes);
+  }
+
+  private final int thresholdBytes;
+
+  private Compression(int thresholdBytes) {
+    this.thresholdBytes = thresholdBytes;
+  }
+
+  /**
+   * Checks whether values could be compressed at all.
+   *
+   * @return true if compression is enabled
+   */
+  public boolean isEnabled() {
+    return this != DISABLED;
+  }
+
+  /**
+   * Checks whether data of the provided length is large enough to be compressed.
+   *
+   * @param length the length of the data in bytes
+   * @return true if data of that length could be compressed
+   */
+  public boolean accepts(long length) {
+    return isEnabled() && length >= thresholdBytes;
+  }
+
+  /**
+   * Compresses the provided data if it's large enough.
+   *
+   * @param data the data to be compressed
+   * @return the compressed data or null if data should be stored as it is
+   */
+  public byte[] compress(byte[] data) {
+    if (!accepts(data.length)) {
+      return null;
+    }
+
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+        if (out.size() >= data.length) {
+          return null;
+        }
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Decompresses data that was compressed using {@link #compress(byte[])} and which original length is not larger than
+   * {@link #MAXIMUM_DECOMPRESSED_LENGTH}.
+   *
+   * @param data the compressed data
+   * @return the original data
+   * @throws IllegalArgumentException if data is not compressed or is decompressed to more than the maximum length
+   */
+  public static byte[] decompress(byte[] data) {
+    return decompress(data, MAXIMUM_DECOMPRESSED_LENGTH);
+  }
+
+  /**
+   * Decompresses data that was compressed using {@link #compress(byte[])}.
+   *
+   * @param data          the compressed data
+   * @param maximumLength the maximum length in bytes of the original data
+   * @return the original data
+   * @throws IllegalArgumentException if data is not compressed or is decompressed to more than the maximum length
+   */
+  public static byte[] decompress(byte[] data, int maximumLength) {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(data.length * 4L, maximumLength));
+      byte[] buffer = new byte[8192];
+      while (!inflater.finished()) {
+        int count = inflater.inflate(buffer);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IllegalArgumentException("Compressed data is truncated.");
+        }
+        if (out.size() + count > maximumLength) {
+          throw new IllegalArgumentException("Compressed data is larger than " + maximumLength + " bytes.");
+        }
+        out.write(buffer, 0, count);
+      }
+      return out.toByteArray();
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("Cannot decompress data due bad format", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    Compression that = (Compression) o;
+    return thresholdBytes == that.thresholdBytes && isEnabled() == that.isEnabled();
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * thresholdBytes + (isEnabled() ? 1 : 0);
+  }
+}
@@ -0,0 +1,97 @@
+package com.clouway.api.pcache;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * EarlyExpiration is implementing the probabilistic early expiration (XFetch) of the cached values. Each reader is
+ * treating the entry as expired with a probability that rises as the expiration time approaches, so the value is
+ * recomputed by a single reader before it expires instead by all readers at the moment of the expiration.
+ * <p/>
+ * An entry is treated as expired when <code>now - computeMills * beta * ln(random()) &gt;= expiresAt</code>. Values
+ * of beta greater than 1 are favoring earlier recomputation and values less than 1 are delaying it.
+ * <p/>
+ * Values are stored as {@link EarlyExpiringValue} entries, which are unwrapped on read.
+ */
+public class EarlyExpiration {
+
+  private final double beta;
+
+  /**
+   * Creates a new early expiration with the default beta of 1.
+   */
+  public EarlyExpiration() {
+    this(1.0);
+  }
+
+  /**
+   * Creates a new early expiration with the provided beta.
+   *
+   * @param beta the factor of the early expiration
+   */
+  public EarlyExpiration(double beta) {
+    if (beta <= 0) {
+      throw new IllegalArgumentException("The beta of the early expiration should be positive.");
+    }
+    this.beta = beta;
+  }
+
+  /**
+   * Gets the value of the provided key or recomputes it when it's missing or when it's early expired.
+   *
+   * @param cacheManager the cache manager
+   * @param key          the key of the value
+   * @param mills        the expiration time of the value in milliseconds
+   * @param computation  the computation of the value
+   * @return the cached or the recomputed value
+   * @throws Throwable the error thrown by the computation
+   */
+  public <T> T get(CacheManager cacheManager, String key, Long mills, SingleFlight.Computation<T> computation) throws Throwable {
+    @SuppressWarnings("unchecked")
+    T value = (T) read(cacheManager.get(key), System.currentTimeMillis());
+    if (value != null) {
+      return value;
+    }
+
+    long start = System.currentTimeMillis();
+    value = computation.compute();
+
+    // null values are not cached
+    if (value != null) {
+      cacheManager.put(key, wrap(value, start, mills), mills);
+    }
+    return value;
+  }
+
+  /**
+   * Reads a cached entry. Values that were not stored as {@link EarlyExpiringValue} are returned as they are.
+   *
+   * @param cached the cached entry
+   * @param now    the current time in milliseconds
+   * @return the value or null if the entry is missing or should be recomputed
+   */
+  public Object read(Object cached, long now) {
+    if (!(cached instanceof EarlyExpiringValue)) {
+      return cached;
+    }
+
+    EarlyExpiringValue entry = (EarlyExpiringValue) cached;
+    double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+    if (now - entry.getComputeMills() * beta * Math.log(random) >= entry.getExpiresAt()) {
+      return null;
+    }
+    return entry.getValue();
+  }
+
+  /**
+   * Wraps a computed value for caching.
+   *
+   * @param value        the computed value
+   * @param computeStart the time in milliseconds when the computation was started
+   * @param mills        the expiration time of the value in milliseconds
+   * @return the entry that should be cached
+   */
+  public EarlyExpiringValue wrap(Object value, long computeStart, long mills) {
+    long now = System.currentTimeMillis();
+    return new EarlyExpiringValue(value, Math.max(0, now - computeStart), now + mills);
+  }
+}
@@ -0,0 +1,34 @@
+package com.clouway.api.pcache;
+
+import java.io.Serializable;
+
+/**
+ * EarlyExpiringValue is the cache entry of the values that are recomputed before their expiration. It's keeping the
+ * time which was needed for computation of the value and the time when it expires, next to the value.
+ * @see EarlyExpiration
+ */
+public final class EarlyExpiringValue implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final Object value;
+  private final long computeMills;
+  private final long expiresAt;
+
+  public EarlyExpiringValue(Object value, long computeMills, long expiresAt) {
+    this.value = value;
+    this.computeMills = computeMills;
+    this.expiresAt = expiresAt;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public long getComputeMills() {
+    return computeMills;
+  }
+
+  public long getExpiresAt() {
+    return expiresAt;
+  }
+}
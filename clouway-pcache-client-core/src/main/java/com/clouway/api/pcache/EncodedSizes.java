@@ -0,0 +1,78 @@
+package com.clouway.api.pcache;
+
+/**
+ * EncodedSizes is collecting the sizes of the encoded values, which are reported by the cache managers that are
+ * encoding the values themselves, for the operation that is executed by the current thread.
+ * <p/>
+ * Sizes are collected only while a recording is started, so reporting of the sizes is costing a single thread local
+ * lookup when nobody is interested in them. Recordings are nested, so each recording is collecting only the sizes
+ * that were reported while it was the current one.
+ */
+public final class EncodedSizes {
+  private static final ThreadLocal<EncodedSizes> CURRENT = new ThreadLocal<EncodedSizes>();
+
+  /**
+   * Reports the size of an encoded value to the recording of the current thread, if there is one.
+   *
+   * @param bytes the size of the encoded value in bytes
+   */
+  public static void report(long bytes) {
+    EncodedSizes recording = CURRENT.get();
+    if (recording != null) {
+      recording.add(bytes);
+    }
+  }
+
+  /**
+   * Starts a new recording of the sizes that are reported by the current thread.
+   *
+   * @return the started recording which should be stopped by the same thread
+   */
+  static EncodedSizes start() {
+    EncodedSizes recording = new EncodedSizes(CURRENT.get());
+    CURRENT.set(recording);
+    return recording;
+  }
+
+  private final EncodedSizes previous;
+  private long[] sizes = new long[4];
+  private int count;
+
+  private EncodedSizes(EncodedSizes previous) {
+    this.previous = previous;
+  }
+
+  /**
+   * Stops the recording and restores the recording which was current when this one was started.
+   */
+  void stop() {
+    if (previous == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(previous);
+    }
+  }
+
+  /**
+   * Gets the number of the reported sizes.
+   */
+  int count() {
+    return count;
+  }
+
+  /**
+   * Gets the reported size at the provided index.
+   */
+  long get(int index) {
+    return sizes[index];
+  }
+
+  private void add(long bytes) {
+    if (count == sizes.length) {
+      long[] grown = new long[count * 2];
+      System.arraycopy(sizes, 0, grown, 0, count);
+      sizes = grown;
+    }
+    sizes[count++] = bytes;
+  }
+}
@@ -0,0 +1,25 @@
+package com.clouway.api.pcache;
+
+/**
+ * FencedLock is a lock which leases are released only by their owners and are carrying a monotonically increasing
+ * fencing token.
+ */
+public interface FencedLock {
+
+  /**
+   * Tries to lock the provided key for the specified period of time.
+   *
+   * @param key        the key to lock
+   * @param leaseMills the period of time in mills after which the lock expires
+   * @return the lease or null if the key is already locked
+   */
+  LockLease tryLock(String key, long leaseMills);
+
+  /**
+   * Releases the lock of the lease if it's still owned by the lease.
+   *
+   * @param lease the lease to be released
+   * @return true if lock was released, false if it was expired or owned by somebody else
+   */
+  boolean unlock(LockLease lease);
+}
@@ -0,0 +1,95 @@
+package com.clouway.api.pcache;
+
+/**
+ * FrequencySketch is a Count-Min sketch with 4-bit counters which is estimating how often a key was accessed
+ * recently. The counters are halved periodically so the popularity of the keys is aging over the time.
+ * <p/>
+ * The sketch is not thread safe and is guarded by it's owner.
+ */
+class FrequencySketch {
+  private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int size;
+
+  FrequencySketch(int maximumSize) {
+    int length = ceilingPowerOfTwo(Math.max(maximumSize, 8));
+    this.table = new long[length];
+    this.tableMask = length - 1;
+    this.sampleSize = 10 * Math.max(maximumSize, 1);
+  }
+
+  /**
+   * Returns the estimated number of occurrences of the key, up to the maximum of 15.
+   */
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      frequency = Math.min(frequency, counterAt(indexOf(hash, i), counterOffset(hash, i)));
+    }
+    return frequency;
+  }
+
+  /**
+   * Increments the popularity of the key if it does not exceed the maximum of 15.
+   */
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), counterOffset(hash, i));
+    }
+
+    if (added && ++size == sampleSize) {
+      reset();
+    }
+  }
+
+  private int counterAt(int index, int offset) {
+    return (int) ((table[index] >>> offset) & 0xfL);
+  }
+
+  private boolean incrementAt(int index, int offset) {
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset() {
+    int count = 0;
+    for (int i = 0; i < table.length; i++) {
+      count += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (count >>> 2);
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  private int counterOffset(int hash, int i) {
+    return ((hash >>> (i << 3)) & 15) << 2;
+  }
+
+  private static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+
+  private static int ceilingPowerOfTwo(int x) {
+    return 1 << (32 - Integer.numberOfLeadingZeros(x - 1));
+  }
+}
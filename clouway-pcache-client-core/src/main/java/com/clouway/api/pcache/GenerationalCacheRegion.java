@@ -0,0 +1,80 @@
+package com.clouway.api.pcache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GenerationalCacheRegion is a {@link CacheRegion} which is keeping the fields as separate entries of a
+ * {@link CacheManager}, for caches which have no native support of regions.
+ * <p/>
+ * The keys of the fields are prefixed by the name of the region and by it's current generation, so the region is
+ * invalidated by an increment of the generation and the fields of the previous generations are left to expire.
+ * Generations are kept in a {@link NamespaceGenerations.Store} by the name of the region, which is initializing the
+ * missing generations atomically by the current time, so concurrent writers are not overwriting the generation of each
+ * other and a generation that was evicted is not reusing the fields of an earlier one.
+ * <p/>
+ * Unlike the contract of {@link CacheRegion}, each field is a separate entry which expiration is renewed only when the
+ * field is written, so the fields of the region are expiring individually.
+ */
+public class GenerationalCacheRegion implements CacheRegion {
+  private final CacheManager cacheManager;
+  private final NamespaceGenerations.Store generations;
+  private final String name;
+  private final long mills;
+
+  /**
+   * Creates a new region which fields are kept in the provided cache manager.
+   *
+   * @param cacheManager the cache manager of the fields
+   * @param generations  the store of the generations of the regions
+   * @param name         the name of the region
+   * @param mills        the expiration of the fields in mills
+   */
+  public GenerationalCacheRegion(CacheManager cacheManager, NamespaceGenerations.Store generations, String name, long mills) {
+    this.cacheManager = cacheManager;
+    this.generations = generations;
+    this.name = name;
+    this.mills = mills;
+  }
+
+  @Override
+  public void put(String field, Object value) {
+    cacheManager.put(prefix() + field, value, mills);
+  }
+
+  @Override
+  public void putAll(Map<String, Object> values) {
+    String prefix = prefix();
+
+    Map<String, Object> prefixed = new LinkedHashMap<String, Object>(values.size());
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      prefixed.put(prefix + entry.getKey(), entry.getValue());
+    }
+    cacheManager.putAll(prefixed, mills);
+  }
+
+  @Override
+  public Object get(String field) {
+    return cacheManager.get(prefix() + field);
+  }
+
+  @Override
+  public <V> MatchResult<V> getAll(List<String> fields, Class<V> clazz) {
+    return cacheManager.getAll(prefix(), fields, clazz);
+  }
+
+  @Override
+  public void remove(String field) {
+    cacheManager.remove(prefix() + field);
+  }
+
+  @Override
+  public void invalidate() {
+    generations.increment(name);
+  }
+
+  private String prefix() {
+    return "region:" + name + ":" + generations.get(name) + ":";
+  }
+}
@@ -0,0 +1,253 @@
+package com.clouway.api.pcache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * InstrumentedCacheManager is a {@link CacheManager} decorator which is recording the hits, the misses, the errors,
+ * the latency and the sizes of the values of the cache operations in {@link CacheMetrics}, broken down by the
+ * namespace of the calls.
+ * <p/>
+ * Sizes are the encoded sizes of the values which are reported through {@link EncodedSizes} by the cache managers
+ * that are encoding the values themselves, so they are recorded without any extra work. Values of the cache managers
+ * that are not reporting sizes are sized only when a {@link ValueSizer} was provided, as sizing could cost as much as
+ * the encoding of the value, so it should be sampled for the hot caches, see {@link ValueSizer#sampled(ValueSizer, int)}.
+ * <p/>
+ * Latency is recorded before the values are sized, so the time spent in sizing is not part of the reported latency.
+ * Operations which are not part of {@link CacheOperation} are delegated without to be recorded.
+ */
+public class InstrumentedCacheManager implements CacheManager {
+  private final CacheManager cacheManager;
+  private final NamespaceProvider namespaceProvider;
+  private final CacheMetrics metrics;
+  private final ValueSizer sizer;
+
+  /**
+   * Creates a new instrumented cache manager which is recording only the sizes that are reported by the cache manager.
+   *
+   * @param cacheManager      the cache manager to be instrumented
+   * @param namespaceProvider the namespace provider used by the cache manager
+   * @param metrics           the metrics in which operations are recorded
+   */
+  public InstrumentedCacheManager(CacheManager cacheManager, NamespaceProvider namespaceProvider, CacheMetrics metrics) {
+    this(cacheManager, namespaceProvider, metrics, null);
+  }
+
+  /**
+   * Creates a new instrumented cache manager.
+   *
+   * @param cacheManager      the cache manager to be instrumented
+   * @param namespaceProvider the namespace provider used by the cache manager
+   * @param metrics           the metrics in which operations are recorded
+   * @param sizer             the sizer of the values which are not sized by the cache manager or null if they should
+   *                          not be sized
+   */
+  public InstrumentedCacheManager(CacheManager cacheManager, NamespaceProvider namespaceProvider, CacheMetrics metrics, ValueSizer sizer) {
+    this.cacheManager = cacheManager;
+    this.namespaceProvider = namespaceProvider;
+    this.metrics = metrics;
+    this.sizer = sizer;
+  }
+
+  @Override
+  public void put(String key, Object value, Integer cacheTimeSeconds) {
+    OperationMetrics metrics = metricsOf(CacheOperation.PUT);
+    EncodedSizes sizes = EncodedSizes.start();
+    timed(metrics, sizes, () -> cacheManager.put(key, value, cacheTimeSeconds));
+    recordSize(metrics, sizes, value);
+  }
+
+  @Override
+  public void put(String key, Object value, Long mills) {
+    OperationMetrics metrics = metricsOf(CacheOperation.PUT);
+    EncodedSizes sizes = EncodedSizes.start();
+    timed(metrics, sizes, () -> cacheManager.put(key, value, mills));
+    recordSize(metrics, sizes, value);
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    OperationMetrics metrics = metricsOf(CacheOperation.PUT);
+    EncodedSizes sizes = EncodedSizes.start();
+    timed(metrics, sizes, () -> cacheManager.put(key, value));
+    recordSize(metrics, sizes, value);
+  }
+
+  @Override
+  public void putAll(Map<String, Object> values, Long mills) {
+    OperationMetrics metrics = metricsOf(CacheOperation.PUT);
+    EncodedSizes sizes = EncodedSizes.start();
+    timed(metrics, sizes, () -> cacheManager.putAll(values, mills));
+    recordSizes(metrics, sizes, values.values());
+  }
+
+  @Override
+  public Object get(String key) {
+    OperationMetrics metrics = metricsOf(CacheOperation.GET);
+    EncodedSizes sizes = EncodedSizes.start();
+    Object value = timed(metrics, sizes, () -> cacheManager.get(key));
+
+    if (value == null) {
+      metrics.recordMisses(1);
+    } else {
+      metrics.recordHits(1);
+      recordSize(metrics, sizes, value);
+    }
+    return value;
+  }
+
+  @Override
+  public <V> MatchResult<V> getAll(String prefix, List<String> keys, Class<V> clazz) {
+    OperationMetrics metrics = metricsOf(CacheOperation.GET_ALL);
+    EncodedSizes sizes = EncodedSizes.start();
+    MatchResult<V> result = timed(metrics, sizes, () -> cacheManager.getAll(prefix, keys, clazz));
+    return recorded(metrics, sizes, result);
+  }
+
+  @Override
+  public <V> MatchResult<V> getAll(List<String> keys, Class<V> clazz) {
+    OperationMetrics metrics = metricsOf(CacheOperation.GET_ALL);
+    EncodedSizes sizes = EncodedSizes.start();
+    MatchResult<V> result = timed(metrics, sizes, () -> cacheManager.getAll(keys, clazz));
+    return recorded(metrics, sizes, result);
+  }
+
+  @Override
+  public void remove(String key) {
+    cacheManager.remove(key);
+  }
+
+  @Override
+  public boolean safePut(Object key, SafeValue safeValue, Object value) {
+    OperationMetrics metrics = metricsOf(CacheOperation.SAFE_PUT);
+    EncodedSizes sizes = EncodedSizes.start();
+    boolean stored = timed(metrics, sizes, () -> cacheManager.safePut(key, safeValue, value));
+    return recorded(metrics, stored, sizes, value);
+  }
+
+  @Override
+  public boolean safePut(Object key, SafeValue safeValue, Object value, Integer expiration) {
+    OperationMetrics metrics = metricsOf(CacheOperation.SAFE_PUT);
+    EncodedSizes sizes = EncodedSizes.start();
+    boolean stored = timed(metrics, sizes, () -> cacheManager.safePut(key, safeValue, value, expiration));
+    return recorded(metrics, stored, sizes, value);
+  }
+
+  @Override
+  public boolean lock(String key) {
+    OperationMetrics metrics = metricsOf(CacheOperation.LOCK);
+    boolean locked = timed(metrics, null, () -> cacheManager.lock(key));
+    return recorded(metrics, locked);
+  }
+
+  @Override
+  public boolean lock(String key, int expiration) {
+    OperationMetrics metrics = metricsOf(CacheOperation.LOCK);
+    boolean locked = timed(metrics, null, () -> cacheManager.lock(key, expiration));
+    return recorded(metrics, locked);
+  }
+
+  @Override
+  public SafeValue getSafeValue(Object key) {
+    return cacheManager.getSafeValue(key);
+  }
+
+  @Override
+  public Long increment(Object o, Long l) {
+    OperationMetrics metrics = metricsOf(CacheOperation.INCREMENT);
+    Long value = timed(metrics, null, () -> cacheManager.increment(o, l));
+    return value;
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return cacheManager.contains(key);
+  }
+
+  @Override
+  public void flushCache() {
+    cacheManager.flushCache();
+  }
+
+  private OperationMetrics metricsOf(CacheOperation operation) {
+    return metrics.of(namespaceProvider.get(), operation);
+  }
+
+  private void timed(OperationMetrics metrics, EncodedSizes sizes, Runnable operation) {
+    timed(metrics, sizes, () -> {
+      operation.run();
+      return null;
+    });
+  }
+
+  /**
+   * Records the latency of the operation and it's error if it fails. Sizes are stopped when the operation returns, so
+   * they are not collecting the sizes of the other calls.
+   */
+  private <T> T timed(OperationMetrics metrics, EncodedSizes sizes, Supplier<T> operation) {
+    long start = System.nanoTime();
+    T result;
+    try {
+      result = operation.get();
+    } catch (RuntimeException e) {
+      metrics.recordLatency(System.nanoTime() - start);
+      metrics.recordError();
+      throw e;
+    } finally {
+      if (sizes != null) {
+        sizes.stop();
+      }
+    }
+    metrics.recordLatency(System.nanoTime() - start);
+    return result;
+  }
+
+  private <V> MatchResult<V> recorded(OperationMetrics metrics, EncodedSizes sizes, MatchResult<V> result) {
+    metrics.recordHits(result.getHits().size());
+    metrics.recordMisses(result.getMissedKeys().size());
+    recordSizes(metrics, sizes, result.getHits());
+    return result;
+  }
+
+  private boolean recorded(OperationMetrics metrics, boolean succeeded, EncodedSizes sizes, Object value) {
+    if (succeeded) {
+      recordSize(metrics, sizes, value);
+    }
+    return recorded(metrics, succeeded);
+  }
+
+  private boolean recorded(OperationMetrics metrics, boolean succeeded) {
+    if (succeeded) {
+      metrics.recordHits(1);
+    } else {
+      metrics.recordMisses(1);
+    }
+    return succeeded;
+  }
+
+  private void recordSize(OperationMetrics metrics, EncodedSizes sizes, Object value) {
+    recordSizes(metrics, sizes, Collections.singletonList(value));
+  }
+
+  private void recordSizes(OperationMetrics metrics, EncodedSizes sizes, Collection<?> values) {
+    if (sizes.count() > 0) {
+      for (int i = 0; i < sizes.count(); i++) {
+        metrics.recordSize(sizes.get(i));
+      }
+      return;
+    }
+
+    if (sizer == null) {
+      return;
+    }
+    for (Object value : values) {
+      long size = value == null ? -1 : sizer.sizeOf(value);
+      if (size >= 0) {
+        metrics.recordSize(size);
+      }
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.clouway.api.pcache;
+
+import java.io.Closeable;
+import java.util.Collection;
+
+/**
+ * InvalidationChannel is used to notify the other nodes of the cluster that a cached entry was changed, so they are
+ * able to drop the copies they are keeping locally.
+ * <p/>
+ * Implementations are expected to not deliver the messages that were published by the same channel instance back to
+ * it's own listeners.
+ */
+public interface InvalidationChannel extends Closeable {
+
+  /**
+   * Publishes that the entry with the provided key was changed.
+   *
+   * @param namespace the namespace of the entry
+   * @param key       the key of the entry or null when the whole namespace was flushed
+   */
+  void publish(String namespace, String key);
+
+  /**
+   * Publishes that the entries with the provided keys were changed. Channels which are able to deliver many keys in
+   * a single message should override it, as by default each key is published on it's own.
+   *
+   * @param namespace the namespace of the entries
+   * @param keys      the keys of the entries
+   */
+  default void publishAll(String namespace, Collection<String> keys) {
+    for (String key : keys) {
+      publish(namespace, key);
+    }
+  }
+
+  /**
+   * Subscribes the provided listener for the changes that are made by the other nodes.
+   *
+   * @param listener the listener to be notified
+   */
+  void subscribe(InvalidationListener listener);
+
+  /**
+   * Stops the delivery of the changes and releases the resources that are used by the channel.
+   */
+  @Override
+  default void close() {
+  }
+
+}
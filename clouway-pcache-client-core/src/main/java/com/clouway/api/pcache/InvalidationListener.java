@@ -0,0 +1,17 @@
+package com.clouway.api.pcache;
+
+/**
+ * InvalidationListener is notified when cached entries were changed by another node and any local copies of them
+ * are no longer valid.
+ */
+public interface InvalidationListener {
+
+  /**
+   * Called when an entry or a group of entries was changed elsewhere.
+   *
+   * @param namespace the namespace of the changed entries or null when all entries of all namespaces are affected
+   * @param key       the key of the changed entry or null when the whole namespace was flushed
+   */
+  void invalidated(String namespace, String key);
+
+}
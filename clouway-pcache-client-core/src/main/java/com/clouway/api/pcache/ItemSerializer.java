@@ -0,0 +1,227 @@
+package com.clouway.api.pcache;
+
+import com.clouway.api.pcache.ValueFormat.Flag;
+import com.clouway.api.pcache.ValueFormat.ValueAndFlags;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ItemSerializer is converting the cached values to the binary representation that is persisted by the cache managers
+ * which are storing the values as bytes, like the Redis, the off-heap and the memory-mapped ones, and back.
+ * <p/>
+ * Values of the types which have a codec in the {@link CodecRegistry} are encoded by the codec and are stored with the
+ * {@link Flag#CODEC} flag and the id of their type. All other values are encoded using the {@link ValueFormat}.
+ * <p/>
+ * Values are stored in a compact envelope:
+ * <pre>
+ * | magic (1 byte) | version (1 byte) | flag (1 byte) | stamp (8 bytes) | payload |
+ * </pre>
+ * where the lower 7 bits of the flag are the ordinal of the {@link Flag} and the highest bit is set when the payload is
+ * compressed. The stamp is changed by every write of the entry and is used for the compare-and-set of the entries
+ * without comparing their payloads. Values that were stored in the first version of the envelope, which has no stamp,
+ * are still readable and the values that were stored before the envelope was introduced are read by the
+ * {@link LegacyFormat}, if one is provided.
+ * <p/>
+ * The stamp is not a version of the entry. Plain writes are stamping the entry with a random 64 bit value, so they are
+ * not reading the current stamp and are costing a single command, while the compare-and-set is stamping the entry
+ * with the stamp it has replaced increased by one. An entry is taken as unchanged when it's stamp is equal to the one
+ * that was read, so a change is missed (ABA) only when the writes after the read are producing the same stamp again:
+ * a random stamp is equal to it with probability of 2^-64 per write and a chain of n compare-and-sets which started
+ * from a random stamp is reaching it with probability of about n * 2^-64.
+ */
+public final class ItemSerializer {
+  public static final byte MAGIC = (byte) 0xCA;
+  public static final byte VERSION = 2;
+
+  /**
+   * The offset and the length of the stamp in the envelope.
+   */
+  public static final int STAMP_OFFSET = 3;
+  public static final int STAMP_LENGTH = 8;
+
+  /**
+   * Entry is a decoded value together with it's stamp.
+   */
+  public static final class Entry {
+    public final Object value;
+    public final Long stamp;
+
+    Entry(Object value, Long stamp) {
+      this.value = value;
+      this.stamp = stamp;
+    }
+  }
+
+  /**
+   * LegacyFormat is reading the values which were stored before the envelope was introduced.
+   */
+  public interface LegacyFormat {
+
+    /**
+     * Parses the binary representation of a legacy value.
+     *
+     * @param raw the binary representation of the value
+     * @return the formatted value or null if it cannot be read
+     */
+    ValueAndFlags parse(byte[] raw);
+  }
+
+  private static final byte UNSTAMPED_VERSION = 1;
+  private static final int UNSTAMPED_HEADER_LENGTH = 3;
+  private static final int HEADER_LENGTH = STAMP_OFFSET + STAMP_LENGTH;
+  private static final int COMPRESSED = 0x80;
+  private static final Flag[] FLAGS = Flag.values();
+
+  private final CodecRegistry codecs;
+  private final Compression compression;
+  private final LegacyFormat legacyFormat;
+
+  public ItemSerializer(CodecRegistry codecs, Compression compression) {
+    this(codecs, compression, null);
+  }
+
+  public ItemSerializer(CodecRegistry codecs, Compression compression, LegacyFormat legacyFormat) {
+    this.codecs = codecs;
+    this.compression = compression;
+    this.legacyFormat = legacyFormat;
+  }
+
+  /**
+   * Gets the stamp of an encoded value.
+   *
+   * @param item the binary representation of the value
+   * @return the stamp of the value or null if the value has no stamp
+   */
+  public static Long stampOf(byte[] item) {
+    if (item.length < HEADER_LENGTH || item[0] != MAGIC || item[1] != VERSION) {
+      return null;
+    }
+    return ByteBuffer.wrap(item, STAMP_OFFSET, STAMP_LENGTH).getLong();
+  }
+
+  /**
+   * Encodes the provided value with a random stamp, so the entry is taken as changed by the pending compare-and-sets.
+   *
+   * @param value the value to be encoded
+   * @return the binary representation of the value
+   * @throws IllegalArgumentException if value cannot be serialized
+   */
+  public byte[] encode(Object value) {
+    return encode(value, ThreadLocalRandom.current().nextLong());
+  }
+
+  /**
+   * Encodes the provided value with the provided stamp.
+   *
+   * @param value the value to be encoded
+   * @param stamp the stamp of the entry
+   * @return the binary representation of the value
+   * @throws IllegalArgumentException if value cannot be serialized
+   */
+  public byte[] encode(Object value, long stamp) {
+    CodedValue coded = codecs.encode(value);
+    if (coded != null) {
+      byte[] data = coded.getData();
+      return envelope(Flag.CODEC, stamp, ByteBuffer.allocate(4 + data.length).putInt(coded.getTypeId()).put(data).array());
+    }
+
+    ValueAndFlags valueAndFlags = ValueFormat.format(value);
+    return envelope(valueAndFlags.flags, stamp, valueAndFlags.value);
+  }
+
+  /**
+   * Decodes a value that was encoded using {@link #encode(Object)}.
+   *
+   * @param raw the binary representation or null if value was missing
+   * @return the decoded value or null if value is missing or cannot be read
+   */
+  public Object decode(byte[] raw) {
+    Entry entry = decodeEntry(raw);
+    return entry == null ? null : entry.value;
+  }
+
+  /**
+   * Decodes a value together with it's stamp.
+   *
+   * @param raw the binary representation or null if value was missing
+   * @return the decoded entry with null stamp if the value was stored without stamp, or null if value is missing or
+   * cannot be read
+   */
+  public Entry decodeEntry(byte[] raw) {
+    if (raw == null || raw.length < UNSTAMPED_HEADER_LENGTH) {
+      return null;
+    }
+
+    if (raw[0] == MAGIC && raw[1] == VERSION && raw.length >= HEADER_LENGTH) {
+      long stamp = ByteBuffer.wrap(raw, STAMP_OFFSET, STAMP_LENGTH).getLong();
+      Object value = parse(raw[2], ByteBuffer.wrap(raw, HEADER_LENGTH, raw.length - HEADER_LENGTH));
+      return value == null ? null : new Entry(value, stamp);
+    }
+
+    if (raw[0] == MAGIC && raw[1] == UNSTAMPED_VERSION) {
+      Object value = parse(raw[2], ByteBuffer.wrap(raw, UNSTAMPED_HEADER_LENGTH, raw.length - UNSTAMPED_HEADER_LENGTH));
+      return value == null ? null : new Entry(value, null);
+    }
+
+    if (legacyFormat == null) {
+      return null;
+    }
+    ValueAndFlags item = legacyFormat.parse(raw);
+    if (item == null || item.value == null || item.flags == null) {
+      return null;
+    }
+    Object value = parse((byte) item.flags.ordinal(), ByteBuffer.wrap(item.value));
+    return value == null ? null : new Entry(value, null);
+  }
+
+  private Object parse(byte flags, ByteBuffer payload) {
+    int flag = flags & ~COMPRESSED & 0xFF;
+    if (flag >= FLAGS.length) {
+      return null;
+    }
+
+    if ((flags & COMPRESSED) != 0) {
+      try {
+        payload = ByteBuffer.wrap(Compression.decompress(remaining(payload)));
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+    return parse(FLAGS[flag], payload);
+  }
+
+  private Object parse(Flag flag, ByteBuffer payload) {
+    if (flag == Flag.CODEC) {
+      if (payload.remaining() < 4) {
+        return null;
+      }
+      int typeId = payload.getInt();
+      try {
+        return codecs.decode(new CodedValue(typeId, remaining(payload)));
+      } catch (CacheException e) {
+        return null;
+      }
+    }
+
+    return ValueFormat.parse(remaining(payload), flag);
+  }
+
+  private byte[] envelope(Flag flag, long stamp, byte[] payload) {
+    int flags = flag.ordinal();
+
+    byte[] compressed = compression.compress(payload);
+    if (compressed != null) {
+      payload = compressed;
+      flags |= COMPRESSED;
+    }
+
+    return ByteBuffer.allocate(HEADER_LENGTH + payload.length).put(MAGIC).put(VERSION).put((byte) flags).putLong(stamp).put(payload).array();
+  }
+
+  private static byte[] remaining(ByteBuffer buffer) {
+    byte[] data = new byte[buffer.remaining()];
+    buffer.get(data);
+    return data;
+  }
+}
@@ -0,0 +1,199 @@
+package com.clouway.api.pcache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * KeyEncoder is encoding the cache keys to their binary representation that is prefixed by the namespace.
+ * <p/>
+ * The UTF-8 representation of the namespace prefix is cached and keys are encoded in a buffer that is reused by the
+ * calling thread, so encoding of a key is allocating only the returned array. Keys which are longer than the maximum
+ * length are replaced by the hex encoded SHA-1 hash of the key, so they are fitting in the key length limit of the
+ * cache servers and are still the same for all clients.
+ */
+public final class KeyEncoder {
+
+  /**
+   * The maximum length of the memcache keys.
+   */
+  public static final int MEMCACHE_MAX_KEY_LENGTH = 250;
+
+  private static final byte[] HASH_MARKER = "sha1:".getBytes(StandardCharsets.UTF_8);
+  private static final int HASHED_LENGTH = HASH_MARKER.length + 40;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  private static final int MAX_CACHED_NAMESPACES = 1024;
+
+  private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[256];
+    }
+  };
+
+  /**
+   * Creates a new encoder that is not hashing the keys.
+   */
+  public static KeyEncoder create() {
+    return new KeyEncoder(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a new encoder that is hashing the keys which are longer than the provided length.
+   *
+   * @param maxLength the maximum length in bytes of the encoded keys, including the namespace prefix
+   * @throws IllegalArgumentException if the length cannot hold a hashed key
+   */
+  public static KeyEncoder create(int maxLength) {
+    if (maxLength < HASHED_LENGTH) {
+      throw new IllegalArgumentException("max length should be at least " + HASHED_LENGTH);
+    }
+    return new KeyEncoder(maxLength);
+  }
+
+  private final int maxLength;
+  private final ConcurrentMap<String, byte[]> prefixes = new ConcurrentHashMap<String, byte[]>();
+
+  private KeyEncoder(int maxLength) {
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * Encodes the key of the provided namespace as <code>namespace:key</code>.
+   *
+   * @param namespace the namespace of the key
+   * @param key       the key
+   * @return the UTF-8 representation of the namespaced key or of it's hash
+   */
+  public byte[] encode(String namespace, String key) {
+    byte[] prefix = prefixOf(namespace);
+
+    int length = prefix.length + utf8Length(key);
+    byte[] buffer = buffer(length);
+    System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+    writeUtf8(key, buffer, prefix.length);
+
+    if (length > maxLength) {
+      return hashed(prefix, buffer, prefix.length, length - prefix.length);
+    }
+
+    byte[] encoded = new byte[length];
+    System.arraycopy(buffer, 0, encoded, 0, length);
+    return encoded;
+  }
+
+  /**
+   * Shortens the keys that are longer than the maximum length. Keys that are fitting in the length are returned as is.
+   *
+   * @param key the key
+   * @return the key or the hash of the key if it's too long
+   */
+  public String shorten(String key) {
+    // a char is encoded in up to 3 bytes, so short keys are fitting without to be encoded
+    if (key.length() <= maxLength / 3) {
+      return key;
+    }
+
+    int length = utf8Length(key);
+    if (length <= maxLength) {
+      return key;
+    }
+
+    byte[] buffer = buffer(length);
+    writeUtf8(key, buffer, 0);
+    return new String(hashed(new byte[0], buffer, 0, length), StandardCharsets.UTF_8);
+  }
+
+  private byte[] prefixOf(String namespace) {
+    byte[] prefix = prefixes.get(namespace);
+    if (prefix == null) {
+      if (prefixes.size() >= MAX_CACHED_NAMESPACES) {
+        prefixes.clear();
+      }
+      prefix = (namespace + ":").getBytes(StandardCharsets.UTF_8);
+      prefixes.put(namespace, prefix);
+    }
+    return prefix;
+  }
+
+  private static byte[] buffer(int length) {
+    byte[] buffer = BUFFER.get();
+    if (buffer.length < length) {
+      buffer = new byte[Math.max(length, buffer.length * 2)];
+      BUFFER.set(buffer);
+    }
+    return buffer;
+  }
+
+  private static byte[] hashed(byte[] prefix, byte[] buffer, int offset, int length) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update(buffer, offset, length);
+    byte[] hash = digest.digest();
+
+    byte[] encoded = new byte[prefix.length + HASHED_LENGTH];
+    System.arraycopy(prefix, 0, encoded, 0, prefix.length);
+    System.arraycopy(HASH_MARKER, 0, encoded, prefix.length, HASH_MARKER.length);
+
+    int position = prefix.length + HASH_MARKER.length;
+    for (byte b : hash) {
+      encoded[position++] = (byte) HEX[(b >> 4) & 0xF];
+      encoded[position++] = (byte) HEX[b & 0xF];
+    }
+    return encoded;
+  }
+
+  /**
+   * Gets the length of the UTF-8 representation of the value. Unpaired surrogates are encoded as '?' like
+   * {@link String#getBytes(java.nio.charset.Charset)} does.
+   */
+  private static int utf8Length(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private static void writeUtf8(String value, byte[] buffer, int position) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer[position++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[position++] = (byte) (0xC0 | (c >> 6));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        buffer[position++] = '?';
+      } else {
+        buffer[position++] = (byte) (0xE0 | (c >> 12));
+        buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+  }
+}
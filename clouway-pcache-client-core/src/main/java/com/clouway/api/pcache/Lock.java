@@ -17,6 +17,22 @@ public interface Lock {
    */
   void lock(String key, int retryCount);
 
+  /**
+   * Locks the provided key for the specified period of time. The calling thread is waiting until the lock is gained or
+   * until the timeout is reached.
+   * <p/>
+   * The default implementation is delegating to {@link #lock(String, int)} with a retry for each 50 mills of the
+   * timeout, so the lease is the one of the retries of the implementation.
+   *
+   * @param key          the key to be used for lock
+   * @param leaseMills   the period of time in mills after which the lock expires
+   * @param timeoutMills the maximum period of time in mills to wait for the lock
+   * @throws IllegalStateException is thrown in case lock cannot be gained
+   */
+  default void lock(String key, long leaseMills, long timeoutMills) {
+    lock(key, (int) Math.min(Integer.MAX_VALUE, Math.max(1, timeoutMills / 50)));
+  }
+
   /**
    * Releases last lock.
    *
@@ -0,0 +1,42 @@
+package com.clouway.api.pcache;
+
+/**
+ * LockLease is representing a lock that was acquired through the {@link FencedLock}. The lease is identified by it's
+ * owner token and is carrying a fencing token which is greater than the fencing tokens of all previous leases of the
+ * same key.
+ * <p/>
+ * The fencing token should be passed to the resources that are guarded by the lock, so they can reject the writes of
+ * the stale holders whose leases were expired.
+ */
+public final class LockLease {
+  private final String key;
+  private final String token;
+  private final long fence;
+
+  public LockLease(String key, String token, long fence) {
+    this.key = key;
+    this.token = token;
+    this.fence = fence;
+  }
+
+  /**
+   * Gets the locked key.
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Gets the token which is identifying the owner of the lock.
+   */
+  public String getToken() {
+    return token;
+  }
+
+  /**
+   * Gets the fencing token of the lease.
+   */
+  public long getFence() {
+    return fence;
+  }
+}
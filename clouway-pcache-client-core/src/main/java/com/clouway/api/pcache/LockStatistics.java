@@ -0,0 +1,67 @@
+package com.clouway.api.pcache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LockStatistics is collecting the time which was spent in waiting for locks and the number of the attempts that
+ * were needed for their acquisition.
+ */
+public class LockStatistics {
+  private final AtomicLong acquisitions = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong totalWaitMills = new AtomicLong();
+  private final AtomicLong maxWaitMills = new AtomicLong();
+
+  /**
+   * Records an acquired lock.
+   *
+   * @param waitMills the time in mills which was spent in waiting for the lock
+   * @param retries   the number of the attempts after the first one
+   */
+  public void acquired(long waitMills, int retries) {
+    acquisitions.incrementAndGet();
+    record(waitMills, retries);
+  }
+
+  /**
+   * Records a lock that was not acquired in time.
+   *
+   * @param waitMills the time in mills which was spent in waiting for the lock
+   * @param retries   the number of the attempts after the first one
+   */
+  public void timedOut(long waitMills, int retries) {
+    timeouts.incrementAndGet();
+    record(waitMills, retries);
+  }
+
+  public long getAcquisitions() {
+    return acquisitions.get();
+  }
+
+  public long getTimeouts() {
+    return timeouts.get();
+  }
+
+  public long getRetries() {
+    return retries.get();
+  }
+
+  public long getTotalWaitMills() {
+    return totalWaitMills.get();
+  }
+
+  public long getMaxWaitMills() {
+    return maxWaitMills.get();
+  }
+
+  private void record(long waitMills, int retries) {
+    this.retries.addAndGet(retries);
+    totalWaitMills.addAndGet(waitMills);
+
+    long max = maxWaitMills.get();
+    while (waitMills > max && !maxWaitMills.compareAndSet(max, waitMills)) {
+      max = maxWaitMills.get();
+    }
+  }
+}
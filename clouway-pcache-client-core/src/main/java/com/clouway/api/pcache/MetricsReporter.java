@@ -0,0 +1,16 @@
+package com.clouway.api.pcache;
+
+/**
+ * MetricsReporter is exporting the metrics that were collected by {@link CacheMetrics} to a monitoring system.
+ */
+public interface MetricsReporter {
+
+  /**
+   * Reports the metrics of a single operation of a namespace.
+   *
+   * @param namespace the namespace of the metrics
+   * @param operation the operation
+   * @param metrics   the metrics collected so far
+   */
+  void report(String namespace, CacheOperation operation, OperationMetrics metrics);
+}
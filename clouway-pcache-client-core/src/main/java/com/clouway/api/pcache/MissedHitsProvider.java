@@ -2,6 +2,17 @@ package com.clouway.api.pcache;
 
 import java.util.List;
 
+/**
+ * MissedHitsProvider is loading the objects that were not found in the cache from their origin.
+ */
 public interface MissedHitsProvider<T> {
+
+    /**
+     * Loads the objects of the missing keys.
+     *
+     * @param missingKeys the keys which were not found in the cache
+     * @return a list with an object for each of the missing keys in the same order, with null for the keys which
+     * could not be loaded
+     */
     List<T> get(List<String> missingKeys);
 }
@@ -0,0 +1,30 @@
+package com.clouway.api.pcache;
+
+/**
+ * NamespaceFlush is removing the entries of the current namespace without touching the entries of the other
+ * namespaces.
+ */
+public interface NamespaceFlush {
+
+  /**
+   * Progress is notified after each batch of removed entries.
+   */
+  interface Progress {
+
+    /**
+     * Called when a batch of entries was removed.
+     *
+     * @param removed the number of entries removed by the batch
+     * @param total   the number of entries removed so far
+     */
+    void onBatch(int removed, long total);
+  }
+
+  /**
+   * Removes all entries of the current namespace.
+   *
+   * @param progress the progress that is notified after each removed batch
+   * @return the number of removed entries
+   */
+  long flushNamespace(Progress progress);
+}
@@ -0,0 +1,122 @@
+package com.clouway.api.pcache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * NamespaceGenerations is keeping the generations of the namespaces, which are embedded in the keys of the cached
+ * values, so a whole namespace is invalidated by a single increment of it's generation and the values of the previous
+ * generations are left to expire.
+ * <p/>
+ * Generations are read from the {@link Store} and are cached locally for the refresh period, so the other clients are
+ * seeing an incremented generation with a delay of up to the refresh period.
+ */
+public final class NamespaceGenerations {
+
+  /**
+   * Store is the shared storage of the generations. Missing generations should be initialized by the current time, so
+   * a generation that was evicted is not reusing the values of an earlier one.
+   */
+  public interface Store {
+
+    /**
+     * Gets the generation of the namespace, by initializing it when it's missing.
+     *
+     * @param namespace the namespace
+     * @return the current generation
+     */
+    long get(String namespace);
+
+    /**
+     * Increments the generation of the namespace.
+     *
+     * @param namespace the namespace
+     * @return the new generation
+     */
+    long increment(String namespace);
+  }
+
+  private static final int MAX_CACHED_NAMESPACES = 1024;
+
+  private static final class Generation {
+    final long value;
+    final String versioned;
+    final long refreshAt;
+
+    Generation(long value, String versioned, long refreshAt) {
+      this.value = value;
+      this.versioned = versioned;
+      this.refreshAt = refreshAt;
+    }
+  }
+
+  private final Store store;
+  private final long refreshMills;
+  private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<String, Generation>();
+
+  /**
+   * Creates new namespace generations.
+   *
+   * @param store        the storage of the generations
+   * @param refreshMills the period of time in mills for which generations are cached locally
+   */
+  public NamespaceGenerations(Store store, long refreshMills) {
+    this.store = store;
+    this.refreshMills = refreshMills;
+  }
+
+  /**
+   * Gets the current generation of the namespace.
+   *
+   * @param namespace the namespace
+   * @return the generation
+   */
+  public long current(String namespace) {
+    return generation(namespace).value;
+  }
+
+  /**
+   * Increments the generation of the namespace, which is invalidating all of it's values.
+   *
+   * @param namespace the namespace
+   * @return the new generation
+   */
+  public long increment(String namespace) {
+    return cache(namespace, store.increment(namespace), System.currentTimeMillis()).value;
+  }
+
+  /**
+   * Gets a provider of the namespaces that are versioned by their current generation. The versioned namespace is
+   * cached together with it's generation, so it's not built on each call.
+   *
+   * @param namespaceProvider the provider of the namespaces
+   * @return the provider of the versioned namespaces
+   */
+  public NamespaceProvider versioned(final NamespaceProvider namespaceProvider) {
+    return new NamespaceProvider() {
+      @Override
+      public String get() {
+        return generation(namespaceProvider.get()).versioned;
+      }
+    };
+  }
+
+  private Generation generation(String namespace) {
+    long now = System.currentTimeMillis();
+
+    Generation generation = generations.get(namespace);
+    if (generation == null || generation.refreshAt <= now) {
+      generation = cache(namespace, store.get(namespace), now);
+    }
+    return generation;
+  }
+
+  private Generation cache(String namespace, long value, long now) {
+    if (generations.size() >= MAX_CACHED_NAMESPACES) {
+      generations.clear();
+    }
+    Generation generation = new Generation(value, namespace + "@" + value, now + refreshMills);
+    generations.put(namespace, generation);
+    return generation;
+  }
+}
@@ -0,0 +1,376 @@
+package com.clouway.api.pcache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NearCache is a bounded in-process store which is using the W-TinyLFU eviction policy.
+ * <p/>
+ * New entries are admitted in a small LRU window. Entries that are leaving the window are competing with the least
+ * recently used entry of the main space and the one that was accessed more frequently, according to the
+ * {@link FrequencySketch}, is kept. The main space is a segmented LRU, so entries that were hit at least once are
+ * protected from the entries that were seen only once.
+ * <p/>
+ * Reads are not locking. Entries are looked up in a concurrent map and the accesses are recorded in a lossy ring
+ * buffer, which is drained in the access order and the frequency sketch by the thread that is able to take the
+ * eviction lock, once per a batch of reads. Writes and invalidations are applied under the eviction lock, so the
+ * policy is updated by a single thread at a time.
+ * <p/>
+ * Each key is covered by a stamp which is changed by the puts and the invalidations of the key, so a value that was
+ * read from the remote cache is filled only if it's key was not changed while it was read. Stamps are striped by the
+ * hash of the key, so a change of a key is rejecting only the pending fills of the keys in the same stripe.
+ */
+class NearCache {
+
+  private enum Segment {
+    WINDOW, PROBATION, PROTECTED
+  }
+
+  /**
+   * The size of the read buffer and the number of the reads after which the buffer is drained.
+   */
+  private static final int READ_BUFFER_SIZE = 128;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+  private static final int DRAIN_MASK = 31;
+
+  private static final int STAMP_STRIPES = 1024;
+
+  private static class Node {
+    final String key;
+    volatile Object value;
+    volatile long expiresAt;
+
+    /**
+     * The segment of the node or null when the node was removed. It's guarded by the eviction lock, as the links.
+     */
+    Segment segment;
+
+    Node prev;
+    Node next;
+
+    Node(String key, Object value, long expiresAt) {
+      this.key = key;
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /**
+   * Doubly linked list of nodes ordered from the least to the most recently used.
+   */
+  private static class AccessOrder {
+    Node head;
+    Node tail;
+    int size;
+
+    void addLast(Node node) {
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      size++;
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      size--;
+    }
+
+    void moveToLast(Node node) {
+      if (node != tail) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void clear() {
+      head = null;
+      tail = null;
+      size = 0;
+    }
+  }
+
+  private final ConcurrentHashMap<String, Node> data = new ConcurrentHashMap<String, Node>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final AtomicReferenceArray<Object> readBuffer = new AtomicReferenceArray<Object>(READ_BUFFER_SIZE);
+  private final AtomicLong reads = new AtomicLong();
+  private final AtomicLongArray stamps = new AtomicLongArray(STAMP_STRIPES);
+
+  private final AccessOrder window = new AccessOrder();
+  private final AccessOrder probation = new AccessOrder();
+  private final AccessOrder protectedSpace = new AccessOrder();
+  private final FrequencySketch sketch;
+
+  private final int maximumSize;
+  private final int maximumWindowSize;
+  private final int maximumProtectedSize;
+
+  /**
+   * Epoch which is incremented by the invalidations of many keys, so it's part of the stamps of all keys.
+   */
+  private volatile long epoch;
+
+  NearCache(int maximumSize) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("The maximum size of the near cache should be positive.");
+    }
+    this.maximumSize = maximumSize;
+    this.maximumWindowSize = Math.max(1, maximumSize / 100);
+    this.maximumProtectedSize = (int) ((maximumSize - maximumWindowSize) * 0.8d);
+    this.sketch = new FrequencySketch(maximumSize);
+  }
+
+  /**
+   * Gets the value of the key if it's present and not expired.
+   *
+   * @param key the key
+   * @param now the current time in mills
+   * @return the value or null if it's missing
+   */
+  Object get(String key, long now) {
+    Node node = data.get(key);
+    if (node == null) {
+      recordRead(key, now);
+      return null;
+    }
+
+    Object value = node.value;
+    boolean expired = node.expiresAt <= now;
+    recordRead(node, now);
+    return expired ? null : value;
+  }
+
+  /**
+   * Puts a value in the cache which is kept until the provided expiration time.
+   *
+   * @param key       the key
+   * @param value     the value
+   * @param expiresAt the time in mills at which value is expiring
+   */
+  void put(String key, Object value, long expiresAt) {
+    evictionLock.lock();
+    try {
+      stamps.incrementAndGet(stripeOf(key));
+      store(key, value, expiresAt);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the current stamp of the key. The stamp is changed by every put and invalidation of the key.
+   */
+  long stamp(String key) {
+    return epoch + stamps.get(stripeOf(key));
+  }
+
+  /**
+   * Puts a value that was read from the remote cache, but only when the key was not changed since the provided
+   * stamp was taken, so a value which was read before a concurrent change is not replacing it.
+   *
+   * @param key       the key
+   * @param value     the value
+   * @param expiresAt the time in mills at which value is expiring
+   * @param stamp     the stamp of the key before the value was read
+   * @return true if value was put and false if the key was changed in the meantime
+   */
+  boolean fill(String key, Object value, long expiresAt, long stamp) {
+    evictionLock.lock();
+    try {
+      if (stamp(key) != stamp) {
+        return false;
+      }
+      store(key, value, expiresAt);
+      return true;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  void invalidate(String key) {
+    evictionLock.lock();
+    try {
+      stamps.incrementAndGet(stripeOf(key));
+      Node node = data.get(key);
+      if (node != null) {
+        removeNode(node);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  void invalidateAll(String prefix) {
+    evictionLock.lock();
+    try {
+      epoch++;
+      for (Node node : data.values()) {
+        if (node.key.startsWith(prefix)) {
+          removeNode(node);
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  void clear() {
+    evictionLock.lock();
+    try {
+      epoch++;
+      for (Node node : data.values()) {
+        node.segment = null;
+      }
+      data.clear();
+      window.clear();
+      probation.clear();
+      protectedSpace.clear();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  int size() {
+    return data.size();
+  }
+
+  /**
+   * Records a read of a node or of a missing key. Reads are dropped when the buffer is full, as the policy is
+   * tolerating the loss of some of them.
+   */
+  private void recordRead(Object read, long now) {
+    long index = reads.getAndIncrement();
+    readBuffer.lazySet((int) (index & READ_BUFFER_MASK), read);
+
+    if ((index & DRAIN_MASK) == DRAIN_MASK && evictionLock.tryLock()) {
+      try {
+        drainReads(now);
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void drainReads(long now) {
+    for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+      Object read = readBuffer.getAndSet(i, null);
+      if (read instanceof Node) {
+        Node node = (Node) read;
+        sketch.increment(node.key);
+
+        if (node.segment == null) {
+          continue;
+        }
+        if (node.expiresAt <= now) {
+          removeNode(node);
+        } else {
+          onHit(node);
+        }
+      } else if (read != null) {
+        sketch.increment(read);
+      }
+    }
+  }
+
+  private void store(String key, Object value, long expiresAt) {
+    drainReads(System.currentTimeMillis());
+    sketch.increment(key);
+
+    Node node = data.get(key);
+    if (node != null) {
+      node.expiresAt = expiresAt;
+      node.value = value;
+      onHit(node);
+      return;
+    }
+
+    node = new Node(key, value, expiresAt);
+    node.segment = Segment.WINDOW;
+    window.addLast(node);
+    data.put(key, node);
+
+    evict();
+  }
+
+  private void onHit(Node node) {
+    switch (node.segment) {
+      case WINDOW:
+        window.moveToLast(node);
+        break;
+      case PROBATION:
+        probation.remove(node);
+        node.segment = Segment.PROTECTED;
+        protectedSpace.addLast(node);
+
+        if (protectedSpace.size > maximumProtectedSize) {
+          Node demoted = protectedSpace.head;
+          protectedSpace.remove(demoted);
+          demoted.segment = Segment.PROBATION;
+          probation.addLast(demoted);
+        }
+        break;
+      case PROTECTED:
+        protectedSpace.moveToLast(node);
+        break;
+    }
+  }
+
+  private void evict() {
+    while (window.size > maximumWindowSize) {
+      Node candidate = window.head;
+      window.remove(candidate);
+      candidate.segment = Segment.PROBATION;
+      probation.addLast(candidate);
+
+      if (data.size() > maximumSize) {
+        Node victim = probation.head != candidate ? probation.head : protectedSpace.head;
+
+        if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+          removeNode(candidate);
+        } else {
+          removeNode(victim);
+        }
+      }
+    }
+  }
+
+  private void removeNode(Node node) {
+    data.remove(node.key, node);
+    orderOf(node.segment).remove(node);
+    node.segment = null;
+  }
+
+  private static int stripeOf(String key) {
+    int h = key.hashCode();
+    return (h ^ (h >>> 16)) & (STAMP_STRIPES - 1);
+  }
+
+  private AccessOrder orderOf(Segment segment) {
+    switch (segment) {
+      case WINDOW:
+        return window;
+      case PROBATION:
+        return probation;
+      default:
+        return protectedSpace;
+    }
+  }
+}
@@ -0,0 +1,355 @@
+package com.clouway.api.pcache;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * NearCacheManager is a {@link CacheManager} decorator which is keeping the hot entries of the remote cache in a
+ * bounded in-process cache, so the most of the reads are served without a round trip to the remote cache.
+ * <p/>
+ * Entries written through this manager are kept locally for the configured period of time, but never longer than the
+ * expiration which was used for them in the remote cache. Entries read from the remote cache are kept for the
+ * configured period, as their remaining expiration is not known, so it should not be longer than the shortest
+ * expiration that is used for the remote entries. Changes made through this manager are published through the
+ * {@link InvalidationChannel} so the other nodes are dropping their local copies. The keys of a bulk write are
+ * published together.
+ * <p/>
+ * Values read from the remote cache are kept locally only when their key was not changed or invalidated while they
+ * were read, so a value that was read before a concurrent change is not replacing the new one.
+ * <p/>
+ * The {@link FencedLock}, {@link TaggedCache}, {@link CacheRegions} and {@link NamespaceFlush} capabilities of the
+ * remote cache manager are forwarded to it and are throwing {@link UnsupportedOperationException} when the remote
+ * cache manager is not having them. The members of a tag are not known locally, so invalidation of a tag is dropping
+ * the local copies of the whole namespace on all nodes. Fields of the regions are never kept locally, so they are
+ * always read from the remote cache.
+ * <p/>
+ * Closing of the manager is closing it's invalidation channel.
+ * <p/>
+ * Values that are served from the local cache are shared between the callers, so they should be treated as immutable.
+ */
+public class NearCacheManager implements CacheManager, Closeable, FencedLock, TaggedCache, CacheRegions, NamespaceFlush {
+
+  /**
+   * Channel which is used when the cache is not shared between multiple nodes.
+   */
+  private static final InvalidationChannel LOCAL_CHANNEL = new InvalidationChannel() {
+    @Override
+    public void publish(String namespace, String key) {
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+    }
+  };
+
+  private final CacheManager cacheManager;
+  private final NamespaceProvider namespaceProvider;
+  private final InvalidationChannel channel;
+  private final NearCache nearCache;
+  private final long expireAfterWriteMills;
+
+  /**
+   * Creates a new near cache for a single node.
+   *
+   * @param cacheManager          the remote cache manager
+   * @param namespaceProvider     the namespace provider used by the remote cache manager
+   * @param maximumSize           the maximum number of entries that are kept locally
+   * @param expireAfterWriteMills the maximum period of time in mills for which entries are kept locally
+   */
+  public NearCacheManager(CacheManager cacheManager, NamespaceProvider namespaceProvider, int maximumSize, long expireAfterWriteMills) {
+    this(cacheManager, namespaceProvider, LOCAL_CHANNEL, maximumSize, expireAfterWriteMills);
+  }
+
+  /**
+   * Creates a new near cache which is kept in sync with the other nodes through the provided channel.
+   *
+   * @param cacheManager          the remote cache manager
+   * @param namespaceProvider     the namespace provider used by the remote cache manager
+   * @param channel               the channel used for invalidation of the entries on the other nodes
+   * @param maximumSize           the maximum number of entries that are kept locally
+   * @param expireAfterWriteMills the maximum period of time in mills for which entries are kept locally
+   */
+  public NearCacheManager(CacheManager cacheManager, NamespaceProvider namespaceProvider, InvalidationChannel channel, int maximumSize, long expireAfterWriteMills) {
+    if (expireAfterWriteMills <= 0) {
+      throw new IllegalArgumentException("The local expiration of the near cache should be positive.");
+    }
+    this.cacheManager = cacheManager;
+    this.namespaceProvider = namespaceProvider;
+    this.channel = channel;
+    this.nearCache = new NearCache(maximumSize);
+    this.expireAfterWriteMills = expireAfterWriteMills;
+
+    final NearCache cache = nearCache;
+    channel.subscribe(new InvalidationListener() {
+      @Override
+      public void invalidated(String namespace, String key) {
+        if (namespace == null) {
+          cache.clear();
+        } else if (key == null) {
+          cache.invalidateAll(namespacePrefix(namespace));
+        } else {
+          cache.invalidate(namespacePrefix(namespace) + key);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void put(String key, Object value, Integer cacheTimeSeconds) {
+    cacheManager.put(key, value, cacheTimeSeconds);
+    onWrite(key, value, cacheTimeSeconds * 1000L);
+  }
+
+  @Override
+  public void put(String key, Object value, Long mills) {
+    cacheManager.put(key, value, mills);
+    onWrite(key, value, mills);
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    cacheManager.put(key, value);
+    onWrite(key, value, expireAfterWriteMills);
+  }
+
+  @Override
+  public void putAll(Map<String, Object> values, Long mills) {
+    cacheManager.putAll(values, mills);
+
+    String namespace = namespaceProvider.get();
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      store(namespace, entry.getKey(), entry.getValue(), mills);
+    }
+    channel.publishAll(namespace, values.keySet());
+  }
+
+  @Override
+  public Object get(String key) {
+    String localKey = localKey(key);
+    long now = System.currentTimeMillis();
+
+    Object value = nearCache.get(localKey, now);
+    if (value != null) {
+      return value;
+    }
+
+    long stamp = nearCache.stamp(localKey);
+    value = cacheManager.get(key);
+    if (value != null) {
+      nearCache.fill(localKey, value, now + expireAfterWriteMills, stamp);
+    }
+    return value;
+  }
+
+  @Override
+  public <V> MatchResult<V> getAll(String prefix, List<String> keys, Class<V> clazz) {
+    String localPrefix = localKey(prefix);
+    long now = System.currentTimeMillis();
+
+    Object[] found = new Object[keys.size()];
+    long[] stamps = new long[keys.size()];
+    List<String> remoteKeys = new ArrayList<String>();
+
+    for (int i = 0; i < keys.size(); i++) {
+      String localKey = localPrefix + keys.get(i);
+      found[i] = nearCache.get(localKey, now);
+      if (found[i] == null) {
+        stamps[i] = nearCache.stamp(localKey);
+        remoteKeys.add(keys.get(i));
+      }
+    }
+
+    if (!remoteKeys.isEmpty()) {
+      MatchResult<V> remote = cacheManager.getAll(prefix, remoteKeys, clazz);
+      Set<String> missed = new HashSet<String>(remote.getMissedKeys());
+
+      int hit = 0;
+      for (int i = 0; i < keys.size() && hit < remote.getHits().size(); i++) {
+        String key = keys.get(i);
+        if (found[i] == null && !missed.contains(key)) {
+          found[i] = remote.getHits().get(hit++);
+          nearCache.fill(localPrefix + key, found[i], now + expireAfterWriteMills, stamps[i]);
+        }
+      }
+    }
+
+    List<V> hits = new LinkedList<V>();
+    List<String> missed = new LinkedList<String>();
+    for (int i = 0; i < keys.size(); i++) {
+      if (clazz.isInstance(found[i])) {
+        hits.add(clazz.cast(found[i]));
+      } else {
+        missed.add(keys.get(i));
+      }
+    }
+
+    return new MatchResult<V>(new ArrayList<V>(hits), missed);
+  }
+
+  @Override
+  public <V> MatchResult<V> getAll(List<String> keys, Class<V> clazz) {
+    return getAll("", keys, clazz);
+  }
+
+  @Override
+  public void remove(String key) {
+    cacheManager.remove(key);
+    invalidate(key);
+  }
+
+  @Override
+  public boolean safePut(Object key, SafeValue safeValue, Object value) {
+    boolean updated = cacheManager.safePut(key, safeValue, value);
+    invalidate(key.toString());
+    return updated;
+  }
+
+  @Override
+  public boolean safePut(Object key, SafeValue safeValue, Object value, Integer expiration) {
+    boolean updated = cacheManager.safePut(key, safeValue, value, expiration);
+    invalidate(key.toString());
+    return updated;
+  }
+
+  @Override
+  public boolean lock(String key) {
+    boolean locked = cacheManager.lock(key);
+    if (locked) {
+      invalidate(key);
+    }
+    return locked;
+  }
+
+  @Override
+  public boolean lock(String key, int expiration) {
+    boolean locked = cacheManager.lock(key, expiration);
+    if (locked) {
+      invalidate(key);
+    }
+    return locked;
+  }
+
+  @Override
+  public SafeValue getSafeValue(Object key) {
+    return cacheManager.getSafeValue(key);
+  }
+
+  @Override
+  public Long increment(Object o, Long l) {
+    Long value = cacheManager.increment(o, l);
+    invalidate(o.toString());
+    return value;
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    if (nearCache.get(localKey(key.toString()), System.currentTimeMillis()) != null) {
+      return true;
+    }
+    return cacheManager.contains(key);
+  }
+
+  @Override
+  public void flushCache() {
+    cacheManager.flushCache();
+    nearCache.clear();
+    channel.publish(namespaceProvider.get(), null);
+  }
+
+  @Override
+  public LockLease tryLock(String key, long leaseMills) {
+    LockLease lease = remote(FencedLock.class).tryLock(key, leaseMills);
+    if (lease != null) {
+      invalidate(key);
+    }
+    return lease;
+  }
+
+  @Override
+  public boolean unlock(LockLease lease) {
+    return remote(FencedLock.class).unlock(lease);
+  }
+
+  @Override
+  public void putTagged(String key, Object value, Long mills, Set<String> tags) {
+    remote(TaggedCache.class).putTagged(key, value, mills, tags);
+    onWrite(key, value, mills);
+  }
+
+  /**
+   * Local copies of the whole namespace are dropped, as the members of the tag are not known locally.
+   */
+  @Override
+  public void invalidateTag(String tag) {
+    remote(TaggedCache.class).invalidateTag(tag);
+    invalidateNamespace();
+  }
+
+  /**
+   * Fields of the region are not kept locally.
+   */
+  @Override
+  public CacheRegion region(String name, long mills) {
+    return remote(CacheRegions.class).region(name, mills);
+  }
+
+  @Override
+  public long flushNamespace(Progress progress) {
+    long removed = remote(NamespaceFlush.class).flushNamespace(progress);
+    invalidateNamespace();
+    return removed;
+  }
+
+  @Override
+  public void close() {
+    channel.close();
+    nearCache.clear();
+  }
+
+  private void onWrite(String key, Object value, long mills) {
+    String namespace = namespaceProvider.get();
+    store(namespace, key, value, mills);
+    channel.publish(namespace, key);
+  }
+
+  private void store(String namespace, String key, Object value, long mills) {
+    if (mills > 0) {
+      long now = System.currentTimeMillis();
+      nearCache.put(namespacePrefix(namespace) + key, value, now + Math.min(mills, expireAfterWriteMills));
+    } else {
+      nearCache.invalidate(namespacePrefix(namespace) + key);
+    }
+  }
+
+  private void invalidate(String key) {
+    String namespace = namespaceProvider.get();
+    nearCache.invalidate(namespacePrefix(namespace) + key);
+    channel.publish(namespace, key);
+  }
+
+  private void invalidateNamespace() {
+    String namespace = namespaceProvider.get();
+    nearCache.invalidateAll(namespacePrefix(namespace));
+    channel.publish(namespace, null);
+  }
+
+  private <T> T remote(Class<T> capability) {
+    if (!capability.isInstance(cacheManager)) {
+      throw new UnsupportedOperationException("The remote cache manager is not a " + capability.getSimpleName() + ".");
+    }
+    return capability.cast(cacheManager);
+  }
+
+  private String localKey(String key) {
+    return namespacePrefix(namespaceProvider.get()) + key;
+  }
+
+  private static String namespacePrefix(String namespace) {
+    return namespace + ":";
+  }
+}
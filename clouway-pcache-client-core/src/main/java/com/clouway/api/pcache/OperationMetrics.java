@@ -0,0 +1,74 @@
+package com.clouway.api.pcache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OperationMetrics is holding the metrics of a single {@link CacheOperation} in a single namespace.
+ * <p/>
+ * Hits and misses are the found and the missed keys of the reads. For the conditional operations like safe put and
+ * lock, hits are the succeeded calls and misses are the calls that were rejected.
+ */
+public class OperationMetrics {
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final Histogram latencyNanos = new Histogram();
+  private final Histogram sizes = new Histogram();
+
+  public void recordHits(int count) {
+    hits.add(count);
+  }
+
+  public void recordMisses(int count) {
+    misses.add(count);
+  }
+
+  public void recordError() {
+    errors.increment();
+  }
+
+  public void recordLatency(long nanos) {
+    latencyNanos.record(nanos);
+  }
+
+  public void recordSize(long bytes) {
+    sizes.record(bytes);
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  /**
+   * Gets the ratio of the hits to all hits and misses.
+   *
+   * @return the hit ratio or 0 if there were no hits and misses
+   */
+  public double getHitRatio() {
+    long hits = getHits();
+    long total = hits + getMisses();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /**
+   * Gets the histogram of the latency of the calls in nanos.
+   */
+  public Histogram getLatencyNanos() {
+    return latencyNanos;
+  }
+
+  /**
+   * Gets the histogram of the encoded sizes of the values in bytes.
+   */
+  public Histogram getSizes() {
+    return sizes;
+  }
+}
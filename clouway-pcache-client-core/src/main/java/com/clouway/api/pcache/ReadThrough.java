@@ -0,0 +1,77 @@
+package com.clouway.api.pcache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ReadThrough is implementing the read-through bulk lookup on top of the {@link CacheManager#getAll} and
+ * {@link CacheManager#putAll} operations, which is used by the read-through <code>getAll</code> methods of all cache
+ * managers that are not overriding them.
+ */
+public final class ReadThrough {
+
+  private ReadThrough() {
+  }
+
+  /**
+   * Gets the objects of the provided keys from the cache and loads the missed ones through the provider with a
+   * single call. Loaded objects are put back in the cache with a single bulk write.
+   *
+   * @param cacheManager the cache manager used for lookup and back-fill
+   * @param prefix       used with the keys for lookup in the cache
+   * @param keys         the keys of desired objects
+   * @param clazz        the class of the result
+   * @param provider     the provider of the missed objects
+   * @param mills        the expiration time of the loaded objects in milliseconds
+   * @return the hits in the order of the keys and the keys that were neither cached nor loaded
+   */
+  public static <V> MatchResult<V> getAll(CacheManager cacheManager, String prefix, List<String> keys, Class<V> clazz, MissedHitsProvider<V> provider, Long mills) {
+    MatchResult<V> cached = cacheManager.getAll(prefix, keys, clazz);
+    if (!cached.hasMissedKeys()) {
+      return cached;
+    }
+
+    List<String> missedKeys = cached.getMissedKeys();
+    List<V> loaded = provider.get(missedKeys);
+    if (loaded == null || loaded.size() != missedKeys.size()) {
+      throw new CacheException("The provider of missed hits should return a value for each of the missed keys.");
+    }
+
+    Map<String, V> loadedByKey = new HashMap<String, V>();
+    Map<String, Object> backFill = new LinkedHashMap<String, Object>();
+    for (int i = 0; i < missedKeys.size(); i++) {
+      V value = loaded.get(i);
+      if (value != null) {
+        loadedByKey.put(missedKeys.get(i), value);
+        backFill.put(prefix + missedKeys.get(i), value);
+      }
+    }
+
+    if (!backFill.isEmpty()) {
+      cacheManager.putAll(backFill, mills);
+    }
+
+    Set<String> missed = new HashSet<String>(missedKeys);
+    List<V> hits = new ArrayList<V>(keys.size());
+    List<String> stillMissed = new LinkedList<String>();
+
+    int cachedHit = 0;
+    for (String key : keys) {
+      if (!missed.contains(key)) {
+        hits.add(cached.getHits().get(cachedHit++));
+      } else if (loadedByKey.containsKey(key)) {
+        hits.add(loadedByKey.get(key));
+      } else {
+        stillMissed.add(key);
+      }
+    }
+
+    return new MatchResult<V>(hits, stillMissed);
+  }
+}
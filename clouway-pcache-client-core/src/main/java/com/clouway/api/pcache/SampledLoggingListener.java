@@ -0,0 +1,93 @@
+package com.clouway.api.pcache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SampledLoggingListener is a {@link CacheEventListener} which is logging a sample of the cache events, so the logs
+ * are showing what the cache is doing without to be flooded by the events of the busy applications.
+ * <p/>
+ * Events are sampled randomly and independently by each thread, so sampling is not contending on a shared counter.
+ */
+public class SampledLoggingListener implements CacheEventListener {
+  private final Logger log;
+  private final Level level;
+  private final int sampleRate;
+
+  /**
+   * Creates a new listener which is logging on INFO level.
+   *
+   * @param sampleRate the average number of events per logged event, 1 logs all events
+   */
+  public SampledLoggingListener(int sampleRate) {
+    this(Logger.getLogger(SampledLoggingListener.class.getName()), Level.INFO, sampleRate);
+  }
+
+  /**
+   * Creates a new listener.
+   *
+   * @param log        the logger of the events
+   * @param level      the level on which events are logged
+   * @param sampleRate the average number of events per logged event, 1 logs all events
+   */
+  public SampledLoggingListener(Logger log, Level level, int sampleRate) {
+    if (sampleRate < 1) {
+      throw new IllegalArgumentException("sample rate should be at least 1");
+    }
+    this.log = log;
+    this.level = level;
+    this.sampleRate = sampleRate;
+  }
+
+  @Override
+  public void onHit(String key, Object value) {
+    if (sampled()) {
+      log.log(level, "{0} with key: {1} was returned from cache", new Object[]{typeOf(value), key});
+    }
+  }
+
+  @Override
+  public void onMiss(String key) {
+    if (sampled()) {
+      log.log(level, "Key: {0} was missed from cache", key);
+    }
+  }
+
+  @Override
+  public void onStore(String key, Object value, long mills) {
+    if (sampled()) {
+      log.log(level, "{0} with key: {1} was stored in cache for {2} mills", new Object[]{typeOf(value), key, mills});
+    }
+  }
+
+  @Override
+  public void onRemove(String key) {
+    if (sampled()) {
+      log.log(level, "Key: {0} was removed from cache", key);
+    }
+  }
+
+  @Override
+  public void onFlush(String namespace) {
+    // flushes are rare, so they are always logged
+    if (log.isLoggable(level)) {
+      log.log(level, "Cache was flushed for namespace: {0}", namespace);
+    }
+  }
+
+  @Override
+  public void onCompute(String key, String method, long computeMills) {
+    if (sampled()) {
+      log.log(level, "Result of method: {0} was computed in {1} mills and cached with key: {2}", new Object[]{method, computeMills, key});
+    }
+  }
+
+  private boolean sampled() {
+    return log.isLoggable(level) && (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+  }
+
+  private String typeOf(Object value) {
+    return value == null ? "null" : value.getClass().getSimpleName();
+  }
+}
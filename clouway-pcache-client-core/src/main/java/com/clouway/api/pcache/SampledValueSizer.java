@@ -0,0 +1,28 @@
+package com.clouway.api.pcache;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * SampledValueSizer is a {@link ValueSizer} which is sizing a random sample of the values, so the distribution of the
+ * sizes is kept by a fraction of the cost of the sizing. Values that are not sampled have unknown size.
+ */
+class SampledValueSizer implements ValueSizer {
+  private final ValueSizer sizer;
+  private final int rate;
+
+  SampledValueSizer(ValueSizer sizer, int rate) {
+    if (rate < 1) {
+      throw new IllegalArgumentException("The sampling rate should be positive.");
+    }
+    this.sizer = sizer;
+    this.rate = rate;
+  }
+
+  @Override
+  public long sizeOf(Object value) {
+    if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) {
+      return -1;
+    }
+    return sizer.sizeOf(value);
+  }
+}
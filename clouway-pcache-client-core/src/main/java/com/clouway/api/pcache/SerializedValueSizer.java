@@ -0,0 +1,71 @@
+package com.clouway.api.pcache;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * SerializedValueSizer is sizing the strings and the byte arrays by their length and all other values by the length
+ * of their JVM serialized form, which is counted without to be buffered.
+ */
+class SerializedValueSizer implements ValueSizer {
+
+  private static class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+
+  @Override
+  public long sizeOf(Object value) {
+    if (value == null) {
+      return -1;
+    }
+    if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    }
+    if (value instanceof String) {
+      return utf8Length((String) value);
+    }
+    if (!(value instanceof Serializable)) {
+      return -1;
+    }
+
+    CountingOutputStream counter = new CountingOutputStream();
+    try {
+      ObjectOutputStream out = new ObjectOutputStream(counter);
+      out.writeObject(value);
+      out.close();
+    } catch (IOException e) {
+      return -1;
+    }
+    return counter.count;
+  }
+
+  private static long utf8Length(String value) {
+    long length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c)) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+}
@@ -0,0 +1,151 @@
+package com.clouway.api.pcache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SingleFlight is coalescing the concurrent computations of the same key, so only the first caller is performing the
+ * computation and the callers that are arriving while it's in flight are waiting for it and are sharing it's outcome.
+ * <p/>
+ * Computations are not memoized. Once the in-flight computation completes the next caller of the same key starts a
+ * new one.
+ * <p/>
+ * Waiting could be bounded, so a computation which hangs is not blocking all callers of it's key. Callers that are
+ * not served within the bound are performing the computation themselves, without to be coalesced.
+ */
+public class SingleFlight {
+
+  /**
+   * Computation that is performed once per flight.
+   */
+  public interface Computation<T> {
+
+    T compute() throws Throwable;
+  }
+
+  private static class Flight {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private Object result;
+    private Throwable error;
+
+    /**
+     * Waits for the outcome of the flight.
+     *
+     * @param timeoutMills the maximum time to wait in mills
+     * @return true if the flight completed in time
+     */
+    boolean await(long timeoutMills) {
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMills);
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            return done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    Object outcome() throws Throwable {
+      if (error != null) {
+        throw error;
+      }
+      return result;
+    }
+
+    void complete(Object result, Throwable error) {
+      this.result = result;
+      this.error = error;
+      done.countDown();
+    }
+  }
+
+  private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+  private final AtomicLong coalescedWaiters = new AtomicLong();
+  private final AtomicLong timedOutWaiters = new AtomicLong();
+
+  /**
+   * Executes the computation of the provided key or waits for the one which is already in flight.
+   *
+   * @param key         the key of the computation
+   * @param computation the computation that is performed if there is no computation in flight
+   * @return the result of the computation
+   * @throws Throwable the error thrown by the computation
+   */
+  public <T> T execute(String key, Computation<T> computation) throws Throwable {
+    return execute(key, Long.MAX_VALUE, computation);
+  }
+
+  /**
+   * Executes the computation of the provided key or waits for the one which is already in flight, but not longer than
+   * the provided timeout. Callers which are not served in time are performing the computation themselves.
+   *
+   * @param key          the key of the computation
+   * @param timeoutMills the maximum time in mills to wait for the computation which is in flight
+   * @param computation  the computation that is performed if there is no computation in flight
+   * @return the result of the computation
+   * @throws Throwable the error thrown by the computation
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String key, long timeoutMills, Computation<T> computation) throws Throwable {
+    Flight flight = new Flight();
+    Flight inFlight = flights.putIfAbsent(key, flight);
+    if (inFlight != null) {
+      coalescedWaiters.incrementAndGet();
+      if (inFlight.await(timeoutMills)) {
+        return (T) inFlight.outcome();
+      }
+      timedOutWaiters.incrementAndGet();
+      return computation.compute();
+    }
+
+    T result = null;
+    Throwable error = null;
+    try {
+      result = computation.compute();
+      return result;
+    } catch (Throwable e) {
+      error = e;
+      throw e;
+    } finally {
+      flights.remove(key, flight);
+      flight.complete(result, error);
+    }
+  }
+
+  /**
+   * Gets the number of calls that were served by waiting for a computation which was already in flight.
+   *
+   * @return the number of coalesced waiters
+   */
+  public long getCoalescedWaiters() {
+    return coalescedWaiters.get();
+  }
+
+  /**
+   * Gets the number of waiters which were not served in time and performed the computation themselves.
+   *
+   * @return the number of timed out waiters
+   */
+  public long getTimedOutWaiters() {
+    return timedOutWaiters.get();
+  }
+
+  /**
+   * Gets the number of computations that are currently in flight.
+   *
+   * @return the number of computations in flight
+   */
+  public int getInFlight() {
+    return flights.size();
+  }
+}
@@ -0,0 +1,27 @@
+package com.clouway.api.pcache;
+
+import java.util.Set;
+
+/**
+ * TaggedCache is a cache which values could be tagged, so all values of a tag are invalidated together without their
+ * keys to be known.
+ */
+public interface TaggedCache {
+
+  /**
+   * Puts a value in the cache and attaches the provided tags to it.
+   *
+   * @param key   the key of the value
+   * @param value the value
+   * @param mills the period of time in mills for which value is cached
+   * @param tags  the tags of the value
+   */
+  void putTagged(String key, Object value, Long mills, Set<String> tags);
+
+  /**
+   * Invalidates all values of the provided tag in the current namespace.
+   *
+   * @param tag the tag to be invalidated
+   */
+  void invalidateTag(String tag);
+}
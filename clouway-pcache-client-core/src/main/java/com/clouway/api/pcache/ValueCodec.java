@@ -0,0 +1,25 @@
+package com.clouway.api.pcache;
+
+/**
+ * ValueCodec is converting the values of a single type to their binary representation and back. Codecs are
+ * registered per type in the {@link CodecRegistry} and are used by the cache managers instead of the JVM
+ * serialization.
+ */
+public interface ValueCodec<T> {
+
+  /**
+   * Encodes the provided value.
+   *
+   * @param value the value to be encoded
+   * @return the binary representation of the value
+   */
+  byte[] encode(T value);
+
+  /**
+   * Decodes a value that was encoded using {@link #encode(Object)}.
+   *
+   * @param data the binary representation of the value
+   * @return the decoded value
+   */
+  T decode(byte[] data);
+}
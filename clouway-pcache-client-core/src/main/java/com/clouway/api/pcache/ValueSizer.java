@@ -0,0 +1,35 @@
+package com.clouway.api.pcache;
+
+/**
+ * ValueSizer is estimating the size of the cached values, as they are encoded by the cache.
+ */
+public interface ValueSizer {
+
+  /**
+   * Gets a sizer which is sizing the strings and the byte arrays by their length and all other values by the length
+   * of their JVM serialized form. Serialization is costing as much as the encoding of the value by the cache, so it
+   * should be sampled for the hot caches.
+   */
+  static ValueSizer serialized() {
+    return new SerializedValueSizer();
+  }
+
+  /**
+   * Gets a sizer which is sizing a random sample of the values with the provided sizer.
+   *
+   * @param sizer the sizer of the sampled values
+   * @param rate  the average number of values from which one is sized
+   * @return the sampling sizer
+   */
+  static ValueSizer sampled(ValueSizer sizer, int rate) {
+    return new SampledValueSizer(sizer, rate);
+  }
+
+  /**
+   * Gets the size of the value.
+   *
+   * @param value the value
+   * @return the size in bytes or -1 if size is unknown
+   */
+  long sizeOf(Object value);
+}
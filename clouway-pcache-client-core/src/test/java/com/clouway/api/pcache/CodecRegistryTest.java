@@ -0,0 +1,75 @@
+package com.clouway.api.pcache;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CodecRegistryTest {
+
+  static class Name {
+    final String value;
+
+    Name(String value) {
+      this.value = value;
+    }
+  }
+
+  static class NameCodec implements ValueCodec<Name> {
+    @Override
+    public byte[] encode(Name value) {
+      return value.value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Name decode(byte[] data) {
+      return new Name(new String(data, StandardCharsets.UTF_8));
+    }
+  }
+
+  private final CodecRegistry codecs = new CodecRegistry().register(7, Name.class, new NameCodec());
+
+  @Test
+  public void encodeAndDecodeRegisteredType() {
+    CodedValue coded = codecs.encode(new Name("::name::"));
+
+    assertThat(coded.getTypeId(), is(equalTo(7)));
+    assertThat(((Name) codecs.decode(coded)).value, is(equalTo("::name::")));
+  }
+
+  @Test
+  public void unregisteredTypesAreNotEncoded() {
+    assertThat(codecs.encode("::value::"), is(nullValue()));
+    assertThat(codecs.encode(null), is(nullValue()));
+  }
+
+  @Test
+  public void typeIdsAreUnique() {
+    try {
+      codecs.register(7, String.class, new ValueCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+          return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] data) {
+          return new String(data, StandardCharsets.UTF_8);
+        }
+      });
+      fail("Exception must be thrown");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test(expected = CacheException.class)
+  public void decodeOfUnknownTypeId() {
+    codecs.decode(new CodedValue(8, new byte[0]));
+  }
+}
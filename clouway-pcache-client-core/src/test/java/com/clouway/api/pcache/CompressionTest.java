@@ -0,0 +1,69 @@
+package com.clouway.api.pcache;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CompressionTest {
+
+  @Test
+  public void compressAndDecompress() {
+    byte[] data = new byte[100000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 10);
+    }
+
+    byte[] compressed = Compression.deflate(1024).compress(data);
+
+    assertThat(compressed.length < data.length, is(true));
+    assertThat(Compression.decompress(compressed), is(equalTo(data)));
+  }
+
+  @Test
+  public void dataBelowThresholdIsNotCompressed() {
+    assertThat(Compression.deflate(1024).compress(new byte[1023]), is(nullValue()));
+  }
+
+  @Test
+  public void incompressibleDataIsNotCompressed() {
+    byte[] data = new byte[4096];
+    new Random(1).nextBytes(data);
+
+    assertThat(Compression.deflate(1024).compress(data), is(nullValue()));
+  }
+
+  @Test
+  public void disabledCompression() {
+    assertThat(Compression.disabled().compress(new byte[100000]), is(nullValue()));
+  }
+
+  @Test
+  public void decompressionIsLimitedByTheMaximumLength() {
+    byte[] compressed = Compression.deflate(0).compress(new byte[100000]);
+
+    try {
+      Compression.decompress(compressed, 99999);
+      fail("exception must be thrown");
+    } catch (IllegalArgumentException e) {
+    }
+    assertThat(Compression.decompress(compressed, 100000).length, is(equalTo(100000)));
+  }
+
+  @Test
+  public void thresholdOfCompressedLengths() {
+    assertThat(Compression.deflate(1024).accepts(1023), is(false));
+    assertThat(Compression.deflate(1024).accepts(1024), is(true));
+    assertThat(Compression.disabled().accepts(Long.MAX_VALUE), is(false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decompressNotCompressedData() {
+    Compression.decompress(new byte[]{1, 2, 3});
+  }
+}
@@ -0,0 +1,75 @@
+package com.clouway.api.pcache;
+
+import com.clouway.api.pcache.testing.InMemoryCacheManager;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class EarlyExpirationTest {
+
+  private final EarlyExpiration earlyExpiration = new EarlyExpiration();
+
+  @Test
+  public void plainValuesAreReturnedAsTheyAre() {
+    assertThat(earlyExpiration.read("::value::", System.currentTimeMillis()), is(equalTo((Object) "::value::")));
+    assertThat(earlyExpiration.read(null, System.currentTimeMillis()), is(nullValue()));
+  }
+
+  @Test
+  public void entryFarFromExpirationIsNotRecomputed() {
+    EarlyExpiringValue entry = new EarlyExpiringValue("::value::", 0, 20000);
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(earlyExpiration.read(entry, 10000), is(equalTo((Object) "::value::")));
+    }
+  }
+
+  @Test
+  public void expiredEntryIsRecomputed() {
+    EarlyExpiringValue entry = new EarlyExpiringValue("::value::", 100, 20000);
+
+    assertThat(earlyExpiration.read(entry, 20000), is(nullValue()));
+  }
+
+  @Test
+  public void recomputationProbabilityRisesAsExpirationApproaches() {
+    EarlyExpiringValue entry = new EarlyExpiringValue("::value::", 1000, 20000);
+
+    int far = 0;
+    int near = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (earlyExpiration.read(entry, 15000) == null) {
+        far++;
+      }
+      if (earlyExpiration.read(entry, 19900) == null) {
+        near++;
+      }
+    }
+
+    assertThat(far < near, is(true));
+  }
+
+  @Test
+  public void computedValueIsCachedWithItsComputationTime() throws Throwable {
+    InMemoryCacheManager cacheManager = new InMemoryCacheManager();
+    final AtomicInteger computations = new AtomicInteger();
+    SingleFlight.Computation<String> computation = new SingleFlight.Computation<String>() {
+      @Override
+      public String compute() {
+        computations.incrementAndGet();
+        return "::value::";
+      }
+    };
+
+    assertThat(earlyExpiration.get(cacheManager, "::key::", 60000L, computation), is(equalTo("::value::")));
+    assertThat(earlyExpiration.get(cacheManager, "::key::", 60000L, computation), is(equalTo("::value::")));
+    assertThat(computations.get(), is(equalTo(1)));
+    assertThat(cacheManager.get("::key::"), is(instanceOf(EarlyExpiringValue.class)));
+  }
+}
@@ -0,0 +1,83 @@
+package com.clouway.api.pcache;
+
+import com.clouway.api.pcache.testing.InMemoryCacheManager;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class GenerationalCacheRegionTest {
+
+  private final CacheManager cacheManager = new InMemoryCacheManager();
+  private final FakeStore generations = new FakeStore();
+  private final CacheRegion region = new GenerationalCacheRegion(cacheManager, generations, "::user::", 60000L);
+
+  @Test
+  public void fieldsAreReadTogether() {
+    Map<String, Object> values = new HashMap<String, Object>();
+    values.put("::field1::", "::value1::");
+    values.put("::field2::", "::value2::");
+    region.putAll(values);
+
+    MatchResult<String> result = region.getAll(Arrays.asList("::field1::", "::field2::", "::field3::"), String.class);
+
+    assertThat(result.getHits().size(), is(equalTo(2)));
+    assertThat(result.getMissedKeys(), is(equalTo(Arrays.asList("::field3::"))));
+  }
+
+  @Test
+  public void invalidatedFieldsAreMissed() {
+    region.put("::field::", "::value::");
+    region.invalidate();
+
+    assertThat(region.get("::field::"), is(nullValue()));
+
+    region.put("::field::", "::new value::");
+    assertThat(region.get("::field::"), is(equalTo((Object) "::new value::")));
+  }
+
+  @Test
+  public void regionsAreIndependent() {
+    CacheRegion other = new GenerationalCacheRegion(cacheManager, generations, "::other user::", 60000L);
+    region.put("::field::", "::value::");
+    other.put("::field::", "::other value::");
+
+    other.invalidate();
+
+    assertThat(region.get("::field::"), is(equalTo((Object) "::value::")));
+    assertThat(other.get("::field::"), is(nullValue()));
+  }
+
+  @Test
+  public void generationIsKeptOnlyInTheStore() {
+    region.put("::field::", "::value::");
+
+    assertThat(cacheManager.contains("region:::user:::generation"), is(equalTo(false)));
+    assertThat(generations.get("::user::"), is(equalTo(1L)));
+  }
+
+  private static class FakeStore implements NamespaceGenerations.Store {
+    private final Map<String, Long> generations = new HashMap<String, Long>();
+
+    @Override
+    public long get(String region) {
+      if (!generations.containsKey(region)) {
+        generations.put(region, 1L);
+      }
+      return generations.get(region);
+    }
+
+    @Override
+    public long increment(String region) {
+      long generation = get(region) + 1;
+      generations.put(region, generation);
+      return generation;
+    }
+  }
+}
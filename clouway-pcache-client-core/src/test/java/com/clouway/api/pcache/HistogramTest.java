@@ -0,0 +1,61 @@
+package com.clouway.api.pcache;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class HistogramTest {
+
+  private final Histogram histogram = new Histogram();
+
+  @Test
+  public void percentilesAreWithinTheBucketPrecision() {
+    for (long value = 1; value <= 10000; value++) {
+      histogram.record(value * 1000);
+    }
+
+    assertThat(histogram.getCount(), is(equalTo(10000L)));
+    assertThat(histogram.getMax(), is(equalTo(10000000L)));
+    assertThat(histogram.getPercentile(0.5), is(allOf(greaterThanOrEqualTo(5000000L), lessThanOrEqualTo(5625000L))));
+    assertThat(histogram.getPercentile(0.99), is(allOf(greaterThanOrEqualTo(9900000L), lessThanOrEqualTo(10000000L))));
+    assertThat(histogram.getPercentile(1), is(equalTo(10000000L)));
+  }
+
+  @Test
+  public void smallValuesAreExact() {
+    histogram.record(0);
+    histogram.record(3);
+    histogram.record(7);
+
+    assertThat(histogram.getPercentile(0.3), is(equalTo(0L)));
+    assertThat(histogram.getPercentile(0.6), is(equalTo(3L)));
+    assertThat(histogram.getPercentile(1), is(equalTo(7L)));
+    assertThat(histogram.getMean(), is(equalTo(10 / 3d)));
+  }
+
+  @Test
+  public void largestValues() {
+    histogram.record(Long.MAX_VALUE);
+
+    assertThat(histogram.getPercentile(0.5), is(equalTo(Long.MAX_VALUE)));
+  }
+
+  @Test
+  public void bucketsAreContiguous() {
+    for (int i = 1; i < Histogram.indexOf(Long.MAX_VALUE); i++) {
+      assertThat(Histogram.indexOf(Histogram.highestValueOf(i - 1) + 1), is(equalTo(i)));
+      assertThat(Histogram.indexOf(Histogram.highestValueOf(i)), is(equalTo(i)));
+    }
+  }
+
+  @Test
+  public void emptyHistogram() {
+    assertThat(histogram.getPercentile(0.99), is(equalTo(0L)));
+    assertThat(histogram.getMean(), is(equalTo(0d)));
+  }
+}
@@ -0,0 +1,147 @@
+package com.clouway.api.pcache;
+
+import com.clouway.api.pcache.testing.InMemoryCacheManager;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class InstrumentedCacheManagerTest {
+
+  private final CacheMetrics metrics = new CacheMetrics();
+  private String namespace = "::ns1::";
+
+  private final NamespaceProvider namespaceProvider = new NamespaceProvider() {
+    @Override
+    public String get() {
+      return namespace;
+    }
+  };
+
+  private final CacheManager cacheManager = new InstrumentedCacheManager(new InMemoryCacheManager(), namespaceProvider, metrics);
+
+  @Test
+  public void hitsAndMissesOfReads() {
+    cacheManager.put("::key1::", "::value::");
+
+    cacheManager.get("::key1::");
+    cacheManager.get("::missing::");
+    cacheManager.getAll(Arrays.asList("::key1::", "::key2::", "::key3::"), String.class);
+
+    OperationMetrics get = metrics.of("::ns1::", CacheOperation.GET);
+    assertThat(get.getHits(), is(equalTo(1L)));
+    assertThat(get.getMisses(), is(equalTo(1L)));
+    assertThat(get.getLatencyNanos().getCount(), is(equalTo(2L)));
+
+    OperationMetrics getAll = metrics.of("::ns1::", CacheOperation.GET_ALL);
+    assertThat(getAll.getHits(), is(equalTo(1L)));
+    assertThat(getAll.getMisses(), is(equalTo(2L)));
+    assertThat(getAll.getHitRatio(), is(equalTo(1 / 3d)));
+  }
+
+  @Test
+  public void metricsArePerNamespace() {
+    cacheManager.put("::key::", "::value::");
+    namespace = "::ns2::";
+    cacheManager.put("::key::", "::value::");
+    cacheManager.put("::key::", "::value::");
+
+    assertThat(metrics.of("::ns1::", CacheOperation.PUT).getLatencyNanos().getCount(), is(equalTo(1L)));
+    assertThat(metrics.of("::ns2::", CacheOperation.PUT).getLatencyNanos().getCount(), is(equalTo(2L)));
+
+    final List<String> reported = new ArrayList<String>();
+    metrics.report(new MetricsReporter() {
+      @Override
+      public void report(String namespace, CacheOperation operation, OperationMetrics metrics) {
+        if (operation == CacheOperation.PUT) {
+          reported.add(namespace + metrics.getLatencyNanos().getCount());
+        }
+      }
+    });
+    assertThat(reported.size(), is(equalTo(2)));
+    assertThat(reported.contains("::ns2::2"), is(true));
+  }
+
+  @Test
+  public void valuesAreNotSizedByDefault() {
+    cacheManager.put("::key::", "::value::");
+    cacheManager.get("::key::");
+
+    assertThat(metrics.of("::ns1::", CacheOperation.PUT).getSizes().getCount(), is(equalTo(0L)));
+    assertThat(metrics.of("::ns1::", CacheOperation.GET).getSizes().getCount(), is(equalTo(0L)));
+  }
+
+  @Test
+  public void sizesReportedByCacheManagerAreRecorded() {
+    CacheManager cacheManager = new InstrumentedCacheManager(new InMemoryCacheManager() {
+      @Override
+      public Object get(String key) {
+        EncodedSizes.report(42);
+        return super.get(key);
+      }
+    }, namespaceProvider, metrics, ValueSizer.serialized());
+
+    cacheManager.put("::key::", "::value::");
+    cacheManager.get("::key::");
+
+    assertThat(metrics.of("::ns1::", CacheOperation.GET).getSizes().getSum(), is(equalTo(42L)));
+    assertThat(metrics.of("::ns1::", CacheOperation.PUT).getSizes().getSum(), is(equalTo(9L)));
+  }
+
+  @Test
+  public void sizesAreNotReportedOutsideOfRecording() {
+    CacheManager cacheManager = new InstrumentedCacheManager(new InMemoryCacheManager() {
+      @Override
+      public Object get(String key) {
+        EncodedSizes.report(42);
+        return super.get(key);
+      }
+    }, namespaceProvider, metrics);
+
+    cacheManager.put("::key::", "::value::");
+    EncodedSizes.report(10);
+    cacheManager.get("::key::");
+
+    assertThat(metrics.of("::ns1::", CacheOperation.GET).getSizes().getCount(), is(equalTo(1L)));
+    assertThat(metrics.of("::ns1::", CacheOperation.GET).getSizes().getSum(), is(equalTo(42L)));
+  }
+
+  @Test
+  public void sampledSizerIsSizingFractionOfValues() {
+    CacheManager cacheManager = new InstrumentedCacheManager(new InMemoryCacheManager(), namespaceProvider, metrics, ValueSizer.sampled(ValueSizer.serialized(), 10));
+
+    for (int i = 0; i < 1000; i++) {
+      cacheManager.put("::key::", "::value::");
+    }
+
+    long sized = metrics.of("::ns1::", CacheOperation.PUT).getSizes().getCount();
+    assertThat(sized > 0 && sized < 300, is(true));
+  }
+
+  @Test
+  public void conditionalOperations() {
+    assertThat(cacheManager.lock("::key::"), is(true));
+    assertThat(cacheManager.lock("::key::"), is(false));
+
+    OperationMetrics lock = metrics.of("::ns1::", CacheOperation.LOCK);
+    assertThat(lock.getHits(), is(equalTo(1L)));
+    assertThat(lock.getMisses(), is(equalTo(1L)));
+  }
+
+  @Test
+  public void errorsAreRecorded() {
+    try {
+      cacheManager.put("::key::", new Object());
+      fail("exception must be thrown");
+    } catch (CacheException e) {
+    }
+
+    assertThat(metrics.of("::ns1::", CacheOperation.PUT).getErrors(), is(equalTo(1L)));
+  }
+}
@@ -0,0 +1,92 @@
+package com.clouway.api.pcache;
+
+import com.clouway.api.pcache.ValueFormat.ValueAndFlags;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ItemSerializerTest {
+  private static final byte LEGACY = 0x7F;
+
+  private final ItemSerializer serializer = new ItemSerializer(new CodecRegistry(), Compression.disabled());
+
+  @Test
+  public void encodeAndDecode() {
+    assertThat(serializer.decode(serializer.encode("::value::")), is(equalTo((Object) "::value::")));
+    assertThat(serializer.decode(serializer.encode(12L)), is(equalTo((Object) 12L)));
+    assertThat(serializer.decode(serializer.encode(true)), is(equalTo((Object) true)));
+    assertThat(serializer.decode(serializer.encode(Arrays.asList(1, 2))), is(equalTo((Object) Arrays.asList(1, 2))));
+  }
+
+  @Test
+  public void smallValuesAreStoredWithElevenBytesOverhead() {
+    assertThat(serializer.encode("abc").length, is(equalTo(14)));
+    assertThat(serializer.encode(12345L).length, is(equalTo(16)));
+  }
+
+  @Test
+  public void stampIsDecodedWithTheValue() {
+    ItemSerializer.Entry entry = serializer.decodeEntry(serializer.encode("::value::", 42L));
+
+    assertThat(entry.value, is(equalTo((Object) "::value::")));
+    assertThat(entry.stamp, is(equalTo(42L)));
+    assertThat(ItemSerializer.stampOf(serializer.encode("::value::", 42L)), is(equalTo(42L)));
+  }
+
+  @Test
+  public void legacyValuesAreReadByTheLegacyFormat() {
+    ItemSerializer serializer = new ItemSerializer(new CodecRegistry(), Compression.disabled(), new ItemSerializer.LegacyFormat() {
+      @Override
+      public ValueAndFlags parse(byte[] raw) {
+        return raw[0] == LEGACY ? ValueFormat.format(new String(raw, 1, raw.length - 1, StandardCharsets.UTF_8)) : null;
+      }
+    });
+
+    ItemSerializer.Entry entry = serializer.decodeEntry(legacy("::value::"));
+
+    assertThat(entry.value, is(equalTo((Object) "::value::")));
+    assertThat(entry.stamp, is(nullValue()));
+    assertThat(serializer.decode(new byte[]{1, 2, 3, 4}), is(nullValue()));
+  }
+
+  @Test
+  public void legacyValuesAreMissedWithoutLegacyFormat() {
+    assertThat(serializer.decode(legacy("::value::")), is(nullValue()));
+  }
+
+  @Test
+  public void largeValuesAreCompressed() {
+    ItemSerializer serializer = new ItemSerializer(new CodecRegistry(), Compression.deflate(1024));
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      value.append("::value::");
+    }
+
+    byte[] encoded = serializer.encode(value.toString());
+
+    assertThat(encoded.length, is(lessThan(value.length() / 10)));
+    assertThat(serializer.decode(encoded), is(equalTo((Object) value.toString())));
+    assertThat(serializer.encode("::small value::").length, is(equalTo(this.serializer.encode("::small value::").length)));
+  }
+
+  @Test
+  public void unknownContentIsMissed() {
+    assertThat(serializer.decode(new byte[]{1, 2, 3, 4}), is(nullValue()));
+    assertThat(serializer.decode(new byte[]{ItemSerializer.MAGIC, ItemSerializer.VERSION, (byte) 120}), is(nullValue()));
+    assertThat(serializer.decode(new byte[0]), is(nullValue()));
+    assertThat(ItemSerializer.stampOf(new byte[]{1, 2, 3, 4}), is(nullValue()));
+  }
+
+  private byte[] legacy(String value) {
+    byte[] data = value.getBytes(StandardCharsets.UTF_8);
+    return ByteBuffer.allocate(1 + data.length).put(LEGACY).put(data).array();
+  }
+}
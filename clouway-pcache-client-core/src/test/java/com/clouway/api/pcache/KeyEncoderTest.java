@@ -0,0 +1,73 @@
+package com.clouway.api.pcache;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class KeyEncoderTest {
+
+  private final KeyEncoder encoder = KeyEncoder.create();
+
+  @Test
+  public void keysArePrefixedByNamespace() {
+    assertThat(encoder.encode("::ns::", "::key::"), is(equalTo(utf8("::ns:::::key::"))));
+    assertThat(encoder.encode("ns2", "::key::"), is(equalTo(utf8("ns2:::key::"))));
+  }
+
+  @Test
+  public void keysAreEncodedAsUtf8() {
+    String key = "\u043a\u043b\u044e\u0447-\u00e9-\u20ac-\ud83d\ude00-\ud800";
+
+    assertThat(encoder.encode("ns", key), is(equalTo(utf8("ns:" + key))));
+  }
+
+  @Test
+  public void longKeysAreHashed() {
+    KeyEncoder encoder = KeyEncoder.create(64);
+    String key = repeat("a", 100);
+
+    byte[] encoded = encoder.encode("ns", key);
+
+    assertThat(encoded.length, is(equalTo(3 + 45)));
+    assertThat(new String(encoded, StandardCharsets.UTF_8).startsWith("ns:sha1:"), is(true));
+    assertThat(encoder.encode("ns", key), is(equalTo(encoded)));
+    assertThat(encoder.encode("ns", repeat("b", 100)), is(not(equalTo(encoded))));
+    assertThat(encoder.encode("ns", "::key::"), is(equalTo(utf8("ns:::key::"))));
+  }
+
+  @Test
+  public void shortenLongKeys() {
+    KeyEncoder encoder = KeyEncoder.create(KeyEncoder.MEMCACHE_MAX_KEY_LENGTH);
+
+    assertThat(encoder.shorten("::key::"), is(equalTo("::key::")));
+    assertThat(encoder.shorten(repeat("\u20ac", 90)).length(), is(equalTo(45)));
+    assertThat(encoder.shorten(repeat("\u20ac", 90)), is(equalTo(encoder.shorten(repeat("\u20ac", 90)))));
+  }
+
+  @Test
+  public void tooShortMaxLength() {
+    try {
+      KeyEncoder.create(10);
+      fail("exception must be thrown");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  private byte[] utf8(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private String repeat(String value, int times) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < times; i++) {
+      builder.append(value);
+    }
+    return builder.toString();
+  }
+}
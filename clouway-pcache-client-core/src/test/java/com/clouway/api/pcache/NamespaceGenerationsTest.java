@@ -0,0 +1,102 @@
+package com.clouway.api.pcache;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class NamespaceGenerationsTest {
+
+  private final FakeStore store = new FakeStore();
+
+  @Test
+  public void namespacesAreVersionedByTheirGeneration() {
+    NamespaceProvider namespaces = new NamespaceGenerations(store, 60000L).versioned(new NamespaceProvider() {
+      @Override
+      public String get() {
+        return "::ns::";
+      }
+    });
+
+    assertThat(namespaces.get(), is(equalTo("::ns::@1")));
+  }
+
+  @Test
+  public void versionedNamespaceIsReusedUntilGenerationIsChanged() {
+    NamespaceGenerations generations = new NamespaceGenerations(store, 60000L);
+    NamespaceProvider namespaces = generations.versioned(new NamespaceProvider() {
+      @Override
+      public String get() {
+        return "::ns::";
+      }
+    });
+
+    String versioned = namespaces.get();
+    assertThat(namespaces.get(), is(sameInstance(versioned)));
+
+    generations.increment("::ns::");
+    assertThat(namespaces.get(), is(equalTo("::ns::@2")));
+  }
+
+  @Test
+  public void generationsAreCachedUntilRefresh() {
+    NamespaceGenerations generations = new NamespaceGenerations(store, 60000L);
+
+    assertThat(generations.current("::ns::"), is(equalTo(1L)));
+    store.increment("::ns::");
+
+    assertThat(generations.current("::ns::"), is(equalTo(1L)));
+    assertThat(store.reads, is(equalTo(1)));
+  }
+
+  @Test
+  public void expiredGenerationsAreRefreshed() {
+    NamespaceGenerations generations = new NamespaceGenerations(store, 0L);
+
+    assertThat(generations.current("::ns::"), is(equalTo(1L)));
+    store.increment("::ns::");
+
+    assertThat(generations.current("::ns::"), is(equalTo(2L)));
+  }
+
+  @Test
+  public void incrementedGenerationIsSeenLocallyWithoutRefresh() {
+    NamespaceGenerations generations = new NamespaceGenerations(store, 60000L);
+
+    assertThat(generations.current("::ns::"), is(equalTo(1L)));
+    assertThat(generations.increment("::ns::"), is(equalTo(2L)));
+
+    assertThat(generations.current("::ns::"), is(equalTo(2L)));
+    assertThat(generations.current("::other ns::"), is(equalTo(1L)));
+  }
+
+  private static class FakeStore implements NamespaceGenerations.Store {
+    private final Map<String, Long> generations = new HashMap<String, Long>();
+    private int reads;
+
+    @Override
+    public long get(String namespace) {
+      reads++;
+      return generationOf(namespace);
+    }
+
+    @Override
+    public long increment(String namespace) {
+      long generation = generationOf(namespace) + 1;
+      generations.put(namespace, generation);
+      return generation;
+    }
+
+    private long generationOf(String namespace) {
+      if (!generations.containsKey(namespace)) {
+        generations.put(namespace, 1L);
+      }
+      return generations.get(namespace);
+    }
+  }
+}
@@ -0,0 +1,317 @@
+package com.clouway.api.pcache;
+
+import com.clouway.api.pcache.testing.CacheManagerContract;
+import com.clouway.api.pcache.testing.InMemoryCacheManager;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class NearCacheManagerTest extends CacheManagerContract {
+
+  static class InMemoryChannel implements InvalidationChannel {
+    private final List<InvalidationListener> listeners = new ArrayList<InvalidationListener>();
+    private final List<Collection<String>> batches = new ArrayList<Collection<String>>();
+    private boolean closed;
+
+    @Override
+    public void publish(String namespace, String key) {
+      for (InvalidationListener listener : listeners) {
+        listener.invalidated(namespace, key);
+      }
+    }
+
+    @Override
+    public void publishAll(String namespace, Collection<String> keys) {
+      batches.add(new ArrayList<String>(keys));
+      InvalidationChannel.super.publishAll(namespace, keys);
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+      listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  static class TaggedInMemoryCacheManager extends InMemoryCacheManager implements TaggedCache {
+    private final Map<String, Set<String>> tagged = new HashMap<String, Set<String>>();
+
+    @Override
+    public void putTagged(String key, Object value, Long mills, Set<String> tags) {
+      put(key, value, mills);
+      for (String tag : tags) {
+        if (!tagged.containsKey(tag)) {
+          tagged.put(tag, new HashSet<String>());
+        }
+        tagged.get(tag).add(key);
+      }
+    }
+
+    @Override
+    public void invalidateTag(String tag) {
+      Set<String> keys = tagged.remove(tag);
+      if (keys != null) {
+        for (String key : keys) {
+          remove(key);
+        }
+      }
+    }
+  }
+
+  private final NamespaceProvider namespaceProvider = new NamespaceProvider() {
+    @Override
+    public String get() {
+      return "default";
+    }
+  };
+
+  @Test
+  public void hotKeysAreServedLocally() {
+    InMemoryCacheManager remote = new InMemoryCacheManager();
+    CacheManager cacheManager = new NearCacheManager(remote, namespaceProvider, 100, 60000L);
+
+    cacheManager.put("::key::", "::value::");
+    remote.flush();
+
+    assertThat((String) cacheManager.get("::key::"), is(equalTo("::value::")));
+  }
+
+  @Test
+  public void changesOfOtherNodesInvalidateLocalCopies() {
+    InMemoryCacheManager remote = new InMemoryCacheManager();
+    InMemoryChannel otherNode = new InMemoryChannel();
+    CacheManager cacheManager = new NearCacheManager(remote, namespaceProvider, otherNode, 100, 60000L);
+
+    cacheManager.put("::key::", "::value::");
+    remote.put("::key::", "::changed value::");
+    otherNode.publish("default", "::key::");
+
+    assertThat((String) cacheManager.get("::key::"), is(equalTo("::changed value::")));
+  }
+
+  @Test
+  public void flushOfOtherNodeInvalidatesTheWholeNamespace() {
+    InMemoryCacheManager remote = new InMemoryCacheManager();
+    InMemoryChannel otherNode = new InMemoryChannel();
+    CacheManager cacheManager = new NearCacheManager(remote, namespaceProvider, otherNode, 100, 60000L);
+
+    cacheManager.put("::key1::", "::value1::");
+    cacheManager.put("::key2::", "::value2::");
+    remote.flush();
+    otherNode.publish("default", null);
+
+    assertThat(cacheManager.get("::key1::"), is(nullValue()));
+    assertThat(cacheManager.get("::key2::"), is(nullValue()));
+  }
+
+  @Test
+  public void localCopiesAreNotKeptLongerThanRemoteExpiration() throws Exception {
+    InMemoryCacheManager remote = new InMemoryCacheManager();
+    CacheManager cacheManager = new NearCacheManager(remote, namespaceProvider, 100, 60000L);
+
+    cacheManager.put("::key::", "::value::", 10L);
+    remote.flush();
+    Thread.sleep(20);
+
+    assertThat(cacheManager.get("::key::"), is(nullValue()));
+  }
+
+  @Test
+  public void frequentlyUsedKeysSurviveScanOfOneTimeKeys() {
+    InMemoryCacheManager remote = new InMemoryCacheManager();
+    CacheManager cacheManager = new NearCacheManager(remote, namespaceProvider, 100, 60000L);
+
+    cacheManager.put("::hot::", "::hot value::");
+    for (int i = 0; i < 10; i++) {
+      cacheManager.get("::hot::");
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      cacheManager.put("::cold " + i + "::", "::cold value::");
+    }
+    remote.flush();
+
+    assertThat((String) cacheManager.get("::hot::"), is(equalTo("::hot value::")));
+  }
+
+  @Test
+  public void mixLocalAndRemoteHitsInKeyOrder() {
+    InMemoryCacheManager remote = new InMemoryCacheManager();
+    CacheManager cacheManager = new NearCacheManager(remote, namespaceProvider, 100, 60000L);
+
+    cacheManager.put("::key2::", "::value2::");
+    remote.put("::key1::", "::value1::");
+    remote.put("::key3::", "::value3::");
+
+    MatchResult<String> result = cacheManager.getAll(Arrays.asList("::key1::", "::key2::", "::key3::", "::key4::"), String.class);
+
+    assertThat(result.getHits(), is(equalTo(Arrays.asList("::value1::", "::value2::", "::value3::"))));
+    assertThat(result.getMissedKeys(), is(equalTo(Arrays.asList("::key4::"))));
+  }
+
+  @Test
+  public void valueReadBeforeConcurrentChangeIsNotKeptLocally() {
+    final InMemoryChannel otherNode = new InMemoryChannel();
+    InMemoryCacheManager remote = new InMemoryCacheManager() {
+      @Override
+      public Object get(String key) {
+        Object value = super.get(key);
+        // the other node is changing the entry after it was read
+        super.put(key, "::changed value::");
+        otherNode.publish("default", key);
+        return value;
+      }
+    };
+    CacheManager cacheManager = new NearCacheManager(remote, namespaceProvider, otherNode, 100, 60000L);
+    remote.put("::key::", "::value::");
+
+    assertThat((String) cacheManager.get("::key::"), is(equalTo("::value::")));
+    assertThat((String) cacheManager.get("::key::"), is(equalTo("::changed value::")));
+  }
+
+  @Test
+  public void changeOfOtherKeyIsNotRejectingTheRead() {
+    final InMemoryChannel otherNode = new InMemoryChannel();
+    InMemoryCacheManager remote = new InMemoryCacheManager() {
+      @Override
+      public Object get(String key) {
+        Object value = super.get(key);
+        otherNode.publish("default", "::other key::");
+        return value;
+      }
+    };
+    CacheManager cacheManager = new NearCacheManager(remote, namespaceProvider, otherNode, 100, 60000L);
+    remote.put("::key::", "::value::");
+
+    cacheManager.get("::key::");
+    remote.flush();
+
+    assertThat((String) cacheManager.get("::key::"), is(equalTo("::value::")));
+  }
+
+  @Test
+  public void concurrentReadsAndWritesAreNotCorruptingTheCache() throws Exception {
+    final CacheManager cacheManager = new NearCacheManager(new InMemoryCacheManager(), namespaceProvider, 100, 60000L);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+
+    for (int t = 0; t < 4; t++) {
+      final int thread = t;
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            String key = "::key " + (i * 7 + thread) % 500 + "::";
+            if (i % 3 == 0) {
+              cacheManager.put(key, i);
+            } else if (i % 11 == 0) {
+              cacheManager.remove(key);
+            } else {
+              cacheManager.get(key);
+            }
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    cacheManager.put("::key::", "::value::");
+    assertThat((String) cacheManager.get("::key::"), is(equalTo("::value::")));
+  }
+
+  @Test
+  public void valuesReadBeforeConcurrentChangeAreNotKeptLocally() {
+    final InMemoryChannel otherNode = new InMemoryChannel();
+    InMemoryCacheManager remote = new InMemoryCacheManager() {
+      @Override
+      public <V> MatchResult<V> getAll(String prefix, List<String> keys, Class<V> clazz) {
+        MatchResult<V> result = super.getAll(prefix, keys, clazz);
+        super.put("::key1::", "::changed value::");
+        otherNode.publish("default", "::key1::");
+        return result;
+      }
+    };
+    CacheManager cacheManager = new NearCacheManager(remote, namespaceProvider, otherNode, 100, 60000L);
+    remote.put("::key1::", "::value1::");
+
+    cacheManager.getAll(Arrays.asList("::key1::"), String.class);
+
+    assertThat((String) cacheManager.get("::key1::"), is(equalTo("::changed value::")));
+  }
+
+  @Test
+  public void keysOfBulkWriteArePublishedTogether() {
+    InMemoryChannel channel = new InMemoryChannel();
+    CacheManager cacheManager = new NearCacheManager(new InMemoryCacheManager(), namespaceProvider, channel, 100, 60000L);
+    Map<String, Object> values = new LinkedHashMap<String, Object>();
+    values.put("::key1::", "::value1::");
+    values.put("::key2::", "::value2::");
+
+    cacheManager.putAll(values, 60000L);
+
+    assertThat(channel.batches, is(equalTo(Arrays.<Collection<String>>asList(Arrays.asList("::key1::", "::key2::")))));
+  }
+
+  @Test
+  public void invalidatedTagIsNotServedLocally() {
+    InMemoryChannel otherNode = new InMemoryChannel();
+    NearCacheManager cacheManager = new NearCacheManager(new TaggedInMemoryCacheManager(), namespaceProvider, otherNode, 100, 60000L);
+    cacheManager.putTagged("::key::", "::value::", 60000L, Collections.singleton("::tag::"));
+
+    cacheManager.invalidateTag("::tag::");
+
+    assertThat(cacheManager.get("::key::"), is(nullValue()));
+  }
+
+  @Test
+  public void missingCapabilityOfRemoteCacheIsRejected() {
+    NearCacheManager cacheManager = new NearCacheManager(new InMemoryCacheManager(), namespaceProvider, 100, 60000L);
+
+    try {
+      cacheManager.invalidateTag("::tag::");
+      fail("exception must be thrown");
+    } catch (UnsupportedOperationException e) {
+      assertThat(e.getMessage(), is(equalTo("The remote cache manager is not a TaggedCache.")));
+    }
+  }
+
+  @Test
+  public void closingOfManagerClosesTheChannel() {
+    InMemoryChannel channel = new InMemoryChannel();
+    NearCacheManager cacheManager = new NearCacheManager(new InMemoryCacheManager(), namespaceProvider, channel, 100, 60000L);
+
+    cacheManager.close();
+
+    assertThat(channel.closed, is(true));
+  }
+
+  @Override
+  protected CacheManager createCacheManager() {
+    return new NearCacheManager(new InMemoryCacheManager(), namespaceProvider, 100, 60000L);
+  }
+}
@@ -0,0 +1,75 @@
+package com.clouway.api.pcache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+public class SampledLoggingListenerTest {
+
+  private final List<LogRecord> records = new ArrayList<LogRecord>();
+  private final Logger log = Logger.getAnonymousLogger();
+
+  {
+    log.setUseParentHandlers(false);
+    log.addHandler(new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        records.add(record);
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    });
+  }
+
+  @Test
+  public void allEventsAreLoggedWithoutSampling() {
+    SampledLoggingListener listener = new SampledLoggingListener(log, Level.INFO, 1);
+
+    listener.onHit("::key::", "::value::");
+    listener.onMiss("::key::");
+    listener.onStore("::key::", "::value::", 1000);
+
+    assertThat(records.size(), is(equalTo(3)));
+    assertThat(records.get(0).getParameters()[1], is(equalTo((Object) "::key::")));
+  }
+
+  @Test
+  public void eventsAreSampled() {
+    SampledLoggingListener listener = new SampledLoggingListener(log, Level.INFO, 10);
+
+    for (int i = 0; i < 10000; i++) {
+      listener.onMiss("::key::");
+    }
+
+    assertThat(records.size(), is(allOf(greaterThan(500), lessThan(1500))));
+  }
+
+  @Test
+  public void nothingIsLoggedBelowTheLevelOfTheLogger() {
+    log.setLevel(Level.WARNING);
+    SampledLoggingListener listener = new SampledLoggingListener(log, Level.INFO, 1);
+
+    listener.onMiss("::key::");
+    listener.onFlush("::namespace::");
+
+    assertThat(records.size(), is(equalTo(0)));
+  }
+}
@@ -0,0 +1,139 @@
+package com.clouway.api.pcache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+  private final SingleFlight singleFlight = new SingleFlight();
+
+  @Test
+  public void concurrentCallsOfTheSameKeyAreComputedOnce() throws Exception {
+    final AtomicInteger computations = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final int callers = 8;
+
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    List<Future<String>> results = new ArrayList<Future<String>>();
+    for (int i = 0; i < callers; i++) {
+      results.add(executor.submit(new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          try {
+            return singleFlight.execute("::key::", new SingleFlight.Computation<String>() {
+              @Override
+              public String compute() throws Throwable {
+                computations.incrementAndGet();
+                release.await();
+                return "::value::";
+              }
+            });
+          } catch (Throwable e) {
+            throw new Exception(e);
+          }
+        }
+      }));
+    }
+
+    while (computations.get() == 0 || singleFlight.getCoalescedWaiters() < callers - 1) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+
+    for (Future<String> result : results) {
+      assertThat(result.get(), is(equalTo("::value::")));
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.SECONDS);
+
+    assertThat(computations.get(), is(equalTo(1)));
+    assertThat(singleFlight.getCoalescedWaiters(), is(equalTo((long) callers - 1)));
+    assertThat(singleFlight.getInFlight(), is(equalTo(0)));
+  }
+
+  @Test
+  public void sequentialCallsAreComputedEachTime() throws Throwable {
+    final AtomicInteger computations = new AtomicInteger();
+    SingleFlight.Computation<Integer> computation = new SingleFlight.Computation<Integer>() {
+      @Override
+      public Integer compute() {
+        return computations.incrementAndGet();
+      }
+    };
+
+    assertThat(singleFlight.execute("::key::", computation), is(equalTo(1)));
+    assertThat(singleFlight.execute("::key::", computation), is(equalTo(2)));
+    assertThat(singleFlight.getCoalescedWaiters(), is(equalTo(0L)));
+  }
+
+  @Test
+  public void errorOfTheComputationIsThrown() throws Throwable {
+    try {
+      singleFlight.execute("::key::", new SingleFlight.Computation<Object>() {
+        @Override
+        public Object compute() {
+          throw new IllegalStateException("::error::");
+        }
+      });
+      fail("Exception must be thrown");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is(equalTo("::error::")));
+    }
+
+    assertThat(singleFlight.getInFlight(), is(equalTo(0)));
+  }
+
+  @Test
+  public void waiterWhichIsNotServedInTimeComputesItself() throws Throwable {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<String> first = executor.submit(new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        try {
+          return singleFlight.execute("::key::", new SingleFlight.Computation<String>() {
+            @Override
+            public String compute() throws Throwable {
+              started.countDown();
+              release.await();
+              return "::hanging value::";
+            }
+          });
+        } catch (Throwable e) {
+          throw new Exception(e);
+        }
+      }
+    });
+    started.await();
+
+    String value = singleFlight.execute("::key::", 20L, new SingleFlight.Computation<String>() {
+      @Override
+      public String compute() {
+        return "::value::";
+      }
+    });
+
+    assertThat(value, is(equalTo("::value::")));
+    assertThat(singleFlight.getTimedOutWaiters(), is(equalTo(1L)));
+
+    release.countDown();
+    assertThat(first.get(), is(equalTo("::hanging value::")));
+    executor.shutdown();
+  }
+}
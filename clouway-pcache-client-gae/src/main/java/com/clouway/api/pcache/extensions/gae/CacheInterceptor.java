@@ -1,14 +1,18 @@
 package com.clouway.api.pcache.extensions.gae;
 
+import com.clouway.api.pcache.CacheEventListener;
 import com.clouway.api.pcache.CacheManager;
 import com.clouway.api.pcache.CacheTime;
 import com.clouway.api.pcache.Cached;
+import com.clouway.api.pcache.EarlyExpiration;
+import com.clouway.api.pcache.EarlyExpiringValue;
+import com.clouway.api.pcache.SingleFlight;
+import com.google.appengine.api.NamespaceManager;
 import com.google.inject.Inject;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 
 import java.lang.reflect.Method;
-import java.util.logging.Logger;
 
 /**
  * CacheInterceptor is an interceptor for adding cache support to all methods.
@@ -22,16 +26,23 @@ import java.util.logging.Logger;
  * <p/>
  * generate.
  * <p/>
+ * Concurrent misses of the same key in the same namespace are coalesced, so the method is invoked once and the
+ * waiting callers are sharing it's result. Callers are waiting not longer than the {@link Cached#waitMills()} of the
+ * method, after which they are invoking it themselves, so a hanging invocation is not blocking all callers of the key.
+ * <p/>
+ * Results of methods which are marked for early recomputation are recomputed with a probability that rises as their
+ * expiration approaches.
+ * <p/>
  *
  * @author mlesikov  {mlesikov@gmail.com}
  */
 class CacheInterceptor implements MethodInterceptor {
   private static final CacheTime DEFAULT_CACHE_TIME = CacheTime.ONE_MINUTE;
 
-  private Logger log = Logger.getLogger(CacheInterceptor.class.getName());
-
   private CacheManager cacheManager;
   private CacheKeyConverter cacheKeyConverter;
+  private SingleFlight singleFlight;
+  private CacheEventListener listener;
 
   public CacheInterceptor() {
 
@@ -57,6 +68,26 @@ class CacheInterceptor implements MethodInterceptor {
     this.cacheKeyConverter = cacheKeyConverter;
   }
 
+  /**
+   * Sets the singleFlight, using GUICE setter injection
+   *
+   * @param singleFlight the given instance of SingleFlight
+   */
+  @Inject
+  public void setSingleFlight(SingleFlight singleFlight) {
+    this.singleFlight = singleFlight;
+  }
+
+  /**
+   * Sets the listener of the cache events, using GUICE setter injection. Listener is optional.
+   *
+   * @param listener the listener of the cache events
+   */
+  @Inject(optional = true)
+  public void setCacheEventListener(CacheEventListener listener) {
+    this.listener = listener;
+  }
+
   /**
    * @param methodInvocation method invocation that will be invoked
    * @return result of the invocation
@@ -80,22 +111,40 @@ class CacheInterceptor implements MethodInterceptor {
       key = cacheKeyConverter.generateKeyByNamedAnnotations(key, method.getParameterAnnotations(), args);
     }
     result = cacheManager.get(key);
+    if (cached.earlyRecompute()) {
+      result = new EarlyExpiration(cached.beta()).read(result, System.currentTimeMillis());
+    } else if (result instanceof EarlyExpiringValue) {
+      result = ((EarlyExpiringValue) result).getValue();
+    }
 
 
     if (result == null) {
-
-      log.info("the result of method :" + method.getName() + " was NOT CACHED !");
-
-      result = methodInvocation.proceed();
-
-      // we have to skip null values from methods
-      if (result != null) {
-        cacheManager.put(key, result, cacheTime);
-      }
-
-
-      log.info("the result of method :" + method.getName() + " was CACHED(or recached) SUCCESSFULLY !");
-
+      final String cacheKey = key;
+      final Integer expiration = cacheTime;
+      final MethodInvocation invocation = methodInvocation;
+      final Cached annotation = cached;
+      long waitMills = Math.min(cached.waitMills(), expiration * 1000L);
+
+      result = singleFlight.execute(NamespaceManager.get() + ":" + key, waitMills, new SingleFlight.Computation<Object>() {
+        @Override
+        public Object compute() throws Throwable {
+          long start = System.currentTimeMillis();
+          Object result = invocation.proceed();
+
+          // we have to skip null values from methods
+          if (result != null && annotation.earlyRecompute()) {
+            EarlyExpiration earlyExpiration = new EarlyExpiration(annotation.beta());
+            cacheManager.put(cacheKey, earlyExpiration.wrap(result, start, expiration * 1000L), expiration * 1000L);
+          } else if (result != null) {
+            cacheManager.put(cacheKey, result, expiration);
+          }
+
+          if (listener != null) {
+            listener.onCompute(cacheKey, invocation.getMethod().getName(), System.currentTimeMillis() - start);
+          }
+          return result;
+        }
+      });
     }
 
     return result;
@@ -1,5 +1,8 @@
 package com.clouway.api.pcache.extensions.gae;
 
+import com.clouway.api.pcache.CacheEventListener;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
 import com.google.inject.AbstractModule;
 import com.google.inject.Module;
 
@@ -22,11 +25,48 @@ public final class CacheService {
    * @return a newly created cache providedservice.
    */
   public static CacheService usingGAE() {
+    return usingGAE(GAECacheModule.NO_CODECS);
+  }
+
+  /**
+   * Creates a new Cache providedservice that using GAE memcache as a target cache provider and encodes the values of
+   * the registered types with their codecs.
+   *
+   * @param codecs the codecs of the values
+   * @return a newly created cache providedservice.
+   */
+  public static CacheService usingGAE(CodecRegistry codecs) {
+    return usingGAE(codecs, Compression.disabled());
+  }
+
+  /**
+   * Creates a new Cache providedservice that using GAE memcache as a target cache provider, encodes the values of the
+   * registered types with their codecs and compresses the large values.
+   *
+   * @param codecs      the codecs of the values
+   * @param compression the compression of the values
+   * @return a newly created cache providedservice.
+   */
+  public static CacheService usingGAE(final CodecRegistry codecs, final Compression compression) {
+    return usingGAE(codecs, compression, null);
+  }
+
+  /**
+   * Creates a new Cache providedservice that using GAE memcache as a target cache provider, encodes the values of the
+   * registered types with their codecs, compresses the large values and notifies the provided listener about the
+   * cache events.
+   *
+   * @param codecs      the codecs of the values
+   * @param compression the compression of the values
+   * @param listener    the listener of the cache events
+   * @return a newly created cache providedservice.
+   */
+  public static CacheService usingGAE(final CodecRegistry codecs, final Compression compression, final CacheEventListener listener) {
     return new CacheService(new AbstractModule() {
       @Override
       protected void configure() {
         install(new InternalCacheModule());
-        install(new GAECacheModule());
+        install(new GAECacheModule(codecs, compression, listener));
       }
     });
   }
@@ -1,30 +1,84 @@
 package com.clouway.api.pcache.extensions.gae;
 
+import com.clouway.api.pcache.CacheEventListener;
+import com.clouway.api.pcache.CacheException;
 import com.clouway.api.pcache.CacheExceptionTranslator;
 import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CacheRegion;
+import com.clouway.api.pcache.CacheRegions;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.CodedValue;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.GenerationalCacheRegion;
+import com.clouway.api.pcache.KeyEncoder;
 import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.NamespaceGenerations;
 import com.clouway.api.pcache.SafeValue;
+import com.clouway.api.pcache.TaggedCache;
+import com.google.appengine.api.NamespaceManager;
 import com.google.appengine.api.memcache.Expiration;
 import com.google.appengine.api.memcache.MemcacheService;
 import com.google.appengine.api.memcache.MemcacheService.IdentifiableValue;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Logger;
+import java.util.Set;
 
 /**
+ * Tagged values are stored together with the generations of their tags and are treated as missing when the generation
+ * of any of their tags was changed, so invalidation of a tag is a single increment of it's generation.
+ * <p/>
+ * When keys are versioned by {@link NamespaceGenerations}, flushing is incrementing the generation of the current
+ * namespace instead of clearing the whole memcache, and the values of the previous generations are left to expire.
+ *
  * @author mlesikov  {mlesikov@gmail.com}
  */
- class GAECacheManager implements CacheManager {
-  private Logger log = Logger.getLogger(GAECacheManager.class.getName());
+ class GAECacheManager implements CacheManager, CacheRegions, TaggedCache {
   private MemcacheService memcacheService;
   private CacheExceptionTranslator translator;
+  private CodecRegistry codecs;
+  private Compression compression;
+  private KeyEncoder keyEncoder = KeyEncoder.create(KeyEncoder.MEMCACHE_MAX_KEY_LENGTH);
+  private CacheEventListener listener;
+  private NamespaceGenerations generations;
+  private NamespaceGenerations.Store regionGenerations = new RegionGenerations();
 
   GAECacheManager(MemcacheService memcacheService, CacheExceptionTranslator translator) {
+    this(memcacheService, translator, new CodecRegistry(), Compression.disabled());
+  }
+
+  GAECacheManager(MemcacheService memcacheService, CacheExceptionTranslator translator, CodecRegistry codecs, Compression compression) {
+    this(memcacheService, translator, codecs, compression, null);
+  }
+
+  /**
+   * Creates a new cache manager which is notifying the provided listener about the cache events.
+   *
+   * @param listener the listener of the events or null if events are not needed
+   */
+  GAECacheManager(MemcacheService memcacheService, CacheExceptionTranslator translator, CodecRegistry codecs, Compression compression, CacheEventListener listener) {
+    this(memcacheService, translator, codecs, compression, listener, null);
+  }
+
+  /**
+   * Creates a new cache manager which keys are versioned by the generation of the current namespace.
+   *
+   * @param listener    the listener of the events or null if events are not needed
+   * @param generations the generations of the namespaces or null if keys should not be versioned
+   */
+  GAECacheManager(MemcacheService memcacheService, CacheExceptionTranslator translator, CodecRegistry codecs, Compression compression, CacheEventListener listener, NamespaceGenerations generations) {
     this.memcacheService = memcacheService;
     this.translator = translator;
+    this.codecs = codecs;
+    this.compression = compression;
+    this.listener = listener;
+    this.generations = generations;
   }
 
   /**
@@ -47,20 +101,53 @@ import java.util.logging.Logger;
    */
   public void put(String key, Object value, Long mills) {
     try {
-      memcacheService.put(key, value, Expiration.byDeltaMillis(mills.intValue()));
+      memcacheService.put(keyOf(key), encode(value), Expiration.byDeltaMillis(mills.intValue()));
     } catch (Exception e) {
       translator.translate(e);
     }
-    log.info(value.getClass().getSimpleName() + "  with key :" + key + " was STORED in GAE CACHE for " + mills + " mills !");
+    if (listener != null) {
+      listener.onStore(key, value, mills);
+    }
   }
 
   public void put(String key, Object value) {
-    memcacheService.put(key, value);
+    memcacheService.put(keyOf(key), encode(value));
+    if (listener != null) {
+      listener.onStore(key, value, 0);
+    }
+  }
+
+  @Override
+  public void putTagged(String key, Object value, Long mills, Set<String> tags) {
+    try {
+      // missing generations are initialised with the current time, so a counter that was evicted is not starting again
+      // from a generation that was already used
+      Map<String, Long> generations = memcacheService.incrementAll(generationKeysOf(tags), 0L, System.currentTimeMillis());
+      memcacheService.put(keyOf(key), new TaggedValue(encode(value), generations), Expiration.byDeltaMillis(mills.intValue()));
+    } catch (Exception e) {
+      translator.translate(e);
+    }
+    if (listener != null) {
+      listener.onStore(key, value, mills);
+    }
+  }
+
+  @Override
+  public void invalidateTag(String tag) {
+    try {
+      memcacheService.increment(generationKeyOf(tag), 1L);
+    } catch (Exception e) {
+      translator.translate(e);
+    }
   }
 
   @Override
   public void putAll(Map<String, Object> values, Long mills) {
-    memcacheService.putAll(values, Expiration.byDeltaMillis(mills.intValue()));
+    Map<String, Object> encoded = new LinkedHashMap<String, Object>(values.size());
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      encoded.put(keyOf(entry.getKey()), encode(entry.getValue()));
+    }
+    memcacheService.putAll(encoded, Expiration.byDeltaMillis(mills.intValue()));
   }
 
 
@@ -73,11 +160,16 @@ import java.util.logging.Logger;
   public Object get(String key) {
     Object result;
     try {
-      result = memcacheService.get(key);
+      result = decode(untag(memcacheService.get(keyOf(key))));
     } catch (Exception e) {
       return null;
-    } if(result!=null){
-      log.info(result.getClass().getSimpleName()+"  with key :"+key+" was RETURNED FROM GAE CACHE !");
+    }
+    if (listener != null) {
+      if (result != null) {
+        listener.onHit(key, result);
+      } else {
+        listener.onMiss(key);
+      }
     }
     return result;
   }
@@ -90,12 +182,14 @@ import java.util.logging.Logger;
 
       try {
         Map<String, Object> rawHits = memcacheService.getAll(withPrefix(prefix, keys));
+        Map<String, Object> generations = generationsOf(rawHits.values());
         for(String key : keys) {
-            if(!rawHits.containsKey(prefix + key)) {
+            String cacheKey = keyOf(prefix + key);
+            if(!rawHits.containsKey(cacheKey) || !isValid(rawHits.get(cacheKey), generations)) {
                 missed.add(key);
             } else {
                 try {
-                    hits.add(clazz.cast(rawHits.get(prefix + key)));
+                    hits.add(clazz.cast(decode(valueOf(rawHits.get(cacheKey)))));
                 } catch (ClassCastException e) {
                     missed.add(key);
                 }
@@ -115,13 +209,15 @@ import java.util.logging.Logger;
       List<String> missed = new LinkedList<>();
 
       try {
-        Map<String, Object> rawHits = memcacheService.getAll(keys);
+        Map<String, Object> rawHits = memcacheService.getAll(withPrefix("", keys));
+        Map<String, Object> generations = generationsOf(rawHits.values());
         for(String key : keys) {
-            if(!rawHits.containsKey(key)) {
+            String cacheKey = keyOf(key);
+            if(!rawHits.containsKey(cacheKey) || !isValid(rawHits.get(cacheKey), generations)) {
                 missed.add(key);
             } else {
                 try {
-                    hits.add(clazz.cast(rawHits.get(key)));
+                    hits.add(clazz.cast(decode(valueOf(rawHits.get(cacheKey)))));
                 } catch (ClassCastException e) {
                     missed.add(key);
                 }
@@ -140,23 +236,25 @@ import java.util.logging.Logger;
    */
   public void remove(String key) {
     try {
-      memcacheService.delete(key);
+      memcacheService.delete(keyOf(key));
     } catch (Exception e) {
       translator.translate(e);
     }
-    log.info("Object with key :"+key+" was REMOVED FROM GAE CACHE !");
+    if (listener != null) {
+      listener.onRemove(key);
+    }
   }
 
   @Override
   public boolean safePut(Object key, SafeValue safeValue, Object value) {
     GaeSafeValue gaeSafeValue = (GaeSafeValue) safeValue;
-    return memcacheService.putIfUntouched(key, gaeSafeValue.getIdentifiableValue(), value);
+    return memcacheService.putIfUntouched(keyOf(key), gaeSafeValue.getIdentifiableValue(), encode(value));
   }
 
   @Override
   public boolean safePut(Object key, SafeValue safeValue, Object value, Integer expiration) {
     GaeSafeValue gaeSafeValue = (GaeSafeValue) safeValue;
-    return memcacheService.putIfUntouched(key, gaeSafeValue.getIdentifiableValue(), value, Expiration.byDeltaSeconds(expiration));
+    return memcacheService.putIfUntouched(keyOf(key), gaeSafeValue.getIdentifiableValue(), encode(value), Expiration.byDeltaSeconds(expiration));
   }
 
   @Override
@@ -189,35 +287,168 @@ import java.util.logging.Logger;
 
   @Override
   public SafeValue getSafeValue(Object key) {
-    IdentifiableValue result = memcacheService.getIdentifiable(key);
+    IdentifiableValue result = memcacheService.getIdentifiable(keyOf(key));
     if (result == null) {
       return null;
     }
 
-    return new GaeSafeValue(result);
+    Object value = result.getValue();
+    if (value instanceof TaggedValue) {
+      value = untag(value);
+      if (value == null) {
+        return null;
+      }
+    }
+    return new GaeSafeValue(result, decode(value));
   }
 
   @Override
   public Long increment(Object o, Long l) {
-    return memcacheService.increment(o, l);
+    return memcacheService.increment(keyOf(o), l);
   }
 
   @Override
   public boolean contains(Object key) {
-    return memcacheService.contains(key);
+    return memcacheService.contains(keyOf(key));
+  }
+
+  /**
+   * Regions are kept as separate entries, which are prefixed by the generation of the region. Generations are kept in
+   * memcache counters, which are initialized by the increment itself.
+   */
+  @Override
+  public CacheRegion region(String name, long mills) {
+    return new GenerationalCacheRegion(this, regionGenerations, name, mills);
   }
 
   @Override
   public void flushCache() {
-    memcacheService.clearAll();
-    log.info("Cache was flushed for namespace: " + memcacheService.getNamespace());
+    if (generations != null) {
+      generations.increment(namespace());
+    } else {
+      memcacheService.clearAll();
+    }
+    if (listener != null) {
+      listener.onFlush(memcacheService.getNamespace());
+    }
+  }
+
+  private Object encode(Object value) {
+    CodedValue coded = codecs.encode(value);
+    return SerializedValue.serialize(coded != null ? coded : value, compression);
+  }
+
+  /**
+   * Unwraps the tagged values that are still valid.
+   *
+   * @return the value, or null if the generation of any of it's tags was changed
+   */
+  private Object untag(Object value) {
+    if (!(value instanceof TaggedValue)) {
+      return value;
+    }
+    TaggedValue tagged = (TaggedValue) value;
+    return tagged.isValid(memcacheService.getAll(tagged.getGenerations().keySet())) ? tagged.getValue() : null;
+  }
+
+  /**
+   * Gets the current generations of the tags of all tagged values with a single lookup.
+   */
+  private Map<String, Object> generationsOf(Collection<Object> values) {
+    Set<String> keys = new LinkedHashSet<String>();
+    for (Object value : values) {
+      if (value instanceof TaggedValue) {
+        keys.addAll(((TaggedValue) value).getGenerations().keySet());
+      }
+    }
+    if (keys.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    return memcacheService.getAll(keys);
+  }
+
+  private boolean isValid(Object value, Map<String, Object> generations) {
+    return !(value instanceof TaggedValue) || ((TaggedValue) value).isValid(generations);
+  }
+
+  private Object valueOf(Object value) {
+    return value instanceof TaggedValue ? ((TaggedValue) value).getValue() : value;
+  }
+
+  private Object decode(Object value) {
+    if (value instanceof SerializedValue) {
+      value = ((SerializedValue) value).deserialize();
+    }
+    if (value instanceof CodedValue) {
+      return codecs.decode((CodedValue) value);
+    }
+    return value;
+  }
+
+  /**
+   * Gets the key under which the value is stored in memcache. Keys that are exceeding the key length limit of memcache
+   * are hashed.
+   */
+  private String keyOf(String key) {
+    if (generations != null) {
+      key = generations.current(namespace()) + ":" + key;
+    }
+    return keyEncoder.shorten(key);
+  }
+
+  /**
+   * Gets the namespace in which memcache is operating.
+   */
+  private String namespace() {
+    String namespace = memcacheService.getNamespace();
+    if (namespace == null) {
+      namespace = NamespaceManager.get();
+    }
+    return namespace == null ? "" : namespace;
+  }
+
+  private String generationKeyOf(String tag) {
+    return keyOf("tag:" + tag + ":generation");
+  }
+
+  private List<String> generationKeysOf(Set<String> tags) {
+    List<String> keys = new ArrayList<String>(tags.size());
+    for (String tag : tags) {
+      keys.add(generationKeyOf(tag));
+    }
+    return keys;
+  }
+
+  private class RegionGenerations implements NamespaceGenerations.Store {
+
+    @Override
+    public long get(String region) {
+      return increment(region, 0L);
+    }
+
+    @Override
+    public long increment(String region) {
+      return increment(region, 1L);
+    }
+
+    private long increment(String region, long delta) {
+      Long generation = memcacheService.increment(keyOf("region:" + region + ":generation"), delta, System.currentTimeMillis());
+      if (generation == null) {
+        throw new CacheException("Generation of the region cannot be read.");
+      }
+      return generation;
+    }
+  }
+
+  private Object keyOf(Object key) {
+    return key instanceof String ? keyOf((String) key) : key;
   }
 
   private List<String> withPrefix(String prefix, List<String> list) {
       List<String> result = new LinkedList<>();
 
       for(String item : list) {
-          result.add(prefix + item);
+          result.add(keyOf(prefix + item));
       }
 
       return result;
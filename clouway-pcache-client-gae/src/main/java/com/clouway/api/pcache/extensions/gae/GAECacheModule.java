@@ -1,23 +1,82 @@
 package com.clouway.api.pcache.extensions.gae;
 
+import com.clouway.api.pcache.CacheEventListener;
 import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
 import com.clouway.api.pcache.KeyLock;
 import com.clouway.api.pcache.Lock;
+import com.clouway.api.pcache.LockStatistics;
 import com.google.appengine.api.memcache.MemcacheServiceFactory;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 
 /**
+ * Modules are equal when they are configured with the same codecs, compression and listener, so the same configuration
+ * could be installed more than once, while installing of differently configured modules is failing with duplicate
+ * bindings.
+ *
  * @author mlesikov  {mlesikov@gmail.com}
  */
 public class GAECacheModule extends AbstractModule {
 
+  /**
+   * The registry of the modules without codecs. It's never exposed, so it stays empty.
+   */
+  static final CodecRegistry NO_CODECS = new CodecRegistry();
+
+  private final CodecRegistry codecs;
+  private final Compression compression;
+  private final CacheEventListener listener;
+  private final LockStatistics lockStatistics = new LockStatistics();
+
+  public GAECacheModule() {
+    this(NO_CODECS);
+  }
+
+  /**
+   * Creates a new module which encodes the values of the registered types with their codecs.
+   *
+   * @param codecs the codecs of the values
+   */
+  public GAECacheModule(CodecRegistry codecs) {
+    this(codecs, Compression.disabled());
+  }
+
+  /**
+   * Creates a new module which encodes the values of the registered types with their codecs and compresses the large
+   * values.
+   *
+   * @param codecs      the codecs of the values
+   * @param compression the compression of the values
+   */
+  public GAECacheModule(CodecRegistry codecs, Compression compression) {
+    this(codecs, compression, null);
+  }
+
+  /**
+   * Creates a new module which is notifying the provided listener about the cache events.
+   *
+   * @param codecs      the codecs of the values
+   * @param compression the compression of the values
+   * @param listener    the listener of the cache events
+   */
+  public GAECacheModule(CodecRegistry codecs, Compression compression, CacheEventListener listener) {
+    this.codecs = codecs;
+    this.compression = compression;
+    this.listener = listener;
+  }
+
   @Override
   protected void configure() {
-    CacheManager cacheManager = new GAECacheManager(MemcacheServiceFactory.getMemcacheService(), new GAECacheExceptionTranslator()
-    );
+    CacheManager cacheManager = new GAECacheManager(MemcacheServiceFactory.getMemcacheService(), new GAECacheExceptionTranslator(), codecs, compression,
+            listener);
 
     bind(CacheManager.class).toInstance(cacheManager);
+    bind(LockStatistics.class).toInstance(lockStatistics);
+    if (listener != null) {
+      bind(CacheEventListener.class).toInstance(listener);
+    }
   }
 
   @Provides
@@ -27,17 +86,29 @@ public class GAECacheModule extends AbstractModule {
 
   @Provides
   public Lock getLock(){
-    return new MemcacheLock(MemcacheServiceFactory.getMemcacheService());
+    return new MemcacheLock(MemcacheServiceFactory.getMemcacheService(), lockStatistics);
   }
 
   @Override
   public boolean equals(Object o) {
-    return o instanceof GAECacheModule;
+    if (this == o) return true;
+    if (!(o instanceof GAECacheModule)) return false;
+
+    GAECacheModule that = (GAECacheModule) o;
+
+    if (codecs != that.codecs) return false;
+    if (!compression.equals(that.compression)) return false;
+    if (listener != null ? !listener.equals(that.listener) : that.listener != null) return false;
+
+    return true;
   }
 
   @Override
   public int hashCode() {
-    return GAECacheModule.class.hashCode();
+    int result = System.identityHashCode(codecs);
+    result = 31 * result + compression.hashCode();
+    result = 31 * result + (listener != null ? listener.hashCode() : 0);
+    return result;
   }
 
 }
@@ -1,6 +1,10 @@
 package com.clouway.api.pcache.extensions.gae;
 
+import com.clouway.api.pcache.CacheEventListener;
 import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.NamespaceGenerations;
 import com.google.appengine.api.memcache.ErrorHandlers;
 import com.google.appengine.api.memcache.MemcacheService;
 import com.google.appengine.api.memcache.MemcacheServiceFactory;
@@ -11,9 +15,32 @@ import com.google.appengine.api.memcache.MemcacheServiceFactory;
 public final class GaeCacheManagerFactory {
 
   public static CacheManager create() {
+    return create(new CodecRegistry());
+  }
+
+  public static CacheManager create(CodecRegistry codecs) {
+    return create(codecs, Compression.disabled());
+  }
+
+  public static CacheManager create(CodecRegistry codecs, Compression compression) {
+    return create(codecs, compression, null);
+  }
+
+  public static CacheManager create(CodecRegistry codecs, Compression compression, CacheEventListener listener) {
+    MemcacheService memcacheService = MemcacheServiceFactory.getMemcacheService();
+    memcacheService.setErrorHandler(ErrorHandlers.getDefault());
+    return new GAECacheManager(memcacheService, new GAECacheExceptionTranslator(), codecs, compression, listener);
+  }
+
+  /**
+   * Creates a cache manager which keys are versioned by the generation of the current namespace, so flushing of the
+   * cache is invalidating only the current namespace. Generations are cached locally for the refresh period.
+   */
+  public static CacheManager createVersioned(CodecRegistry codecs, Compression compression, long refreshMills) {
     MemcacheService memcacheService = MemcacheServiceFactory.getMemcacheService();
     memcacheService.setErrorHandler(ErrorHandlers.getDefault());
-    return new GAECacheManager(memcacheService, new GAECacheExceptionTranslator());
+    NamespaceGenerations generations = new NamespaceGenerations(new MemcacheGenerationStore(memcacheService), refreshMills);
+    return new GAECacheManager(memcacheService, new GAECacheExceptionTranslator(), codecs, compression, null, generations);
   }
 }
 
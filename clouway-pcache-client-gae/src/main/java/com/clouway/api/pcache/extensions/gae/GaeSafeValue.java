@@ -12,17 +12,23 @@ import com.google.appengine.api.memcache.MemcacheService.IdentifiableValue;
 class GaeSafeValue implements SafeValue {
 
   private final IdentifiableValue identifiableValue;
+  private final Object value;
 
   public GaeSafeValue(IdentifiableValue identifiableValue) {
+    this(identifiableValue, identifiableValue == null ? null : identifiableValue.getValue());
+  }
+
+  public GaeSafeValue(IdentifiableValue identifiableValue, Object value) {
     if (identifiableValue == null) {
       throw new IllegalArgumentException("A GaeSafeVale must have a valid value.");
     }
     this.identifiableValue = identifiableValue;
+    this.value = value;
   }
 
   @Override
   public Object getValue() {
-    return identifiableValue.getValue();
+    return value;
   }
 
   public IdentifiableValue getIdentifiableValue() {
@@ -1,6 +1,7 @@
 package com.clouway.api.pcache.extensions.gae;
 
 import com.clouway.api.pcache.Cached;
+import com.clouway.api.pcache.SingleFlight;
 import com.google.inject.AbstractModule;
 import com.google.inject.matcher.Matchers;
 
@@ -15,6 +16,8 @@ class InternalCacheModule extends AbstractModule {
 
   @Override
   protected void configure() {
+    bind(SingleFlight.class).toInstance(new SingleFlight());
+
     CacheInterceptor interceptor = new CacheInterceptor();
     bindInterceptor(Matchers.any(), Matchers.annotatedWith(Cached.class), interceptor);
     requestInjection(interceptor);
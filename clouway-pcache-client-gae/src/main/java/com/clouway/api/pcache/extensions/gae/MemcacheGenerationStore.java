@@ -0,0 +1,40 @@
+package com.clouway.api.pcache.extensions.gae;
+
+import com.clouway.api.pcache.CacheException;
+import com.clouway.api.pcache.NamespaceGenerations;
+import com.google.appengine.api.memcache.MemcacheService;
+
+/**
+ * MemcacheGenerationStore is a {@link NamespaceGenerations.Store} which is keeping the generation of each namespace in
+ * a memcache counter of the namespace. Missing counters are initialized by the current time by the increment itself.
+ */
+class MemcacheGenerationStore implements NamespaceGenerations.Store {
+  private static final String GENERATION_KEY = "namespace:generation";
+
+  private final MemcacheService memcacheService;
+
+  MemcacheGenerationStore(MemcacheService memcacheService) {
+    this.memcacheService = memcacheService;
+  }
+
+  /**
+   * Memcache is already scoped by the current namespace, so the namespace is not part of the key of the counter.
+   */
+  @Override
+  public long get(String namespace) {
+    return increment(0L);
+  }
+
+  @Override
+  public long increment(String namespace) {
+    return increment(1L);
+  }
+
+  private long increment(long delta) {
+    Long generation = memcacheService.increment(GENERATION_KEY, delta, System.currentTimeMillis());
+    if (generation == null) {
+      throw new CacheException("Generation of the namespace cannot be read.");
+    }
+    return generation;
+  }
+}
@@ -1,46 +1,76 @@
 package com.clouway.api.pcache.extensions.gae;
 
 import com.clouway.api.pcache.Lock;
+import com.clouway.api.pcache.LockStatistics;
 import com.google.appengine.api.memcache.Expiration;
 import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheService.SetPolicy;
 import com.google.inject.Inject;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
+ * MemcacheLock is a {@link Lock} which is using memcache.
+ * <p/>
+ * Attempts are retried with an exponential backoff with jitter, so the threads that are waiting for the same lock
+ * are not retrying in lockstep. The backoff starts at 5 mills and is capped at 200 mills and at the remaining time
+ * to the deadline.
+ *
  * @author Georgi Georgiev (GeorgievJon@gmail.com)
  */
 class MemcacheLock implements Lock {
+  private static final int RETRY_PERIOD_MILLS = 50;
+  private static final long INITIAL_BACKOFF_MILLS = 5;
+  private static final long MAX_BACKOFF_MILLS = 200;
 
   private final MemcacheService memcacheService;
+  private final LockStatistics statistics;
 
-  @Inject
   public MemcacheLock(MemcacheService memcacheService) {
+    this(memcacheService, new LockStatistics());
+  }
+
+  @Inject
+  public MemcacheLock(MemcacheService memcacheService, LockStatistics statistics) {
     this.memcacheService = memcacheService;
+    this.statistics = statistics;
   }
 
   @Override
   public void lock(String key, int retryCount) {
-    boolean wait = true;
-    int sleepPeriod = 50;
-    int defaultExpirationTime = retryCount * sleepPeriod;
-    int retry = 0;
-    do {
-      MemcacheService.IdentifiableValue iv = memcacheService.getIdentifiable(key);
-      if (iv == null) {
-        memcacheService.put(key, 1, Expiration.byDeltaMillis(defaultExpirationTime));
-        iv = memcacheService.getIdentifiable(key);
-        wait = !memcacheService.putIfUntouched(key, iv, 2, Expiration.byDeltaMillis(defaultExpirationTime));
-      }
+    lock(key, retryCount * RETRY_PERIOD_MILLS, retryCount * RETRY_PERIOD_MILLS);
+  }
 
-      sleep(sleepPeriod);
+  /**
+   * Attempts are retried with an exponential backoff until the lock is gained or until the timeout is reached.
+   */
+  @Override
+  public void lock(String key, long leaseMills, long timeoutMills) {
+    long start = System.currentTimeMillis();
+    long deadline = start + timeoutMills;
+    long backoff = INITIAL_BACKOFF_MILLS;
+    int retries = 0;
 
-      if (retry == retryCount) {
+    while (true) {
+      if (memcacheService.put(key, 2, Expiration.byDeltaMillis((int) Math.max(1, leaseMills)), SetPolicy.ADD_ONLY_IF_NOT_PRESENT)) {
+        statistics.acquired(System.currentTimeMillis() - start, retries);
+        return;
+      }
+
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        statistics.timedOut(System.currentTimeMillis() - start, retries);
         throw new IllegalStateException("Lock timeout.Please be sure that you are using proper timeout or your" +
                 "operation does not take much more time.");
       }
 
-      retry++;
-    } while (wait && retry <= retryCount);
+      // equal jitter: half of the backoff is fixed and the other half is random
+      long sleep = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+      sleep(Math.min(sleep, remaining));
 
+      backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLS);
+      retries++;
+    }
   }
 
   @Override
@@ -0,0 +1,104 @@
+package com.clouway.api.pcache.extensions.gae;
+
+import com.clouway.api.pcache.Compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * SerializedValue is holding the JVM serialized form of a value that is stored in memcache, which is compressed when
+ * it's large enough.
+ * <p/>
+ * Values are serialized once to find out whether they should be compressed and their serialized form is stored, so
+ * memcache is copying the bytes instead of serializing the value again. Values which are small by their type, like
+ * numbers and short strings, are not serialized at all and are stored as they are.
+ */
+class SerializedValue implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The maximum number of bytes of the UTF-8 representation of a single char.
+   */
+  private static final int MAX_BYTES_PER_CHAR = 3;
+
+  /**
+   * Serializes the provided value if it could be large enough to be compressed.
+   *
+   * @param value       the value to be serialized
+   * @param compression the compression of the values
+   * @return the serialized value or the value itself if it should be stored as it is
+   */
+  static Object serialize(Object value, Compression compression) {
+    if (!compression.isEnabled() || !(value instanceof Serializable) || isSmall(value, compression)) {
+      return value;
+    }
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    try {
+      ObjectOutputStream out = new ObjectOutputStream(bout);
+      out.writeObject(value);
+      out.close();
+    } catch (IOException e) {
+      return value;
+    }
+
+    byte[] data = bout.toByteArray();
+    byte[] compressed = compression.compress(data);
+    if (compressed == null) {
+      return new SerializedValue(data, false);
+    }
+    return new SerializedValue(compressed, true);
+  }
+
+  private static boolean isSmall(Object value, Compression compression) {
+    if (value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Date) {
+      return true;
+    }
+    if (value instanceof byte[]) {
+      return !compression.accepts(((byte[]) value).length);
+    }
+    if (value instanceof String) {
+      return !compression.accepts((long) ((String) value).length() * MAX_BYTES_PER_CHAR);
+    }
+    return false;
+  }
+
+  private final byte[] data;
+  private final boolean compressed;
+
+  private SerializedValue(byte[] data, boolean compressed) {
+    this.data = data;
+    this.compressed = compressed;
+  }
+
+  /**
+   * Checks whether the serialized form is compressed.
+   */
+  boolean isCompressed() {
+    return compressed;
+  }
+
+  /**
+   * Deserializes the value.
+   *
+   * @return the original value
+   * @throws IllegalStateException if value cannot be read
+   */
+  Object deserialize() {
+    try {
+      ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(compressed ? Compression.decompress(data) : data));
+      Object value = in.readObject();
+      in.close();
+      return value;
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot read serialized value due IO error", e);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Cannot read serialized value due unknown class", e);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.clouway.api.pcache.extensions.gae;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * TaggedValue is holding a value that is stored in memcache together with the generations of it's tags at the time it
+ * was stored. Value is valid only while the generations of all of it's tags are not changed.
+ */
+class TaggedValue implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final Object value;
+  private final Map<String, Long> generations;
+
+  TaggedValue(Object value, Map<String, Long> generations) {
+    this.value = value;
+    this.generations = generations;
+  }
+
+  Object getValue() {
+    return value;
+  }
+
+  /**
+   * Gets the generations of the tags of the value, keyed by the keys of the generation counters.
+   */
+  Map<String, Long> getGenerations() {
+    return generations;
+  }
+
+  /**
+   * Checks whether the value is still valid for the provided current generations of the tags.
+   *
+   * @param current the current generations keyed by the keys of the generation counters
+   * @return true if none of the generations of the value was changed or evicted
+   */
+  boolean isValid(Map<String, Object> current) {
+    for (Map.Entry<String, Long> generation : generations.entrySet()) {
+      if (!generation.getValue().equals(current.get(generation.getKey()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
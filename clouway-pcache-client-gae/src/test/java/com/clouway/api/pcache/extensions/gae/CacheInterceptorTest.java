@@ -1,10 +1,15 @@
 package com.clouway.api.pcache.extensions.gae;
 
+import com.clouway.api.pcache.CacheEventListener;
 import com.clouway.api.pcache.CacheException;
 import com.clouway.api.pcache.CacheTime;
 import com.clouway.api.pcache.Cached;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.SingleFlight;
 import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
 import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.apphosting.api.ApiProxy;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
@@ -14,7 +19,14 @@ import org.junit.Test;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -29,6 +41,9 @@ public class CacheInterceptorTest {
   @Inject
   private GAETestClass test;
 
+  @Inject
+  private SingleFlight singleFlight;
+
   private List<String> value = new ArrayList<String>();
 
   private final LocalServiceTestHelper helper = new LocalServiceTestHelper(
@@ -60,6 +75,121 @@ public class CacheInterceptorTest {
     assertEquals(value, actual);
   }
 
+  @Test
+  public void earlyRecomputedResultIsCached() {
+    value.add("string value one");
+    test.strings = value;
+    test.getEarlyRecomputedStrings();
+
+    test.strings = new ArrayList<String>();
+    List<String> actual = test.getEarlyRecomputedStrings();
+    assertEquals(value, actual);
+  }
+
+  @Test
+  public void listenerIsNotifiedAboutCacheEvents() {
+    final List<String> events = new ArrayList<String>();
+    CacheEventListener listener = new CacheEventListener() {
+      @Override
+      public void onHit(String key, Object value) {
+        events.add("hit");
+      }
+
+      @Override
+      public void onMiss(String key) {
+        events.add("miss");
+      }
+
+      @Override
+      public void onStore(String key, Object value, long mills) {
+        events.add("store");
+      }
+
+      @Override
+      public void onRemove(String key) {
+        events.add("remove");
+      }
+
+      @Override
+      public void onFlush(String namespace) {
+        events.add("flush");
+      }
+
+      @Override
+      public void onCompute(String key, String method, long computeMills) {
+        events.add("compute " + method);
+      }
+    };
+    Guice.createInjector(CacheService.usingGAE(new CodecRegistry(), Compression.disabled(), listener).buildModule()).injectMembers(this);
+
+    value.add("string value one");
+    test.strings = value;
+    test.getStrings();
+    test.getStrings();
+
+    assertEquals(Arrays.asList("miss", "store", "compute getStrings", "hit"), events);
+  }
+
+  @Test
+  public void concurrentMissesOfTheSameKeyInvokeTheMethodOnce() throws Exception {
+    final ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    final int callers = 4;
+    test.slowRelease = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    List<Future<String>> results = new ArrayList<Future<String>>();
+    for (int i = 0; i < callers; i++) {
+      results.add(executor.submit(new Callable<String>() {
+        @Override
+        public String call() {
+          ApiProxy.setEnvironmentForCurrentThread(environment);
+          return test.getSlowString();
+        }
+      }));
+    }
+
+    while (test.slowInvocations.get() == 0 || singleFlight.getCoalescedWaiters() < callers - 1) {
+      Thread.sleep(5);
+    }
+    test.slowRelease.countDown();
+
+    for (Future<String> result : results) {
+      assertEquals("::slow value::", result.get());
+    }
+    executor.shutdown();
+
+    assertEquals(1, test.slowInvocations.get());
+    assertEquals("::slow value::", test.getSlowString());
+    assertEquals(1, test.slowInvocations.get());
+  }
+
+  @Test
+  public void callersAreNotWaitingForHangingInvocationLongerThanTheWaitTime() throws Exception {
+    final ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    test.slowRelease = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<String> hanging = executor.submit(new Callable<String>() {
+      @Override
+      public String call() {
+        ApiProxy.setEnvironmentForCurrentThread(environment);
+        return test.getHangingString();
+      }
+    });
+
+    while (test.slowInvocations.get() == 0) {
+      Thread.sleep(5);
+    }
+
+    assertEquals("::hanging value::", test.getHangingString());
+    assertEquals(2, test.slowInvocations.get());
+    assertEquals(1, singleFlight.getTimedOutWaiters());
+
+    test.slowRelease.countDown();
+    assertEquals("::hanging value::", hanging.get());
+    executor.shutdown();
+  }
+
   @Test
   public void nullResultsFromMethodAreSkipped() {
     assertNull("different result was returned from method that should return null?", test.returnsNull());
@@ -183,16 +313,46 @@ public class CacheInterceptorTest {
   public static class GAETestClass {
 
     List<String> strings = new ArrayList<String>();
+    AtomicInteger slowInvocations = new AtomicInteger();
+    CountDownLatch slowRelease = new CountDownLatch(0);
 
     @Inject
     public GAETestClass() {
     }
 
+    @Cached(cacheTime = CacheTime.ONE_MINUTE, key = "slow")
+    public String getSlowString() {
+      slowInvocations.incrementAndGet();
+      try {
+        slowRelease.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "::slow value::";
+    }
+
+    @Cached(cacheTime = CacheTime.TEN_MINUTES, key = "hanging", waitMills = 100)
+    public String getHangingString() {
+      if (slowInvocations.incrementAndGet() == 1) {
+        try {
+          slowRelease.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return "::hanging value::";
+    }
+
     @Cached(cacheTimeSeconds = 2)
     public List<String> getStrings() {
       return strings;
     }
 
+    @Cached(cacheTime = CacheTime.ONE_MINUTE, key = "early", earlyRecompute = true)
+    public List<String> getEarlyRecomputedStrings() {
+      return strings;
+    }
+
     @Cached(cacheTimeSeconds = 2)
     public String returnsNull() {
       return null;
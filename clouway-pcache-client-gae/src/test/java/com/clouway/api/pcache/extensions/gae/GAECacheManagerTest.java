@@ -1,11 +1,31 @@
 package com.clouway.api.pcache.extensions.gae;
 
 import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CacheRegion;
+import com.clouway.api.pcache.CacheRegions;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.TaggedCache;
+import com.clouway.api.pcache.ValueCodec;
 import com.clouway.api.pcache.testing.CacheManagerContract;
+import com.google.appengine.api.NamespaceManager;
 import com.google.appengine.api.memcache.MemcacheServiceFactory;
 import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
 import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
 import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
 
 /**
  * @author mlesikov  {mlesikov@gmail.com}
@@ -21,6 +41,146 @@ public class GAECacheManagerTest extends CacheManagerContract {
     helper.setUp();
   }
 
+  @Test
+  public void valuesOfRegisteredTypesAreEncodedByTheirCodec() {
+    CodecRegistry codecs = new CodecRegistry().register(1, Name.class, new ValueCodec<Name>() {
+      @Override
+      public byte[] encode(Name value) {
+        return value.value.getBytes(StandardCharsets.UTF_8);
+      }
+
+      @Override
+      public Name decode(byte[] data) {
+        return new Name(new String(data, StandardCharsets.UTF_8));
+      }
+    });
+    CacheManager cacheManager = new GAECacheManager(MemcacheServiceFactory.getMemcacheService(), new GAECacheExceptionTranslator(), codecs, Compression.disabled());
+
+    cacheManager.put("::key::", new Name("::name::"));
+
+    assertThat(((Name) cacheManager.get("::key::")).value, is(equalTo("::name::")));
+  }
+
+  @Test
+  public void incompressibleValuesAreStoredSerializedOnce() {
+    CacheManager cacheManager = new GAECacheManager(MemcacheServiceFactory.getMemcacheService(), new GAECacheExceptionTranslator(), new CodecRegistry(), Compression.deflate(1024));
+    ArrayList<Integer> value = new ArrayList<Integer>(Arrays.asList(1, 2, 3));
+
+    cacheManager.put("::key::", value);
+    cacheManager.put("::number::", 42L);
+
+    assertThat(((SerializedValue) MemcacheServiceFactory.getMemcacheService().get("::key::")).isCompressed(), is(false));
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) value)));
+    assertThat(MemcacheServiceFactory.getMemcacheService().get("::number::"), is(equalTo((Object) 42L)));
+  }
+
+  @Test
+  public void largeValuesAreCompressed() {
+    CacheManager cacheManager = new GAECacheManager(MemcacheServiceFactory.getMemcacheService(), new GAECacheExceptionTranslator(), new CodecRegistry(), Compression.deflate(1024));
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      value.append("::value::");
+    }
+
+    cacheManager.put("::key::", value.toString());
+    cacheManager.put("::small key::", "::small value::");
+
+    assertThat(((SerializedValue) MemcacheServiceFactory.getMemcacheService().get("::key::")).isCompressed(), is(true));
+    assertThat((String) cacheManager.get("::key::"), is(equalTo(value.toString())));
+    assertThat((String) MemcacheServiceFactory.getMemcacheService().get("::small key::"), is(equalTo("::small value::")));
+  }
+
+  @Test
+  public void longKeysAreHashed() {
+    CacheManager cacheManager = createCacheManager();
+    StringBuilder key = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      key.append("::key::");
+    }
+
+    cacheManager.put(key.toString(), "::value::");
+
+    assertThat((String) cacheManager.get(key.toString()), is(equalTo("::value::")));
+    assertThat(MemcacheServiceFactory.getMemcacheService().contains(key.toString()), is(false));
+    assertThat(cacheManager.getAll(Arrays.asList(key.toString()), String.class).getHits(), is(equalTo(Arrays.asList("::value::"))));
+  }
+
+  @Test
+  public void invalidatedRegion() {
+    CacheRegion region = ((CacheRegions) createCacheManager()).region("::user::", 60000L);
+    region.put("::name::", "::John::");
+    region.put("::email::", "::john@example.com::");
+
+    assertThat(region.getAll(Arrays.asList("::name::", "::email::"), String.class).getHits(), is(equalTo(Arrays.asList("::John::", "::john@example.com::"))));
+
+    region.invalidate();
+    assertThat(region.get("::name::"), is(nullValue()));
+    assertThat(region.getAll(Arrays.asList("::name::", "::email::"), String.class).getMissedKeys(), is(equalTo(Arrays.asList("::name::", "::email::"))));
+  }
+
+  @Test
+  public void invalidatedTag() {
+    CacheManager cacheManager = createCacheManager();
+    TaggedCache taggedCache = (TaggedCache) cacheManager;
+
+    taggedCache.putTagged("::price::", "::10::", 60000L, new HashSet<String>(Arrays.asList("::product 1::", "::prices::")));
+    taggedCache.putTagged("::name::", "::Phone::", 60000L, Collections.singleton("::product 1::"));
+    taggedCache.putTagged("::other price::", "::20::", 60000L, Collections.singleton("::prices::"));
+    cacheManager.put("::untagged::", "::value::");
+
+    assertThat(cacheManager.get("::price::"), is(equalTo((Object) "::10::")));
+
+    taggedCache.invalidateTag("::product 1::");
+
+    assertThat(cacheManager.get("::price::"), is(nullValue()));
+    assertThat(cacheManager.get("::name::"), is(nullValue()));
+    assertThat(cacheManager.getSafeValue("::name::"), is(nullValue()));
+    assertThat(cacheManager.get("::other price::"), is(equalTo((Object) "::20::")));
+
+    MatchResult<String> result = cacheManager.getAll(Arrays.asList("::price::", "::other price::", "::untagged::"), String.class);
+    assertThat(result.getHits(), is(equalTo(Arrays.asList("::20::", "::value::"))));
+    assertThat(result.getMissedKeys(), is(equalTo(Arrays.asList("::price::"))));
+  }
+
+  @Test
+  public void valuesTaggedAfterInvalidationAreValid() {
+    CacheManager cacheManager = createCacheManager();
+    TaggedCache taggedCache = (TaggedCache) cacheManager;
+
+    taggedCache.putTagged("::price::", "::10::", 60000L, Collections.singleton("::product 1::"));
+    taggedCache.invalidateTag("::product 1::");
+    taggedCache.putTagged("::price::", "::11::", 60000L, Collections.singleton("::product 1::"));
+
+    assertThat(cacheManager.get("::price::"), is(equalTo((Object) "::11::")));
+  }
+
+  @Test
+  public void flushOfVersionedNamespaceIsIncrementingItsGeneration() {
+    CacheManager cacheManager = GaeCacheManagerFactory.createVersioned(new CodecRegistry(), Compression.disabled(), 60000L);
+
+    NamespaceManager.set("ns2");
+    cacheManager.put("::key::", "::value ns2::");
+    NamespaceManager.set("ns1");
+    cacheManager.put("::key::", "::value ns1::");
+
+    cacheManager.flushCache();
+    assertThat(cacheManager.get("::key::"), is(nullValue()));
+
+    cacheManager.put("::key::", "::new value ns1::");
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) "::new value ns1::")));
+
+    NamespaceManager.set("ns2");
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) "::value ns2::")));
+  }
+
+  static class Name {
+    final String value;
+
+    Name(String value) {
+      this.value = value;
+    }
+  }
+
   @Override
   protected CacheManager createCacheManager() {
     return new GAECacheManager(MemcacheServiceFactory.getMemcacheService(), new GAECacheExceptionTranslator());
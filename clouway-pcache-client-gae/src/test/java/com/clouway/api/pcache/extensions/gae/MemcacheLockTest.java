@@ -1,6 +1,7 @@
 package com.clouway.api.pcache.extensions.gae;
 
 import com.clouway.api.pcache.Lock;
+import com.clouway.api.pcache.LockStatistics;
 import com.google.appengine.api.memcache.MemcacheService;
 import com.google.appengine.api.memcache.MemcacheServiceFactory;
 import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
@@ -8,9 +9,12 @@ import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * @author Georgi Georgiev (GeorgievJon@gmail.com)
@@ -23,12 +27,14 @@ public class MemcacheLockTest {
   private MemcacheService memcacheService;
 
   private Lock lock;
+  private LockStatistics statistics;
 
   @Before
   public void setUp() throws Exception {
     helper.setUp();
     memcacheService = MemcacheServiceFactory.getMemcacheService();
-    lock = new MemcacheLock(memcacheService);
+    statistics = new LockStatistics();
+    lock = new MemcacheLock(memcacheService, statistics);
   }
 
   @Test
@@ -51,4 +57,38 @@ public class MemcacheLockTest {
     // when we ask for lock
     lock.lock("lock_test", 2);
   }
+
+  @Test
+  public void freeLockIsAcquiredWithoutWaiting() {
+    lock.lock("::key::", 10000, 1000);
+
+    assertThat(statistics.getAcquisitions(), is(1L));
+    assertThat(statistics.getRetries(), is(0L));
+  }
+
+  @Test
+  public void lockTimesOutAtTheDeadline() {
+    memcacheService.put("::key::", 1L);
+    long start = System.currentTimeMillis();
+
+    try {
+      lock.lock("::key::", 10000, 300);
+      fail("exception must be thrown");
+    } catch (IllegalStateException e) {
+      assertThat(System.currentTimeMillis() - start, is(greaterThanOrEqualTo(300L)));
+      assertThat(statistics.getTimeouts(), is(1L));
+      assertThat(statistics.getRetries(), is(greaterThan(1L)));
+      assertThat(statistics.getMaxWaitMills(), is(greaterThanOrEqualTo(300L)));
+    }
+  }
+
+  @Test
+  public void lockIsAcquiredWhenReleased() throws Exception {
+    lock.lock("::key::", 10000, 1000);
+    lock.releaseLock("::key::");
+
+    lock.lock("::key::", 10000, 1000);
+
+    assertThat(statistics.getAcquisitions(), is(2L));
+  }
 }
@@ -1,12 +1,16 @@
 package com.clouway.api.pcache.extensions.gae;
 
 import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
 import com.google.inject.AbstractModule;
+import com.google.inject.CreationException;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.junit.Test;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 
 /**
  * @author Miroslav Genov (mgenov@gmail.com)
@@ -26,6 +30,28 @@ public class MultiCacheModulesTest {
     assertNotNull("injected cache manager was null??", manager);
   }
 
+  @Test
+  public void modulesWithTheSameConfigurationAreInstalledOnce() {
+    CodecRegistry codecs = new CodecRegistry();
+    Injector injector = Guice.createInjector(
+            CacheService.usingGAE(codecs, Compression.deflate(1024)).buildModule(),
+            CacheService.usingGAE(codecs, Compression.deflate(1024)).buildModule()
+    );
+    assertNotNull("injected cache manager was null??", injector.getInstance(CacheManager.class));
+  }
+
+  @Test
+  public void differentlyConfiguredModulesAreRejected() {
+    try {
+      Guice.createInjector(
+              CacheService.usingGAE(new CodecRegistry(), Compression.disabled()).buildModule(),
+              CacheService.usingGAE(new CodecRegistry(), Compression.deflate(1024)).buildModule()
+      );
+      fail("exception must be thrown");
+    } catch (CreationException e) {
+    }
+  }
+
   class FirstModule extends AbstractModule {
 
     @Override
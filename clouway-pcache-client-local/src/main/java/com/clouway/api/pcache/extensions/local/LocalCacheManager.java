@@ -0,0 +1,394 @@
+package com.clouway.api.pcache.extensions.local;
+
+import com.clouway.api.pcache.CacheException;
+import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.NamespaceProvider;
+import com.clouway.api.pcache.SafeValue;
+import com.clouway.api.pcache.ValueSizer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * LocalCacheManager is a {@link CacheManager} which is keeping the values in the memory of the process.
+ * <p/>
+ * Entries are kept in a {@link ConcurrentHashMap}, so reads are lock free and the writes of the different keys are not
+ * blocking each other. The conditional writes, like <code>safePut</code>, <code>increment</code> and
+ * <code>lock</code>, are atomic operations of the map.
+ * <p/>
+ * The bookkeeping of the writes is buffered and is applied by the thread that is holding the eviction lock, which is
+ * never awaited by the other threads. Expiring entries are scheduled in a {@link TimerWheel}, so they are removed when
+ * their time passes even if they are never read again. The total weight of the entries is bounded and is kept by the
+ * CLOCK policy, which is evicting the oldest entries that were not read since they were last passed.
+ * <p/>
+ * Keys are prefixed by their namespace, so flushing is removing only the entries of the current namespace.
+ */
+class LocalCacheManager implements CacheManager {
+
+  /**
+   * Change is a write or a removal of a node, which is waiting to be applied to the eviction queue and to the timer
+   * wheel.
+   */
+  private static final class Change {
+    final Node removed;
+    final Node added;
+
+    Change(Node removed, Node added) {
+      this.removed = removed;
+      this.added = added;
+    }
+  }
+
+  private final ConcurrentHashMap<String, Node> data = new ConcurrentHashMap<String, Node>();
+  private final Queue<Change> changes = new ConcurrentLinkedQueue<Change>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final NamespaceProvider namespaceProvider;
+  private final long maximumWeight;
+  private final ValueSizer sizer;
+
+  // guarded by the eviction lock
+  private final Node queue = Node.sentinel();
+  private final TimerWheel timerWheel = new TimerWheel(System.currentTimeMillis());
+  private long weight;
+
+  /**
+   * Creates a new cache manager.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param maximumWeight     the maximum total weight of the entries
+   * @param sizer             the sizer which sizes are used as weights of the values or null if each entry has a
+   *                          weight of 1
+   */
+  LocalCacheManager(NamespaceProvider namespaceProvider, long maximumWeight, ValueSizer sizer) {
+    this.namespaceProvider = namespaceProvider;
+    this.maximumWeight = maximumWeight;
+    this.sizer = sizer;
+  }
+
+  @Override
+  public void put(String key, Object value, Integer cacheTimeSeconds) {
+    put(key, value, cacheTimeSeconds * 1000L);
+  }
+
+  @Override
+  public void put(String key, Object value, Long mills) {
+    write(keyOf(key), value, System.currentTimeMillis() + mills);
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    write(keyOf(key), value, Node.NEVER);
+  }
+
+  @Override
+  public void putAll(Map<String, Object> values, Long mills) {
+    long expiresAt = System.currentTimeMillis() + mills;
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      Node node = newNode(keyOf(entry.getKey()), entry.getValue(), expiresAt);
+      changes.add(new Change(data.put(node.key, node), node));
+    }
+    drain();
+  }
+
+  @Override
+  public Object get(String key) {
+    Node node = liveNode(keyOf(key));
+    if (node == null) {
+      return null;
+    }
+    if (!node.referenced) {
+      node.referenced = true;
+    }
+    return node.value;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> MatchResult<V> getAll(String prefix, List<String> keys, Class<V> clazz) {
+    List<V> hits = new ArrayList<V>(keys.size());
+    List<String> missed = new ArrayList<String>();
+
+    for (String key : keys) {
+      Object value = get(prefix + key);
+      if (clazz.isInstance(value)) {
+        hits.add((V) value);
+      } else {
+        missed.add(key);
+      }
+    }
+    return new MatchResult<V>(hits, missed);
+  }
+
+  @Override
+  public <V> MatchResult<V> getAll(List<String> keys, Class<V> clazz) {
+    return getAll("", keys, clazz);
+  }
+
+  @Override
+  public void remove(String key) {
+    Node removed = data.remove(keyOf(key));
+    if (removed != null) {
+      changes.add(new Change(removed, null));
+      drain();
+    }
+  }
+
+  /**
+   * The expiration of the entry is kept.
+   */
+  @Override
+  public boolean safePut(Object key, SafeValue safeValue, Object value) {
+    if (!(safeValue instanceof LocalSafeValue)) {
+      return false;
+    }
+    Node expected = ((LocalSafeValue) safeValue).getNode();
+    return replace(expected, newNode(expected.key, value, expected.expiresAt));
+  }
+
+  @Override
+  public boolean safePut(Object key, SafeValue safeValue, Object value, Integer expiration) {
+    if (!(safeValue instanceof LocalSafeValue)) {
+      return false;
+    }
+    Node expected = ((LocalSafeValue) safeValue).getNode();
+    return replace(expected, newNode(expected.key, value, System.currentTimeMillis() + expiration * 1000L));
+  }
+
+  @Override
+  public boolean lock(String key) {
+    return lock(keyOf(key), Node.NEVER);
+  }
+
+  @Override
+  public boolean lock(String key, int expiration) {
+    return lock(keyOf(key), System.currentTimeMillis() + expiration * 1000L);
+  }
+
+  @Override
+  public SafeValue getSafeValue(Object key) {
+    Node node = liveNode(keyOf(key.toString()));
+    return node == null ? null : new LocalSafeValue(node);
+  }
+
+  /**
+   * Missing entries are created with the value of the delta and without expiration.
+   *
+   * @throws CacheException if the current value is not an integer
+   */
+  @Override
+  public Long increment(Object o, final Long l) {
+    final long now = System.currentTimeMillis();
+    final Node[] replaced = new Node[1];
+
+    Node node = data.compute(keyOf(o.toString()), new BiFunction<String, Node, Node>() {
+      @Override
+      public Node apply(String key, Node current) {
+        replaced[0] = current;
+        if (current == null || current.isExpired(now)) {
+          return newNode(key, l, Node.NEVER);
+        }
+        if (!(current.value instanceof Long || current.value instanceof Integer || current.value instanceof Short || current.value instanceof Byte)) {
+          throw new CacheException("The value of the key is not an integer.");
+        }
+        return newNode(key, ((Number) current.value).longValue() + l, current.expiresAt);
+      }
+    });
+
+    changes.add(new Change(replaced[0], node));
+    drain();
+    return (Long) node.value;
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return liveNode(keyOf(key.toString())) != null;
+  }
+
+  @Override
+  public void flushCache() {
+    String prefix = keyOf("");
+
+    evictionLock.lock();
+    try {
+      applyChanges();
+
+      Node node = queue.queueNext;
+      while (node != queue) {
+        Node next = node.queueNext;
+        if (node.key.startsWith(prefix)) {
+          data.remove(node.key, node);
+          unlink(node);
+        }
+        node = next;
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void write(String key, Object value, long expiresAt) {
+    Node node = newNode(key, value, expiresAt);
+    changes.add(new Change(data.put(key, node), node));
+    drain();
+  }
+
+  private boolean replace(Node expected, Node replacement) {
+    if (expected.isExpired(System.currentTimeMillis()) || !data.replace(expected.key, expected, replacement)) {
+      return false;
+    }
+    changes.add(new Change(expected, replacement));
+    drain();
+    return true;
+  }
+
+  private boolean lock(String key, long expiresAt) {
+    Node lock = newNode(key, 1, expiresAt);
+
+    Node current = data.putIfAbsent(key, lock);
+    if (current != null) {
+      // an expired lock is taken over
+      if (!current.isExpired(System.currentTimeMillis()) || !data.replace(key, current, lock)) {
+        return false;
+      }
+    }
+    changes.add(new Change(current, lock));
+    drain();
+    return true;
+  }
+
+  /**
+   * Gets the node of the key if it's not expired. Expired nodes are removed.
+   */
+  private Node liveNode(String key) {
+    Node node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    if (node.isExpired(System.currentTimeMillis())) {
+      if (data.remove(key, node)) {
+        changes.add(new Change(node, null));
+        drain();
+      }
+      return null;
+    }
+    return node;
+  }
+
+  private Node newNode(String key, Object value, long expiresAt) {
+    if (!(value instanceof Serializable)) {
+      throw new CacheException("You are trying to store non serializable object in cache which is not allowed.");
+    }
+    return new Node(key, value, expiresAt, weightOf(value));
+  }
+
+  private int weightOf(Object value) {
+    if (sizer == null) {
+      return 1;
+    }
+    long size = sizer.sizeOf(value);
+    return (int) Math.min(Math.max(size, 1), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Applies the buffered changes if the eviction lock is free. A thread that finds the lock taken is not waiting for it,
+   * as the holder is checking the buffer again after it releases the lock.
+   */
+  private void drain() {
+    while (!changes.isEmpty() && evictionLock.tryLock()) {
+      try {
+        applyChanges();
+        expire();
+        evict();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void applyChanges() {
+    Change change;
+    while ((change = changes.poll()) != null) {
+      if (change.removed != null) {
+        unlink(change.removed);
+      }
+      // a node that was already replaced by a later write is never linked
+      if (change.added != null && data.get(change.added.key) == change.added) {
+        link(change.added);
+      }
+    }
+  }
+
+  private void expire() {
+    for (Node node : timerWheel.advance(System.currentTimeMillis())) {
+      data.remove(node.key, node);
+      unlink(node);
+    }
+  }
+
+  /**
+   * Evicts the entries until the weight is within the bound. Entries that were read are moved to the tail of the queue
+   * instead, so each entry is passed at most twice.
+   */
+  private void evict() {
+    while (weight > maximumWeight && queue.queueNext != queue) {
+      Node node = queue.queueNext;
+      if (node.referenced) {
+        node.referenced = false;
+        removeFromQueue(node);
+        addToQueue(node);
+        continue;
+      }
+      data.remove(node.key, node);
+      unlink(node);
+    }
+  }
+
+  private void link(Node node) {
+    if (node.linked) {
+      return;
+    }
+    node.linked = true;
+    addToQueue(node);
+    weight += node.weight;
+    if (node.expiresAt != Node.NEVER) {
+      timerWheel.schedule(node);
+    }
+  }
+
+  private void unlink(Node node) {
+    if (!node.linked) {
+      return;
+    }
+    node.linked = false;
+    removeFromQueue(node);
+    weight -= node.weight;
+    timerWheel.deschedule(node);
+  }
+
+  private void addToQueue(Node node) {
+    node.queuePrev = queue.queuePrev;
+    node.queueNext = queue;
+    queue.queuePrev.queueNext = node;
+    queue.queuePrev = node;
+  }
+
+  private void removeFromQueue(Node node) {
+    node.queuePrev.queueNext = node.queueNext;
+    node.queueNext.queuePrev = node.queuePrev;
+    node.queuePrev = null;
+    node.queueNext = null;
+  }
+
+  private String keyOf(String key) {
+    return namespaceProvider.get() + ":" + key;
+  }
+}
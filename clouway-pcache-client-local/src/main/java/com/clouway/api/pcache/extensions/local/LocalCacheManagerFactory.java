@@ -0,0 +1,123 @@
+package com.clouway.api.pcache.extensions.local;
+
+import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CloseableCacheManager;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.NamespaceProvider;
+import com.clouway.api.pcache.ValueSizer;
+
+import java.io.File;
+
+/**
+ * LocalCacheManagerFactory is a factory of the {@link CacheManager}s which are keeping the values in the memory of the
+ * process or in memory-mapped files of the node, for single node deployments and for local development.
+ */
+public final class LocalCacheManagerFactory {
+
+  /**
+   * The DEFAULT namespace provider that will be used when none was specified by the client code.
+   */
+  private static final NamespaceProvider DEFAULT_NAMESPACE_PROVIDER = new NamespaceProvider() {
+    @Override
+    public String get() {
+      return "default";
+    }
+  };
+
+  /**
+   * The bounds of the size of the files of the mapped cache, which is an eighth of it's maximum size.
+   */
+  private static final long MIN_MAPPED_SEGMENT_SIZE = 64 * 1024;
+  private static final long MAX_MAPPED_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * Creates a new instance of {@link CacheManager} which is keeping up to the provided number of entries.
+   *
+   * @param maximumSize the maximum number of entries
+   * @return the newly created cache manager
+   */
+  public static CacheManager create(long maximumSize) {
+    return create(DEFAULT_NAMESPACE_PROVIDER, maximumSize);
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} which is keeping up to the provided number of entries.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param maximumSize       the maximum number of entries
+   * @return the newly created cache manager
+   */
+  public static CacheManager create(NamespaceProvider namespaceProvider, long maximumSize) {
+    return new LocalCacheManager(namespaceProvider, maximumSize, null);
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} which total weight of the entries is bounded. The weight of an entry
+   * is the size of it's value as reported by the sizer, or 1 if the size is unknown.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param maximumWeight     the maximum total weight of the entries
+   * @param sizer             the sizer of the values
+   * @return the newly created cache manager
+   */
+  public static CacheManager create(NamespaceProvider namespaceProvider, long maximumWeight, ValueSizer sizer) {
+    return new LocalCacheManager(namespaceProvider, maximumWeight, sizer);
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that keeps the values in the direct memory of the process, encoded
+   * in the same format in which they are stored in Redis. The oldest values are evicted when the memory is full.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param capacity          the capacity in bytes of the direct memory that is used by the cache
+   * @return the newly created cache manager
+   */
+  public static CacheManager createOffHeap(NamespaceProvider namespaceProvider, long capacity) {
+    return createOffHeap(namespaceProvider, new CodecRegistry(), Compression.disabled(), capacity);
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that keeps the values in the direct memory of the process, encodes
+   * the values of the registered types with their codecs and compresses the large values.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param codecs            the codecs of the values
+   * @param compression       the compression of the values
+   * @param capacity          the capacity in bytes of the direct memory that is used by the cache
+   * @return the newly created cache manager
+   */
+  public static CacheManager createOffHeap(NamespaceProvider namespaceProvider, CodecRegistry codecs, Compression compression, long capacity) {
+    return new OffHeapCacheManager(namespaceProvider, new ItemSerializer(codecs, compression), capacity);
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that keeps the values in memory-mapped files of the provided
+   * directory, so the values are loaded again when the process is restarted.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param directory         the directory of the files
+   * @param maximumSize       the maximum total size in bytes of the files
+   * @return the newly created cache manager which should be closed to write the changes to the files
+   */
+  public static CloseableCacheManager createMapped(NamespaceProvider namespaceProvider, File directory, long maximumSize) {
+    return createMapped(namespaceProvider, new CodecRegistry(), Compression.disabled(), directory, maximumSize);
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that keeps the values in memory-mapped files of the provided
+   * directory, encodes the values of the registered types with their codecs and compresses the large values.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param codecs            the codecs of the values
+   * @param compression       the compression of the values
+   * @param directory         the directory of the files
+   * @param maximumSize       the maximum total size in bytes of the files
+   * @return the newly created cache manager which should be closed to write the changes to the files
+   */
+  public static CloseableCacheManager createMapped(NamespaceProvider namespaceProvider, CodecRegistry codecs, Compression compression, File directory, long maximumSize) {
+    int segmentSize = (int) Math.max(MIN_MAPPED_SEGMENT_SIZE, Math.min(MAX_MAPPED_SEGMENT_SIZE, maximumSize / 8));
+    return new MappedCacheManager(namespaceProvider, new ItemSerializer(codecs, compression), directory, segmentSize, maximumSize);
+  }
+}
@@ -0,0 +1,24 @@
+package com.clouway.api.pcache.extensions.local;
+
+import com.clouway.api.pcache.SafeValue;
+
+/**
+ * LocalSafeValue is a {@link SafeValue} which is holding the node that was read, so the entry could be updated only if
+ * it's node was not replaced since then.
+ */
+class LocalSafeValue implements SafeValue {
+  private final Node node;
+
+  LocalSafeValue(Node node) {
+    this.node = node;
+  }
+
+  @Override
+  public Object getValue() {
+    return node.value;
+  }
+
+  Node getNode() {
+    return node;
+  }
+}
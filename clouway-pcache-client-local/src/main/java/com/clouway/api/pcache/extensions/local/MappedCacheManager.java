@@ -0,0 +1,581 @@
+package com.clouway.api.pcache.extensions.local;
+
+import com.clouway.api.pcache.CacheException;
+import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CloseableCacheManager;
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.NamespaceProvider;
+import com.clouway.api.pcache.SafeValue;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MappedCacheManager is a {@link CacheManager} which is keeping the values in memory-mapped files of a directory, so
+ * the cached values are surviving the restarts of the process and a restarted node is not starting with a cold cache.
+ * <p/>
+ * Values are encoded by the {@link ItemSerializer} and are appended to a log of {@link MappedSegment}s. The location
+ * of the last record of each key is kept by an index in the heap, so reads are lock free and are served from the
+ * mapped memory. Writes are appended by a single writer at a time and removals are appended as records without value,
+ * so they are not reverted by a restart. When the current segment is full a new one is started and the oldest segments
+ * are evicted when the total size of the segments is exceeding the maximum size.
+ * <p/>
+ * Compaction is running in background and is moving the live records of the oldest segment to the head of the log
+ * when less than half of the segment is live, so the space of the replaced, removed and expired records is
+ * reclaimed. Only the oldest segment is compacted, as there are no older records that could be revived by dropping
+ * it's removals.
+ * <p/>
+ * Segments are reference counted, so the file of a segment which is dropped by the eviction or by the compaction is
+ * deleted only after the readers which are still reading it are done. Readers that find the segment of their key
+ * already dropped are reading the key again from the index.
+ * <p/>
+ * On start, the index is rebuilt by scanning the segments from the oldest to the newest, skipping the expired
+ * records. Records are checked by their checksum, so a record that was torn by a crash is ending the segment.
+ */
+class MappedCacheManager implements CloseableCacheManager {
+
+  /**
+   * The expiration of the entries that are not expiring.
+   */
+  static final long NEVER = Long.MAX_VALUE;
+
+  /**
+   * The expiration which is keeping the expiration of the current entry.
+   */
+  static final long KEEP = -1;
+
+  private static final long COMPACTION_PERIOD_SECONDS = 10;
+  private static final long CLOSE_TIMEOUT_SECONDS = 10;
+  private static final byte[] NO_VALUE = new byte[0];
+
+  /**
+   * Location is pointing to the record of a key.
+   */
+  private static final class Location {
+    final MappedSegment segment;
+    final int offset;
+    final int length;
+    final long expiresAt;
+    final int valueOffset;
+    final int valueLength;
+
+    Location(MappedSegment segment, int offset, int length, long expiresAt, int valueOffset, int valueLength) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.expiresAt = expiresAt;
+      this.valueOffset = valueOffset;
+      this.valueLength = valueLength;
+    }
+
+    boolean isExpired(long now) {
+      return expiresAt <= now;
+    }
+
+    /**
+     * Reads the value of the record.
+     *
+     * @return the value or null if the segment was already dropped
+     */
+    byte[] value() {
+      if (!segment.retain()) {
+        return null;
+      }
+      try {
+        return segment.read(valueOffset, valueLength);
+      } finally {
+        segment.release();
+      }
+    }
+  }
+
+  private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<String, Location>();
+  private final Object writeLock = new Object();
+
+  private final File directory;
+  private final int segmentSize;
+  private final long maximumSize;
+  private final NamespaceProvider namespaceProvider;
+  private final ItemSerializer serializer;
+  private final ScheduledExecutorService compactor;
+  private volatile boolean closed;
+
+  // guarded by the write lock
+  private final LinkedList<MappedSegment> segments = new LinkedList<MappedSegment>();
+  private MappedSegment active;
+
+  /**
+   * Creates a new cache manager and loads the segments of the directory.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param serializer        the serializer of the values
+   * @param directory         the directory of the segments
+   * @param segmentSize       the size in bytes of a segment
+   * @param maximumSize       the maximum total size in bytes of the segments
+   * @throws IllegalArgumentException if the maximum size is smaller than two segments
+   * @throws CacheException           if the segments cannot be loaded
+   */
+  MappedCacheManager(NamespaceProvider namespaceProvider, ItemSerializer serializer, File directory, int segmentSize, long maximumSize) {
+    if (maximumSize < 2L * segmentSize) {
+      throw new IllegalArgumentException("maximumSize should be at least two segments of " + segmentSize + " bytes");
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new CacheException("The directory " + directory + " of the cache cannot be created.");
+    }
+
+    this.namespaceProvider = namespaceProvider;
+    this.serializer = serializer;
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.maximumSize = maximumSize;
+
+    synchronized (writeLock) {
+      load();
+    }
+
+    this.compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mapped-cache-compactor");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    compactor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        compact();
+      }
+    }, COMPACTION_PERIOD_SECONDS, COMPACTION_PERIOD_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public void put(String key, Object value, Integer cacheTimeSeconds) {
+    put(key, value, cacheTimeSeconds * 1000L);
+  }
+
+  @Override
+  public void put(String key, Object value, Long mills) {
+    write(keyOf(key), encode(value), System.currentTimeMillis() + mills);
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    write(keyOf(key), encode(value), NEVER);
+  }
+
+  @Override
+  public void putAll(Map<String, Object> values, Long mills) {
+    long expiresAt = System.currentTimeMillis() + mills;
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      write(keyOf(entry.getKey()), encode(entry.getValue()), expiresAt);
+    }
+  }
+
+  @Override
+  public Object get(String key) {
+    return serializer.decode(liveValue(keyOf(key)));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> MatchResult<V> getAll(String prefix, List<String> keys, Class<V> clazz) {
+    List<V> hits = new ArrayList<V>(keys.size());
+    List<String> missed = new ArrayList<String>();
+
+    for (String key : keys) {
+      Object value = get(prefix + key);
+      if (clazz.isInstance(value)) {
+        hits.add((V) value);
+      } else {
+        missed.add(key);
+      }
+    }
+    return new MatchResult<V>(hits, missed);
+  }
+
+  @Override
+  public <V> MatchResult<V> getAll(List<String> keys, Class<V> clazz) {
+    return getAll("", keys, clazz);
+  }
+
+  @Override
+  public void remove(String key) {
+    String persistentKey = keyOf(key);
+    synchronized (writeLock) {
+      if (index.containsKey(persistentKey)) {
+        delete(persistentKey);
+      }
+    }
+  }
+
+  /**
+   * The expiration of the entry is kept.
+   */
+  @Override
+  public boolean safePut(Object key, SafeValue safeValue, Object value) {
+    return safePut(key.toString(), safeValue, value, KEEP);
+  }
+
+  @Override
+  public boolean safePut(Object key, SafeValue safeValue, Object value, Integer expiration) {
+    return safePut(key.toString(), safeValue, value, System.currentTimeMillis() + expiration * 1000L);
+  }
+
+  @Override
+  public boolean lock(String key) {
+    return lock(key, NEVER);
+  }
+
+  @Override
+  public boolean lock(String key, int expiration) {
+    return lock(key, System.currentTimeMillis() + expiration * 1000L);
+  }
+
+  @Override
+  public SafeValue getSafeValue(Object key) {
+    ItemSerializer.Entry entry = serializer.decodeEntry(liveValue(keyOf(key.toString())));
+    if (entry == null) {
+      return null;
+    }
+    return new StampedSafeValue(entry.value, entry.stamp);
+  }
+
+  /**
+   * Missing entries are created with the value of the delta and without expiration.
+   *
+   * @throws CacheException if the current value is not an integer
+   */
+  @Override
+  public Long increment(Object o, Long l) {
+    String persistentKey = keyOf(o.toString());
+    synchronized (writeLock) {
+      Location current = liveLocation(persistentKey);
+      Object value = current == null ? 0L : serializer.decode(current.value());
+      if (!(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+        throw new CacheException("The value of the key is not an integer.");
+      }
+      long result = ((Number) value).longValue() + l;
+      append(persistentKey, serializer.encode(result), current == null ? NEVER : current.expiresAt);
+      return result;
+    }
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return liveLocation(keyOf(key.toString())) != null;
+  }
+
+  @Override
+  public void flushCache() {
+    String prefix = keyOf("");
+    synchronized (writeLock) {
+      for (String key : index.keySet()) {
+        if (key.startsWith(prefix)) {
+          delete(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops the compaction and writes the changes of the current segment to it's file. A running compaction is stopped
+   * at the next record and is waited for, so it's not changing the segments after they were written.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    compactor.shutdownNow();
+    try {
+      compactor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (writeLock) {
+      active.force();
+    }
+  }
+
+
+  /**
+   * Compacts the oldest segment if less than half of it is live. The live records are moved one by one, so the writers
+   * are not blocked for the whole compaction.
+   */
+  void compact() {
+    final MappedSegment oldest;
+    synchronized (writeLock) {
+      oldest = segments.getFirst();
+      if (closed || oldest == active || oldest.liveBytes.get() * 2 >= oldest.position()) {
+        return;
+      }
+    }
+
+    oldest.scan(new MappedSegment.Visitor() {
+      @Override
+      public void visit(int offset, int length, byte type, long expiresAt, String key, int valueOffset, int valueLength) {
+        // records that are not fitting in the segments of the current size are dropped with the segment
+        if (type != MappedSegment.PUT || length > segmentSize) {
+          return;
+        }
+        synchronized (writeLock) {
+          if (closed) {
+            return;
+          }
+          Location current = index.get(key);
+          if (current != null && current.segment == oldest && current.offset == offset && !current.isExpired(System.currentTimeMillis())) {
+            append(key, current.value(), current.expiresAt);
+          }
+        }
+      }
+    });
+
+    synchronized (writeLock) {
+      // segment of a compaction that was stopped by the close is kept, as not all of it's records were copied
+      if (!closed) {
+        drop(oldest);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of the segments of the log.
+   */
+  int segmentCount() {
+    synchronized (writeLock) {
+      return segments.size();
+    }
+  }
+
+  private void write(String key, byte[] value, long expiresAt) {
+    synchronized (writeLock) {
+      append(key, value, expiresAt);
+    }
+  }
+
+  private boolean safePut(String key, SafeValue sv, Object value, long expiresAt) {
+    if (!(sv instanceof StampedSafeValue) || ((StampedSafeValue) sv).getStamp() == null) {
+      return false;
+    }
+
+    long stamp = ((StampedSafeValue) sv).getStamp();
+    byte[] item = encode(value, stamp + 1);
+
+    String persistentKey = keyOf(key);
+    synchronized (writeLock) {
+      Location current = liveLocation(persistentKey);
+      Long currentStamp = current == null ? null : ItemSerializer.stampOf(current.value());
+      if (currentStamp == null || currentStamp != stamp) {
+        return false;
+      }
+      append(persistentKey, item, expiresAt == KEEP ? current.expiresAt : expiresAt);
+      return true;
+    }
+  }
+
+  private boolean lock(String key, long expiresAt) {
+    byte[] item = encode(1);
+
+    String persistentKey = keyOf(key);
+    synchronized (writeLock) {
+      if (liveLocation(persistentKey) != null) {
+        return false;
+      }
+      append(persistentKey, item, expiresAt);
+      return true;
+    }
+  }
+
+  /**
+   * Gets the location of the key if it's not expired. Expired entries are removed from the index and are skipped by
+   * the next start, so no removal is appended for them.
+   */
+  private Location liveLocation(String key) {
+    Location location = index.get(key);
+    if (location == null) {
+      return null;
+    }
+    if (location.isExpired(System.currentTimeMillis())) {
+      if (index.remove(key, location)) {
+        location.segment.liveBytes.addAndGet(-location.length);
+      }
+      return null;
+    }
+    return location;
+  }
+
+  /**
+   * Reads the value of the key if it's not expired. The key is looked up again when it's segment was dropped while it
+   * was read, as the index is no longer pointing to the dropped segment.
+   */
+  private byte[] liveValue(String key) {
+    while (true) {
+      Location location = liveLocation(key);
+      if (location == null) {
+        return null;
+      }
+      byte[] value = location.value();
+      if (value != null) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Appends the record of a value and points the index to it. Called while holding the write lock.
+   */
+  private void append(String key, byte[] value, long expiresAt) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    int length = MappedSegment.lengthOf(keyBytes, value);
+    if (length > segmentSize) {
+      throw new CacheException("The entry of " + length + " bytes is larger than the segment of the mapped cache.");
+    }
+
+    int offset = appendRecord(MappedSegment.PUT, expiresAt, keyBytes, value);
+    MappedSegment segment = active;
+    segment.liveBytes.addAndGet(length);
+    replaced(index.put(key, new Location(segment, offset, length, expiresAt, offset + length - value.length, value.length)));
+  }
+
+  /**
+   * Appends the removal of a key and removes it from the index. Called while holding the write lock.
+   */
+  private void delete(String key) {
+    appendRecord(MappedSegment.REMOVE, NEVER, key.getBytes(StandardCharsets.UTF_8), NO_VALUE);
+    replaced(index.remove(key));
+  }
+
+  private int appendRecord(byte type, long expiresAt, byte[] key, byte[] value) {
+    int offset = active.append(type, expiresAt, key, value);
+    if (offset < 0) {
+      roll();
+      offset = active.append(type, expiresAt, key, value);
+    }
+    return offset;
+  }
+
+  private void replaced(Location location) {
+    if (location != null) {
+      location.segment.liveBytes.addAndGet(-location.length);
+    }
+  }
+
+  /**
+   * Starts a new segment and evicts the oldest segments that are exceeding the maximum size.
+   */
+  private void roll() {
+    active.force();
+    try {
+      active = MappedSegment.create(directory, active.id + 1, segmentSize);
+    } catch (IOException e) {
+      throw new CacheException("The segment of the mapped cache cannot be created.", e);
+    }
+    segments.addLast(active);
+    evict();
+  }
+
+  private void evict() {
+    while ((long) segments.size() * segmentSize > maximumSize && segments.size() > 1) {
+      drop(segments.getFirst());
+    }
+  }
+
+  /**
+   * Removes the entries of the segment from the index and releases it, so it's file is deleted when the last reader is
+   * done. Called while holding the write lock.
+   */
+  private void drop(final MappedSegment segment) {
+    if (!segments.remove(segment)) {
+      return;
+    }
+    segment.scan(new MappedSegment.Visitor() {
+      @Override
+      public void visit(int offset, int length, byte type, long expiresAt, String key, int valueOffset, int valueLength) {
+        Location current = index.get(key);
+        if (current != null && current.segment == segment && current.offset == offset) {
+          index.remove(key, current);
+        }
+      }
+    });
+    segment.release();
+  }
+
+  /**
+   * Loads the segments of the directory and rebuilds the index from their records.
+   */
+  private void load() {
+    File[] files = directory.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(File file) {
+        return file.isFile() && MappedSegment.idOf(file) >= 0;
+      }
+    });
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File first, File second) {
+        return Long.compare(MappedSegment.idOf(first), MappedSegment.idOf(second));
+      }
+    });
+
+    final long now = System.currentTimeMillis();
+    try {
+      for (File file : files) {
+        final MappedSegment segment = MappedSegment.open(file);
+        segment.scan(new MappedSegment.Visitor() {
+          @Override
+          public void visit(int offset, int length, byte type, long expiresAt, String key, int valueOffset, int valueLength) {
+            if (type == MappedSegment.REMOVE || expiresAt <= now) {
+              // an expired record is also replacing the older records of the key
+              replaced(index.remove(key));
+              return;
+            }
+            segment.liveBytes.addAndGet(length);
+            replaced(index.put(key, new Location(segment, offset, length, expiresAt, valueOffset, valueLength)));
+          }
+        });
+        segments.addLast(segment);
+      }
+
+      if (segments.isEmpty()) {
+        segments.addLast(MappedSegment.create(directory, 0, segmentSize));
+      }
+    } catch (IOException e) {
+      throw new CacheException("The segments of the mapped cache cannot be loaded.", e);
+    }
+    active = segments.getLast();
+    evict();
+  }
+
+  private byte[] encode(Object value) {
+    try {
+      return serializer.encode(value);
+    } catch (IllegalArgumentException ex) {
+      throw new CacheException("The received value cannot be serialized.");
+    }
+  }
+
+  private byte[] encode(Object value, long stamp) {
+    try {
+      return serializer.encode(value, stamp);
+    } catch (IllegalArgumentException ex) {
+      throw new CacheException("The received value cannot be serialized.");
+    }
+  }
+
+  private String keyOf(String key) {
+    return namespaceProvider.get() + ":" + key;
+  }
+}
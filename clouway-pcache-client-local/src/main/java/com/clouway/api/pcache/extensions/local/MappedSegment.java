@@ -0,0 +1,243 @@
+package com.clouway.api.pcache.extensions.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * MappedSegment is a file of the log of the {@link MappedCacheManager}, which is mapped in memory. Records are only
+ * appended to the segment and are never changed, so a segment which is full could be read without locking.
+ * <p/>
+ * Records are laid out as:
+ * <pre>
+ * | length (4 bytes) | crc (4 bytes) | type (1 byte) | expires at (8 bytes) | key length (4 bytes) | key | value |
+ * </pre>
+ * where the CRC32 is covering the bytes after it. Files are zero filled when they are created, so the records end at
+ * the first record with length 0 or at the first record which checksum is not matching, like a record that was torn
+ * by a crash.
+ * <p/>
+ * Segments are reference counted. The log is holding a reference from the opening of the segment until it's dropped
+ * and the readers are holding one while they read, so the file is deleted after the last of them is released.
+ */
+final class MappedSegment {
+
+  /**
+   * Visitor is notified about the records of the segment.
+   */
+  interface Visitor {
+
+    /**
+     * Visits a record.
+     *
+     * @param offset the offset of the record
+     * @param length the length of the record
+     * @param type   the type of the record
+     */
+    void visit(int offset, int length, byte type, long expiresAt, String key, int valueOffset, int valueLength);
+  }
+
+  static final byte PUT = 1;
+  static final byte REMOVE = 2;
+
+  static final String SUFFIX = ".segment";
+
+  private static final int CRC_OFFSET = 4;
+  private static final int TYPE_OFFSET = 8;
+  private static final int HEADER_LENGTH = 21;
+
+  /**
+   * Creates a new segment file.
+   *
+   * @param directory the directory of the segments
+   * @param id        the id of the segment
+   * @param size      the size of the segment
+   * @return the created segment
+   * @throws IOException if file cannot be created
+   */
+  static MappedSegment create(File directory, long id, int size) throws IOException {
+    File file = new File(directory, id + SUFFIX);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(size);
+    }
+    return open(file);
+  }
+
+  /**
+   * Opens an existing segment file. The position of the segment is at the end of the records and has to be set by
+   * {@link #scan(Visitor)}.
+   *
+   * @param file the file of the segment
+   * @return the opened segment
+   * @throws IOException if file cannot be mapped
+   */
+  static MappedSegment open(File file) throws IOException {
+    String name = file.getName();
+    long id = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      return new MappedSegment(id, file, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length()));
+    }
+  }
+
+  /**
+   * Gets the id of the segment file or -1 if it's not a segment file.
+   */
+  static long idOf(File file) {
+    String name = file.getName();
+    if (!name.endsWith(SUFFIX)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  final long id;
+  final AtomicLong liveBytes = new AtomicLong();
+
+  private final File file;
+  private final MappedByteBuffer buffer;
+  private final AtomicInteger references = new AtomicInteger(1);
+  private volatile int position;
+
+  private MappedSegment(long id, File file, MappedByteBuffer buffer) {
+    this.id = id;
+    this.file = file;
+    this.buffer = buffer;
+  }
+
+  /**
+   * Appends a record. Appends are not thread safe and have to be guarded by the caller.
+   *
+   * @return the offset of the record or -1 if the segment has no space for it
+   */
+  int append(byte type, long expiresAt, byte[] key, byte[] value) {
+    int length = lengthOf(key, value);
+    if (position + length > buffer.capacity()) {
+      return -1;
+    }
+
+    ByteBuffer record = ByteBuffer.allocate(length);
+    record.putInt(length).putInt(0).put(type).putLong(expiresAt).putInt(key.length).put(key).put(value);
+
+    CRC32 crc = new CRC32();
+    crc.update(record.array(), TYPE_OFFSET, length - TYPE_OFFSET);
+    record.putInt(CRC_OFFSET, (int) crc.getValue());
+
+    int offset = position;
+    ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.put(record.array());
+    position = offset + length;
+    return offset;
+  }
+
+  /**
+   * Reads bytes of the segment.
+   */
+  byte[] read(int offset, int length) {
+    byte[] data = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.get(data);
+    return data;
+  }
+
+  /**
+   * Visits the valid records of the segment and moves the position of the segment after them.
+   *
+   * @param visitor the visitor of the records
+   */
+  void scan(Visitor visitor) {
+    int offset = 0;
+    int capacity = buffer.capacity();
+
+    while (offset + HEADER_LENGTH <= capacity) {
+      int length = buffer.getInt(offset);
+      if (length < HEADER_LENGTH || offset + length > capacity) {
+        break;
+      }
+
+      ByteBuffer view = buffer.duplicate();
+      view.position(offset + TYPE_OFFSET);
+      view.limit(offset + length);
+      CRC32 crc = new CRC32();
+      crc.update(view);
+      if ((int) crc.getValue() != buffer.getInt(offset + CRC_OFFSET)) {
+        break;
+      }
+
+      byte type = buffer.get(offset + TYPE_OFFSET);
+      long expiresAt = buffer.getLong(offset + TYPE_OFFSET + 1);
+      int keyLength = buffer.getInt(offset + TYPE_OFFSET + 9);
+      if (keyLength < 0 || HEADER_LENGTH + keyLength > length) {
+        break;
+      }
+      String key = new String(read(offset + HEADER_LENGTH, keyLength), StandardCharsets.UTF_8);
+
+      visitor.visit(offset, length, type, expiresAt, key, offset + HEADER_LENGTH + keyLength, length - HEADER_LENGTH - keyLength);
+      offset += length;
+    }
+    position = offset;
+  }
+
+  /**
+   * Gets the number of the bytes that are used by the records.
+   */
+  int position() {
+    return position;
+  }
+
+  /**
+   * Writes the changes of the segment to the file.
+   */
+  void force() {
+    buffer.force();
+  }
+
+  /**
+   * Takes a reference to the segment, so it's file is not deleted while it's read.
+   *
+   * @return true if reference was taken or false if the segment was already released by all of it's holders
+   */
+  boolean retain() {
+    while (true) {
+      int current = references.get();
+      if (current == 0) {
+        return false;
+      }
+      if (references.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Releases a reference to the segment and deletes it's file when the last reference is released.
+   */
+  void release() {
+    if (references.decrementAndGet() == 0) {
+      file.delete();
+    }
+  }
+
+  /**
+   * Checks whether the file of the segment was deleted.
+   */
+  boolean isDeleted() {
+    return references.get() == 0;
+  }
+
+  static int lengthOf(byte[] key, byte[] value) {
+    return HEADER_LENGTH + key.length + value.length;
+  }
+}
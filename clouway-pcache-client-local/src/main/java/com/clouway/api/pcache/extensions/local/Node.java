@@ -0,0 +1,55 @@
+package com.clouway.api.pcache.extensions.local;
+
+/**
+ * Node is an entry of the {@link LocalCacheManager}. The key, the value and the expiration of a node are never changed,
+ * so every write of a key is replacing it's node.
+ * <p/>
+ * The links of the node in the eviction queue and in the {@link TimerWheel} are guarded by the eviction lock of the
+ * cache.
+ */
+final class Node {
+
+  /**
+   * The expiration of the entries that are not expiring.
+   */
+  static final long NEVER = Long.MAX_VALUE;
+
+  /**
+   * Creates the head of a circular list of nodes.
+   */
+  static Node sentinel() {
+    Node sentinel = new Node(null, null, NEVER, 0);
+    sentinel.queuePrev = sentinel;
+    sentinel.queueNext = sentinel;
+    sentinel.timerPrev = sentinel;
+    sentinel.timerNext = sentinel;
+    return sentinel;
+  }
+
+  final String key;
+  final Object value;
+  final long expiresAt;
+  final int weight;
+
+  /**
+   * Whether the node was read since it was last passed by the eviction, so it's given a second chance.
+   */
+  volatile boolean referenced;
+
+  boolean linked;
+  Node queuePrev;
+  Node queueNext;
+  Node timerPrev;
+  Node timerNext;
+
+  Node(String key, Object value, long expiresAt, int weight) {
+    this.key = key;
+    this.value = value;
+    this.expiresAt = expiresAt;
+    this.weight = weight;
+  }
+
+  boolean isExpired(long now) {
+    return expiresAt <= now;
+  }
+}
@@ -0,0 +1,280 @@
+package com.clouway.api.pcache.extensions.local;
+
+import com.clouway.api.pcache.CacheException;
+import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.KeyEncoder;
+import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.NamespaceProvider;
+import com.clouway.api.pcache.SafeValue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OffHeapCacheManager is a {@link CacheManager} which is keeping the values in direct memory, outside of the heap of
+ * the JVM, so the cost of the garbage collection is not growing with the number of the cached values.
+ * <p/>
+ * Values are encoded by the {@link ItemSerializer} in the same format in which they are stored in Redis and the stamp
+ * of the envelope is used for the compare-and-set of the entries. Entries are partitioned by the hash of their key in
+ * {@link OffHeapSegment}s, which are locked independently of each other. When a segment is full, it's oldest entries
+ * are evicted.
+ */
+class OffHeapCacheManager implements CacheManager {
+
+  /**
+   * The maximum capacity of a segment, which is bounded by the capacity of a {@link ByteBuffer}.
+   */
+  private static final long MAX_SEGMENT_CAPACITY = 1 << 30;
+
+  private static final int MIN_SEGMENTS = 16;
+  private static final long MIN_SEGMENT_CAPACITY = 64 * 1024;
+
+  private final OffHeapSegment[] segments;
+  private final int segmentShift;
+  private final NamespaceProvider namespaceProvider;
+  private final ItemSerializer serializer;
+  private final KeyEncoder keyEncoder = KeyEncoder.create();
+
+  /**
+   * Creates a new cache manager.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param serializer        the serializer of the values
+   * @param capacity          the capacity in bytes of the direct memory that is used by the cache
+   * @throws IllegalArgumentException if the capacity is too small
+   */
+  OffHeapCacheManager(NamespaceProvider namespaceProvider, ItemSerializer serializer, long capacity) {
+    if (capacity < MIN_SEGMENTS * MIN_SEGMENT_CAPACITY) {
+      throw new IllegalArgumentException("capacity should be at least " + MIN_SEGMENTS * MIN_SEGMENT_CAPACITY + " bytes");
+    }
+
+    int count = MIN_SEGMENTS;
+    while (capacity / count > MAX_SEGMENT_CAPACITY) {
+      count *= 2;
+    }
+
+    this.segments = new OffHeapSegment[count];
+    for (int i = 0; i < count; i++) {
+      segments[i] = new OffHeapSegment((int) (capacity / count));
+    }
+    this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+    this.namespaceProvider = namespaceProvider;
+    this.serializer = serializer;
+  }
+
+  @Override
+  public void put(String key, Object value, Integer cacheTimeSeconds) {
+    put(key, value, cacheTimeSeconds * 1000L);
+  }
+
+  @Override
+  public void put(String key, Object value, Long mills) {
+    write(keyOf(key), value, System.currentTimeMillis() + mills);
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    write(keyOf(key), value, OffHeapSegment.NEVER);
+  }
+
+  @Override
+  public void putAll(Map<String, Object> values, Long mills) {
+    long expiresAt = System.currentTimeMillis() + mills;
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      write(keyOf(entry.getKey()), entry.getValue(), expiresAt);
+    }
+  }
+
+  @Override
+  public Object get(String key) {
+    return serializer.decode(read(keyOf(key)));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> MatchResult<V> getAll(String prefix, List<String> keys, Class<V> clazz) {
+    List<V> hits = new ArrayList<V>(keys.size());
+    List<String> missed = new ArrayList<String>();
+
+    for (String key : keys) {
+      Object value = get(prefix + key);
+      if (clazz.isInstance(value)) {
+        hits.add((V) value);
+      } else {
+        missed.add(key);
+      }
+    }
+    return new MatchResult<V>(hits, missed);
+  }
+
+  @Override
+  public <V> MatchResult<V> getAll(List<String> keys, Class<V> clazz) {
+    return getAll("", keys, clazz);
+  }
+
+  @Override
+  public void remove(String key) {
+    byte[] persistentKey = keyOf(key);
+    long hash = hashOf(persistentKey);
+    segmentOf(hash).remove(hash, persistentKey);
+  }
+
+  /**
+   * The expiration of the entry is kept.
+   */
+  @Override
+  public boolean safePut(Object key, SafeValue safeValue, Object value) {
+    return safePut(key.toString(), safeValue, value, OffHeapSegment.KEEP);
+  }
+
+  @Override
+  public boolean safePut(Object key, SafeValue safeValue, Object value, Integer expiration) {
+    return safePut(key.toString(), safeValue, value, System.currentTimeMillis() + expiration * 1000L);
+  }
+
+  @Override
+  public boolean lock(String key) {
+    return lock(key, OffHeapSegment.NEVER);
+  }
+
+  @Override
+  public boolean lock(String key, int expiration) {
+    return lock(key, System.currentTimeMillis() + expiration * 1000L);
+  }
+
+  @Override
+  public SafeValue getSafeValue(Object key) {
+    ItemSerializer.Entry entry = serializer.decodeEntry(read(keyOf(key.toString())));
+    if (entry == null) {
+      return null;
+    }
+    return new StampedSafeValue(entry.value, entry.stamp);
+  }
+
+  /**
+   * Missing entries are created with the value of the delta and without expiration.
+   *
+   * @throws CacheException if the current value is not an integer
+   */
+  @Override
+  public Long increment(Object o, final Long l) {
+    byte[] persistentKey = keyOf(o.toString());
+    long hash = hashOf(persistentKey);
+    final long[] result = new long[1];
+
+    segmentOf(hash).update(hash, persistentKey, OffHeapSegment.KEEP, System.currentTimeMillis(), new OffHeapSegment.Update() {
+      @Override
+      public byte[] apply(byte[] current) {
+        Object value = current == null ? 0L : serializer.decode(current);
+        if (!(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+          throw new CacheException("The value of the key is not an integer.");
+        }
+        result[0] = ((Number) value).longValue() + l;
+        return serializer.encode(result[0]);
+      }
+    });
+    return result[0];
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return read(keyOf(key.toString())) != null;
+  }
+
+  @Override
+  public void flushCache() {
+    byte[] prefix = keyOf("");
+    for (OffHeapSegment segment : segments) {
+      segment.removeAll(prefix);
+    }
+  }
+
+  private void write(byte[] key, Object value, long expiresAt) {
+    long hash = hashOf(key);
+    segmentOf(hash).put(hash, key, encode(value), expiresAt);
+  }
+
+  private byte[] read(byte[] key) {
+    long hash = hashOf(key);
+    return segmentOf(hash).get(hash, key, System.currentTimeMillis());
+  }
+
+  private boolean safePut(String key, SafeValue sv, Object value, long expiresAt) {
+    if (!(sv instanceof StampedSafeValue) || ((StampedSafeValue) sv).getStamp() == null) {
+      return false;
+    }
+
+    final long stamp = ((StampedSafeValue) sv).getStamp();
+    final byte[] item = encode(value, stamp + 1);
+
+    byte[] persistentKey = keyOf(key);
+    long hash = hashOf(persistentKey);
+    return segmentOf(hash).update(hash, persistentKey, expiresAt, System.currentTimeMillis(), new OffHeapSegment.Update() {
+      @Override
+      public byte[] apply(byte[] current) {
+        Long currentStamp = current == null ? null : ItemSerializer.stampOf(current);
+        return currentStamp != null && currentStamp == stamp ? item : null;
+      }
+    });
+  }
+
+  private boolean lock(String key, long expiresAt) {
+    final byte[] item = encode(1);
+
+    byte[] persistentKey = keyOf(key);
+    long hash = hashOf(persistentKey);
+    return segmentOf(hash).update(hash, persistentKey, expiresAt, System.currentTimeMillis(), new OffHeapSegment.Update() {
+      @Override
+      public byte[] apply(byte[] current) {
+        return current == null ? item : null;
+      }
+    });
+  }
+
+  private byte[] encode(Object value) {
+    try {
+      return serializer.encode(value);
+    } catch (IllegalArgumentException ex) {
+      throw new CacheException("The received value cannot be serialized.");
+    }
+  }
+
+  private byte[] encode(Object value, long stamp) {
+    try {
+      return serializer.encode(value, stamp);
+    } catch (IllegalArgumentException ex) {
+      throw new CacheException("The received value cannot be serialized.");
+    }
+  }
+
+  private OffHeapSegment segmentOf(long hash) {
+    return segments[(int) (hash >>> segmentShift)];
+  }
+
+  /**
+   * Gets the FNV-1a hash of the key, which bits are mixed by the finalizer of MurmurHash3, as the segment is selected
+   * by the highest bits of the hash and the slot of the index by the lowest ones. The hash is never 0, which is marking
+   * the empty slots of the index.
+   */
+  private static long hashOf(byte[] key) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash == 0 ? 1 : hash;
+  }
+
+  private byte[] keyOf(String key) {
+    return keyEncoder.encode(namespaceProvider.get(), key);
+  }
+}
@@ -0,0 +1,372 @@
+package com.clouway.api.pcache.extensions.local;
+
+import com.clouway.api.pcache.CacheException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * OffHeapSegment is a part of the {@link OffHeapCacheManager} which is keeping it's entries in a direct
+ * {@link ByteBuffer} that is used as a ring. Each write is appended at the head of the ring and the oldest records are
+ * evicted from the tail when the space is needed, so the records of the removed and of the replaced entries are
+ * reclaimed when the ring passes them.
+ * <p/>
+ * Records are located by an open addressing index of primitive arrays, which is mapping the 64-bit hash of the key to
+ * the offset of it's record. Keys are compared with the key of the record, so a key which hash is colliding with the
+ * hash of another key is missed instead of returning the value of the other key.
+ * <p/>
+ * Records are laid out as:
+ * <pre>
+ * | length (4 bytes) | hash (8 bytes) | expires at (8 bytes) | key length (4 bytes) | key | value |
+ * </pre>
+ * All operations of the segment are guarded by it's lock.
+ */
+final class OffHeapSegment {
+
+  /**
+   * Update is computing the new value of an entry from it's current value.
+   */
+  interface Update {
+
+    /**
+     * Computes the new value.
+     *
+     * @param current the current value or null if the entry is missing
+     * @return the new value or null if the entry should not be changed
+     */
+    byte[] apply(byte[] current);
+  }
+
+  /**
+   * The expiration of the entries that are not expiring.
+   */
+  static final long NEVER = Long.MAX_VALUE;
+
+  /**
+   * The expiration which is keeping the expiration of the current entry.
+   */
+  static final long KEEP = -1;
+
+  private static final int WRAP = -1;
+  private static final int HASH_OFFSET = 4;
+  private static final int EXPIRES_AT_OFFSET = 12;
+  private static final int KEY_LENGTH_OFFSET = 20;
+  private static final int HEADER_LENGTH = 24;
+  private static final int INITIAL_INDEX_CAPACITY = 1024;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ByteBuffer buffer;
+  private final ByteBuffer view;
+  private final int capacity;
+
+  private long[] hashes = new long[INITIAL_INDEX_CAPACITY];
+  private int[] addresses = new int[INITIAL_INDEX_CAPACITY];
+  private int mask = INITIAL_INDEX_CAPACITY - 1;
+  private int size;
+
+  private int head;
+  private int tail;
+  private int used;
+
+  OffHeapSegment(int capacity) {
+    this.capacity = capacity;
+    this.buffer = ByteBuffer.allocateDirect(capacity);
+    this.view = buffer.duplicate();
+  }
+
+  /**
+   * Gets the value of the key.
+   *
+   * @param hash the hash of the key, which is never 0
+   * @param key  the key
+   * @param now  the current time in mills
+   * @return the value or null if the entry is missing or is expired
+   */
+  byte[] get(long hash, byte[] key, long now) {
+    lock.lock();
+    try {
+      int slot = liveSlot(hash, key, now);
+      return slot < 0 ? null : valueOf(addresses[slot]);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Puts the value of the key.
+   *
+   * @param expiresAt the time in mills at which the entry expires or {@link #NEVER}
+   * @throws CacheException if the entry is larger than the segment
+   */
+  void put(long hash, byte[] key, byte[] value, long expiresAt) {
+    lock.lock();
+    try {
+      write(hash, key, value, expiresAt);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Updates the value of the key atomically.
+   *
+   * @param expiresAt the time in mills at which the updated entry expires, {@link #NEVER} or {@link #KEEP}
+   * @param update    the update of the value
+   * @return true if the entry was updated
+   * @throws CacheException if the entry is larger than the segment
+   */
+  boolean update(long hash, byte[] key, long expiresAt, long now, Update update) {
+    lock.lock();
+    try {
+      int slot = liveSlot(hash, key, now);
+      byte[] current = slot < 0 ? null : valueOf(addresses[slot]);
+
+      byte[] value = update.apply(current);
+      if (value == null) {
+        return false;
+      }
+      if (expiresAt == KEEP) {
+        expiresAt = slot < 0 ? NEVER : buffer.getLong(addresses[slot] + EXPIRES_AT_OFFSET);
+      }
+      write(hash, key, value, expiresAt);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the entry of the key.
+   */
+  void remove(long hash, byte[] key) {
+    lock.lock();
+    try {
+      int slot = find(hash);
+      if (hashes[slot] != 0 && keyEquals(addresses[slot], key)) {
+        removeSlot(slot);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the entries which keys are starting with the provided prefix.
+   */
+  void removeAll(byte[] prefix) {
+    lock.lock();
+    try {
+      List<long[]> matching = new ArrayList<long[]>();
+      for (int slot = 0; slot < hashes.length; slot++) {
+        if (hashes[slot] != 0 && keyStartsWith(addresses[slot], prefix)) {
+          matching.add(new long[]{hashes[slot], addresses[slot]});
+        }
+      }
+      // slots are shifted by the removals, so entries are found again by their hash
+      for (long[] entry : matching) {
+        int slot = find(entry[0]);
+        if (hashes[slot] != 0 && addresses[slot] == entry[1]) {
+          removeSlot(slot);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of the entries in the index, including the expired entries that were not read since they expired.
+   */
+  int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int liveSlot(long hash, byte[] key, long now) {
+    int slot = find(hash);
+    if (hashes[slot] == 0) {
+      return -1;
+    }
+    int address = addresses[slot];
+    if (!keyEquals(address, key)) {
+      return -1;
+    }
+    if (buffer.getLong(address + EXPIRES_AT_OFFSET) <= now) {
+      removeSlot(slot);
+      return -1;
+    }
+    return slot;
+  }
+
+  private void write(long hash, byte[] key, byte[] value, long expiresAt) {
+    int length = HEADER_LENGTH + key.length + value.length;
+    if (length > capacity || length < 0) {
+      throw new CacheException("The entry of " + length + " bytes is larger than the segment of the off-heap cache.");
+    }
+
+    int address = allocate(length);
+    buffer.putInt(address, length);
+    buffer.putLong(address + HASH_OFFSET, hash);
+    buffer.putLong(address + EXPIRES_AT_OFFSET, expiresAt);
+    buffer.putInt(address + KEY_LENGTH_OFFSET, key.length);
+    view.position(address + HEADER_LENGTH);
+    view.put(key);
+    view.put(value);
+
+    // slot is found after the allocation, as the allocation could evict the previous record of the key
+    int slot = find(hash);
+    if (hashes[slot] == 0) {
+      hashes[slot] = hash;
+      size++;
+    }
+    addresses[slot] = address;
+
+    if (size > hashes.length * 3 / 4) {
+      resize();
+    }
+  }
+
+  /**
+   * Allocates the space of a record at the head of the ring by evicting the oldest records that are in the way.
+   */
+  private int allocate(int length) {
+    if (used == 0) {
+      head = 0;
+      tail = 0;
+    }
+
+    if (head + length > capacity) {
+      // the end of the buffer is wasted, so the record is not split
+      while (used > 0 && tail >= head) {
+        evictTail();
+      }
+      if (used == 0) {
+        tail = 0;
+      } else {
+        if (capacity - head >= 4) {
+          buffer.putInt(head, WRAP);
+        }
+        used += capacity - head;
+      }
+      head = 0;
+    }
+
+    while (used > 0 && tail >= head && tail < head + length) {
+      evictTail();
+    }
+
+    int address = head;
+    head += length;
+    used += length;
+    if (head == capacity) {
+      head = 0;
+    }
+    return address;
+  }
+
+  private void evictTail() {
+    if (capacity - tail < 4 || buffer.getInt(tail) == WRAP) {
+      used -= capacity - tail;
+      tail = 0;
+      return;
+    }
+
+    int length = buffer.getInt(tail);
+    int slot = find(buffer.getLong(tail + HASH_OFFSET));
+    if (hashes[slot] != 0 && addresses[slot] == tail) {
+      removeSlot(slot);
+    }
+
+    used -= length;
+    tail += length;
+    if (tail == capacity) {
+      tail = 0;
+    }
+  }
+
+  private byte[] valueOf(int address) {
+    int keyLength = buffer.getInt(address + KEY_LENGTH_OFFSET);
+    byte[] value = new byte[buffer.getInt(address) - HEADER_LENGTH - keyLength];
+    view.position(address + HEADER_LENGTH + keyLength);
+    view.get(value);
+    return value;
+  }
+
+  private boolean keyEquals(int address, byte[] key) {
+    return buffer.getInt(address + KEY_LENGTH_OFFSET) == key.length && keyStartsWith(address, key);
+  }
+
+  private boolean keyStartsWith(int address, byte[] prefix) {
+    if (buffer.getInt(address + KEY_LENGTH_OFFSET) < prefix.length) {
+      return false;
+    }
+    int keyAddress = address + HEADER_LENGTH;
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(keyAddress + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds the slot of the hash or the empty slot at which the hash should be added.
+   */
+  private int find(long hash) {
+    int slot = (int) hash & mask;
+    while (hashes[slot] != 0 && hashes[slot] != hash) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Removes the slot by shifting back the following slots of the probe sequence, so no tombstones are needed.
+   */
+  private void removeSlot(int slot) {
+    size--;
+
+    int free = slot;
+    int next = slot;
+    while (true) {
+      hashes[free] = 0;
+      while (true) {
+        next = (next + 1) & mask;
+        if (hashes[next] == 0) {
+          return;
+        }
+        int ideal = (int) hashes[next] & mask;
+        // entries which ideal slot is cyclically after the free slot are left in place
+        boolean inPlace = free <= next ? free < ideal && ideal <= next : free < ideal || ideal <= next;
+        if (!inPlace) {
+          break;
+        }
+      }
+      hashes[free] = hashes[next];
+      addresses[free] = addresses[next];
+      free = next;
+    }
+  }
+
+  private void resize() {
+    long[] oldHashes = hashes;
+    int[] oldAddresses = addresses;
+
+    hashes = new long[oldHashes.length * 2];
+    addresses = new int[oldAddresses.length * 2];
+    mask = hashes.length - 1;
+    for (int i = 0; i < oldHashes.length; i++) {
+      if (oldHashes[i] != 0) {
+        int slot = find(oldHashes[i]);
+        hashes[slot] = oldHashes[i];
+        addresses[slot] = oldAddresses[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.clouway.api.pcache.extensions.local;
+
+import com.clouway.api.pcache.SafeValue;
+
+/**
+ * StampedSafeValue is a {@link SafeValue} which is carrying the stamp of an encoded entry, so the entry could be
+ * updated only if it's stamp was not changed since it was read.
+ */
+class StampedSafeValue implements SafeValue {
+  private final Object value;
+  private final Long stamp;
+
+  StampedSafeValue(Object value, Long stamp) {
+    this.value = value;
+    this.stamp = stamp;
+  }
+
+  @Override
+  public Object getValue() {
+    return value;
+  }
+
+  /**
+   * Gets the stamp of the entry or null if entry was stored without a stamp.
+   */
+  Long getStamp() {
+    return stamp;
+  }
+}
@@ -0,0 +1,137 @@
+package com.clouway.api.pcache.extensions.local;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TimerWheel is a hierarchical timer wheel which is keeping the expiring nodes in buckets of their expiration time, so
+ * scheduling, descheduling and expiring of a node are costing O(1).
+ * <p/>
+ * The wheels are ticking by about a second, a minute, an hour and a day and the last wheel is holding the nodes that
+ * are expiring after about 6 days. Nodes of a bucket that is passed by the time are expired, or are scheduled again
+ * in a bucket of a finer wheel if they are not expired yet.
+ * <p/>
+ * TimerWheel is not thread safe and is guarded by the eviction lock of the cache.
+ */
+final class TimerWheel {
+  private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+
+  /**
+   * The duration in mills of a bucket of each of the wheels, which are powers of 2 so the bucket of a time is found by
+   * a shift.
+   */
+  private static final long[] SPANS = {
+          1L << 10, // 1.02 seconds
+          1L << 16, // 1.09 minutes
+          1L << 22, // 1.17 hours
+          1L << 27, // 1.55 days
+          1L << 29  // 6.21 days
+  };
+  private static final int[] SHIFT = {10, 16, 22, 27, 29};
+
+  private final Node[][] wheel;
+  private long time;
+
+  TimerWheel(long time) {
+    this.time = time;
+    this.wheel = new Node[BUCKETS.length][];
+    for (int i = 0; i < BUCKETS.length; i++) {
+      wheel[i] = new Node[BUCKETS[i]];
+      for (int j = 0; j < BUCKETS[i]; j++) {
+        wheel[i][j] = Node.sentinel();
+      }
+    }
+  }
+
+  /**
+   * Schedules the node for expiration.
+   *
+   * @param node the node which is not scheduled yet
+   */
+  void schedule(Node node) {
+    Node sentinel = findBucket(node.expiresAt);
+
+    node.timerPrev = sentinel.timerPrev;
+    node.timerNext = sentinel;
+    sentinel.timerPrev.timerNext = node;
+    sentinel.timerPrev = node;
+  }
+
+  /**
+   * Removes the node from the wheel if it's scheduled.
+   *
+   * @param node the node to be removed
+   */
+  void deschedule(Node node) {
+    if (node.timerNext == null) {
+      return;
+    }
+    node.timerPrev.timerNext = node.timerNext;
+    node.timerNext.timerPrev = node.timerPrev;
+    node.timerPrev = null;
+    node.timerNext = null;
+  }
+
+  /**
+   * Advances the time of the wheel.
+   *
+   * @param now the current time in mills
+   * @return the nodes that were expired by the advance, which are no longer scheduled
+   */
+  List<Node> advance(long now) {
+    List<Node> expired = new ArrayList<Node>();
+
+    long previous = time;
+    time = now;
+    for (int i = 0; i < SHIFT.length; i++) {
+      long previousTicks = previous >>> SHIFT[i];
+      long currentTicks = now >>> SHIFT[i];
+      long delta = currentTicks - previousTicks;
+      if (delta <= 0) {
+        break;
+      }
+      expire(i, previousTicks, delta, expired);
+    }
+    return expired;
+  }
+
+  private void expire(int level, long previousTicks, long delta, List<Node> expired) {
+    Node[] buckets = wheel[level];
+    int mask = buckets.length - 1;
+
+    // the passed buckets and the bucket of the current tick are visited, but each of them at most once
+    int steps = (int) Math.min(1 + delta, buckets.length);
+    int start = (int) (previousTicks & mask);
+    for (int i = start; i < start + steps; i++) {
+      Node sentinel = buckets[i & mask];
+      Node node = sentinel.timerNext;
+      sentinel.timerPrev = sentinel;
+      sentinel.timerNext = sentinel;
+
+      while (node != sentinel) {
+        Node next = node.timerNext;
+        node.timerPrev = null;
+        node.timerNext = null;
+
+        if (node.isExpired(time)) {
+          expired.add(node);
+        } else {
+          schedule(node);
+        }
+        node = next;
+      }
+    }
+  }
+
+  private Node findBucket(long expiresAt) {
+    long duration = expiresAt - time;
+    int last = wheel.length - 1;
+    for (int i = 0; i < last; i++) {
+      if (duration < SPANS[i + 1]) {
+        long ticks = expiresAt >>> SHIFT[i];
+        return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+      }
+    }
+    return wheel[last][0];
+  }
+}
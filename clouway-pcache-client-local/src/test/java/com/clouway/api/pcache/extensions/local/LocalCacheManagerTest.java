@@ -0,0 +1,235 @@
+package com.clouway.api.pcache.extensions.local;
+
+import com.clouway.api.pcache.CacheException;
+import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.NamespaceProvider;
+import com.clouway.api.pcache.ValueSizer;
+import com.clouway.api.pcache.testing.CacheManagerContract;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class LocalCacheManagerTest extends CacheManagerContract {
+
+  @Test
+  public void expiredEntriesAreMissed() throws Exception {
+    CacheManager cacheManager = createCacheManager();
+    cacheManager.put("::key::", "::value::", 10L);
+    cacheManager.put("::other key::", "::other value::", 60000L);
+
+    Thread.sleep(20);
+
+    assertThat(cacheManager.get("::key::"), is(nullValue()));
+    assertThat(cacheManager.contains("::key::"), is(false));
+    assertThat(cacheManager.get("::other key::"), is(equalTo((Object) "::other value::")));
+  }
+
+  @Test
+  public void weightIsBounded() {
+    CacheManager cacheManager = LocalCacheManagerFactory.create(100);
+    for (int i = 0; i < 1000; i++) {
+      cacheManager.put("::key " + i + "::", i);
+    }
+
+    int cached = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (cacheManager.contains("::key " + i + "::")) {
+        cached++;
+      }
+    }
+    assertThat(cached, is(equalTo(100)));
+    assertThat(cacheManager.get("::key 999::"), is(equalTo((Object) 999)));
+  }
+
+  @Test
+  public void readEntriesAreGivenASecondChance() {
+    CacheManager cacheManager = LocalCacheManagerFactory.create(2);
+    cacheManager.put("::key 1::", "::value 1::");
+    cacheManager.put("::key 2::", "::value 2::");
+    cacheManager.get("::key 1::");
+
+    cacheManager.put("::key 3::", "::value 3::");
+
+    assertThat(cacheManager.get("::key 1::"), is(equalTo((Object) "::value 1::")));
+    assertThat(cacheManager.get("::key 2::"), is(nullValue()));
+  }
+
+  @Test
+  public void entriesAreWeightedBySize() {
+    CacheManager cacheManager = LocalCacheManagerFactory.create(namespace("::ns::"), 10, new ValueSizer() {
+      @Override
+      public long sizeOf(Object value) {
+        return value.toString().length();
+      }
+    });
+    cacheManager.put("::key 1::", "12345");
+    cacheManager.put("::key 2::", "12345");
+    cacheManager.put("::key 3::", "1");
+
+    assertThat(cacheManager.get("::key 1::"), is(nullValue()));
+    assertThat(cacheManager.get("::key 2::"), is(equalTo((Object) "12345")));
+    assertThat(cacheManager.get("::key 3::"), is(equalTo((Object) "1")));
+  }
+
+  @Test
+  public void incrementsAreAtomic() throws Exception {
+    final CacheManager cacheManager = createCacheManager();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    List<Future<?>> increments = new ArrayList<Future<?>>();
+    for (int i = 0; i < 8; i++) {
+      increments.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          for (int j = 0; j < 1000; j++) {
+            cacheManager.increment("::counter::", 1L);
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<?> increment : increments) {
+      increment.get();
+    }
+    executor.shutdown();
+
+    assertThat(cacheManager.increment("::counter::", 0L), is(equalTo(8000L)));
+  }
+
+  @Test
+  public void incrementOfNonIntegerValue() {
+    CacheManager cacheManager = createCacheManager();
+    cacheManager.put("::key::", "::value::");
+
+    try {
+      cacheManager.increment("::key::", 1L);
+      fail("exception must be thrown");
+    } catch (CacheException e) {
+      assertThat(cacheManager.get("::key::"), is(equalTo((Object) "::value::")));
+    }
+  }
+
+  @Test
+  public void lockIsAcquiredByASingleThread() throws Exception {
+    final CacheManager cacheManager = createCacheManager();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    List<Future<Boolean>> locks = new ArrayList<Future<Boolean>>();
+    for (int i = 0; i < 8; i++) {
+      locks.add(executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return cacheManager.lock("::key::", 10);
+        }
+      }));
+    }
+
+    int acquired = 0;
+    for (Future<Boolean> lock : locks) {
+      if (lock.get()) {
+        acquired++;
+      }
+    }
+    executor.shutdown();
+
+    assertThat(acquired, is(equalTo(1)));
+  }
+
+  @Test
+  public void expiredLockIsTakenOver() throws Exception {
+    CacheManager cacheManager = createCacheManager();
+    cacheManager.put("::key::", 1, 10L);
+
+    Thread.sleep(20);
+
+    assertThat(cacheManager.lock("::key::", 10), is(true));
+  }
+
+  @Test
+  public void concurrentWritesAreKeepingTheBound() throws Exception {
+    final CacheManager cacheManager = LocalCacheManagerFactory.create(500);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    List<Future<?>> writes = new ArrayList<Future<?>>();
+    for (int i = 0; i < 8; i++) {
+      final int thread = i;
+      writes.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          for (int j = 0; j < 5000; j++) {
+            cacheManager.put("::key " + thread + " " + j + "::", j);
+            cacheManager.get("::key " + thread + " " + (j / 2) + "::");
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<?> write : writes) {
+      write.get();
+    }
+    executor.shutdown();
+
+    // pending changes are applied by the next write
+    cacheManager.remove("::missing::");
+    cacheManager.put("::key::", 1);
+
+    int cached = 0;
+    for (int i = 0; i < 8; i++) {
+      for (int j = 0; j < 5000; j++) {
+        if (cacheManager.contains("::key " + i + " " + j + "::")) {
+          cached++;
+        }
+      }
+    }
+    assertThat(cached, is(lessThanOrEqualTo(500)));
+  }
+
+  @Test
+  public void flushRemovesOnlyEntriesOfTheCurrentNamespace() {
+    final LinkedList<String> namespaces = new LinkedList<String>();
+    CacheManager cacheManager = LocalCacheManagerFactory.create(new NamespaceProvider() {
+      @Override
+      public String get() {
+        return namespaces.peek();
+      }
+    }, 100);
+
+    namespaces.push("ns2");
+    cacheManager.put("::key::", "::value ns2::");
+    namespaces.push("ns1");
+    cacheManager.put("::key::", "::value ns1::");
+
+    cacheManager.flushCache();
+    assertThat(cacheManager.get("::key::"), is(nullValue()));
+
+    namespaces.pop();
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) "::value ns2::")));
+  }
+
+  @Override
+  protected CacheManager createCacheManager() {
+    return LocalCacheManagerFactory.create(10000);
+  }
+
+  private static NamespaceProvider namespace(final String namespace) {
+    return new NamespaceProvider() {
+      @Override
+      public String get() {
+        return namespace;
+      }
+    };
+  }
+}
@@ -0,0 +1,259 @@
+package com.clouway.api.pcache.extensions.local;
+
+import com.clouway.api.pcache.CacheException;
+import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CloseableCacheManager;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.NamespaceProvider;
+import com.clouway.api.pcache.SafeValue;
+import com.clouway.api.pcache.testing.CacheManagerContract;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class MappedCacheManagerTest extends CacheManagerContract {
+
+  private static final int SEGMENT_SIZE = 64 * 1024;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final NamespaceProvider namespaceProvider = new NamespaceProvider() {
+    @Override
+    public String get() {
+      return "default";
+    }
+  };
+
+  @Test
+  public void valuesAreLoadedAfterRestart() throws Exception {
+    File directory = folder.newFolder();
+
+    MappedCacheManager cacheManager = open(directory, 1024 * 1024);
+    cacheManager.put("::key::", "::value::");
+    cacheManager.put("::other key::", "::other value::", 60000L);
+    cacheManager.increment("::counter::", 3L);
+    cacheManager.close();
+
+    MappedCacheManager restarted = open(directory, 1024 * 1024);
+    assertThat(restarted.get("::key::"), is(equalTo((Object) "::value::")));
+    assertThat(restarted.get("::other key::"), is(equalTo((Object) "::other value::")));
+    assertThat(restarted.increment("::counter::", 1L), is(equalTo(4L)));
+  }
+
+  @Test
+  public void expiredValuesAreSkippedAfterRestart() throws Exception {
+    File directory = folder.newFolder();
+
+    MappedCacheManager cacheManager = open(directory, 1024 * 1024);
+    cacheManager.put("::key::", "::value::");
+    cacheManager.put("::key::", "::new value::", 10L);
+    cacheManager.close();
+
+    Thread.sleep(20);
+
+    MappedCacheManager restarted = open(directory, 1024 * 1024);
+    assertThat(restarted.get("::key::"), is(nullValue()));
+  }
+
+  @Test
+  public void removedValuesAreNotLoadedAfterRestart() throws Exception {
+    File directory = folder.newFolder();
+
+    MappedCacheManager cacheManager = open(directory, 1024 * 1024);
+    cacheManager.put("::key::", "::value::");
+    cacheManager.put("::other key::", "::other value::");
+    cacheManager.remove("::key::");
+    cacheManager.flushCache();
+    cacheManager.put("::new key::", "::new value::");
+    cacheManager.close();
+
+    MappedCacheManager restarted = open(directory, 1024 * 1024);
+    assertThat(restarted.get("::key::"), is(nullValue()));
+    assertThat(restarted.get("::other key::"), is(nullValue()));
+    assertThat(restarted.get("::new key::"), is(equalTo((Object) "::new value::")));
+  }
+
+  @Test
+  public void tornRecordIsEndingTheSegment() throws Exception {
+    File directory = folder.newFolder();
+
+    MappedCacheManager cacheManager = open(directory, 1024 * 1024);
+    cacheManager.put("::key::", "::value::");
+    cacheManager.put("::other key::", "::other value::");
+    cacheManager.close();
+
+    // the last byte of the second record is changed
+    File segment = new File(directory, "0" + MappedSegment.SUFFIX);
+    int end = endOfRecords(segment);
+    try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+      file.seek(end - 1);
+      file.write(0);
+    }
+
+    MappedCacheManager restarted = open(directory, 1024 * 1024);
+    assertThat(restarted.get("::key::"), is(equalTo((Object) "::value::")));
+    assertThat(restarted.get("::other key::"), is(nullValue()));
+
+    restarted.put("::other key::", "::new value::");
+    assertThat(restarted.get("::other key::"), is(equalTo((Object) "::new value::")));
+  }
+
+  @Test
+  public void compactionKeepsLiveValues() throws Exception {
+    File directory = folder.newFolder();
+
+    MappedCacheManager cacheManager = open(directory, 1024 * 1024);
+    cacheManager.put("::live::", "::live value::");
+    // the key is replaced until the log has 3 segments, so the first one is mostly dead
+    int last = 0;
+    while (cacheManager.segmentCount() < 3) {
+      cacheManager.put("::key::", "::value " + ++last + "::");
+    }
+
+    cacheManager.compact();
+    assertThat(cacheManager.segmentCount(), is(equalTo(2)));
+    assertThat(new File(directory, "0" + MappedSegment.SUFFIX).exists(), is(false));
+    assertThat(cacheManager.get("::live::"), is(equalTo((Object) "::live value::")));
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) ("::value " + last + "::"))));
+    cacheManager.close();
+
+    MappedCacheManager restarted = open(directory, 1024 * 1024);
+    assertThat(restarted.get("::live::"), is(equalTo((Object) "::live value::")));
+    assertThat(restarted.get("::key::"), is(equalTo((Object) ("::value " + last + "::"))));
+  }
+
+  @Test
+  public void closedManagerIsNotCompacted() throws Exception {
+    File directory = folder.newFolder();
+
+    MappedCacheManager cacheManager = open(directory, 1024 * 1024);
+    cacheManager.put("::live::", "::live value::");
+    while (cacheManager.segmentCount() < 3) {
+      cacheManager.put("::key::", "::value::");
+    }
+    cacheManager.close();
+
+    cacheManager.compact();
+    assertThat(cacheManager.segmentCount(), is(equalTo(3)));
+    assertThat(new File(directory, "0" + MappedSegment.SUFFIX).exists(), is(true));
+
+    MappedCacheManager restarted = open(directory, 1024 * 1024);
+    assertThat(restarted.get("::live::"), is(equalTo((Object) "::live value::")));
+  }
+
+  @Test
+  public void compactionSkipsMostlyLiveSegments() throws Exception {
+    MappedCacheManager cacheManager = open(folder.newFolder(), 1024 * 1024);
+    for (int i = 0; cacheManager.segmentCount() < 2; i++) {
+      cacheManager.put("::key " + i + "::", "::value " + i + "::");
+    }
+
+    cacheManager.compact();
+    assertThat(cacheManager.segmentCount(), is(equalTo(2)));
+    assertThat(cacheManager.get("::key 0::"), is(equalTo((Object) "::value 0::")));
+  }
+
+  @Test
+  public void oldestSegmentsAreEvictedWhenMaximumSizeIsReached() throws Exception {
+    File directory = folder.newFolder();
+    MappedCacheManager cacheManager = open(directory, 4 * SEGMENT_SIZE);
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      value.append('x');
+    }
+
+    // 2 MB of values are written in 256 KB of segments
+    for (int i = 0; i < 2000; i++) {
+      cacheManager.put("::key " + i + "::", value.toString() + i);
+    }
+
+    assertThat(cacheManager.segmentCount(), is(equalTo(4)));
+    assertThat(directory.listFiles().length, is(equalTo(4)));
+    assertThat(cacheManager.get("::key 0::"), is(nullValue()));
+    assertThat(cacheManager.get("::key 1999::"), is(equalTo((Object) (value.toString() + 1999))));
+  }
+
+  @Test
+  public void safePutOfReplacedEntry() throws Exception {
+    CacheManager cacheManager = createCacheManager();
+    cacheManager.put("::key::", "::value::");
+    SafeValue safeValue = cacheManager.getSafeValue("::key::");
+
+    cacheManager.put("::key::", "::value::");
+
+    assertThat(cacheManager.safePut("::key::", safeValue, "::new value::"), is(false));
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) "::value::")));
+  }
+
+  @Test
+  public void tooLargeValue() throws Exception {
+    CacheManager cacheManager = createCacheManager();
+    try {
+      cacheManager.put("::key::", new byte[SEGMENT_SIZE]);
+      fail("exception must be thrown");
+    } catch (CacheException e) {
+      assertThat(cacheManager.get("::key::"), is(nullValue()));
+    }
+  }
+
+  @Test
+  public void segmentSizeIsBoundedByTheMaximumSize() throws Exception {
+    File directory = folder.newFolder();
+
+    LocalCacheManagerFactory.createMapped(namespaceProvider, directory, 1024 * 1024).close();
+
+    File[] files = directory.listFiles();
+    assertThat(files.length, is(equalTo(1)));
+    assertThat(files[0].length(), is(equalTo(128 * 1024L)));
+  }
+
+  @Test
+  public void closedManagerOfTheFactoryIsLoadedAfterRestart() throws Exception {
+    File directory = folder.newFolder();
+
+    CloseableCacheManager cacheManager = LocalCacheManagerFactory.createMapped(namespaceProvider, directory, 1024 * 1024);
+    cacheManager.put("::key::", "::value::");
+    cacheManager.close();
+
+    CloseableCacheManager restarted = LocalCacheManagerFactory.createMapped(namespaceProvider, directory, 1024 * 1024);
+    assertThat(restarted.get("::key::"), is(equalTo((Object) "::value::")));
+    restarted.close();
+  }
+
+  @Override
+  protected CacheManager createCacheManager() {
+    try {
+      return open(folder.newFolder(), 1024 * 1024);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private MappedCacheManager open(File directory, long maximumSize) {
+    return new MappedCacheManager(namespaceProvider, new ItemSerializer(new CodecRegistry(), Compression.disabled()), directory, SEGMENT_SIZE, maximumSize);
+  }
+
+  private static int endOfRecords(File file) throws IOException {
+    final int[] end = new int[1];
+    MappedSegment.open(file).scan(new MappedSegment.Visitor() {
+      @Override
+      public void visit(int offset, int length, byte type, long expiresAt, String key, int valueOffset, int valueLength) {
+        end[0] = offset + length;
+      }
+    });
+    return end[0];
+  }
+}
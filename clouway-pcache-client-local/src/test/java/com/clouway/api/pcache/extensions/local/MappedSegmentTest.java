@@ -0,0 +1,49 @@
+package com.clouway.api.pcache.extensions.local;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MappedSegmentTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void fileIsDeletedAfterTheLastReaderIsDone() throws Exception {
+    File directory = folder.newFolder();
+    MappedSegment segment = MappedSegment.create(directory, 0, 4096);
+    int offset = segment.append(MappedSegment.PUT, MappedCacheManager.NEVER, bytes("::key::"), bytes("::value::"));
+
+    // a reader is holding the segment while the log is dropping it
+    assertThat(segment.retain(), is(true));
+    segment.release();
+
+    assertThat(new File(directory, "0" + MappedSegment.SUFFIX).exists(), is(true));
+    assertThat(segment.read(offset + MappedSegment.lengthOf(bytes("::key::"), bytes("::value::")) - 9, 9), is(equalTo(bytes("::value::"))));
+
+    segment.release();
+    assertThat(segment.isDeleted(), is(true));
+    assertThat(new File(directory, "0" + MappedSegment.SUFFIX).exists(), is(false));
+  }
+
+  @Test
+  public void releasedSegmentCannotBeRetained() throws Exception {
+    MappedSegment segment = MappedSegment.create(folder.newFolder(), 0, 4096);
+
+    segment.release();
+
+    assertThat(segment.retain(), is(false));
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
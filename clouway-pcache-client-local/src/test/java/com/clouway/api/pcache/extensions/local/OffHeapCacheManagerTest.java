@@ -0,0 +1,137 @@
+package com.clouway.api.pcache.extensions.local;
+
+import com.clouway.api.pcache.CacheException;
+import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.NamespaceProvider;
+import com.clouway.api.pcache.SafeValue;
+import com.clouway.api.pcache.testing.CacheManagerContract;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OffHeapCacheManagerTest extends CacheManagerContract {
+
+  @Test
+  public void expiredEntriesAreMissed() throws Exception {
+    CacheManager cacheManager = createCacheManager();
+    cacheManager.put("::key::", "::value::", 10L);
+    cacheManager.put("::other key::", "::other value::", 60000L);
+
+    Thread.sleep(20);
+
+    assertThat(cacheManager.get("::key::"), is(nullValue()));
+    assertThat(cacheManager.get("::other key::"), is(equalTo((Object) "::other value::")));
+  }
+
+  @Test
+  public void oldestEntriesAreEvictedWhenMemoryIsFull() {
+    CacheManager cacheManager = createCacheManager();
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      value.append('x');
+    }
+
+    // 20 MB of values are written in 1 MB of memory
+    for (int i = 0; i < 20000; i++) {
+      cacheManager.put("::key " + i + "::", value.toString() + i);
+    }
+
+    assertThat(cacheManager.get("::key 0::"), is(nullValue()));
+    assertThat(cacheManager.get("::key 19999::"), is(equalTo((Object) (value.toString() + 19999))));
+  }
+
+  @Test
+  public void safePutOfReplacedEntry() {
+    CacheManager cacheManager = createCacheManager();
+    cacheManager.put("::key::", "::value::");
+    SafeValue safeValue = cacheManager.getSafeValue("::key::");
+
+    cacheManager.put("::key::", "::value::");
+
+    assertThat(cacheManager.safePut("::key::", safeValue, "::new value::"), is(false));
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) "::value::")));
+  }
+
+  @Test
+  public void tooLargeValue() {
+    CacheManager cacheManager = createCacheManager();
+    try {
+      cacheManager.put("::key::", new byte[128 * 1024]);
+      fail("exception must be thrown");
+    } catch (CacheException e) {
+      assertThat(cacheManager.get("::key::"), is(nullValue()));
+    }
+  }
+
+  @Test
+  public void incrementsAreAtomic() throws Exception {
+    final CacheManager cacheManager = createCacheManager();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    List<Future<?>> increments = new ArrayList<Future<?>>();
+    for (int i = 0; i < 8; i++) {
+      increments.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          for (int j = 0; j < 1000; j++) {
+            cacheManager.increment("::counter::", 1L);
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<?> increment : increments) {
+      increment.get();
+    }
+    executor.shutdown();
+
+    assertThat(cacheManager.increment("::counter::", 0L), is(equalTo(8000L)));
+  }
+
+  @Test
+  public void flushRemovesOnlyEntriesOfTheCurrentNamespace() {
+    final LinkedList<String> namespaces = new LinkedList<String>();
+    CacheManager cacheManager = LocalCacheManagerFactory.createOffHeap(new NamespaceProvider() {
+      @Override
+      public String get() {
+        return namespaces.peek();
+      }
+    }, 1024 * 1024);
+
+    namespaces.push("ns2");
+    cacheManager.put("::key::", "::value ns2::");
+    namespaces.push("ns1");
+    for (int i = 0; i < 1000; i++) {
+      cacheManager.put("::key " + i + "::", i);
+    }
+
+    cacheManager.flushCache();
+    assertThat(cacheManager.get("::key 0::"), is(nullValue()));
+    assertThat(cacheManager.get("::key 999::"), is(nullValue()));
+
+    namespaces.pop();
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) "::value ns2::")));
+  }
+
+  @Override
+  protected CacheManager createCacheManager() {
+    return LocalCacheManagerFactory.createOffHeap(new NamespaceProvider() {
+      @Override
+      public String get() {
+        return "default";
+      }
+    }, 1024 * 1024);
+  }
+}
@@ -0,0 +1,81 @@
+package com.clouway.api.pcache.extensions.local;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OffHeapSegmentTest {
+
+  private final OffHeapSegment segment = new OffHeapSegment(4096);
+
+  @Test
+  public void keysWithTheSameHashAreNotMixed() {
+    segment.put(1L, bytes("::key 1::"), bytes("::value 1::"), OffHeapSegment.NEVER);
+
+    assertThat(segment.get(1L, bytes("::key 2::"), 0), is(nullValue()));
+    assertThat(segment.get(1L, bytes("::key 1::"), 0), is(equalTo(bytes("::value 1::"))));
+  }
+
+  @Test
+  public void ringIsReusedAfterItWraps() {
+    for (int i = 0; i < 10000; i++) {
+      segment.put(hash(i), bytes("::key " + i + "::"), bytes("::value " + i + "::"), OffHeapSegment.NEVER);
+
+      assertThat(segment.get(hash(i), bytes("::key " + i + "::"), 0), is(equalTo(bytes("::value " + i + "::"))));
+    }
+
+    assertThat(segment.size(), is(lessThan(4096 / 40)));
+    assertThat(segment.get(hash(0), bytes("::key 0::"), 0), is(nullValue()));
+  }
+
+  @Test
+  public void replacedEntriesAreReclaimed() {
+    for (int i = 0; i < 10000; i++) {
+      segment.put(hash(i % 10), bytes("::key " + (i % 10) + "::"), bytes("::value " + i + "::"), OffHeapSegment.NEVER);
+    }
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(segment.get(hash(i), bytes("::key " + i + "::"), 0), is(equalTo(bytes("::value " + (9990 + i) + "::"))));
+    }
+    assertThat(segment.size(), is(equalTo(10)));
+  }
+
+  @Test
+  public void removedEntriesAreKeepingTheIndexConsistent() {
+    // hashes are colliding in the index, so removal is shifting back the following entries
+    for (int i = 1; i <= 5; i++) {
+      segment.put(i * 1024L, bytes("::key " + i + "::"), bytes("::value " + i + "::"), OffHeapSegment.NEVER);
+    }
+    segment.remove(2 * 1024L, bytes("::key 2::"));
+
+    assertThat(segment.get(2 * 1024L, bytes("::key 2::"), 0), is(nullValue()));
+    for (int i = 1; i <= 5; i++) {
+      if (i != 2) {
+        assertThat(segment.get(i * 1024L, bytes("::key " + i + "::"), 0), is(equalTo(bytes("::value " + i + "::"))));
+      }
+    }
+  }
+
+  @Test
+  public void expiredEntries() {
+    segment.put(1L, bytes("::key::"), bytes("::value::"), 100L);
+
+    assertThat(segment.get(1L, bytes("::key::"), 99L), is(equalTo(bytes("::value::"))));
+    assertThat(segment.get(1L, bytes("::key::"), 100L), is(nullValue()));
+    assertThat(segment.size(), is(equalTo(0)));
+  }
+
+  private static long hash(int i) {
+    return i * 0x9E3779B97F4A7C15L | 1;
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,80 @@
+package com.clouway.api.pcache.extensions.local;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TimerWheelTest {
+
+  private static final long SECOND = 1000L;
+  private static final long MINUTE = 60 * SECOND;
+  private static final long HOUR = 60 * MINUTE;
+  private static final long DAY = 24 * HOUR;
+
+  private final long start = 1500000000000L;
+  private final TimerWheel wheel = new TimerWheel(start);
+
+  @Test
+  public void nodesAreExpiredWhenTheirTimePasses() {
+    Node second = scheduled(start + 2 * SECOND);
+    Node minute = scheduled(start + 5 * MINUTE);
+    Node hour = scheduled(start + 3 * HOUR);
+    Node day = scheduled(start + 2 * DAY);
+    Node week = scheduled(start + 10 * DAY);
+
+    assertThat(wheel.advance(start + SECOND), is(equalTo(Collections.<Node>emptyList())));
+    assertThat(wheel.advance(start + 3 * SECOND), is(equalTo(Collections.singletonList(second))));
+    assertThat(wheel.advance(start + 4 * MINUTE), is(equalTo(Collections.<Node>emptyList())));
+    assertThat(wheel.advance(start + 6 * MINUTE), is(equalTo(Collections.singletonList(minute))));
+    assertThat(wheel.advance(start + 4 * HOUR), is(equalTo(Collections.singletonList(hour))));
+    assertThat(wheel.advance(start + 3 * DAY), is(equalTo(Collections.singletonList(day))));
+    assertThat(wheel.advance(start + 9 * DAY), is(equalTo(Collections.<Node>emptyList())));
+    assertThat(wheel.advance(start + 11 * DAY), is(equalTo(Collections.singletonList(week))));
+  }
+
+  @Test
+  public void nodesAreExpiredByStepwiseAdvance() {
+    Node first = scheduled(start + 90 * SECOND);
+    Node second = scheduled(start + 100 * SECOND);
+
+    for (long time = start; time < start + 95 * SECOND; time += 100) {
+      List<Node> expired = wheel.advance(time);
+      assertThat(expired.contains(second), is(false));
+      if (expired.contains(first)) {
+        assertThat(time >= first.expiresAt, is(true));
+        assertThat(time < first.expiresAt + 2 * SECOND, is(true));
+        return;
+      }
+    }
+    throw new AssertionError("node was not expired");
+  }
+
+  @Test
+  public void descheduledNodesAreNotExpired() {
+    Node first = scheduled(start + 2 * SECOND);
+    Node second = scheduled(start + 2 * SECOND);
+    wheel.deschedule(first);
+
+    assertThat(wheel.advance(start + 3 * SECOND), containsInAnyOrder(second));
+  }
+
+  @Test
+  public void multipleNodesOfTheSameBucket() {
+    List<Node> nodes = Arrays.asList(scheduled(start + 2 * HOUR), scheduled(start + 2 * HOUR + 1), scheduled(start + 2 * HOUR + 2));
+
+    assertThat(wheel.advance(start + 3 * HOUR), containsInAnyOrder(nodes.toArray()));
+  }
+
+  private Node scheduled(long expiresAt) {
+    Node node = new Node("::key::", "::value::", expiresAt, 1);
+    wheel.schedule(node);
+    return node;
+  }
+}
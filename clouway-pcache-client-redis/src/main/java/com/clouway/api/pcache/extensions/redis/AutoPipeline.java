@@ -0,0 +1,156 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.CacheException;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.commands.PipelineBinaryCommands;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * AutoPipeline is collecting the commands that are submitted concurrently by different threads and is sending them to
+ * Redis as a single pipeline, so N concurrent commands are costing a single round trip instead of N.
+ * <p/>
+ * A single sender thread is writing the batches, so commands are executed in the order of their submission. While a
+ * batch is in flight the new commands are queued and are sent together with the next batch.
+ * <p/>
+ * Closing of the pipeline is stopping the sender thread after the batch in flight, failing the commands which were not
+ * sent and closing the connections of the topology.
+ */
+class AutoPipeline implements Closeable {
+  private static final long CLOSE_TIMEOUT_MILLS = 5000;
+
+
+  private static class Command<R, T> {
+    private final Function<PipelineBinaryCommands, Response<R>> request;
+    private final Function<R, T> mapper;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private Response<R> response;
+
+    Command(Function<PipelineBinaryCommands, Response<R>> request, Function<R, T> mapper) {
+      this.request = request;
+      this.mapper = mapper;
+    }
+
+    void enqueue(PipelineBinaryCommands commands) {
+      response = request.apply(commands);
+    }
+
+    void complete() {
+      try {
+        future.complete(mapper.apply(response.get()));
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+      }
+    }
+
+    void fail(Throwable e) {
+      future.completeExceptionally(e);
+    }
+  }
+
+  private final RedisTopology topology;
+  private final int maxBatchSize;
+  private final BlockingQueue<Command<?, ?>> queue = new LinkedBlockingQueue<>();
+  private final Thread sender;
+  private volatile boolean closed;
+
+  AutoPipeline(RedisTopology topology, int maxBatchSize) {
+    this.topology = topology;
+    this.maxBatchSize = maxBatchSize;
+
+    this.sender = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        send();
+      }
+    }, "pcache-pipeline");
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  /**
+   * Submits a command for execution with the next batch.
+   *
+   * @param request the request that is queuing the command in the pipeline
+   * @param mapper  the mapper of the response to the result
+   * @return future of the result
+   */
+  <R, T> CompletableFuture<T> submit(Function<PipelineBinaryCommands, Response<R>> request, Function<R, T> mapper) {
+    Command<R, T> command = new Command<>(request, mapper);
+    if (closed) {
+      command.fail(new CacheException("The pipeline was closed."));
+      return command.future;
+    }
+
+    queue.add(command);
+    // the pipeline was closed after the check, so the command might be never sent
+    if (closed && queue.remove(command)) {
+      command.fail(new CacheException("The pipeline was closed."));
+    }
+    return command.future;
+  }
+
+  /**
+   * Groups the indexes of the keys which could be read by a single command of the pipeline.
+   */
+  List<List<Integer>> readGroups(List<byte[]> keys) {
+    return topology.readGroups(keys);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    sender.interrupt();
+    try {
+      sender.join(CLOSE_TIMEOUT_MILLS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    List<Command<?, ?>> pending = new ArrayList<>();
+    queue.drainTo(pending);
+    for (Command<?, ?> command : pending) {
+      command.fail(new CacheException("The pipeline was closed."));
+    }
+    topology.close();
+  }
+
+  private void send() {
+    List<Command<?, ?>> batch = new ArrayList<>(maxBatchSize);
+
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        batch.add(queue.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      queue.drainTo(batch, maxBatchSize - 1);
+
+      execute(batch);
+      batch.clear();
+    }
+  }
+
+  private void execute(List<Command<?, ?>> batch) {
+    try (RedisTopology.Batch pipeline = topology.batch()) {
+      for (Command<?, ?> command : batch) {
+        command.enqueue(pipeline.commands());
+      }
+    } catch (RuntimeException e) {
+      for (Command<?, ?> command : batch) {
+        command.fail(e);
+      }
+      return;
+    }
+
+    for (Command<?, ?> command : batch) {
+      command.complete();
+    }
+  }
+}
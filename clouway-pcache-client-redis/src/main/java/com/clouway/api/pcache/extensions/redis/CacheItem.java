@@ -1,5 +1,7 @@
 package com.clouway.api.pcache.extensions.redis;
 
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.ValueFormat.ValueAndFlags;
 import com.clouway.api.pcache.extensions.redis.RedisFormat.Flag;
 
 import java.io.ByteArrayInputStream;
@@ -15,10 +17,27 @@ import java.io.Serializable;
  * value.
  * <p/>
  * Flags are used for de-serialization and are providing good benefits.
+ * <p/>
+ * Values are no longer stored as items, but the items that are still in Redis are read by the {@link #FORMAT}.
  *
  * @author Miroslav Genov (miroslav.genov@clouway.com)
  */
 class CacheItem implements Serializable {
+
+  /**
+   * The legacy format of the {@link ItemSerializer}, which is reading the values that were stored as items.
+   */
+  static final ItemSerializer.LegacyFormat FORMAT = new ItemSerializer.LegacyFormat() {
+    @Override
+    public ValueAndFlags parse(byte[] raw) {
+      CacheItem item = parseFrom(raw);
+      if (item == null || item.getFlags() == null) {
+        return null;
+      }
+      return new ValueAndFlags(item.getValue(), item.getFlags().toValueFlag());
+    }
+  };
+
   private byte[] value;
   private Flag flags;
 
@@ -45,6 +64,10 @@ class CacheItem implements Serializable {
     this.flags = flags;
   }
 
+  CacheItem(ValueAndFlags valueAndFlags) {
+    this(valueAndFlags.value, Flag.of(valueAndFlags.flags));
+  }
+
   byte[] getValue() {
     return value;
   }
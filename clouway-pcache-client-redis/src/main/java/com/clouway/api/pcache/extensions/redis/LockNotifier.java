@@ -0,0 +1,136 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import redis.clients.jedis.UnifiedJedis;
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * LockNotifier is delivering the release notifications of the locks, which are published through Redis Pub/Sub, to
+ * the threads that are waiting for them in this JVM.
+ * <p/>
+ * Notifications could be lost while the subscription is being re-established, so waiters are woken up when the
+ * subscription is (re)established and should always wait with a timeout. Closing of the notifier is stopping the
+ * subscription and is waking up all waiters.
+ */
+class LockNotifier implements Closeable {
+  static final String CHANNEL_PREFIX = "pcache:lock:";
+
+  /**
+   * Subscription is representing a thread that is waiting for the release of a lock.
+   */
+  class Subscription implements Closeable {
+    private final String key;
+    private final Waiters waiters;
+    private long generation;
+
+    private Subscription(String key, Waiters waiters) {
+      this.key = key;
+      this.waiters = waiters;
+      synchronized (waiters) {
+        this.generation = waiters.generation;
+      }
+    }
+
+    /**
+     * Waits for a release of the lock since the subscription or the previous wait.
+     *
+     * @param mills the maximum time to wait in mills
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    void await(long mills) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + mills;
+      synchronized (waiters) {
+        long remaining = mills;
+        while (waiters.generation == generation && remaining > 0) {
+          waiters.wait(remaining);
+          remaining = deadline - System.currentTimeMillis();
+        }
+        generation = waiters.generation;
+      }
+    }
+
+    @Override
+    public void close() {
+      LockNotifier.this.waiters.computeIfPresent(key, new BiFunction<String, Waiters, Waiters>() {
+        @Override
+        public Waiters apply(String key, Waiters waiters) {
+          return --waiters.count == 0 ? null : waiters;
+        }
+      });
+    }
+  }
+
+  private static class Waiters {
+    private int count;
+    private long generation;
+  }
+
+  private final ConcurrentMap<String, Waiters> waiters = new ConcurrentHashMap<String, Waiters>();
+  private final PatternSubscriber subscriber;
+
+  LockNotifier(UnifiedJedis jedis) {
+    this.subscriber = new PatternSubscriber(jedis, CHANNEL_PREFIX + "*", new PatternSubscriber.Handler() {
+      @Override
+      public void onSubscribed() {
+        for (Waiters each : waiters.values()) {
+          wakeUp(each);
+        }
+      }
+
+      @Override
+      public void onMessage(String channel, String message) {
+        Waiters released = waiters.get(channel.substring(CHANNEL_PREFIX.length()));
+        if (released != null) {
+          wakeUp(released);
+        }
+      }
+    });
+  }
+
+  /**
+   * Subscribes for the releases of the lock of the provided key.
+   *
+   * @param key the key of the lock
+   * @return the subscription which should be closed when the thread is no longer waiting
+   */
+  Subscription subscribe(String key) {
+    subscriber.start();
+
+    Waiters keyWaiters = waiters.compute(key, new BiFunction<String, Waiters, Waiters>() {
+      @Override
+      public Waiters apply(String key, Waiters waiters) {
+        if (waiters == null) {
+          waiters = new Waiters();
+        }
+        waiters.count++;
+        return waiters;
+      }
+    });
+    return new Subscription(key, keyWaiters);
+  }
+
+  @Override
+  public void close() {
+    subscriber.close();
+    for (Waiters each : waiters.values()) {
+      wakeUp(each);
+    }
+  }
+
+  /**
+   * Gets the channel on which the releases of the lock of the provided key are published.
+   */
+  static String channelOf(String key) {
+    return CHANNEL_PREFIX + key;
+  }
+
+  private static void wakeUp(Waiters waiters) {
+    synchronized (waiters) {
+      waiters.generation++;
+      waiters.notifyAll();
+    }
+  }
+}
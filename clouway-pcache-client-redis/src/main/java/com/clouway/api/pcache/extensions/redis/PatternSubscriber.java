@@ -0,0 +1,114 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.io.Closeable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * PatternSubscriber is keeping a pattern subscription to Redis in a background thread and is re-subscribing when the
+ * connection is lost.
+ * <p/>
+ * Messages that are published while the subscription is lost are not delivered, so handlers are notified through
+ * {@link Handler#onSubscribed()} every time the subscription is (re)established.
+ * <p/>
+ * Closing of the subscriber is ending the subscription, so it's connection is returned to the pool, and is stopping
+ * the background thread. Closed subscriber could not be started again.
+ */
+class PatternSubscriber implements Closeable {
+  private static final long RECONNECT_DELAY_MILLS = 1000;
+
+  interface Handler {
+
+    void onSubscribed();
+
+    void onMessage(String channel, String message);
+  }
+
+  private final Logger log = Logger.getLogger(PatternSubscriber.class.getName());
+  private final UnifiedJedis jedis;
+  private final String pattern;
+  private final Handler handler;
+  private final JedisPubSub pubSub;
+  private Thread thread;
+  private volatile boolean closed;
+
+  PatternSubscriber(UnifiedJedis jedis, String pattern, Handler handler) {
+    this.jedis = jedis;
+    this.pattern = pattern;
+    this.handler = handler;
+    this.pubSub = new JedisPubSub() {
+      @Override
+      public void onPSubscribe(String pattern, int subscribedChannels) {
+        if (closed) {
+          punsubscribe();
+          return;
+        }
+        PatternSubscriber.this.handler.onSubscribed();
+      }
+
+      @Override
+      public void onPMessage(String pattern, String channel, String message) {
+        PatternSubscriber.this.handler.onMessage(channel, message);
+      }
+    };
+  }
+
+  synchronized void start() {
+    if (thread != null || closed) {
+      return;
+    }
+
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        subscribe();
+      }
+    }, "pcache-subscriber-" + pattern);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (thread == null) {
+      return;
+    }
+
+    try {
+      if (pubSub.isSubscribed()) {
+        pubSub.punsubscribe();
+      }
+    } catch (JedisException e) {
+      log.log(Level.FINE, "Subscription for " + pattern + " was already lost.", e);
+    }
+    thread.interrupt();
+  }
+
+  private void subscribe() {
+    while (!closed) {
+      try {
+        jedis.psubscribe(pubSub, pattern);
+      } catch (JedisException e) {
+        if (closed) {
+          return;
+        }
+        log.log(Level.WARNING, "Subscription for " + pattern + " was lost, will retry.", e);
+      }
+
+      if (closed) {
+        return;
+      }
+
+      try {
+        Thread.sleep(RECONNECT_DELAY_MILLS);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+}
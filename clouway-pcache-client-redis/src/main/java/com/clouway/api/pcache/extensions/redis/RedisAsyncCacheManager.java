@@ -0,0 +1,142 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.AsyncCacheManager;
+import com.clouway.api.pcache.CacheException;
+import com.clouway.api.pcache.CloseableAsyncCacheManager;
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.KeyEncoder;
+import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.NamespaceProvider;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * RedisAsyncCacheManager is an {@link AsyncCacheManager} which is sending the concurrently issued operations to
+ * Redis through an {@link AutoPipeline}. Closing of the cache manager is closing it's pipeline.
+ * <p/>
+ * Keys of a bulk lookup are read with a single <code>MGET</code>, or with a single <code>MGET</code> per hash slot
+ * when Redis Cluster is used. Keys of a failed <code>MGET</code> are reported as missed, without affecting the keys
+ * that were read by the others.
+ */
+class RedisAsyncCacheManager implements CloseableAsyncCacheManager {
+  private static final int DEFAULT_TIMEOUT_SECONDS = 3000;
+
+  private final AutoPipeline pipeline;
+  private final NamespaceProvider namespaceProvider;
+  private final ItemSerializer serializer;
+  private final KeyEncoder keyEncoder;
+
+  RedisAsyncCacheManager(AutoPipeline pipeline, NamespaceProvider namespaceProvider, ItemSerializer serializer) {
+    this(pipeline, namespaceProvider, serializer, KeyEncoder.create());
+  }
+
+  RedisAsyncCacheManager(AutoPipeline pipeline, NamespaceProvider namespaceProvider, ItemSerializer serializer, KeyEncoder keyEncoder) {
+    this.pipeline = pipeline;
+    this.namespaceProvider = namespaceProvider;
+    this.serializer = serializer;
+    this.keyEncoder = keyEncoder;
+  }
+
+  @Override
+  public CompletableFuture<Void> put(String key, Object value, Integer cacheTimeSeconds) {
+    return put(key, value, cacheTimeSeconds * 1000L);
+  }
+
+  @Override
+  public CompletableFuture<Void> put(String key, Object value, Long mills) {
+    final byte[] persistentKey = keyOf(key);
+    final byte[] item;
+    try {
+      item = serializer.encode(value);
+    } catch (IllegalArgumentException ex) {
+      CompletableFuture<Void> failure = new CompletableFuture<>();
+      failure.completeExceptionally(new CacheException("The received value cannot be serialized."));
+      return failure;
+    }
+
+    return pipeline.submit(commands -> commands.psetex(persistentKey, mills, item), reply -> null);
+  }
+
+  @Override
+  public CompletableFuture<Void> put(String key, Object value) {
+    return put(key, value, DEFAULT_TIMEOUT_SECONDS);
+  }
+
+  @Override
+  public CompletableFuture<Object> get(String key) {
+    final byte[] persistentKey = keyOf(key);
+    return pipeline.submit(commands -> commands.get(persistentKey), serializer::decode);
+  }
+
+  @Override
+  public <V> CompletableFuture<MatchResult<V>> getAll(String prefix, final List<String> keys, final Class<V> clazz) {
+    if (keys.isEmpty()) {
+      return CompletableFuture.completedFuture(new MatchResult<V>(new ArrayList<V>(), new ArrayList<String>()));
+    }
+
+    List<byte[]> persistentKeys = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      persistentKeys.add(keyOf(prefix + key));
+    }
+
+    // written by the sender of the pipeline before it completes the reads
+    final Object[] values = new Object[keys.size()];
+    List<CompletableFuture<Void>> reads = new ArrayList<>();
+    for (final List<Integer> group : pipeline.readGroups(persistentKeys)) {
+      final byte[][] groupKeys = new byte[group.size()][];
+      for (int i = 0; i < group.size(); i++) {
+        groupKeys[i] = persistentKeys.get(group.get(i));
+      }
+
+      reads.add(pipeline.submit(commands -> commands.mget(groupKeys), (List<byte[]> replies) -> {
+        for (int i = 0; i < group.size(); i++) {
+          values[group.get(i)] = serializer.decode(replies.get(i));
+        }
+        return (Void) null;
+      }).exceptionally(error -> null));
+    }
+
+    return CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0])).thenApply(ignore -> {
+      List<V> hits = new LinkedList<>();
+      List<String> missed = new LinkedList<>();
+      for (int i = 0; i < keys.size(); i++) {
+        Object value = values[i];
+        if (clazz.isInstance(value)) {
+          hits.add(clazz.cast(value));
+        } else {
+          missed.add(keys.get(i));
+        }
+      }
+      return new MatchResult<V>(new ArrayList<V>(hits), missed);
+    });
+  }
+
+  @Override
+  public <V> CompletableFuture<MatchResult<V>> getAll(List<String> keys, Class<V> clazz) {
+    return getAll("", keys, clazz);
+  }
+
+  @Override
+  public CompletableFuture<Void> remove(String key) {
+    final byte[] persistentKey = keyOf(key);
+    return pipeline.submit(commands -> commands.del(persistentKey), reply -> null);
+  }
+
+  @Override
+  public CompletableFuture<Long> increment(Object o, Long l) {
+    final byte[] persistentKey = keyOf(o.toString());
+    return pipeline.submit(commands -> commands.incrBy(persistentKey, l), reply -> reply);
+  }
+
+  @Override
+  public void close() {
+    pipeline.close();
+  }
+
+  private byte[] keyOf(String key) {
+    return keyEncoder.encode(namespaceProvider.get(), key);
+  }
+}
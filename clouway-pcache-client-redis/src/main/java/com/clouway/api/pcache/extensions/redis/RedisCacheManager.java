@@ -2,14 +2,27 @@ package com.clouway.api.pcache.extensions.redis;
 
 import com.clouway.api.pcache.CacheException;
 import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CacheRegion;
+import com.clouway.api.pcache.CacheRegions;
+import com.clouway.api.pcache.EncodedSizes;
+import com.clouway.api.pcache.FencedLock;
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.KeyEncoder;
+import com.clouway.api.pcache.LockLease;
 import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.NamespaceFlush;
+import com.clouway.api.pcache.NamespaceGenerations;
 import com.clouway.api.pcache.NamespaceProvider;
 import com.clouway.api.pcache.SafeValue;
-import com.clouway.api.pcache.extensions.redis.RedisFormat.ValueAndFlags;
+import com.clouway.api.pcache.TaggedCache;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.UnifiedJedis;
 import redis.clients.jedis.args.FlushMode;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
 import redis.clients.jedis.resps.LibraryInfo;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -19,26 +32,154 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.UUID;
 
 /**
+ * RedisCacheManager is a {@link CacheManager} which is using Redis.
+ * <p/>
+ * Locks are acquired with a single <code>SET NX PX</code> of an owner token, together with an increment of the fencing
+ * counter of the key, and are released only when they are still owned by the releasing lease.
+ * <p/>
+ * Regions are kept in Redis hashes.
+ * <p/>
+ * The keys of the tagged values are kept in a Redis set per tag. Invalidation of a tag is popping the keys from the set
+ * in batches and is unlinking them, so it's cost is proportional to the number of the tagged keys.
+ * <p/>
+ * Flushing is removing only the keys of the current namespace, which are scanned on each master node and are unlinked
+ * in batches. When namespaces are versioned by {@link NamespaceGenerations}, flushing is incrementing the generation of
+ * the namespace instead, and the keys of the previous generations are left to expire.
+ *
  * @author Miroslav Genov (miroslav.genov@clouway.com)
  */
-class RedisCacheManager implements CacheManager {
+class RedisCacheManager implements CacheManager, CacheRegions, FencedLock, NamespaceFlush, TaggedCache {
   private static final int DEFAULT_TIMEOUT_SECONDS = 3000;
+
+  /**
+   * Replaces the entry if it's stamp was not changed. Missing entries are put, but the update is reported as failed.
+   */
+  private static final byte[] STAMP_CAS_SCRIPT = (
+          "local current = redis.call('GET', KEYS[1]) " +
+          "if not current then " +
+          "  redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) " +
+          "  return 2 " +
+          "end " +
+          "if string.byte(current, 1) == " + (ItemSerializer.MAGIC & 0xFF) + " " +
+          "   and string.byte(current, 2) == " + ItemSerializer.VERSION + " " +
+          "   and string.sub(current, " + (ItemSerializer.STAMP_OFFSET + 1) + ", " + (ItemSerializer.STAMP_OFFSET + ItemSerializer.STAMP_LENGTH) + ") == ARGV[1] then " +
+          "  redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) " +
+          "  return 0 " +
+          "end " +
+          "return 1"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * Replaces the entries that were stored without a stamp if their binary representation was not changed.
+   */
+  private static final byte[] RAW_CAS_SCRIPT = (
+          "local current = redis.call('GET', KEYS[1]) " +
+          "if not current then " +
+          "  redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) " +
+          "  return 2 " +
+          "end " +
+          "if current == ARGV[1] then " +
+          "  redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) " +
+          "  return 0 " +
+          "end " +
+          "return 1"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * Acquires the lock and increments it's fencing counter. A missing counter is initialized by the current time, so a
+   * counter that expired or was flushed is not issuing tokens that were already issued before. The expiration of the
+   * counter is renewed by each increment.
+   */
+  private static final byte[] LOCK_SCRIPT = (
+          "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then " +
+          "  redis.call('SET', KEYS[2], ARGV[3], 'NX') " +
+          "  local fence = redis.call('INCR', KEYS[2]) " +
+          "  redis.call('PEXPIRE', KEYS[2], ARGV[4]) " +
+          "  return fence " +
+          "end " +
+          "return 0"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] UNLOCK_SCRIPT = (
+          "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+          "  return redis.call('DEL', KEYS[1]) " +
+          "end " +
+          "return 0"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * Adds the key to the set of the tag and extends the expiration of the set, so the set is living as long as the
+   * longest living of it's keys.
+   */
+  private static final byte[] TAG_SCRIPT = (
+          "redis.call('SADD', KEYS[1], ARGV[1]) " +
+          "if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[2]) then " +
+          "  redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+          "end " +
+          "return 1"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * The maximum number of entries that are sent in a single pipeline by the bulk writes, so a huge bulk write cannot
+   * stall Redis for the other clients.
+   */
+  private static final int PUT_ALL_CHUNK_SIZE = 500;
+
+  /**
+   * The minimum period of time in mills for which the fencing counter of a lock is kept after it's last increment.
+   */
+  private static final long FENCE_EXPIRATION_MILLS = 7 * 24 * 60 * 60 * 1000L;
+
+  /**
+   * The number of keys that are scanned and unlinked per batch when namespace is flushed.
+   */
+  private static final int FLUSH_BATCH_SIZE = 1000;
+
+  /**
+   * The number of keys that are popped from the set of a tag and unlinked per batch when tag is invalidated.
+   */
+  private static final int INVALIDATE_BATCH_SIZE = 500;
+
+  private final RedisTopology topology;
   private final UnifiedJedis jedis;
   private final NamespaceProvider namespaceProvider;
+  private final NamespaceProvider keyNamespaceProvider;
+  private final ItemSerializer serializer;
+  private final KeyEncoder keyEncoder;
+  private final NamespaceGenerations generations;
+
+  RedisCacheManager(RedisTopology topology, NamespaceProvider namespaceProvider, ItemSerializer serializer) {
+    this(topology, namespaceProvider, serializer, KeyEncoder.create());
+  }
 
-  RedisCacheManager(UnifiedJedis pool, NamespaceProvider namespaceProvider) {
-    this.jedis = pool;
+  RedisCacheManager(RedisTopology topology, NamespaceProvider namespaceProvider, ItemSerializer serializer, KeyEncoder keyEncoder) {
+    this(topology, namespaceProvider, serializer, keyEncoder, null);
+  }
+
+  /**
+   * Creates a new cache manager which keys are versioned by the generations of their namespaces.
+   *
+   * @param generations the generations of the namespaces or null if keys should not be versioned
+   */
+  RedisCacheManager(RedisTopology topology, NamespaceProvider namespaceProvider, ItemSerializer serializer, KeyEncoder keyEncoder, NamespaceGenerations generations) {
+    this.topology = topology;
+    this.jedis = topology.client();
     this.namespaceProvider = namespaceProvider;
+    this.keyNamespaceProvider = generations == null ? namespaceProvider : generations.versioned(namespaceProvider);
+    this.serializer = serializer;
+    this.keyEncoder = keyEncoder;
+    this.generations = generations;
   }
 
   @Override
   public void put(String key, Object value, Integer cacheTimeSeconds) {
     try {
-      ValueAndFlags valueAndFlag = RedisFormat.format(value);
       byte[] persistentKey = keyOf(key);
-      byte[] item = new CacheItem(valueAndFlag.value, valueAndFlag.flags).toByteArray();
+      byte[] item = serializer.encode(value);
+      EncodedSizes.report(item.length);
       jedis.setex(persistentKey, cacheTimeSeconds, item);
     } catch (IllegalArgumentException ex) {
       throw new CacheException("The received value cannot be serialized.");
@@ -56,29 +197,106 @@ class RedisCacheManager implements CacheManager {
     put(key, value, DEFAULT_TIMEOUT_SECONDS);
   }
 
+  /**
+   * Values are written with pipelined <code>PSETEX</code>s and the replies of all of them are checked, so a failure
+   * of any write is reported, while the other values of the call could be already written.
+   *
+   * @throws IllegalArgumentException if the expiration is missing or is not positive
+   * @throws CacheException           if a value cannot be serialized or was not written
+   */
   @Override
   public void putAll(Map<String, Object> values, Long mills) {
-    List<byte[]> keyvalues = new ArrayList<>(values.size() * 2);
-    for (Entry<String, Object> entry : values.entrySet()) {
-      ValueAndFlags valueAndFlag = RedisFormat.format(entry.getValue());
-      byte[] persistentKey = keyOf(entry.getKey());
-      byte[] item = new CacheItem(valueAndFlag.value, valueAndFlag.flags).toByteArray();
-      keyvalues.add(persistentKey);
-      keyvalues.add(item);
+    if (mills == null || mills <= 0) {
+      throw new IllegalArgumentException("The expiration of the values should be positive, but was " + mills + ".");
+    }
+    if (values.isEmpty()) {
+      return;
     }
 
-    jedis.mset(keyvalues.toArray(new byte[][]{}));
+    List<byte[]> keys = new ArrayList<>(values.size());
+    List<byte[]> items = new ArrayList<>(values.size());
+    try {
+      for (Entry<String, Object> entry : values.entrySet()) {
+        keys.add(keyOf(entry.getKey()));
+        byte[] item = serializer.encode(entry.getValue());
+        EncodedSizes.report(item.length);
+        items.add(item);
+      }
+    } catch (IllegalArgumentException ex) {
+      throw new CacheException("The received value cannot be serialized.");
+    }
 
+    for (int from = 0; from < keys.size(); from += PUT_ALL_CHUNK_SIZE) {
+      int to = Math.min(from + PUT_ALL_CHUNK_SIZE, keys.size());
+
+      List<Response<String>> replies = new ArrayList<>(to - from);
+      try (RedisTopology.Batch batch = topology.batch()) {
+        for (int i = from; i < to; i++) {
+          replies.add(batch.commands().psetex(keys.get(i), mills, items.get(i)));
+        }
+      } catch (JedisException e) {
+        throw new CacheException("The values were not written.", e);
+      }
+
+      for (Response<String> reply : replies) {
+        try {
+          reply.get();
+        } catch (JedisDataException e) {
+          throw new CacheException("The values were not written.", e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void putTagged(String key, Object value, Long mills, Set<String> tags) {
+    byte[] persistentKey = keyOf(key);
+    byte[] item;
+    try {
+      item = serializer.encode(value);
+    } catch (IllegalArgumentException ex) {
+      throw new CacheException("The received value cannot be serialized.");
+    }
+    List<byte[]> args = Arrays.asList(persistentKey, String.valueOf(mills).getBytes(StandardCharsets.UTF_8));
+
+    try (RedisTopology.Batch batch = topology.batch()) {
+      batch.commands().psetex(persistentKey, mills, item);
+      for (String tag : tags) {
+        batch.commands().eval(TAG_SCRIPT, Collections.singletonList(tagKeyOf(tag)), args);
+      }
+    }
+  }
+
+  /**
+   * Keys are popped from the set of the tag, so keys which are tagged while the tag is invalidated are either
+   * invalidated too or are staying in the set for the next invalidation.
+   */
+  @Override
+  public void invalidateTag(String tag) {
+    byte[] tagKey = tagKeyOf(tag);
+
+    Set<byte[]> keys;
+    do {
+      keys = jedis.spop(tagKey, INVALIDATE_BATCH_SIZE);
+      if (keys == null || keys.isEmpty()) {
+        return;
+      }
+
+      try (RedisTopology.Batch batch = topology.batch()) {
+        for (byte[] key : keys) {
+          batch.commands().unlink(key);
+        }
+      }
+    } while (keys.size() == INVALIDATE_BATCH_SIZE);
   }
 
   @Override
   public Object get(String key) {
-    byte[] value = jedis.get(keyOf(key));
-    if (value == null) {
-      return null;
+    byte[] item = jedis.get(keyOf(key));
+    if (item != null) {
+      EncodedSizes.report(item.length);
     }
-    CacheItem item = CacheItem.parseFrom(value);
-    return RedisFormat.parse(item.getValue(), item.getFlags());
+    return serializer.decode(item);
   }
 
   @Override
@@ -88,24 +306,13 @@ class RedisCacheManager implements CacheManager {
 
     try {
       List<byte[]> prefixedKeys = withPrefix(prefix, keys);
-      List<byte[]> rawHits = jedis.mget(prefixedKeys.toArray(new byte[0][]));
+      List<byte[]> rawHits = topology.getAll(prefixedKeys);
 
       for (int i = 0; i < rawHits.size(); i++) {
-        if (rawHits.get(i) == null) {
-          missed.add(keys.get(i));
-          continue;
-        }
-
-        byte[] itemValue = rawHits.get(i);
-        CacheItem item = CacheItem.parseFrom(itemValue);
-
-        if (item.getValue() == null) {
-          missed.add(keys.get(i));
-          continue;
-        }
-        Object value = RedisFormat.parse(item.getValue(), item.getFlags());
+        Object value = serializer.decode(rawHits.get(i));
 
         if (clazz.isInstance(value)) {
+          EncodedSizes.report(rawHits.get(i).length);
           hits.add((V) value);
         } else {
           missed.add(keys.get(i));
@@ -141,79 +348,101 @@ class RedisCacheManager implements CacheManager {
     }
 
     RedisSafeValue safeValue = (RedisSafeValue) sv;
-
-    ValueAndFlags valueAndFlags = RedisFormat.format(value);
-
     byte[] formattedKey = keyOf(key.toString());
-    byte[] targetValue = jedis.get(formattedKey);
-
-    CacheItem newItem = new CacheItem(valueAndFlags.value, valueAndFlags.flags);
-
-    if (targetValue == null) {
-      jedis.setex(formattedKey, expiration, newItem.toByteArray());
-      return false;
+    byte[] expirationMills = String.valueOf(expiration * 1000L).getBytes(StandardCharsets.UTF_8);
+
+    Long retVal;
+    byte[] item;
+    if (safeValue.getCount() == null) {
+      item = serializer.encode(value);
+      retVal = (Long) jedis.eval(
+              RAW_CAS_SCRIPT,
+              Collections.singletonList(formattedKey),
+              Arrays.asList(safeValue.getRaw(), item, expirationMills)
+      );
+    } else {
+      byte[] stamp = ByteBuffer.allocate(ItemSerializer.STAMP_LENGTH).putLong(safeValue.getCount()).array();
+      item = serializer.encode(value, safeValue.getCount() + 1);
+      retVal = (Long) jedis.eval(
+              STAMP_CAS_SCRIPT,
+              Collections.singletonList(formattedKey),
+              Arrays.asList(stamp, item, expirationMills)
+      );
     }
+    EncodedSizes.report(item.length);
 
-    ValueAndFlags oldValue = RedisFormat.format(safeValue.getValue());
-    CacheItem existingItem = new CacheItem(oldValue.value, oldValue.flags);
-    
-    String luaScriptCAS = "if redis.call('GET', KEYS[1]) == ARGV[1] then redis.call('SET', KEYS[1], ARGV[2]); return 0; end; return 1";
-    Long retVal = (Long) jedis.eval(
-            luaScriptCAS.getBytes(StandardCharsets.UTF_8),
-            Collections.singletonList(formattedKey),
-            Arrays.asList(existingItem.toByteArray(), newItem.toByteArray())
-    );
-    
     return retVal == 0;
-
   }
 
   @Override
   public boolean lock(String key) {
-    SafeValue safeValue = getSafeValue(key);
-
-    if (safeValue == null) {
-      put(key, 1);// value does not matter here
-      safeValue = getSafeValue(key);
-
-      return safePut(key, safeValue, 2);// value does not matter here
-    }
-
-    return false;
+    return lock(key, DEFAULT_TIMEOUT_SECONDS);
   }
 
   @Override
   public boolean lock(String key, int expiration) {
-    SafeValue safeValue = getSafeValue(key);
+    return tryLock(key, expiration * 1000L) != null;
+  }
 
-    if (safeValue == null) {
-      put(key, 1, expiration);// value does not matter here
-      safeValue = getSafeValue(key);
+  @Override
+  public CacheRegion region(String name, long mills) {
+    return new RedisCacheRegion(jedis, keyNamespaceProvider, keyEncoder, serializer, name, mills);
+  }
 
-      return safePut(key, safeValue, 2, expiration);// value does not matter here
-    }
+  @Override
+  public LockLease tryLock(String key, long leaseMills) {
+    String token = UUID.randomUUID().toString();
+    byte[] lockKey = keyOf(key);
+
+    Long fence = (Long) jedis.eval(
+            LOCK_SCRIPT,
+            Arrays.asList(lockKey, fenceKeyOf(key)),
+            Arrays.asList(
+                    tokenOf(token),
+                    String.valueOf(leaseMills).getBytes(StandardCharsets.UTF_8),
+                    String.valueOf(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8),
+                    String.valueOf(Math.max(leaseMills, FENCE_EXPIRATION_MILLS)).getBytes(StandardCharsets.UTF_8)
+            )
+    );
 
-    return false;
+    if (fence == null || fence == 0) {
+      return null;
+    }
+    return new LockLease(key, token, fence);
+  }
 
+  @Override
+  public boolean unlock(LockLease lease) {
+    Long released = (Long) jedis.eval(
+            UNLOCK_SCRIPT,
+            Collections.singletonList(keyOf(lease.getKey())),
+            Collections.singletonList(tokenOf(lease.getToken()))
+    );
+    return released != null && released == 1;
+  }
+  /**
+   * Tokens are encoded with a fixed stamp, so the stored token could be compared with the token of the lease.
+   */
+  private byte[] tokenOf(String token) {
+    return serializer.encode(token, 0L);
   }
 
+
   @Override
   public SafeValue getSafeValue(Object key) {
     byte[] safeKey = keyOf(key.toString());
 
 
-    byte[] value = jedis.get(safeKey);
-    if (value == null) {
+    byte[] raw = jedis.get(safeKey);
+    ItemSerializer.Entry entry = serializer.decodeEntry(raw);
+    if (entry == null) {
       return null;
     }
 
-    CacheItem item = CacheItem.parseFrom(value);
-    if (item != null && item.getValue() == null) {
-      return null;
+    if (entry.stamp == null) {
+      return new RedisSafeValue(entry.value, null, raw);
     }
-
-    Object itemValue = RedisFormat.parse(item.getValue(), item.getFlags());
-    return new RedisSafeValue(itemValue, 0L);
+    return new RedisSafeValue(entry.value, entry.stamp);
 
   }
 
@@ -229,14 +458,67 @@ class RedisCacheManager implements CacheManager {
 
   @Override
   public void flushCache() {
-    Set<String> keys = jedis.keys("*");
-    for (String key : keys) {
-      jedis.del(key);
+    if (generations != null) {
+      generations.increment(namespaceProvider.get());
+      return;
+    }
+
+    flushNamespace(new Progress() {
+      @Override
+      public void onBatch(int removed, long total) {
+      }
+    });
+  }
+
+  @Override
+  public long flushNamespace(Progress progress) {
+    // keys of all generations of the namespace are removed
+    String pattern = escape(namespaceProvider.get()) + (generations == null ? ":*" : "@*");
+    return topology.unlink(pattern.getBytes(StandardCharsets.UTF_8), FLUSH_BATCH_SIZE, progress);
+  }
+
+  /**
+   * Escapes the special characters of the glob-style patterns, so namespace is matched literally.
+   */
+  private static String escape(String value) {
+    StringBuilder escaped = new StringBuilder(value.length());
+    for (char c : value.toCharArray()) {
+      if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+        escaped.append('\\');
+      }
+      escaped.append(c);
     }
+    return escaped.toString();
   }
 
   private byte[] keyOf(String key) {
-    return String.format("%s:%s", namespaceProvider.get(), key).getBytes(StandardCharsets.UTF_8);
+    return keyEncoder.encode(keyNamespaceProvider.get(), key);
+  }
+
+  private byte[] tagKeyOf(String tag) {
+    return keyOf("tag:" + tag);
+  }
+
+  /**
+   * Gets the key of the fencing counter of a lock, which is in the namespace of the lock, so it's removed by the flush
+   * of the namespace.
+   * <p/>
+   * The counter is keyed by the unversioned namespace, so it's kept when the generation of the namespace is
+   * incremented. Otherwise, the key of the lock is used as hash tag of the counter, so both keys are in the same hash
+   * slot and could be updated by a single script in Redis Cluster. Versioned cache managers are using a single Redis
+   * server, so their lock and counter could be in different slots.
+   */
+  private byte[] fenceKeyOf(String key) {
+    String namespace = namespaceProvider.get();
+    String lockKey = new String(keyEncoder.encode(namespace, key), StandardCharsets.UTF_8);
+
+    int start = lockKey.indexOf('{');
+    int end = start < 0 ? -1 : lockKey.indexOf('}', start + 1);
+    if (end > start + 1) {
+      // the hash tag of the lock key is kept as the first one of the counter
+      return keyEncoder.encode(namespace, "fence:" + lockKey);
+    }
+    return keyEncoder.encode(namespace, "fence:{" + lockKey + "}");
   }
 
   private List<byte[]> withPrefix(String prefix, List<String> list) {
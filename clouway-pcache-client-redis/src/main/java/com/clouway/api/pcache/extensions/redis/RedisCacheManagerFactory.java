@@ -1,17 +1,30 @@
 package com.clouway.api.pcache.extensions.redis;
 
+import com.clouway.api.pcache.AsyncCacheManager;
 import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CloseableAsyncCacheManager;
+import com.clouway.api.pcache.CloseableLock;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.KeyEncoder;
+import com.clouway.api.pcache.KeyLock;
+import com.clouway.api.pcache.Lock;
+import com.clouway.api.pcache.NamespaceGenerations;
 import com.clouway.api.pcache.NamespaceProvider;
+import com.clouway.api.pcache.NearCacheManager;
 import redis.clients.jedis.HostAndPort;
-import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.JedisPoolConfig;
-import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Protocol;
 
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * RedisCacheManagerFactory is a CacheManagerFactory.
+ * <p/>
+ * The cache managers created by the <code>create</code> methods are also implementing
+ * {@link com.clouway.api.pcache.FencedLock}.
  *
  * @author Miroslav Genov (miroslav.genov@clouway.com)
  */
@@ -27,6 +40,11 @@ public final class RedisCacheManagerFactory {
     }
   };
 
+  /**
+   * The maximum number of commands that are sent in a single pipeline.
+   */
+  private static final int PIPELINE_BATCH_SIZE = 512;
+
   /**
    * Creates a new instance of {@link CacheManager} that uses Redis.
    *
@@ -43,20 +61,34 @@ public final class RedisCacheManagerFactory {
    * @return the newly created cache manager
    */
   public static CacheManager create(NamespaceProvider namespaceProvider, String[] hosts) {
-    Set<HostAndPort> jedisClusterNodes = new HashSet<HostAndPort>();
-    for (String hostValue : hosts) {
-      int port = 6379;
-      String host = hostValue;
-      if (host.contains(":")) {
-        String[] parts = host.split(":");
-        host = parts[0];
-        port = Integer.parseInt(parts[1]);
-      }
-      jedisClusterNodes.add(new HostAndPort(host, port));
-    }
+    return create(namespaceProvider, new CodecRegistry(), hosts);
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that uses Redis Cluster and encodes the values of the registered
+   * types with their codecs.
+   *
+   * @param namespaceProvider the namespace provider
+   * @param codecs            the codecs of the values
+   * @param hosts             the hosts of the cluster nodes
+   * @return the newly created cache manager
+   */
+  public static CacheManager create(NamespaceProvider namespaceProvider, CodecRegistry codecs, String[] hosts) {
+    return create(namespaceProvider, codecs, Compression.disabled(), hosts);
+  }
 
-    JedisCluster jedis = new JedisCluster(jedisClusterNodes);
-    return new RedisCacheManager(jedis, namespaceProvider);
+  /**
+   * Creates a new instance of {@link CacheManager} that uses Redis Cluster, encodes the values of the registered types
+   * with their codecs and compresses the large values.
+   *
+   * @param namespaceProvider the namespace provider
+   * @param codecs            the codecs of the values
+   * @param compression       the compression of the values
+   * @param hosts             the hosts of the cluster nodes
+   * @return the newly created cache manager
+   */
+  public static CacheManager create(NamespaceProvider namespaceProvider, CodecRegistry codecs, Compression compression, String[] hosts) {
+    return new RedisCacheManager(cluster(hosts), namespaceProvider, serializer(codecs, compression));
   }
 
   /**
@@ -78,13 +110,243 @@ public final class RedisCacheManagerFactory {
    * @return the newly created cache manager
    */
   public static CacheManager create(String redisHost, NamespaceProvider namespaceProvider) {
-    JedisPooled pool;
+    return create(redisHost, namespaceProvider, new CodecRegistry());
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that uses Redis and encodes the values of the registered types with
+   * their codecs.
+   *
+   * @param redisHost         the host of the Redis server
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param codecs            the codecs of the values
+   * @return the newly created cache manager
+   */
+  public static CacheManager create(String redisHost, NamespaceProvider namespaceProvider, CodecRegistry codecs) {
+    return create(redisHost, namespaceProvider, codecs, Compression.disabled());
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that uses Redis, encodes the values of the registered types with
+   * their codecs and compresses the large values.
+   *
+   * @param redisHost         the host of the Redis server
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param codecs            the codecs of the values
+   * @param compression       the compression of the values
+   * @return the newly created cache manager
+   */
+  public static CacheManager create(String redisHost, NamespaceProvider namespaceProvider, CodecRegistry codecs, Compression compression) {
+    return new RedisCacheManager(standalone(redisHost), namespaceProvider, serializer(codecs, compression));
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that uses Redis and keeps the hot entries in a local near cache.
+   * Local copies are invalidated through Redis Pub/Sub when entries are changed by the other nodes.
+   *
+   * @param redisHost             the host of the Redis server
+   * @param namespaceProvider     the namespace provider used for multi-tenancy
+   * @param maximumSize           the maximum number of entries that are kept locally
+   * @param expireAfterWriteMills the maximum period of time in mills for which entries are kept locally
+   * @return the newly created cache manager which should be closed to stop the subscription for invalidations
+   */
+  public static NearCacheManager createNearCached(String redisHost, NamespaceProvider namespaceProvider, int maximumSize, long expireAfterWriteMills) {
+    return createNearCached(redisHost, namespaceProvider, new CodecRegistry(), Compression.disabled(), maximumSize, expireAfterWriteMills);
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that uses Redis, keeps the hot entries in a local near cache, encodes
+   * the values of the registered types with their codecs and compresses the large values.
+   *
+   * @param redisHost             the host of the Redis server
+   * @param namespaceProvider     the namespace provider used for multi-tenancy
+   * @param codecs                the codecs of the values
+   * @param compression           the compression of the values
+   * @param maximumSize           the maximum number of entries that are kept locally
+   * @param expireAfterWriteMills the maximum period of time in mills for which entries are kept locally
+   * @return the newly created cache manager which should be closed to stop the subscription for invalidations
+   */
+  public static NearCacheManager createNearCached(String redisHost, NamespaceProvider namespaceProvider, CodecRegistry codecs, Compression compression, int maximumSize, long expireAfterWriteMills) {
+    RedisTopology topology = standalone(redisHost);
+    return new NearCacheManager(
+            new RedisCacheManager(topology, namespaceProvider, serializer(codecs, compression)),
+            namespaceProvider,
+            new RedisInvalidationChannel(topology.client()),
+            maximumSize,
+            expireAfterWriteMills
+    );
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that uses Redis and versions the keys by the generation of their
+   * namespace. Flushing of the cache is incrementing the generation of the current namespace, which is seen by the
+   * other clients after up to the refresh period.
+   *
+   * @param redisHost         the host of the Redis server
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param refreshMills      the period of time in mills for which generations are cached locally
+   * @return the newly created cache manager
+   */
+  public static CacheManager createVersioned(String redisHost, NamespaceProvider namespaceProvider, long refreshMills) {
+    return createVersioned(redisHost, namespaceProvider, new CodecRegistry(), Compression.disabled(), refreshMills);
+  }
+
+  /**
+   * Creates a new instance of {@link CacheManager} that uses Redis, versions the keys by the generation of their
+   * namespace, encodes the values of the registered types with their codecs and compresses the large values.
+   *
+   * @param redisHost         the host of the Redis server
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param codecs            the codecs of the values
+   * @param compression       the compression of the values
+   * @param refreshMills      the period of time in mills for which generations are cached locally
+   * @return the newly created cache manager
+   */
+  public static CacheManager createVersioned(String redisHost, NamespaceProvider namespaceProvider, CodecRegistry codecs, Compression compression, long refreshMills) {
+    RedisTopology topology = standalone(redisHost);
+    KeyEncoder keyEncoder = KeyEncoder.create();
+    NamespaceGenerations generations = new NamespaceGenerations(new RedisGenerationStore(topology.client(), keyEncoder), refreshMills);
+    return new RedisCacheManager(topology, namespaceProvider, serializer(codecs, compression), keyEncoder, generations);
+  }
+
+  /**
+   * Creates a new instance of {@link AsyncCacheManager} that uses Redis. Operations that are issued concurrently are
+   * sent to Redis in a single pipeline.
+   *
+   * @param redisHost the host of the Redis server
+   * @return the newly created cache manager which should be closed to stop it's sender thread and connections
+   */
+  public static CloseableAsyncCacheManager createAsync(String redisHost) {
+    return createAsync(redisHost, DEFAULT_NAMESPACE_PROVIDER);
+  }
+
+  /**
+   * Creates a new instance of {@link AsyncCacheManager} that uses Redis. Operations that are issued concurrently are
+   * sent to Redis in a single pipeline.
+   *
+   * @param redisHost         the host of the Redis server
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @return the newly created cache manager which should be closed to stop it's sender thread and connections
+   */
+  public static CloseableAsyncCacheManager createAsync(String redisHost, NamespaceProvider namespaceProvider) {
+    return createAsync(redisHost, namespaceProvider, new CodecRegistry(), Compression.disabled());
+  }
+
+  /**
+   * Creates a new instance of {@link AsyncCacheManager} that uses Redis, encodes the values of the registered types
+   * with their codecs and compresses the large values. Operations that are issued concurrently are sent to Redis in a
+   * single pipeline.
+   *
+   * @param redisHost         the host of the Redis server
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param codecs            the codecs of the values
+   * @param compression       the compression of the values
+   * @return the newly created cache manager which should be closed to stop it's sender thread and connections
+   */
+  public static CloseableAsyncCacheManager createAsync(String redisHost, NamespaceProvider namespaceProvider, CodecRegistry codecs, Compression compression) {
+    return new RedisAsyncCacheManager(new AutoPipeline(standalone(redisHost), PIPELINE_BATCH_SIZE), namespaceProvider, serializer(codecs, compression));
+  }
+
+  /**
+   * Creates a new instance of {@link AsyncCacheManager} that uses Redis Cluster. Operations that are issued
+   * concurrently are sent to the cluster nodes in a single pipeline per node.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param hosts             the hosts of the cluster nodes
+   * @return the newly created cache manager which should be closed to stop it's sender thread and connections
+   */
+  public static CloseableAsyncCacheManager createAsync(NamespaceProvider namespaceProvider, String[] hosts) {
+    return createAsync(namespaceProvider, new CodecRegistry(), Compression.disabled(), hosts);
+  }
+
+  /**
+   * Creates a new instance of {@link AsyncCacheManager} that uses Redis Cluster, encodes the values of the registered
+   * types with their codecs and compresses the large values. Operations that are issued concurrently are sent to the
+   * cluster nodes in a single pipeline per node.
+   *
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @param codecs            the codecs of the values
+   * @param compression       the compression of the values
+   * @param hosts             the hosts of the cluster nodes
+   * @return the newly created cache manager which should be closed to stop it's sender thread and connections
+   */
+  public static CloseableAsyncCacheManager createAsync(NamespaceProvider namespaceProvider, CodecRegistry codecs, Compression compression, String[] hosts) {
+    return new RedisAsyncCacheManager(new AutoPipeline(cluster(hosts), PIPELINE_BATCH_SIZE), namespaceProvider, serializer(codecs, compression));
+  }
+
+  /**
+   * Creates a new instance of {@link Lock} that uses Redis. Threads that are waiting for a lock are notified through
+   * Redis Pub/Sub when the lock is released.
+   *
+   * @param redisHost the host of the Redis server
+   * @return the newly created lock which should be closed to stop it's subscription and connections
+   */
+  public static CloseableLock createLock(String redisHost) {
+    return createLock(redisHost, DEFAULT_NAMESPACE_PROVIDER);
+  }
+
+  /**
+   * Creates a new instance of {@link Lock} that uses Redis. Threads that are waiting for a lock are notified through
+   * Redis Pub/Sub when the lock is released.
+   *
+   * @param redisHost         the host of the Redis server
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @return the newly created lock which should be closed to stop it's subscription and connections
+   */
+  public static CloseableLock createLock(String redisHost, NamespaceProvider namespaceProvider) {
+    RedisTopology topology = standalone(redisHost);
+    return new RedisLock(topology.client(), namespaceProvider, KeyEncoder.create(), new LockNotifier(topology.client()));
+  }
+
+  /**
+   * Creates a new instance of {@link KeyLock} that uses Redis.
+   *
+   * @param redisHost the host of the Redis server
+   * @return the newly created key lock
+   */
+  public static KeyLock createKeyLock(String redisHost) {
+    return createKeyLock(redisHost, DEFAULT_NAMESPACE_PROVIDER);
+  }
+
+  /**
+   * Creates a new instance of {@link KeyLock} that uses Redis.
+   *
+   * @param redisHost         the host of the Redis server
+   * @param namespaceProvider the namespace provider used for multi-tenancy
+   * @return the newly created key lock
+   */
+  public static KeyLock createKeyLock(String redisHost, NamespaceProvider namespaceProvider) {
+    return new RedisKeyLock(standalone(redisHost).client(), namespaceProvider, KeyEncoder.create());
+  }
+
+  /**
+   * Creates the serializer of the values in Redis, which is reading also the values that were stored as
+   * {@link CacheItem}s by the previous versions.
+   */
+  private static ItemSerializer serializer(CodecRegistry codecs, Compression compression) {
+    return new ItemSerializer(codecs, compression, CacheItem.FORMAT);
+  }
+
+  private static RedisTopology cluster(String[] hosts) {
+    Set<HostAndPort> jedisClusterNodes = new HashSet<HostAndPort>();
+    for (String hostValue : hosts) {
+      int port = 6379;
+      String host = hostValue;
+      if (host.contains(":")) {
+        String[] parts = host.split(":");
+        host = parts[0];
+        port = Integer.parseInt(parts[1]);
+      }
+      jedisClusterNodes.add(new HostAndPort(host, port));
+    }
+    return RedisTopology.cluster(jedisClusterNodes);
+  }
+
+  private static RedisTopology standalone(String redisHost) {
     if (redisHost.contains(":")) {
       String[] parts = redisHost.split(":");
-      pool = new JedisPooled(parts[0], Integer.parseInt(parts[1]));
-    } else {
-      pool = new JedisPooled(redisHost);
+      return RedisTopology.standalone(parts[0], Integer.parseInt(parts[1]));
     }
-    return new RedisCacheManager(pool, namespaceProvider);
+    return RedisTopology.standalone(redisHost, Protocol.DEFAULT_PORT);
   }
 }
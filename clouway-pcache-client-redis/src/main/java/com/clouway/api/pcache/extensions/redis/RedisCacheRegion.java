@@ -0,0 +1,134 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.CacheRegion;
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.KeyEncoder;
+import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.NamespaceProvider;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RedisCacheRegion is a {@link CacheRegion} which is keeping the fields of the region in a single Redis hash, so the
+ * fields are sharing the overhead and the expiration of a single key.
+ * <p/>
+ * Writes are setting the fields and renewing the expiration of the hash with a single script call. Fields are read
+ * with a single <code>HMGET</code> and the region is invalidated by a single <code>UNLINK</code> of the hash.
+ */
+class RedisCacheRegion implements CacheRegion {
+
+  /**
+   * The maximum number of fields that are set by a single script call, so the arguments of the call are not exceeding
+   * the limits of the Lua stack.
+   */
+  private static final int PUT_ALL_CHUNK_SIZE = 500;
+
+  private static final byte[] PUT_SCRIPT = (
+          "redis.call('HSET', KEYS[1], unpack(ARGV, 2)) " +
+          "redis.call('PEXPIRE', KEYS[1], ARGV[1]) " +
+          "return 1"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  private final UnifiedJedis jedis;
+  private final NamespaceProvider namespaceProvider;
+  private final KeyEncoder keyEncoder;
+  private final ItemSerializer serializer;
+  private final String name;
+  private final byte[] expirationMills;
+
+  RedisCacheRegion(UnifiedJedis jedis, NamespaceProvider namespaceProvider, KeyEncoder keyEncoder, ItemSerializer serializer, String name, long mills) {
+    this.jedis = jedis;
+    this.namespaceProvider = namespaceProvider;
+    this.keyEncoder = keyEncoder;
+    this.serializer = serializer;
+    this.name = name;
+    this.expirationMills = String.valueOf(mills).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void put(String field, Object value) {
+    List<byte[]> args = new ArrayList<byte[]>(3);
+    args.add(expirationMills);
+    args.add(fieldOf(field));
+    args.add(serializer.encode(value));
+    jedis.eval(PUT_SCRIPT, Collections.singletonList(key()), args);
+  }
+
+  @Override
+  public void putAll(Map<String, Object> values) {
+    if (values.isEmpty()) {
+      return;
+    }
+
+    List<byte[]> keys = Collections.singletonList(key());
+    Iterator<Map.Entry<String, Object>> entries = values.entrySet().iterator();
+    while (entries.hasNext()) {
+      List<byte[]> args = new ArrayList<byte[]>(1 + PUT_ALL_CHUNK_SIZE * 2);
+      args.add(expirationMills);
+      for (int i = 0; i < PUT_ALL_CHUNK_SIZE && entries.hasNext(); i++) {
+        Map.Entry<String, Object> entry = entries.next();
+        args.add(fieldOf(entry.getKey()));
+        args.add(serializer.encode(entry.getValue()));
+      }
+      jedis.eval(PUT_SCRIPT, keys, args);
+    }
+  }
+
+  @Override
+  public Object get(String field) {
+    return serializer.decode(jedis.hget(key(), fieldOf(field)));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V> MatchResult<V> getAll(List<String> fields, Class<V> clazz) {
+    List<V> hits = new LinkedList<>();
+    List<String> missed = new LinkedList<>();
+    if (fields.isEmpty()) {
+      return new MatchResult<V>(new ArrayList<V>(hits), missed);
+    }
+
+    byte[][] encodedFields = new byte[fields.size()][];
+    for (int i = 0; i < fields.size(); i++) {
+      encodedFields[i] = fieldOf(fields.get(i));
+    }
+
+    List<byte[]> values = jedis.hmget(key(), encodedFields);
+    for (int i = 0; i < fields.size(); i++) {
+      Object value = serializer.decode(values.get(i));
+
+      if (clazz.isInstance(value)) {
+        hits.add((V) value);
+      } else {
+        missed.add(fields.get(i));
+      }
+    }
+
+    return new MatchResult<V>(new ArrayList<V>(hits), missed);
+  }
+
+  @Override
+  public void remove(String field) {
+    jedis.hdel(key(), fieldOf(field));
+  }
+
+  @Override
+  public void invalidate() {
+    jedis.unlink(key());
+  }
+
+  private byte[] key() {
+    return keyEncoder.encode(namespaceProvider.get(), "region:" + name);
+  }
+
+  private static byte[] fieldOf(String field) {
+    return field.getBytes(StandardCharsets.UTF_8);
+  }
+}
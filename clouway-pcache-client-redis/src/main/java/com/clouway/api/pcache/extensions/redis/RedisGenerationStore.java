@@ -0,0 +1,52 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.KeyEncoder;
+import com.clouway.api.pcache.NamespaceGenerations;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * RedisGenerationStore is a {@link NamespaceGenerations.Store} which is keeping the generation of each namespace in a
+ * Redis counter. Missing counters are initialized by the current time within the same script that is reading or
+ * incrementing them.
+ */
+class RedisGenerationStore implements NamespaceGenerations.Store {
+
+  private static final byte[] GET_SCRIPT = (
+          "redis.call('SET', KEYS[1], ARGV[1], 'NX') " +
+          "return tonumber(redis.call('GET', KEYS[1]))"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] INCREMENT_SCRIPT = (
+          "redis.call('SET', KEYS[1], ARGV[1], 'NX') " +
+          "return redis.call('INCR', KEYS[1])"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  private final UnifiedJedis jedis;
+  private final KeyEncoder keyEncoder;
+
+  RedisGenerationStore(UnifiedJedis jedis, KeyEncoder keyEncoder) {
+    this.jedis = jedis;
+    this.keyEncoder = keyEncoder;
+  }
+
+  @Override
+  public long get(String namespace) {
+    return eval(GET_SCRIPT, namespace);
+  }
+
+  @Override
+  public long increment(String namespace) {
+    return eval(INCREMENT_SCRIPT, namespace);
+  }
+
+  private long eval(byte[] script, String namespace) {
+    return (Long) jedis.eval(
+            script,
+            Collections.singletonList(keyEncoder.encode(namespace, "namespace:generation")),
+            Collections.singletonList(String.valueOf(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8))
+    );
+  }
+}
@@ -0,0 +1,119 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.InvalidationChannel;
+import com.clouway.api.pcache.InvalidationListener;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * RedisInvalidationChannel is an {@link InvalidationChannel} which is using Redis Pub/Sub with a channel per
+ * namespace.
+ * <p/>
+ * Messages are tagged with the id of the channel that published them, so a node is not invalidating it's own writes.
+ * The keys of a batch are published in a single message, each of them prefixed by it's length.
+ */
+class RedisInvalidationChannel implements InvalidationChannel {
+  private static final String CHANNEL_PREFIX = "pcache:invalidate:";
+  private static final char SEPARATOR = '|';
+  private static final char KEY = 'K';
+  private static final char NAMESPACE = 'N';
+  private static final char BATCH = 'B';
+  private static final char LENGTH_SEPARATOR = ':';
+
+  private final UnifiedJedis jedis;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final CopyOnWriteArrayList<InvalidationListener> listeners = new CopyOnWriteArrayList<InvalidationListener>();
+  private final PatternSubscriber subscriber;
+
+  RedisInvalidationChannel(UnifiedJedis jedis) {
+    this.jedis = jedis;
+    this.subscriber = new PatternSubscriber(jedis, CHANNEL_PREFIX + "*", new PatternSubscriber.Handler() {
+      @Override
+      public void onSubscribed() {
+        // changes published while we were not subscribed are lost
+        notifyListeners(null, null);
+      }
+
+      @Override
+      public void onMessage(String channel, String message) {
+        int separator = message.indexOf(SEPARATOR);
+        if (separator < 0 || nodeId.equals(message.substring(0, separator))) {
+          return;
+        }
+
+        String namespace = channel.substring(CHANNEL_PREFIX.length());
+        if (message.charAt(separator + 1) == NAMESPACE) {
+          notifyListeners(namespace, null);
+        } else if (message.charAt(separator + 1) == BATCH) {
+          notifyBatch(namespace, message, separator + 2);
+        } else {
+          notifyListeners(namespace, message.substring(separator + 2));
+        }
+      }
+    });
+  }
+
+  @Override
+  public void publish(String namespace, String key) {
+    String message = key == null ? nodeId + SEPARATOR + NAMESPACE : nodeId + SEPARATOR + KEY + key;
+    jedis.publish(CHANNEL_PREFIX + namespace, message);
+  }
+
+  /**
+   * Keys are published in a single message.
+   */
+  @Override
+  public void publishAll(String namespace, Collection<String> keys) {
+    if (keys.isEmpty()) {
+      return;
+    }
+
+    StringBuilder message = new StringBuilder(nodeId).append(SEPARATOR).append(BATCH);
+    for (String key : keys) {
+      message.append(key.length()).append(LENGTH_SEPARATOR).append(key);
+    }
+    jedis.publish(CHANNEL_PREFIX + namespace, message.toString());
+  }
+
+  @Override
+  public void subscribe(InvalidationListener listener) {
+    listeners.add(listener);
+    subscriber.start();
+  }
+
+  @Override
+  public void close() {
+    subscriber.close();
+    listeners.clear();
+  }
+
+  private void notifyBatch(String namespace, String message, int offset) {
+    while (offset < message.length()) {
+      int separator = message.indexOf(LENGTH_SEPARATOR, offset);
+      if (separator < 0) {
+        return;
+      }
+      int start = separator + 1;
+      int end;
+      try {
+        end = start + Integer.parseInt(message.substring(offset, separator));
+      } catch (NumberFormatException e) {
+        return;
+      }
+      if (end < start || end > message.length()) {
+        return;
+      }
+      notifyListeners(namespace, message.substring(start, end));
+      offset = end;
+    }
+  }
+
+  private void notifyListeners(String namespace, String key) {
+    for (InvalidationListener listener : listeners) {
+      listener.invalidated(namespace, key);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.KeyEncoder;
+import com.clouway.api.pcache.KeyLock;
+import com.clouway.api.pcache.NamespaceProvider;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.params.SetParams;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RedisKeyLock is a {@link KeyLock} which is locking the keys with a single <code>SET NX PX</code>.
+ */
+class RedisKeyLock implements KeyLock {
+  private static final byte[] ONE = "1".getBytes(StandardCharsets.UTF_8);
+
+  private final UnifiedJedis jedis;
+  private final NamespaceProvider namespaceProvider;
+  private final KeyEncoder keyEncoder;
+
+  RedisKeyLock(UnifiedJedis jedis, NamespaceProvider namespaceProvider, KeyEncoder keyEncoder) {
+    this.jedis = jedis;
+    this.namespaceProvider = namespaceProvider;
+    this.keyEncoder = keyEncoder;
+  }
+
+  @Override
+  public boolean lock(String key, Long mills) {
+    if (mills == null || mills < 0) {
+      throw new IllegalArgumentException(" invalid mills value " + mills);
+    }
+
+    SetParams params = SetParams.setParams().nx();
+    if (mills > 0) {
+      params.px(mills);
+    }
+    return "OK".equals(jedis.set(keyEncoder.encode(namespaceProvider.get(), key), ONE, params));
+  }
+}
@@ -0,0 +1,167 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.CloseableLock;
+import com.clouway.api.pcache.KeyEncoder;
+import com.clouway.api.pcache.Lock;
+import com.clouway.api.pcache.NamespaceProvider;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * RedisLock is a {@link Lock} which is using Redis.
+ * <p/>
+ * A lock is acquired with a single <code>SET NX PX</code> of an owner token. Threads that are waiting for a lock are
+ * not polling Redis, but are blocked until the lock is released or until it expires. Releases are published through
+ * Redis Pub/Sub, so the waiting threads are retrying about a round trip after the release. The owner token is kept by
+ * the thread that acquired the lock, so only that thread is able to release it.
+ * <p/>
+ * As with the {@link Lock} of memcache, locks are held for <code>retryCount * 50</code> mills and threads are waiting
+ * the same period of time before giving up.
+ * <p/>
+ * Closing of the lock is stopping the subscription for the releases and is closing the client of Redis.
+ */
+class RedisLock implements CloseableLock {
+  private static final int RETRY_PERIOD_MILLS = 50;
+
+  private static final byte[] LOCK_SCRIPT = (
+          "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then " +
+          "  return 0 " +
+          "end " +
+          "local ttl = redis.call('PTTL', KEYS[1]) " +
+          "if ttl == -1 then " +
+          "  return -1 " +
+          "end " +
+          "return math.max(ttl, 1)"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] RELEASE_SCRIPT = (
+          "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+          "  redis.call('DEL', KEYS[1]) " +
+          "  redis.call('PUBLISH', ARGV[2], '1') " +
+          "  return 1 " +
+          "end " +
+          "return 0"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  private final UnifiedJedis jedis;
+  private final NamespaceProvider namespaceProvider;
+  private final KeyEncoder keyEncoder;
+  private final LockNotifier notifier;
+
+  /**
+   * The owner tokens of the locks that are held by the current thread, so a thread is never releasing a lock that was
+   * taken over by another thread after it's lease expired.
+   */
+  private final ThreadLocal<Map<String, String>> tokens = new ThreadLocal<Map<String, String>>() {
+    @Override
+    protected Map<String, String> initialValue() {
+      return new HashMap<String, String>();
+    }
+  };
+
+  RedisLock(UnifiedJedis jedis, NamespaceProvider namespaceProvider, KeyEncoder keyEncoder, LockNotifier notifier) {
+    this.jedis = jedis;
+    this.namespaceProvider = namespaceProvider;
+    this.keyEncoder = keyEncoder;
+    this.notifier = notifier;
+  }
+
+  @Override
+  public void lock(String key, int retryCount) {
+    lock(key, retryCount * RETRY_PERIOD_MILLS, retryCount * RETRY_PERIOD_MILLS);
+  }
+
+  @Override
+  public void lock(String key, long leaseMills, long timeoutMills) {
+    String lockKey = keyOf(key);
+    String token = UUID.randomUUID().toString();
+    long deadline = System.currentTimeMillis() + timeoutMills;
+
+    LockNotifier.Subscription subscription = null;
+    try {
+      while (true) {
+        long ttl = (Long) jedis.eval(
+                LOCK_SCRIPT,
+                Collections.singletonList(bytes(lockKey)),
+                Arrays.asList(bytes(token), bytes(String.valueOf(Math.max(1, leaseMills))))
+        );
+
+        if (ttl == 0) {
+          tokens.get().put(lockKey, token);
+          return;
+        }
+
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          throw new IllegalStateException("Lock timeout.Please be sure that you are using proper timeout or your" +
+                  "operation does not take much more time.");
+        }
+
+        if (subscription == null) {
+          // subscribed before the next attempt, so a release between the attempt and the wait is not missed
+          subscription = notifier.subscribe(lockKey);
+          continue;
+        }
+
+        subscription.await(ttl > 0 ? Math.min(ttl, remaining) : remaining);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Thread was interrupted while waiting for lock.");
+    } finally {
+      if (subscription != null) {
+        subscription.close();
+      }
+    }
+  }
+
+  /**
+   * Releases the lock only if it's held by the current thread. A lock that is not held by the thread, or that expired
+   * and was taken over by another thread, is left untouched.
+   */
+  @Override
+  public void releaseLock(String key) {
+    String lockKey = keyOf(key);
+    String token = tokens.get().remove(lockKey);
+    if (token == null) {
+      return;
+    }
+
+    jedis.eval(
+            RELEASE_SCRIPT,
+            Collections.singletonList(bytes(lockKey)),
+            Arrays.asList(bytes(token), bytes(LockNotifier.channelOf(lockKey)))
+    );
+  }
+
+  @Override
+  public void releaseLock(String key, long delayMills) {
+    try {
+      Thread.sleep(delayMills);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      releaseLock(key);
+    }
+  }
+
+  @Override
+  public void close() {
+    notifier.close();
+    jedis.close();
+  }
+
+  private String keyOf(String key) {
+    return new String(keyEncoder.encode(namespaceProvider.get(), key), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -3,15 +3,27 @@ package com.clouway.api.pcache.extensions.redis;
 import com.clouway.api.pcache.SafeValue;
 
 /**
+ * RedisSafeValue is a {@link SafeValue} which is carrying the stamp of the entry, so the entry could be updated only
+ * if it was not changed since it was read.
+ * <p/>
+ * Entries that were stored without a stamp are carrying their binary representation instead, which is compared as
+ * a whole.
+ *
  * @author Miroslav Genov (miroslav.genov@clouway.com)
  */
 class RedisSafeValue implements SafeValue {
   private final Object value;
   private final Long count;
+  private final byte[] raw;
 
   RedisSafeValue(Object value, Long count) {
+    this(value, count, null);
+  }
+
+  RedisSafeValue(Object value, Long count, byte[] raw) {
     this.value = value;
     this.count = count;
+    this.raw = raw;
   }
 
   @Override
@@ -19,8 +31,19 @@ class RedisSafeValue implements SafeValue {
     return value;
   }
 
+  /**
+   * Gets the stamp of the entry or null if entry was stored without a stamp. Stamps are random for the plain writes
+   * and are increased by one by the compare-and-sets, so they are not ordering the writes.
+   */
   public Long getCount() {
     return count;
   }
 
+  /**
+   * Gets the binary representation of the entries that were stored without a stamp.
+   */
+  byte[] getRaw() {
+    return raw;
+  }
+
 }
@@ -0,0 +1,477 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.NamespaceFlush;
+import redis.clients.jedis.ClusterPipeline;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.commands.PipelineBinaryCommands;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.providers.ClusterConnectionProvider;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * RedisTopology is representing the deployment of the Redis servers that are used by the cache managers and is
+ * giving access to the operations that are depending on it, like pipelining.
+ */
+abstract class RedisTopology implements Closeable {
+
+  /**
+   * Batch is a set of commands that are sent together and their responses are read in a single round trip per node.
+   */
+  static abstract class Batch implements Closeable {
+
+    /**
+     * Gets the commands used for queuing of the requests in the batch.
+     */
+    abstract PipelineBinaryCommands commands();
+
+    /**
+     * Sends the queued commands and reads their responses.
+     */
+    @Override
+    public abstract void close();
+  }
+
+  static RedisTopology standalone(String host, int port) {
+    return new Standalone(new JedisPooled(host, port));
+  }
+
+  static RedisTopology cluster(Set<HostAndPort> nodes) {
+    return new Cluster(new ClusterConnectionProvider(nodes, DefaultJedisClientConfig.builder().build()));
+  }
+
+  /**
+   * Gets the client that is used for execution of single commands.
+   */
+  abstract UnifiedJedis client();
+
+  /**
+   * Starts a new batch of commands.
+   */
+  abstract Batch batch();
+
+  /**
+   * Closes the connections to the servers.
+   */
+  @Override
+  public abstract void close();
+
+  /**
+   * Gets the values of multiple keys.
+   *
+   * @param keys the keys of the values
+   * @return the values in the order of the keys, with null for the missing ones
+   */
+  abstract List<byte[]> getAll(List<byte[]> keys);
+
+  /**
+   * Groups the indexes of the keys which could be read together with a single <code>MGET</code>.
+   *
+   * @param keys the keys
+   * @return the indexes of the keys of each group
+   */
+  abstract List<List<Integer>> readGroups(List<byte[]> keys);
+
+  /**
+   * Opens a connection to each of the master nodes. Connections are returned to their pools when closed.
+   */
+  abstract List<Connection> masters();
+
+  /**
+   * Removes the keys matching the provided pattern from every master node. Keys are iterated with <code>SCAN</code>
+   * and each page is removed with pipelined <code>UNLINK</code>s, so the nodes are never blocked by the walk of their
+   * keyspace or by the reclaiming of the memory of the removed values.
+   *
+   * @param pattern  the glob-style pattern of the keys
+   * @param count    the number of keys that are scanned per page
+   * @param progress the progress that is notified after each removed page
+   * @return the number of removed keys
+   */
+  long unlink(byte[] pattern, int count, NamespaceFlush.Progress progress) {
+    ScanParams params = new ScanParams().match(pattern).count(count);
+    long total = 0;
+
+    List<Connection> masters = masters();
+    try {
+      for (Connection connection : masters) {
+        Jedis node = new Jedis(connection);
+        byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+        do {
+          ScanResult<byte[]> page = node.scan(cursor, params);
+          cursor = page.getCursorAsBytes();
+
+          List<byte[]> keys = page.getResult();
+          if (keys.isEmpty()) {
+            continue;
+          }
+
+          List<Response<Long>> responses = new ArrayList<Response<Long>>(keys.size());
+          Pipeline pipeline = new Pipeline(connection);
+          for (byte[] key : keys) {
+            // keys are unlinked one by one as the keys of a page could belong to different slots
+            responses.add(pipeline.unlink(key));
+          }
+          pipeline.sync();
+
+          int removed = 0;
+          for (Response<Long> response : responses) {
+            removed += response.get();
+          }
+          total += removed;
+          progress.onBatch(removed, total);
+        } while (!Arrays.equals(cursor, ScanParams.SCAN_POINTER_START_BINARY));
+      }
+    } finally {
+      for (Connection connection : masters) {
+        connection.close();
+      }
+    }
+
+    return total;
+  }
+
+  private static class Standalone extends RedisTopology {
+    private final JedisPooled pool;
+
+    Standalone(JedisPooled pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    UnifiedJedis client() {
+      return pool;
+    }
+
+    @Override
+    Batch batch() {
+      final Connection connection = pool.getPool().getResource();
+      final Pipeline pipeline = new Pipeline(connection);
+
+      return new Batch() {
+        @Override
+        PipelineBinaryCommands commands() {
+          return pipeline;
+        }
+
+        @Override
+        public void close() {
+          try {
+            pipeline.sync();
+          } finally {
+            connection.close();
+          }
+        }
+      };
+    }
+
+    @Override
+    List<byte[]> getAll(List<byte[]> keys) {
+      return pool.mget(keys.toArray(new byte[0][]));
+    }
+
+    @Override
+    List<List<Integer>> readGroups(List<byte[]> keys) {
+      List<Integer> indexes = new ArrayList<Integer>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        indexes.add(i);
+      }
+      return Collections.singletonList(indexes);
+    }
+
+    @Override
+    List<Connection> masters() {
+      return Collections.singletonList(pool.getPool().getResource());
+    }
+
+    @Override
+    public void close() {
+      pool.close();
+    }
+  }
+
+  /**
+   * Cluster is reading the keys of a bulk lookup with a single MGET per hash slot, as keys of different slots cannot be
+   * read with a single MGET. The MGETs of the slots that are served by the same node are pipelined and the nodes are
+   * read in parallel.
+   * <p/>
+   * Slots which were not read, because they were moved to another node (MOVED or ASK) or their node was not reachable,
+   * are read once more from their owners after the slot cache is refreshed. Keys of the slots which are failing again
+   * are returned as missing.
+   */
+  static class Cluster extends RedisTopology {
+    private static final Logger log = Logger.getLogger(Cluster.class.getName());
+
+    /**
+     * SlotOwners is resolving the nodes which are serving the hash slots.
+     */
+    interface SlotOwners {
+
+      HostAndPort ownerOf(int slot);
+    }
+
+    private final ClusterConnectionProvider provider;
+    private final UnifiedJedis client;
+    private final ExecutorService executor;
+    private final SlotOwners owners;
+
+    Cluster(final ClusterConnectionProvider provider) {
+      this.provider = provider;
+      this.client = new UnifiedJedis(provider, JedisCluster.DEFAULT_MAX_ATTEMPTS,
+              Duration.ofMillis((long) JedisCluster.DEFAULT_TIMEOUT * JedisCluster.DEFAULT_MAX_ATTEMPTS));
+      this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "pcache-cluster-read");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      this.owners = new SlotOwners() {
+        @Override
+        public HostAndPort ownerOf(int slot) {
+          HostAndPort node = provider.getNode(slot);
+          if (node == null) {
+            provider.renewSlotCache();
+            node = provider.getNode(slot);
+          }
+          return node;
+        }
+      };
+    }
+
+    @Override
+    UnifiedJedis client() {
+      return client;
+    }
+
+    @Override
+    public void close() {
+      executor.shutdownNow();
+      client.close();
+    }
+
+    @Override
+    Batch batch() {
+      final ClusterPipeline pipeline = new ClusterPipeline(provider);
+
+      return new Batch() {
+        @Override
+        PipelineBinaryCommands commands() {
+          return pipeline;
+        }
+
+        @Override
+        public void close() {
+          pipeline.close();
+        }
+      };
+    }
+
+    @Override
+    List<byte[]> getAll(List<byte[]> keys) {
+      byte[][] values = new byte[keys.size()][];
+
+      List<List<Integer>> failed = read(groupByNode(groupBySlot(keys), keys, owners), keys, values);
+      if (!failed.isEmpty()) {
+        provider.renewSlotCache();
+        failed = read(groupByNode(failed, keys, owners), keys, values);
+        if (!failed.isEmpty()) {
+          log.warning(failed.size() + " slots were not read after the refresh of the slot cache.");
+        }
+      }
+
+      return Arrays.asList(values);
+    }
+
+    @Override
+    List<List<Integer>> readGroups(List<byte[]> keys) {
+      return groupBySlot(keys);
+    }
+
+    /**
+     * Groups the indexes of the keys by their hash slot. Slots are ordered by their first key and the indexes of each
+     * slot are kept in the order of the keys.
+     *
+     * @param keys the keys
+     * @return the indexes of the keys of each slot
+     */
+    static List<List<Integer>> groupBySlot(List<byte[]> keys) {
+      Map<Integer, List<Integer>> slots = new LinkedHashMap<Integer, List<Integer>>();
+      for (int i = 0; i < keys.size(); i++) {
+        int slot = JedisClusterCRC16.getSlot(keys.get(i));
+        List<Integer> indexes = slots.get(slot);
+        if (indexes == null) {
+          indexes = new ArrayList<Integer>();
+          slots.put(slot, indexes);
+        }
+        indexes.add(i);
+      }
+      return new ArrayList<List<Integer>>(slots.values());
+    }
+
+    /**
+     * Groups the slots by the node that is serving them.
+     *
+     * @param slots  the indexes of the keys of each slot
+     * @param keys   the keys
+     * @param owners the owners of the slots
+     * @return the slots of each node
+     */
+    static Map<HostAndPort, List<List<Integer>>> groupByNode(List<List<Integer>> slots, List<byte[]> keys, SlotOwners owners) {
+      Map<HostAndPort, List<List<Integer>>> nodes = new LinkedHashMap<HostAndPort, List<List<Integer>>>();
+      for (List<Integer> slot : slots) {
+        HostAndPort node = owners.ownerOf(JedisClusterCRC16.getSlot(keys.get(slot.get(0))));
+        List<List<Integer>> nodeSlots = nodes.get(node);
+        if (nodeSlots == null) {
+          nodeSlots = new ArrayList<List<Integer>>();
+          nodes.put(node, nodeSlots);
+        }
+        nodeSlots.add(slot);
+      }
+      return nodes;
+    }
+
+    /**
+     * Puts the values of a slot at the indexes of their keys.
+     *
+     * @param slot       the indexes of the keys of the slot
+     * @param slotValues the values in the order of the indexes
+     * @param values     the values of all keys
+     */
+    static void reassemble(List<Integer> slot, List<byte[]> slotValues, byte[][] values) {
+      for (int i = 0; i < slot.size(); i++) {
+        values[slot.get(i)] = slotValues.get(i);
+      }
+    }
+
+    @Override
+    List<Connection> masters() {
+      Set<HostAndPort> nodes = new LinkedHashSet<HostAndPort>();
+      for (int slot = 0; slot < Protocol.CLUSTER_HASHSLOTS; slot++) {
+        HostAndPort node = provider.getNode(slot);
+        if (node == null) {
+          provider.renewSlotCache();
+          node = provider.getNode(slot);
+        }
+        if (node != null) {
+          nodes.add(node);
+        }
+      }
+
+      List<Connection> connections = new ArrayList<Connection>(nodes.size());
+      try {
+        for (HostAndPort node : nodes) {
+          connections.add(provider.getConnection(node));
+        }
+      } catch (RuntimeException e) {
+        for (Connection connection : connections) {
+          connection.close();
+        }
+        throw e;
+      }
+      return connections;
+    }
+
+    /**
+     * Reads the slots of the nodes and returns the slots which were not read.
+     */
+    private List<List<Integer>> read(Map<HostAndPort, List<List<Integer>>> nodes, final List<byte[]> keys, final byte[][] values) {
+      if (nodes.size() == 1) {
+        Map.Entry<HostAndPort, List<List<Integer>>> node = nodes.entrySet().iterator().next();
+        return readNode(node.getKey(), node.getValue(), keys, values);
+      }
+
+      List<Future<List<List<Integer>>>> reads = new ArrayList<Future<List<List<Integer>>>>(nodes.size());
+      for (Map.Entry<HostAndPort, List<List<Integer>>> node : nodes.entrySet()) {
+        final HostAndPort address = node.getKey();
+        final List<List<Integer>> slots = node.getValue();
+        reads.add(executor.submit(new Callable<List<List<Integer>>>() {
+          @Override
+          public List<List<Integer>> call() {
+            return readNode(address, slots, keys, values);
+          }
+        }));
+      }
+
+      List<List<Integer>> failed = new ArrayList<List<Integer>>();
+      for (Future<List<List<Integer>>> read : reads) {
+        try {
+          failed.addAll(read.get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        } catch (ExecutionException e) {
+          log.log(Level.WARNING, "Keys of a cluster node were not read.", e.getCause());
+        }
+      }
+      return failed;
+    }
+
+    /**
+     * Reads the slots of a single node and returns the slots which were not read.
+     */
+    private List<List<Integer>> readNode(HostAndPort node, List<List<Integer>> slots, List<byte[]> keys, byte[][] values) {
+      if (node == null) {
+        return slots;
+      }
+
+      List<Response<List<byte[]>>> responses = new ArrayList<Response<List<byte[]>>>(slots.size());
+
+      try (Connection connection = provider.getConnection(node)) {
+        Pipeline pipeline = new Pipeline(connection);
+        for (List<Integer> slot : slots) {
+          byte[][] slotKeys = new byte[slot.size()][];
+          for (int i = 0; i < slot.size(); i++) {
+            slotKeys[i] = keys.get(slot.get(i));
+          }
+          responses.add(pipeline.mget(slotKeys));
+        }
+        pipeline.sync();
+      } catch (JedisException e) {
+        log.log(Level.WARNING, "Cluster node " + node + " was not read.", e);
+        return slots;
+      }
+
+      List<List<Integer>> failed = new ArrayList<List<Integer>>();
+      for (int i = 0; i < slots.size(); i++) {
+        try {
+          reassemble(slots.get(i), responses.get(i).get(), values);
+        } catch (JedisDataException e) {
+          // the slot was moved or is being migrated to another node
+          failed.add(slots.get(i));
+        }
+      }
+      return failed;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.ItemSerializer;
+import com.clouway.api.pcache.ValueFormat;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CacheItemTest {
+
+  private final ItemSerializer serializer = new ItemSerializer(new CodecRegistry(), Compression.disabled(), CacheItem.FORMAT);
+
+  @Test
+  public void legacyValuesAreReadable() {
+    assertThat(serializer.decode(legacy("::value::")), is(equalTo((Object) "::value::")));
+    assertThat(serializer.decode(legacy(12L)), is(equalTo((Object) 12L)));
+    assertThat(serializer.decodeEntry(legacy("::value::")).stamp, is(nullValue()));
+  }
+
+  @Test
+  public void envelopeIsSmallerThanLegacyFormat() {
+    assertThat(serializer.encode("::value::").length, is(lessThan(legacy("::value::").length)));
+  }
+
+  @Test
+  public void unknownContentIsMissed() {
+    assertThat(serializer.decode(new byte[]{1, 2, 3, 4}), is(nullValue()));
+  }
+
+  private byte[] legacy(Object value) {
+    return new CacheItem(ValueFormat.format(value)).toByteArray();
+  }
+}
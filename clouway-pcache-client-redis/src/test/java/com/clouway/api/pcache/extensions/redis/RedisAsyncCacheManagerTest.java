@@ -0,0 +1,181 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.AsyncCacheManager;
+import com.clouway.api.pcache.CacheException;
+import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CloseableAsyncCacheManager;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.NamespaceProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.testcontainers.containers.GenericContainer;
+import redis.clients.jedis.JedisPooled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RedisAsyncCacheManagerTest {
+
+  @ClassRule
+  public static GenericContainer redis = new GenericContainer<>("redis:5.0.3-alpine")
+          .withExposedPorts(6379);
+
+  private final NamespaceProvider namespaceProvider = new NamespaceProvider() {
+    @Override
+    public String get() {
+      return "default";
+    }
+  };
+
+  private CloseableAsyncCacheManager cacheManager;
+  private CacheManager syncCacheManager;
+
+  @Before
+  public void setUp() {
+    String host = redis.getContainerIpAddress() + ":" + redis.getFirstMappedPort();
+    cacheManager = RedisCacheManagerFactory.createAsync(host);
+    syncCacheManager = RedisCacheManagerFactory.create(host);
+    syncCacheManager.flushCache();
+  }
+
+  @After
+  public void tearDown() {
+    cacheManager.close();
+  }
+
+  @Test
+  public void closedManagerStopsItsSenderAndFailsTheOperations() throws Exception {
+    String host = redis.getContainerIpAddress() + ":" + redis.getFirstMappedPort();
+    int senders = senderThreads();
+    CloseableAsyncCacheManager cacheManager = RedisCacheManagerFactory.createAsync(host);
+    assertThat(senderThreads(), is(equalTo(senders + 1)));
+
+    cacheManager.close();
+
+    assertThat(senderThreads(), is(equalTo(senders)));
+    try {
+      cacheManager.get("::key::").get();
+      fail("exception must be thrown");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(CacheException.class)));
+    }
+  }
+
+  @Test
+  public void getWhatWasPut() throws Exception {
+    cacheManager.put("::key::", "::value::").get();
+
+    assertThat((String) cacheManager.get("::key::").get(), is(equalTo("::value::")));
+    assertThat((String) syncCacheManager.get("::key::"), is(equalTo("::value::")));
+  }
+
+  @Test
+  public void compressedValuesAreReadByConfiguredManager() throws Exception {
+    String host = redis.getContainerIpAddress() + ":" + redis.getFirstMappedPort();
+    AsyncCacheManager cacheManager = RedisCacheManagerFactory.createAsync(host, namespaceProvider, new CodecRegistry(), Compression.deflate(16));
+    CacheManager syncCacheManager = RedisCacheManagerFactory.create(host, namespaceProvider, new CodecRegistry(), Compression.deflate(16));
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      value.append('x');
+    }
+
+    syncCacheManager.put("::key::", value.toString());
+
+    assertThat((String) cacheManager.get("::key::").get(), is(equalTo(value.toString())));
+  }
+
+  @Test
+  public void concurrentLookups() throws Exception {
+    List<CompletableFuture<Void>> puts = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      puts.add(cacheManager.put("::key " + i + "::", i));
+    }
+    CompletableFuture.allOf(puts.toArray(new CompletableFuture[0])).get();
+
+    List<CompletableFuture<Object>> gets = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      gets.add(cacheManager.get("::key " + i + "::"));
+    }
+
+    for (int i = 0; i < 100; i++) {
+      assertThat((Integer) gets.get(i).get(), is(equalTo(i)));
+    }
+  }
+
+  @Test
+  public void getAllInKeyOrder() throws Exception {
+    syncCacheManager.put("::key1::", "::value1::");
+    syncCacheManager.put("::key3::", "::value3::");
+
+    MatchResult<String> result = cacheManager.getAll(Arrays.asList("::key1::", "::key2::", "::key3::"), String.class).get();
+
+    assertThat(result.getHits(), is(equalTo(Arrays.asList("::value1::", "::value3::"))));
+    assertThat(result.getMissedKeys(), is(equalTo(Arrays.asList("::key2::"))));
+  }
+
+  @Test
+  public void keysOfOtherTypesAreMissedWithoutAffectingTheOthers() throws Exception {
+    syncCacheManager.put("::key1::", "::value1::");
+    syncCacheManager.put("::key3::", "::value3::");
+    JedisPooled jedis = new JedisPooled(redis.getContainerIpAddress(), redis.getFirstMappedPort());
+    try {
+      jedis.lpush("default:::key2::", "::item::");
+    } finally {
+      jedis.close();
+    }
+
+    MatchResult<String> result = cacheManager.getAll(Arrays.asList("::key1::", "::key2::", "::key3::"), String.class).get();
+
+    assertThat(result.getHits(), is(equalTo(Arrays.asList("::value1::", "::value3::"))));
+    assertThat(result.getMissedKeys(), is(equalTo(Arrays.asList("::key2::"))));
+  }
+
+  @Test
+  public void removedKeyIsNoLongerRetrievable() throws Exception {
+    cacheManager.put("::key::", "::value::").get();
+    cacheManager.remove("::key::").get();
+
+    assertThat(cacheManager.get("::key::").get(), is(nullValue()));
+  }
+
+  @Test
+  public void incrementValue() throws Exception {
+    cacheManager.increment("::counter::", 2L);
+
+    assertThat(cacheManager.increment("::counter::", 3L).get(), is(equalTo(5L)));
+  }
+
+  @Test
+  public void nonSerializableValue() throws Exception {
+    try {
+      cacheManager.put("::key::", new Object()).get();
+      fail("Exception must be thrown");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(CacheException.class)));
+    }
+  }
+
+  private static int senderThreads() {
+    int count = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("pcache-pipeline")) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -1,18 +1,48 @@
 package com.clouway.api.pcache.extensions.redis;
 
+import com.clouway.api.pcache.CacheException;
 import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CacheMetrics;
+import com.clouway.api.pcache.CacheOperation;
+import com.clouway.api.pcache.CacheRegion;
+import com.clouway.api.pcache.CacheRegions;
+import com.clouway.api.pcache.CodecRegistry;
+import com.clouway.api.pcache.Compression;
+import com.clouway.api.pcache.FencedLock;
+import com.clouway.api.pcache.InstrumentedCacheManager;
+import com.clouway.api.pcache.LockLease;
+import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.NamespaceFlush;
 import com.clouway.api.pcache.NamespaceProvider;
+import com.clouway.api.pcache.TaggedCache;
+import com.clouway.api.pcache.ValueCodec;
+import com.clouway.api.pcache.ValueFormat;
 import com.clouway.api.pcache.testing.CacheManagerContract;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.testcontainers.containers.GenericContainer;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPooled;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * @author Miroslav Genov (miroslav.genov@clouway.com)
@@ -45,6 +75,372 @@ public class RedisCacheManagerTest extends CacheManagerContract {
     assertThat((String) cacheManager.get("key1"), is(equalTo("value-ns2")));
   }
 
+  @Test
+  public void flushRemovesOnlyKeysOfTheCurrentNamespace() {
+    final LinkedList<String> namespaces = new LinkedList<String>();
+    CacheManager cacheManager = RedisCacheManagerFactory.create(redis.getContainerIpAddress() + ":" + redis.getFirstMappedPort(), new NamespaceProvider() {
+      @Override
+      public String get() {
+        return namespaces.peek();
+      }
+    });
+
+    namespaces.push("ns2");
+    cacheManager.flushCache();
+    cacheManager.put("::key::", "::value ns2::");
+    namespaces.push("ns1");
+    cacheManager.flushCache();
+    for (int i = 0; i < 2500; i++) {
+      cacheManager.put("::key " + i + "::", "::value::");
+    }
+
+    final List<Long> totals = new ArrayList<Long>();
+    long removed = ((NamespaceFlush) cacheManager).flushNamespace(new NamespaceFlush.Progress() {
+      @Override
+      public void onBatch(int removed, long total) {
+        totals.add(total);
+      }
+    });
+
+    assertThat(removed, is(equalTo(2500L)));
+    assertThat(totals.get(totals.size() - 1), is(equalTo(2500L)));
+    assertThat(cacheManager.get("::key 0::"), is(nullValue()));
+
+    namespaces.pop();
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) "::value ns2::")));
+    cacheManager.flushCache();
+  }
+
+  @Test
+  public void flushOfVersionedNamespaceIsIncrementingItsGeneration() {
+    final LinkedList<String> namespaces = new LinkedList<String>();
+    NamespaceProvider namespaceProvider = new NamespaceProvider() {
+      @Override
+      public String get() {
+        return namespaces.peek();
+      }
+    };
+    String host = redis.getContainerIpAddress() + ":" + redis.getFirstMappedPort();
+    CacheManager cacheManager = RedisCacheManagerFactory.createVersioned(host, namespaceProvider, 60000L);
+    CacheManager otherClient = RedisCacheManagerFactory.createVersioned(host, namespaceProvider, 0L);
+
+    namespaces.push("ns2");
+    cacheManager.put("::key::", "::value ns2::");
+    namespaces.push("ns1");
+    cacheManager.put("::key::", "::value ns1::");
+    assertThat(otherClient.get("::key::"), is(equalTo((Object) "::value ns1::")));
+
+    cacheManager.flushCache();
+
+    assertThat(cacheManager.get("::key::"), is(nullValue()));
+    assertThat(otherClient.get("::key::"), is(nullValue()));
+
+    namespaces.pop();
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) "::value ns2::")));
+  }
+
+  @Test
+  public void regionIsKeptInASingleHashWithSharedExpiration() {
+    CacheRegion region = ((CacheRegions) createCacheManager()).region("::user::", 60000L);
+
+    Map<String, Object> values = new HashMap<String, Object>();
+    for (int i = 0; i < 1200; i++) {
+      values.put("::field " + i + "::", "::value " + i + "::");
+    }
+    region.putAll(values);
+    region.put("::name::", "::John::");
+
+    MatchResult<String> result = region.getAll(Arrays.asList("::name::", "::field 1199::", "::missing::"), String.class);
+    assertThat(result.getHits(), is(equalTo(Arrays.asList("::John::", "::value 1199::"))));
+    assertThat(result.getMissedKeys(), is(equalTo(Arrays.asList("::missing::"))));
+
+    JedisPooled jedis = new JedisPooled(redis.getContainerIpAddress(), redis.getFirstMappedPort());
+    try {
+      assertThat(jedis.hlen("default:region:::user::"), is(equalTo(1201L)));
+      assertThat(jedis.pttl("default:region:::user::"), is(allOf(greaterThan(0L), lessThanOrEqualTo(60000L))));
+    } finally {
+      jedis.close();
+    }
+  }
+
+  @Test
+  public void invalidatedRegion() {
+    CacheRegion region = ((CacheRegions) createCacheManager()).region("::user::", 60000L);
+    region.put("::name::", "::John::");
+    region.put("::email::", "::john@example.com::");
+    region.remove("::email::");
+
+    assertThat(region.get("::email::"), is(nullValue()));
+    assertThat(region.get("::name::"), is(equalTo((Object) "::John::")));
+
+    region.invalidate();
+    assertThat(region.get("::name::"), is(nullValue()));
+  }
+
+  @Test
+  public void invalidatedTag() {
+    CacheManager cacheManager = createCacheManager();
+    TaggedCache taggedCache = (TaggedCache) cacheManager;
+
+    taggedCache.putTagged("::price::", "::10::", 60000L, new HashSet<String>(Arrays.asList("::product 1::", "::prices::")));
+    taggedCache.putTagged("::name::", "::Phone::", 60000L, Collections.singleton("::product 1::"));
+    taggedCache.putTagged("::other price::", "::20::", 60000L, Collections.singleton("::prices::"));
+    cacheManager.put("::untagged::", "::value::");
+
+    taggedCache.invalidateTag("::product 1::");
+
+    assertThat(cacheManager.get("::price::"), is(nullValue()));
+    assertThat(cacheManager.get("::name::"), is(nullValue()));
+    assertThat(cacheManager.get("::other price::"), is(equalTo((Object) "::20::")));
+    assertThat(cacheManager.get("::untagged::"), is(equalTo((Object) "::value::")));
+
+    JedisPooled jedis = new JedisPooled(redis.getContainerIpAddress(), redis.getFirstMappedPort());
+    try {
+      assertThat(jedis.exists("default:tag:::product 1::"), is(false));
+      assertThat(jedis.pttl("default:tag:::prices::"), is(allOf(greaterThan(0L), lessThanOrEqualTo(60000L))));
+    } finally {
+      jedis.close();
+    }
+  }
+
+  @Test
+  public void invalidateTagWithManyKeys() {
+    CacheManager cacheManager = createCacheManager();
+    TaggedCache taggedCache = (TaggedCache) cacheManager;
+
+    for (int i = 0; i < 1200; i++) {
+      taggedCache.putTagged("::key " + i + "::", "::value " + i + "::", 60000L, Collections.singleton("::tag::"));
+    }
+
+    taggedCache.invalidateTag("::tag::");
+
+    for (int i = 0; i < 1200; i++) {
+      assertThat(cacheManager.contains("::key " + i + "::"), is(false));
+    }
+  }
+
+  @Test
+  public void fencingTokensAreIncreasing() {
+    FencedLock lock = (FencedLock) createCacheManager();
+
+    LockLease first = lock.tryLock("::key::", 10000);
+    assertThat(lock.tryLock("::key::", 10000), is(nullValue()));
+    assertThat(lock.unlock(first), is(true));
+
+    LockLease second = lock.tryLock("::key::", 10000);
+    assertThat(second.getFence() > first.getFence(), is(true));
+  }
+
+  @Test
+  public void fencingCounterIsExpiringAndIsRemovedByFlush() {
+    FencedLock lock = (FencedLock) createCacheManager();
+    LockLease lease = lock.tryLock("::key::", 10000);
+
+    JedisPooled jedis = new JedisPooled(redis.getContainerIpAddress(), redis.getFirstMappedPort());
+    byte[] fenceKey = "default:fence:{default:::key::}".getBytes(StandardCharsets.UTF_8);
+    assertThat(jedis.pttl(fenceKey), is(greaterThan(10000L)));
+
+    lock.unlock(lease);
+    createCacheManager().flushCache();
+    assertThat(jedis.exists(fenceKey), is(false));
+
+    // a flushed counter is initialized by the current time, so tokens keep increasing
+    assertThat(lock.tryLock("::key::", 10000).getFence() > lease.getFence(), is(true));
+  }
+
+  @Test
+  public void fencingTokensAreIncreasingAfterFlushOfVersionedNamespace() {
+    String host = redis.getContainerIpAddress() + ":" + redis.getFirstMappedPort();
+    CacheManager cacheManager = RedisCacheManagerFactory.createVersioned(host, new NamespaceProvider() {
+      @Override
+      public String get() {
+        return "default";
+      }
+    }, 0L);
+    FencedLock lock = (FencedLock) cacheManager;
+
+    LockLease first = lock.tryLock("::key::", 10000);
+    cacheManager.flushCache();
+
+    LockLease second = lock.tryLock("::key::", 10000);
+    assertThat(second.getFence(), is(equalTo(first.getFence() + 1)));
+  }
+
+  @Test
+  public void lockIsReleasedOnlyByItsOwner() {
+    FencedLock lock = (FencedLock) createCacheManager();
+
+    LockLease lease = lock.tryLock("::key::", 10000);
+
+    assertThat(lock.unlock(new LockLease("::key::", "::other token::", lease.getFence())), is(false));
+    assertThat(lock.tryLock("::key::", 10000), is(nullValue()));
+    assertThat(lock.unlock(lease), is(true));
+    assertThat(lock.unlock(lease), is(false));
+  }
+
+  @Test
+  public void lockExpires() throws Exception {
+    FencedLock lock = (FencedLock) createCacheManager();
+
+    LockLease lease = lock.tryLock("::key::", 50);
+    Thread.sleep(100);
+
+    assertThat(lock.tryLock("::key::", 10000).getFence() > lease.getFence(), is(true));
+    assertThat(lock.unlock(lease), is(false));
+  }
+
+  @Test
+  public void putAllExpiresEachKey() {
+    Map<String, Object> values = new HashMap<String, Object>();
+    for (int i = 0; i < 1200; i++) {
+      values.put("::key " + i + "::", "::value " + i + "::");
+    }
+
+    createCacheManager().putAll(values, 60000L);
+
+    JedisPooled jedis = new JedisPooled(redis.getContainerIpAddress(), redis.getFirstMappedPort());
+    try {
+      assertThat(jedis.pttl("default:::key 0::"), is(allOf(greaterThan(0L), lessThanOrEqualTo(60000L))));
+      assertThat(jedis.pttl("default:::key 1199::"), is(allOf(greaterThan(0L), lessThanOrEqualTo(60000L))));
+    } finally {
+      jedis.close();
+    }
+  }
+
+  @Test
+  public void putAllWithoutPositiveExpiration() {
+    Map<String, Object> values = Collections.<String, Object>singletonMap("::key::", "::value::");
+    CacheManager cacheManager = createCacheManager();
+
+    for (Long mills : Arrays.asList(null, 0L, -1L)) {
+      try {
+        cacheManager.putAll(values, mills);
+        fail("exception must be thrown");
+      } catch (IllegalArgumentException e) {
+        assertThat(cacheManager.get("::key::"), is(nullValue()));
+      }
+    }
+  }
+
+  @Test
+  public void rejectedWritesOfPutAllAreReported() {
+    Jedis jedis = new Jedis(redis.getContainerIpAddress(), redis.getFirstMappedPort());
+    // every write is rejected with an OOM error when memory limit is reached
+    jedis.configSet("maxmemory", "1");
+    try {
+      createCacheManager().putAll(Collections.<String, Object>singletonMap("::key::", "::value::"), 60000L);
+      fail("exception must be thrown");
+    } catch (CacheException e) {
+      assertThat(jedis.exists("default:::key::"), is(false));
+    } finally {
+      jedis.configSet("maxmemory", "0");
+      jedis.close();
+    }
+  }
+
+  @Test
+  public void safePutIncreasesTheStampOfTheEntry() {
+    CacheManager cacheManager = createCacheManager();
+    cacheManager.put("::key::", "::value::");
+
+    RedisSafeValue first = (RedisSafeValue) cacheManager.getSafeValue("::key::");
+    assertThat(cacheManager.safePut("::key::", first, "::new value::"), is(true));
+
+    RedisSafeValue second = (RedisSafeValue) cacheManager.getSafeValue("::key::");
+    assertThat(second.getCount(), is(equalTo(first.getCount() + 1)));
+    assertThat(second.getValue(), is(equalTo((Object) "::new value::")));
+    assertThat(cacheManager.safePut("::key::", first, "::other value::"), is(false));
+  }
+
+  @Test
+  public void safePutOfEntryWithoutStamp() {
+    JedisPooled jedis = new JedisPooled(redis.getContainerIpAddress(), redis.getFirstMappedPort());
+    try {
+      jedis.set("default:::key::".getBytes(StandardCharsets.UTF_8), new CacheItem(ValueFormat.format("::value::")).toByteArray());
+    } finally {
+      jedis.close();
+    }
+
+    CacheManager cacheManager = createCacheManager();
+    RedisSafeValue safeValue = (RedisSafeValue) cacheManager.getSafeValue("::key::");
+
+    assertThat(safeValue.getCount(), is(nullValue()));
+    assertThat(cacheManager.safePut("::key::", safeValue, "::new value::"), is(true));
+    assertThat(cacheManager.get("::key::"), is(equalTo((Object) "::new value::")));
+    assertThat(cacheManager.safePut("::key::", safeValue, "::other value::"), is(false));
+  }
+
+  @Test
+  public void valuesOfRegisteredTypesAreEncodedByTheirCodec() {
+    CacheManager cacheManager = RedisCacheManagerFactory.create(redis.getContainerIpAddress() + ":" + redis.getFirstMappedPort(), new NamespaceProvider() {
+      @Override
+      public String get() {
+        return "default";
+      }
+    }, nameCodecs());
+
+    cacheManager.put("::key::", new Name("::name::"));
+
+    assertThat(((Name) cacheManager.get("::key::")).value, is(equalTo("::name::")));
+  }
+
+  @Test
+  public void versionedValuesOfRegisteredTypesAreEncodedByTheirCodec() {
+    CacheManager cacheManager = RedisCacheManagerFactory.createVersioned(redis.getContainerIpAddress() + ":" + redis.getFirstMappedPort(), new NamespaceProvider() {
+      @Override
+      public String get() {
+        return "default";
+      }
+    }, nameCodecs(), Compression.deflate(16), 60000L);
+
+    cacheManager.put("::key::", new Name("::name::"));
+
+    assertThat(((Name) cacheManager.get("::key::")).value, is(equalTo("::name::")));
+  }
+
+  @Test
+  public void encodedSizesOfValuesAreRecorded() {
+    CacheMetrics metrics = new CacheMetrics();
+    CacheManager cacheManager = new InstrumentedCacheManager(createCacheManager(), new NamespaceProvider() {
+      @Override
+      public String get() {
+        return "default";
+      }
+    }, metrics);
+
+    cacheManager.put("::key::", "::value::");
+    cacheManager.get("::key::");
+    cacheManager.getAll(Arrays.asList("::key::", "::missing::"), String.class);
+
+    long size = metrics.of("default", CacheOperation.PUT).getSizes().getSum();
+    assertThat(size, is(greaterThan(9L)));
+    assertThat(metrics.of("default", CacheOperation.GET).getSizes().getSum(), is(equalTo(size)));
+    assertThat(metrics.of("default", CacheOperation.GET_ALL).getSizes().getCount(), is(equalTo(1L)));
+    assertThat(metrics.of("default", CacheOperation.GET_ALL).getSizes().getSum(), is(equalTo(size)));
+  }
+
+  private static CodecRegistry nameCodecs() {
+    return new CodecRegistry().register(1, Name.class, new ValueCodec<Name>() {
+      @Override
+      public byte[] encode(Name value) {
+        return value.value.getBytes(StandardCharsets.UTF_8);
+      }
+
+      @Override
+      public Name decode(byte[] data) {
+        return new Name(new String(data, StandardCharsets.UTF_8));
+      }
+    });
+  }
+
+  static class Name {
+    final String value;
+
+    Name(String value) {
+      this.value = value;
+    }
+  }
+
   @Before
   public void setUp() {
     createCacheManager().flushCache();
@@ -0,0 +1,107 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.InvalidationListener;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.testcontainers.containers.GenericContainer;
+import redis.clients.jedis.JedisPooled;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RedisInvalidationChannelTest {
+
+  @ClassRule
+  public static GenericContainer redis = new GenericContainer<>("redis:5.0.3-alpine")
+          .withExposedPorts(6379);
+
+  static class RecordingListener implements InvalidationListener {
+    final BlockingQueue<String> events = new LinkedBlockingQueue<String>();
+
+    @Override
+    public void invalidated(String namespace, String key) {
+      events.add(namespace + "/" + key);
+    }
+
+    String next() throws InterruptedException {
+      return events.poll(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void changesArePublishedToOtherNodes() throws Exception {
+    RedisInvalidationChannel node1 = new RedisInvalidationChannel(newPool());
+    RedisInvalidationChannel node2 = new RedisInvalidationChannel(newPool());
+
+    RecordingListener node1Listener = new RecordingListener();
+    RecordingListener node2Listener = new RecordingListener();
+    node1.subscribe(node1Listener);
+    node2.subscribe(node2Listener);
+
+    // subscription was established
+    assertThat(node1Listener.next(), is(equalTo("null/null")));
+    assertThat(node2Listener.next(), is(equalTo("null/null")));
+
+    node1.publish("ns1", "::key::");
+    node1.publish("ns1", null);
+
+    assertThat(node2Listener.next(), is(equalTo("ns1/::key::")));
+    assertThat(node2Listener.next(), is(equalTo("ns1/null")));
+    assertThat(node1Listener.events.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+  }
+
+  @Test
+  public void keysOfBatchArePublishedTogether() throws Exception {
+    RedisInvalidationChannel node1 = new RedisInvalidationChannel(newPool());
+    RedisInvalidationChannel node2 = new RedisInvalidationChannel(newPool());
+
+    RecordingListener node2Listener = new RecordingListener();
+    node2.subscribe(node2Listener);
+    assertThat(node2Listener.next(), is(equalTo("null/null")));
+
+    node1.publishAll("ns1", Arrays.asList("::key1::", "::key:2|B3::", ""));
+
+    assertThat(node2Listener.next(), is(equalTo("ns1/::key1::")));
+    assertThat(node2Listener.next(), is(equalTo("ns1/::key:2|B3::")));
+    assertThat(node2Listener.next(), is(equalTo("ns1/")));
+  }
+
+  @Test
+  public void closedChannelIsNotReceivingChanges() throws Exception {
+    RedisInvalidationChannel node1 = new RedisInvalidationChannel(newPool());
+    RedisInvalidationChannel node2 = new RedisInvalidationChannel(newPool());
+
+    int threads = subscriberThreads();
+    RecordingListener node2Listener = new RecordingListener();
+    node2.subscribe(node2Listener);
+    assertThat(node2Listener.next(), is(equalTo("null/null")));
+
+    node2.close();
+    Thread.sleep(200);
+    node1.publish("ns1", "::key::");
+
+    assertThat(node2Listener.events.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+    assertThat(subscriberThreads(), is(equalTo(threads)));
+  }
+
+  private static int subscriberThreads() {
+    int count = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("pcache-subscriber-pcache:invalidate:")) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private JedisPooled newPool() {
+    return new JedisPooled(redis.getContainerIpAddress(), redis.getFirstMappedPort());
+  }
+}
@@ -0,0 +1,54 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.KeyLock;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.testcontainers.containers.GenericContainer;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RedisKeyLockTest {
+
+  @ClassRule
+  public static GenericContainer redis = new GenericContainer<>("redis:5.0.3-alpine")
+          .withExposedPorts(6379);
+
+  private KeyLock keyLock;
+
+  @Before
+  public void setUp() {
+    String host = redis.getContainerIpAddress() + ":" + redis.getFirstMappedPort();
+    keyLock = RedisCacheManagerFactory.createKeyLock(host);
+    RedisCacheManagerFactory.create(host).flushCache();
+  }
+
+  @Test
+  public void lockKey() throws Exception {
+    assertTrue(keyLock.lock("key", 1000L));
+  }
+
+  @Test
+  public void lockKeyUnsuccessfulWhenAlreadyLockedKey() throws Exception {
+    assertTrue(keyLock.lock("key1", 5000L));
+    assertFalse(keyLock.lock("key1", 50L));
+  }
+
+  @Test
+  public void lockKeySuccessfulAfterLockPeriod() throws Exception {
+    assertTrue(keyLock.lock("key2", 50L));
+    Thread.sleep(100);
+    assertTrue(keyLock.lock("key2", 1000L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidMills() throws Exception {
+    keyLock.lock("key3", null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void lessThanZeroMills() throws Exception {
+    keyLock.lock("key4", -1L);
+  }
+}
@@ -0,0 +1,163 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import com.clouway.api.pcache.CacheManager;
+import com.clouway.api.pcache.CloseableLock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.testcontainers.containers.GenericContainer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class RedisLockTest {
+
+  @ClassRule
+  public static GenericContainer redis = new GenericContainer<>("redis:5.0.3-alpine")
+          .withExposedPorts(6379);
+
+  private CloseableLock lock;
+  private CacheManager cacheManager;
+
+  @Before
+  public void setUp() {
+    String host = redis.getContainerIpAddress() + ":" + redis.getFirstMappedPort();
+    lock = RedisCacheManagerFactory.createLock(host);
+    cacheManager = RedisCacheManagerFactory.create(host);
+    cacheManager.flushCache();
+  }
+
+  @After
+  public void tearDown() {
+    lock.close();
+  }
+
+  @Test
+  public void closedLockStopsItsSubscription() throws Exception {
+    int threads = subscriberThreads();
+    lock.lock("::key::", 10000L, 100L);
+    final CountDownLatch waiting = new CountDownLatch(1);
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        waiting.countDown();
+        try {
+          lock.lock("::key::", 10000L, 200L);
+        } catch (IllegalStateException e) {
+          // timed out
+        }
+      }
+    }).start();
+    waiting.await();
+    Thread.sleep(100);
+    assertThat(subscriberThreads(), is(threads + 1));
+
+    lock.close();
+    Thread.sleep(200);
+
+    assertThat(subscriberThreads(), is(threads));
+  }
+
+  @Test
+  public void lockAndUnlock() {
+    lock.lock("test", 50);
+    assertThat(cacheManager.contains("test"), is(true));
+
+    lock.releaseLock("test");
+    assertThat(cacheManager.contains("test"), is(false));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void lockRetryFailsWhenCountReached() {
+    // already one has a lock
+    lock.lock("lock_test", 100);
+
+    // when we ask for lock
+    lock.lock("lock_test", 2);
+  }
+
+  @Test
+  public void expiredLockTakenOverByAnotherThreadIsNotReleasedByThePreviousHolder() throws Exception {
+    lock.lock("::key::", 50L, 50L);
+    Thread.sleep(100);
+
+    Thread other = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        lock.lock("::key::", 10000L, 1000L);
+      }
+    });
+    other.start();
+    other.join();
+
+    lock.releaseLock("::key::");
+    assertThat(cacheManager.contains("::key::"), is(true));
+
+    // a second release of the previous holder is not deleting the lock either
+    lock.releaseLock("::key::");
+    assertThat(cacheManager.contains("::key::"), is(true));
+  }
+
+  @Test
+  public void lockIsReleasedOnlyByTheThreadThatHoldsIt() throws Exception {
+    lock.lock("::key::", 10000L, 1000L);
+
+    Thread other = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        lock.releaseLock("::key::");
+      }
+    });
+    other.start();
+    other.join();
+    assertThat(cacheManager.contains("::key::"), is(true));
+
+    lock.releaseLock("::key::");
+    assertThat(cacheManager.contains("::key::"), is(false));
+  }
+
+  @Test
+  public void waitingThreadIsNotifiedWhenLockIsReleased() throws Exception {
+    lock.lock("::key::", 200);
+
+    final CountDownLatch waiting = new CountDownLatch(1);
+    final CountDownLatch acquired = new CountDownLatch(1);
+    final AtomicLong acquiredAt = new AtomicLong();
+    Thread waiter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        waiting.countDown();
+        lock.lock("::key::", 200);
+        acquiredAt.set(System.currentTimeMillis());
+        acquired.countDown();
+      }
+    });
+    waiter.start();
+
+    waiting.await();
+    Thread.sleep(200);
+    long releasedAt = System.currentTimeMillis();
+    lock.releaseLock("::key::");
+
+    assertTrue("lock was not acquired", acquired.await(5, TimeUnit.SECONDS));
+    // the lease of the first lock is 10 seconds, so the waiter was woken up by the release
+    assertThat(acquiredAt.get() - releasedAt, is(lessThan(1000L)));
+  }
+
+  private static int subscriberThreads() {
+    int count = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("pcache-subscriber-pcache:lock:")) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,75 @@
+package com.clouway.api.pcache.extensions.redis;
+
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RedisTopologyTest {
+
+  private static final HostAndPort NODE1 = new HostAndPort("::node1::", 7000);
+  private static final HostAndPort NODE2 = new HostAndPort("::node2::", 7001);
+
+  @Test
+  public void keysAreGroupedBySlotInTheirOrder() {
+    List<byte[]> keys = keys("{a}1", "{b}1", "{a}2", "{c}1", "{b}2");
+
+    List<List<Integer>> slots = RedisTopology.Cluster.groupBySlot(keys);
+
+    assertThat(slots, contains(Arrays.asList(0, 2), Arrays.asList(1, 4), Arrays.asList(3)));
+  }
+
+  @Test
+  public void slotsAreGroupedByTheirNodes() {
+    final List<byte[]> keys = keys("{a}1", "{b}1", "{a}2", "{c}1");
+    final int slotOfA = JedisClusterCRC16.getSlot("a");
+
+    Map<HostAndPort, List<List<Integer>>> nodes = RedisTopology.Cluster.groupByNode(RedisTopology.Cluster.groupBySlot(keys), keys, new RedisTopology.Cluster.SlotOwners() {
+      @Override
+      public HostAndPort ownerOf(int slot) {
+        return slot == slotOfA ? NODE1 : NODE2;
+      }
+    });
+
+    assertThat(new ArrayList<HostAndPort>(nodes.keySet()), contains(NODE1, NODE2));
+    assertThat(nodes.get(NODE1), contains(Arrays.asList(0, 2)));
+    assertThat(nodes.get(NODE2), contains(Arrays.asList(1), Arrays.asList(3)));
+  }
+
+  @Test
+  public void valuesOfSlotsAreReassembledInTheOrderOfTheKeys() {
+    List<byte[]> keys = keys("{a}1", "{b}1", "{a}2", "{c}1");
+    byte[][] values = new byte[keys.size()][];
+
+    RedisTopology.Cluster.reassemble(Arrays.asList(1), Arrays.asList(bytes("::b1::")), values);
+    RedisTopology.Cluster.reassemble(Arrays.asList(0, 2), Arrays.asList(bytes("::a1::"), bytes("::a2::")), values);
+    RedisTopology.Cluster.reassemble(Arrays.asList(3), Arrays.<byte[]>asList((byte[]) null), values);
+
+    assertThat(values[0], is(equalTo(bytes("::a1::"))));
+    assertThat(values[1], is(equalTo(bytes("::b1::"))));
+    assertThat(values[2], is(equalTo(bytes("::a2::"))));
+    assertThat(values[3] == null, is(true));
+  }
+
+  private static List<byte[]> keys(String... keys) {
+    List<byte[]> result = new ArrayList<byte[]>();
+    for (String key : keys) {
+      result.add(bytes(key));
+    }
+    return result;
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -4,6 +4,7 @@ import com.clouway.api.pcache.CacheException;
 import com.clouway.api.pcache.CacheManager;
 import com.clouway.api.pcache.CacheTime;
 import com.clouway.api.pcache.MatchResult;
+import com.clouway.api.pcache.MissedHitsProvider;
 import com.clouway.api.pcache.SafeValue;
 import org.jmock.integration.junit4.JUnitRuleMockery;
 import org.junit.Assert;
@@ -12,9 +13,11 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Objects;
 
 import static junit.framework.TestCase.assertNull;
@@ -243,6 +246,39 @@ public abstract class CacheManagerContract {
     assertThat(result.getHits().get(0), is(equalTo(person)));
   }
 
+  @Test
+  public void readThroughLoadsOnlyMissedKeys() {
+    cacheManager.put("::key2::", "::value2::");
+    final List<List<String>> requested = new ArrayList<List<String>>();
+
+    MatchResult<String> result = cacheManager.getAll(Arrays.asList("::key1::", "::key2::", "::key3::"), String.class, new MissedHitsProvider<String>() {
+      @Override
+      public List<String> get(List<String> missingKeys) {
+        requested.add(new ArrayList<String>(missingKeys));
+        return Arrays.asList("::value1::", "::value3::");
+      }
+    }, 10000L);
+
+    assertThat(requested, is(equalTo(Collections.singletonList(Arrays.asList("::key1::", "::key3::")))));
+    assertThat(result.getHits(), is(equalTo(Arrays.asList("::value1::", "::value2::", "::value3::"))));
+    assertThat(result.hasMissedKeys(), is(equalTo(false)));
+  }
+
+  @Test
+  public void readThroughCachesLoadedValues() {
+    cacheManager.getAll("prefix", Arrays.asList("::key1::", "::key2::"), String.class, new MissedHitsProvider<String>() {
+      @Override
+      public List<String> get(List<String> missingKeys) {
+        return Arrays.asList("::value1::", null);
+      }
+    }, 10000L);
+
+    MatchResult<String> result = cacheManager.getAll("prefix", Arrays.asList("::key1::", "::key2::"), String.class);
+
+    assertThat(result.getHits(), is(equalTo(Arrays.asList("::value1::"))));
+    assertThat(result.getMissedKeys(), is(equalTo(Arrays.asList("::key2::"))));
+  }
+
   @Test
   public void lockUnknownKey() {
     assertTrue(cacheManager.lock("::key::"));
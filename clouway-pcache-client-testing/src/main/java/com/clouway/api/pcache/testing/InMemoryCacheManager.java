@@ -2,7 +2,6 @@ package com.clouway.api.pcache.testing;
 
 import com.clouway.api.pcache.CacheException;
 import com.clouway.api.pcache.CacheManager;
-import com.clouway.api.pcache.MissedHitsProvider;
 import com.clouway.api.pcache.MatchResult;
 import com.clouway.api.pcache.SafeValue;
 